@@ -0,0 +1,105 @@
+package dev.einsjannis.jsonparser.benchmark;
+
+import dev.einsjannis.jsonparser.JSONArray;
+import dev.einsjannis.jsonparser.JSONObject;
+import dev.einsjannis.jsonparser.JSONSnapshot;
+import dev.einsjannis.jsonparser.JSONSyntaxError;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures loading the {@code config.json} like {@code Main} does: read the
+ * file, read {@code delay} and resolve every picture to an absolute path.
+ * <p>
+ * {@link #main(Blackhole)} is the load path as it runs today, through a
+ * valid {@link JSONSnapshot}. {@link #lazy(Blackhole)} and
+ * {@link #eager(Blackhole)} parse the {@code JSON} on every load,
+ * {@link #legacy(Blackhole)} is the original one (concatenating the lines
+ * to a {@link String} and parsing it) for comparison. The config is pretty
+ * printed like the default config {@code Main} writes.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ConfigLoadBenchmark {
+
+    @Param({"3", "1000", "10000"})
+    public int pictures;
+
+    private Path configFile;
+    private Path snapshotFile;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException, JSONSyntaxError {
+        configFile = Files.createTempFile("config", ".json");
+        Files.write(configFile, Corpus.generate(Corpus.Shape.CONFIG, pictures, "    ").getBytes(StandardCharsets.UTF_8));
+        snapshotFile = configFile.resolveSibling(configFile.getFileName() + ".snapshot");
+        JSONSnapshot.load(configFile, snapshotFile);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(configFile);
+        Files.deleteIfExists(snapshotFile);
+    }
+
+    @Benchmark
+    public void main(Blackhole blackhole) throws IOException, JSONSyntaxError {
+        use(JSONSnapshot.load(configFile, snapshotFile), blackhole);
+    }
+
+    @Benchmark
+    public void lazy(Blackhole blackhole) throws IOException, JSONSyntaxError {
+        use(JSONObject.lazyFromFile(configFile), blackhole);
+    }
+
+    @Benchmark
+    public void eager(Blackhole blackhole) throws IOException, JSONSyntaxError {
+        use(JSONObject.fromFile(configFile), blackhole);
+    }
+
+    @Benchmark
+    public void legacy(Blackhole blackhole) throws IOException, JSONSyntaxError {
+        String configstring = "";
+        try (BufferedReader bufferedconfigreader = new BufferedReader(new FileReader(configFile.toFile()))) {
+            while (true) {
+                String s = bufferedconfigreader.readLine();
+                if (s == null) {
+                    break;
+                }
+                configstring += s;
+            }
+        }
+        use(JSONObject.fromString(configstring), blackhole);
+    }
+
+    private void use(JSONObject configjson, Blackhole blackhole) {
+        JSONArray picturesarray = (JSONArray) configjson.get("pictures");
+        picturesarray.forEach(picture -> blackhole.consume(new File((String) picture).getAbsolutePath()));
+        blackhole.consume(configjson.getLong("delay"));
+    }
+}
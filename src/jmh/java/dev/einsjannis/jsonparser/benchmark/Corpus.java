@@ -0,0 +1,267 @@
+package dev.einsjannis.jsonparser.benchmark;
+
+import dev.einsjannis.jsonparser.JSONWriter;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.Random;
+
+/**
+ * Generates the {@code JSON} documents the benchmarks run on.
+ * <p>
+ * Every document is generated from a fixed seed, so two runs with the same
+ * {@link Shape} and size measure exactly the same input. The size of a
+ * document is given in elements (pictures, numbers, strings, ...), the
+ * benchmarks expose it as {@code @Param} so it can be changed on the command
+ * line with {@code -p elements=...}.
+ * <p>
+ * {@link #main(String[])} writes a corpus to a file, for example to feed the
+ * same input to another parser:
+ * {@code java -cp target/benchmarks.jar dev.einsjannis.jsonparser.benchmark.Corpus strings 100000 strings.json}
+ */
+public final class Corpus {
+
+    private static final long SEED = 0x5EED;
+
+    /**
+     * The different kinds of documents.
+     */
+    public enum Shape {
+        /** The {@code config.json} of the wallpaper engine with many pictures. */
+        CONFIG,
+        /** An object with one large flat array of small integers. */
+        FLAT,
+        /** Long strings, some with escape sequences. */
+        STRINGS,
+        /** Objects with integral and floating point numbers of all sizes. */
+        NUMBERS,
+        /** A mix of everything, like a picture library with metadata. */
+        MIXED
+    }
+
+    private Corpus() {
+    }
+
+    /**
+     * Generates a document witch always has an object as root.
+     *
+     * @param shape the kind of document
+     * @param elements number of elements of the document
+     * @return the document
+     */
+    public static String generate(Shape shape, int elements) {
+        return generate(shape, elements, null);
+    }
+
+    /**
+     * Generates a pretty printed document witch always has an object as root.
+     *
+     * @param shape the kind of document
+     * @param elements number of elements of the document
+     * @param indent indentation per level or {@code null} for a compact document
+     * @return the document
+     */
+    public static String generate(Shape shape, int elements, String indent) {
+        Random random = new Random(SEED);
+        return write(indent, writer -> {
+            switch (shape) {
+                case CONFIG:
+                    config(writer, elements);
+                    break;
+                case FLAT:
+                    writer.beginObject().name("values");
+                    flat(writer, elements, random);
+                    writer.endObject();
+                    break;
+                case STRINGS:
+                    strings(writer, elements, random);
+                    break;
+                case NUMBERS:
+                    numbers(writer, elements, random);
+                    break;
+                case MIXED:
+                    mixed(writer, elements, random);
+                    break;
+                default:
+                    throw new IllegalArgumentException(shape.name());
+            }
+        });
+    }
+
+    /**
+     * Generates a document witch is one flat array of small integers.
+     *
+     * @param elements length of the array
+     * @return the document
+     */
+    public static String flatArray(int elements) {
+        Random random = new Random(SEED);
+        return write(null, writer -> flat(writer, elements, random));
+    }
+
+    /**
+     * Generates a picture manifest: a top level array with one object per
+     * picture, or the same objects as newline delimited {@code JSON}.
+     *
+     * @param elements number of pictures
+     * @param lines {@code true} for one object per line instead of an array
+     * @return the document
+     */
+    public static String manifest(int elements, boolean lines) {
+        Random random = new Random(SEED);
+        if (lines) {
+            StringBuilder builder = new StringBuilder();
+            for (int i = 0; i < elements; i++) {
+                int index = i;
+                builder.append(write(null, writer -> picture(writer, index, random))).append('\n');
+            }
+            return builder.toString();
+        }
+        return write(null, writer -> {
+            writer.beginArray();
+            for (int i = 0; i < elements; i++) {
+                picture(writer, i, random);
+            }
+            writer.endArray();
+        });
+    }
+
+    /**
+     * Generates an array of {@code elements / depth} (at least one) values,
+     * each nested {@code depth} levels deep with objects and arrays
+     * alternating. The size of the document stays roughly the same for every
+     * depth, so only the nesting changes.
+     *
+     * @param depth nesting depth of every value
+     * @param elements roughly the number of nested containers in the document
+     * @return the document
+     */
+    public static String nested(int depth, int elements) {
+        return write(null, writer -> {
+            writer.beginArray();
+            for (int n = 0; n < Math.max(1, elements / depth); n++) {
+                for (int level = 0; level < depth; level++) {
+                    if (level % 2 == 0) {
+                        writer.beginObject().name("level").value(level).name("child");
+                    } else {
+                        writer.beginArray().value(level).value("level");
+                    }
+                }
+                writer.nullValue();
+                for (int level = depth - 1; level >= 0; level--) {
+                    if (level % 2 == 0) {
+                        writer.endObject();
+                    } else {
+                        writer.endArray();
+                    }
+                }
+            }
+            writer.endArray();
+        });
+    }
+
+    private static void config(JSONWriter writer, int pictures) throws IOException {
+        writer.beginObject().name("delay").value(10000).name("pictures").beginArray();
+        for (int i = 0; i < pictures; i++) {
+            writer.value("sample-background-" + i + ".jpg");
+        }
+        writer.endArray().endObject();
+    }
+
+    private static void flat(JSONWriter writer, int elements, Random random) throws IOException {
+        writer.beginArray();
+        for (int i = 0; i < elements; i++) {
+            writer.value(random.nextInt(1000));
+        }
+        writer.endArray();
+    }
+
+    private static void strings(JSONWriter writer, int elements, Random random) throws IOException {
+        writer.beginObject().name("strings").beginArray();
+        StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < elements; i++) {
+            builder.setLength(0);
+            builder.append("C:/Users/wallpaper/Pictures/");
+            int words = 2 + random.nextInt(8);
+            for (int w = 0; w < words; w++) {
+                for (int c = 3 + random.nextInt(6); c > 0; c--) {
+                    builder.append((char) ('a' + random.nextInt(26)));
+                }
+                builder.append(random.nextInt(16) == 0 ? "\t\"quoted\"\n" : " ");
+            }
+            builder.append(i).append(".jpg");
+            writer.value(builder.toString());
+        }
+        writer.endArray().endObject();
+    }
+
+    private static void numbers(JSONWriter writer, int elements, Random random) throws IOException {
+        writer.beginObject().name("points").beginArray();
+        for (int i = 0; i < elements; i++) {
+            writer.beginObject()
+                    .name("id").value(random.nextLong())
+                    .name("x").value(random.nextDouble() * 1000)
+                    .name("y").value(-random.nextDouble())
+                    .name("scale").value(random.nextGaussian() * 1e-12)
+                    .name("count").value(random.nextInt(100))
+                    .endObject();
+        }
+        writer.endArray().endObject();
+    }
+
+    private static void mixed(JSONWriter writer, int elements, Random random) throws IOException {
+        writer.beginObject().name("delay").value(10000).name("library").beginArray();
+        for (int i = 0; i < elements; i++) {
+            picture(writer, i, random);
+        }
+        writer.endArray().endObject();
+    }
+
+    private static void picture(JSONWriter writer, int i, Random random) throws IOException {
+        writer.beginObject()
+                .name("path").value("library/picture-" + i + ".jpg")
+                .name("width").value(3840)
+                .name("height").value(2160)
+                .name("favorite").value(random.nextBoolean())
+                .name("tags").beginArray().value("nature").value("night").endArray()
+                .name("meta").beginObject()
+                .name("camera").value(random.nextInt(4) == 0 ? null : "unknown")
+                .name("rating").value(random.nextInt(5))
+                .name("exposure").value(random.nextDouble())
+                .endObject()
+                .endObject();
+    }
+
+    private static String write(String indent, Content content) {
+        StringWriter out = new StringWriter();
+        try (JSONWriter writer = new JSONWriter(out).setIndent(indent)) {
+            content.write(writer);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return out.toString();
+    }
+
+    private interface Content {
+        void write(JSONWriter writer) throws IOException;
+    }
+
+    /**
+     * Writes a corpus to a file.
+     *
+     * @param args {@code <shape> <elements> <file>}
+     * @throws IOException if the file can't be written
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length != 3) {
+            System.err.println("usage: Corpus <config|flat|strings|numbers|mixed> <elements> <file>");
+            System.exit(1);
+        }
+        String document = generate(Shape.valueOf(args[0].toUpperCase()), Integer.parseInt(args[1]));
+        Files.write(Paths.get(args[2]), document.getBytes(StandardCharsets.UTF_8));
+    }
+}
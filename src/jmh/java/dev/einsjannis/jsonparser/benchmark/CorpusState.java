@@ -0,0 +1,39 @@
+package dev.einsjannis.jsonparser.benchmark;
+
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * A generated {@link Corpus} document in every representation the parse
+ * paths take as input. The {@link ByteBuffer} is direct, like a mapped file.
+ */
+@State(Scope.Benchmark)
+public class CorpusState {
+
+    @Param({"CONFIG", "FLAT", "STRINGS", "NUMBERS", "MIXED"})
+    public Corpus.Shape shape;
+
+    @Param({"1000", "100000"})
+    public int elements;
+
+    public String string;
+    public char[] chars;
+    public byte[] bytes;
+    public ByteBuffer buffer;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        string = Corpus.generate(shape, elements);
+        chars = string.toCharArray();
+        bytes = string.getBytes(StandardCharsets.UTF_8);
+        buffer = ByteBuffer.allocateDirect(bytes.length);
+        buffer.put(bytes);
+        buffer.flip();
+    }
+}
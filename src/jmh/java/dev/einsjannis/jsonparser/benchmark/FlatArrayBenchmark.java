@@ -0,0 +1,68 @@
+package dev.einsjannis.jsonparser.benchmark;
+
+import dev.einsjannis.jsonparser.JSONArray;
+import dev.einsjannis.jsonparser.JSONBufferLexer;
+import dev.einsjannis.jsonparser.JSONParser;
+import dev.einsjannis.jsonparser.JSONSyntaxError;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures a document witch is one large flat array of integers, parsed with
+ * {@link JSONArray#fromChars(char[])}, from a buffer and into a primitive
+ * {@code JSONNumberArray}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class FlatArrayBenchmark {
+
+    @Param({"1000", "100000", "1000000"})
+    public int elements;
+
+    private char[] chars;
+    private ByteBuffer buffer;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        chars = Corpus.flatArray(elements).toCharArray();
+        byte[] bytes = new String(chars).getBytes(StandardCharsets.UTF_8);
+        buffer = ByteBuffer.allocateDirect(bytes.length);
+        buffer.put(bytes);
+        buffer.flip();
+    }
+
+    @Benchmark
+    public JSONArray fromChars() throws JSONSyntaxError {
+        return JSONArray.fromChars(chars);
+    }
+
+    @Benchmark
+    public JSONArray fromBuffer() throws JSONSyntaxError {
+        return JSONArray.fromBuffer(buffer.duplicate());
+    }
+
+    @Benchmark
+    public JSONArray primitive() throws JSONSyntaxError {
+        return new JSONParser(new JSONBufferLexer(buffer.duplicate()).lex())
+                .setPrimitiveArrays(true)
+                .parseDocumentArray();
+    }
+}
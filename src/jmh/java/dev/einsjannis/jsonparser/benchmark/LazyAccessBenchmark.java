@@ -0,0 +1,86 @@
+package dev.einsjannis.jsonparser.benchmark;
+
+import dev.einsjannis.jsonparser.JSONArray;
+import dev.einsjannis.jsonparser.JSONObject;
+import dev.einsjannis.jsonparser.JSONSyntaxError;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the eager {@link JSONObject#fromBuffer(ByteBuffer)} with the lazy
+ * {@link JSONObject#lazyFromBuffer(ByteBuffer)} for the access pattern of
+ * {@code Main}: a big document of witch only {@code delay} and a single
+ * picture are read.
+ * <p>
+ * Run with {@code java -jar target/benchmarks.jar LazyAccessBenchmark}, the
+ * allocated bytes per operation are reported next to the time.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class LazyAccessBenchmark {
+
+    @Param({"1000", "100000"})
+    public int pictures;
+
+    private ByteBuffer document;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        StringBuilder builder = new StringBuilder();
+        builder.append("{\"delay\":10000,\"pictures\":[");
+        for (int i = 0; i < pictures; i++) {
+            if (i > 0) {
+                builder.append(',');
+            }
+            builder.append("\"library/picture-").append(i).append(".jpg\"");
+        }
+        builder.append("],\"library\":[");
+        for (int i = 0; i < pictures; i++) {
+            if (i > 0) {
+                builder.append(',');
+            }
+            builder.append("{\"path\":\"library/picture-").append(i).append(".jpg\",")
+                    .append("\"width\":3840,\"height\":2160,\"tags\":[\"nature\",\"night\"],")
+                    .append("\"meta\":{\"camera\":\"unknown\",\"rating\":").append(i % 5).append("}}");
+        }
+        builder.append("]}");
+        byte[] bytes = builder.toString().getBytes(StandardCharsets.UTF_8);
+        document = ByteBuffer.allocateDirect(bytes.length);
+        document.put(bytes);
+        document.flip();
+    }
+
+    @Benchmark
+    public void eager(Blackhole blackhole) throws JSONSyntaxError {
+        read(JSONObject.fromBuffer(document.duplicate()), blackhole);
+    }
+
+    @Benchmark
+    public void lazy(Blackhole blackhole) throws JSONSyntaxError {
+        read(JSONObject.lazyFromBuffer(document.duplicate()), blackhole);
+    }
+
+    private void read(JSONObject config, Blackhole blackhole) {
+        blackhole.consume(config.get("delay"));
+        blackhole.consume(((JSONArray) config.get("pictures")).get(pictures / 2));
+    }
+}
@@ -0,0 +1,57 @@
+package dev.einsjannis.jsonparser.benchmark;
+
+import dev.einsjannis.jsonparser.JSONBufferLexer;
+import dev.einsjannis.jsonparser.JSONLexer;
+import dev.einsjannis.jsonparser.JSONPart;
+import dev.einsjannis.jsonparser.JSONReader;
+import dev.einsjannis.jsonparser.JSONStringTable;
+import dev.einsjannis.jsonparser.JSONSyntaxError;
+import dev.einsjannis.jsonparser.JSONTokens;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.CharArrayReader;
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the lexical analysis alone: the {@link JSONLexer} creating
+ * {@link JSONPart}s (with and without a {@link JSONStringTable}), the
+ * {@link JSONBufferLexer} filling {@link JSONTokens}
+ * and the {@link JSONReader} skipping over the whole document.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class LexerBenchmark {
+
+    @Benchmark
+    public List<JSONPart> lexer(CorpusState corpus) throws JSONSyntaxError {
+        return new JSONLexer(corpus.chars).lex();
+    }
+
+    @Benchmark
+    public List<JSONPart> lexerInterned(CorpusState corpus) throws JSONSyntaxError {
+        return new JSONLexer(corpus.chars, new JSONStringTable()).lex();
+    }
+
+    @Benchmark
+    public JSONTokens bufferLexer(CorpusState corpus) throws JSONSyntaxError {
+        return new JSONBufferLexer(corpus.buffer.duplicate()).lex();
+    }
+
+    @Benchmark
+    public long reader(CorpusState corpus) throws IOException, JSONSyntaxError {
+        JSONReader reader = new JSONReader(new CharArrayReader(corpus.chars));
+        reader.skipValue();
+        return reader.getPosition();
+    }
+}
@@ -0,0 +1,80 @@
+package dev.einsjannis.jsonparser.benchmark;
+
+import dev.einsjannis.jsonparser.JSONArray;
+import dev.einsjannis.jsonparser.JSONReader;
+import dev.einsjannis.jsonparser.JSONSyntaxError;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.CharArrayReader;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures how the parse paths scale with the nesting depth. The number of
+ * containers stays the same for every depth (see
+ * {@link Corpus#nested(int, int)}), so a flat line means the cost per
+ * container doesn't depend on the depth.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class NestingBenchmark {
+
+    @Param({"2", "16", "128", "1024"})
+    public int depth;
+
+    @Param({"100000"})
+    public int elements;
+
+    private char[] chars;
+    private ByteBuffer buffer;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        chars = Corpus.nested(depth, elements).toCharArray();
+        byte[] bytes = new String(chars).getBytes(StandardCharsets.UTF_8);
+        buffer = ByteBuffer.allocateDirect(bytes.length);
+        buffer.put(bytes);
+        buffer.flip();
+    }
+
+    @Benchmark
+    public JSONArray fromChars() throws JSONSyntaxError {
+        return JSONArray.fromChars(chars);
+    }
+
+    @Benchmark
+    public JSONArray fromBuffer() throws JSONSyntaxError {
+        return JSONArray.fromBuffer(buffer.duplicate());
+    }
+
+    @Benchmark
+    public JSONArray lazyFromBuffer() throws JSONSyntaxError {
+        JSONArray array = JSONArray.lazyFromBuffer(buffer.duplicate());
+        array.size();
+        return array;
+    }
+
+    @Benchmark
+    public long reader() throws IOException, JSONSyntaxError {
+        JSONReader reader = new JSONReader(new CharArrayReader(chars));
+        reader.skipValue();
+        return reader.getPosition();
+    }
+}
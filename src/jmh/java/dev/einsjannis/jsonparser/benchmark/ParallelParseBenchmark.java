@@ -0,0 +1,88 @@
+package dev.einsjannis.jsonparser.benchmark;
+
+import dev.einsjannis.jsonparser.JSONArray;
+import dev.einsjannis.jsonparser.JSONParallelParser;
+import dev.einsjannis.jsonparser.JSONSyntaxError;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures how the {@link JSONParallelParser} scales with the number of
+ * threads on a picture manifest of several megabytes (about 170 bytes per
+ * picture), as top level array and as newline delimited {@code JSON}.
+ * {@link #sequential()} is the baseline of {@link JSONArray#fromBuffer(ByteBuffer)}.
+ * <p>
+ * The pool size is a {@code @Param}, run with
+ * {@code -p threads=1,2,4,8,16} to match the machine. So far it only ran on
+ * a single core, where every pool size is as fast as {@link #sequential()};
+ * the speedup on several cores is still unmeasured.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class ParallelParseBenchmark {
+
+    @Param({"1", "2", "4", "8"})
+    public int threads;
+
+    @Param({"50000"})
+    public int pictures;
+
+    private ForkJoinPool pool;
+    private ByteBuffer array;
+    private ByteBuffer lines;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        pool = new ForkJoinPool(threads);
+        array = direct(Corpus.manifest(pictures, false));
+        lines = direct(Corpus.manifest(pictures, true));
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        pool.shutdown();
+    }
+
+    private static ByteBuffer direct(String document) {
+        byte[] bytes = document.getBytes(StandardCharsets.UTF_8);
+        ByteBuffer buffer = ByteBuffer.allocateDirect(bytes.length);
+        buffer.put(bytes);
+        buffer.flip();
+        return buffer;
+    }
+
+    @Benchmark
+    public JSONArray sequential() throws JSONSyntaxError {
+        return JSONArray.fromBuffer(array.duplicate());
+    }
+
+    @Benchmark
+    public JSONArray parallelArray() throws JSONSyntaxError {
+        return new JSONParallelParser(pool).parseArray(array.duplicate());
+    }
+
+    @Benchmark
+    public JSONArray parallelLines() throws JSONSyntaxError {
+        return new JSONParallelParser(pool).parseLines(lines.duplicate());
+    }
+}
@@ -0,0 +1,62 @@
+package dev.einsjannis.jsonparser.benchmark;
+
+import dev.einsjannis.jsonparser.JSONBufferLexer;
+import dev.einsjannis.jsonparser.JSONObject;
+import dev.einsjannis.jsonparser.JSONParser;
+import dev.einsjannis.jsonparser.JSONStringTable;
+import dev.einsjannis.jsonparser.JSONSyntaxError;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.CharArrayReader;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the full parse of a document into {@link JSONObject}s and
+ * {@code JSONArray}s over every input path.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ParserBenchmark {
+
+    @Benchmark
+    public JSONObject fromString(CorpusState corpus) throws JSONSyntaxError {
+        return JSONObject.fromString(corpus.string);
+    }
+
+    @Benchmark
+    public JSONObject fromChars(CorpusState corpus) throws JSONSyntaxError {
+        return JSONObject.fromChars(corpus.chars);
+    }
+
+    @Benchmark
+    public JSONObject fromCharsInterned(CorpusState corpus) throws JSONSyntaxError {
+        return JSONObject.fromChars(corpus.chars, new JSONStringTable());
+    }
+
+    @Benchmark
+    public JSONObject fromReader(CorpusState corpus) throws IOException, JSONSyntaxError {
+        return JSONObject.fromReader(new CharArrayReader(corpus.chars));
+    }
+
+    @Benchmark
+    public JSONObject fromBuffer(CorpusState corpus) throws JSONSyntaxError {
+        return JSONObject.fromBuffer(corpus.buffer.duplicate());
+    }
+
+    @Benchmark
+    public JSONObject fromBufferPrimitiveArrays(CorpusState corpus) throws JSONSyntaxError {
+        return new JSONParser(new JSONBufferLexer(corpus.buffer.duplicate()).lex())
+                .setPrimitiveArrays(true)
+                .parseDocumentObject();
+    }
+}
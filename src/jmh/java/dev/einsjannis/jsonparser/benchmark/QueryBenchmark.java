@@ -0,0 +1,83 @@
+package dev.einsjannis.jsonparser.benchmark;
+
+import dev.einsjannis.jsonparser.JSONArray;
+import dev.einsjannis.jsonparser.JSONObject;
+import dev.einsjannis.jsonparser.JSONQuery;
+import dev.einsjannis.jsonparser.JSONReader;
+import dev.einsjannis.jsonparser.JSONSyntaxError;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.CharArrayReader;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares extracting fields with a {@link JSONQuery} to a raw scan of the
+ * document ({@link JSONReader#skipValue()}) and to parsing it completely.
+ * The document is the {@code MIXED} corpus, a picture library with
+ * metadata.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class QueryBenchmark {
+
+    private static final JSONQuery DELAY = JSONQuery.compile("/delay");
+    private static final JSONQuery PATHS = JSONQuery.compile("/library/*/path");
+    private static final JSONQuery RATING = JSONQuery.compile("/library/50/meta/rating");
+
+    @Param({"1000", "100000"})
+    public int elements;
+
+    private char[] chars;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        chars = Corpus.generate(Corpus.Shape.MIXED, elements).toCharArray();
+    }
+
+    @Benchmark
+    public Object delay() throws IOException, JSONSyntaxError {
+        return DELAY.first(new CharArrayReader(chars));
+    }
+
+    @Benchmark
+    public Object rating() throws IOException, JSONSyntaxError {
+        return RATING.first(new CharArrayReader(chars));
+    }
+
+    @Benchmark
+    public int paths(Blackhole blackhole) throws IOException, JSONSyntaxError {
+        return PATHS.select(new CharArrayReader(chars), blackhole::consume);
+    }
+
+    @Benchmark
+    public long rawScan() throws IOException, JSONSyntaxError {
+        JSONReader reader = new JSONReader(new CharArrayReader(chars));
+        reader.skipValue();
+        return reader.getPosition();
+    }
+
+    @Benchmark
+    public void fullParse(Blackhole blackhole) throws IOException, JSONSyntaxError {
+        JSONObject library = JSONObject.fromReader(new CharArrayReader(chars));
+        for (Object picture : (JSONArray) library.get("library")) {
+            blackhole.consume(((JSONObject) picture).get("path"));
+        }
+    }
+}
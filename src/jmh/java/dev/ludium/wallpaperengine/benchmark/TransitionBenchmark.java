@@ -0,0 +1,102 @@
+package dev.ludium.wallpaperengine.benchmark;
+
+import dev.ludium.wallpaperengine.TransitionEngine;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.awt.image.BufferedImage;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the {@link TransitionEngine} headless at common screen sizes.
+ * {@link #transition()} blends all frames of one cross-fade without waiting
+ * between them, so {@code frames} divided by its time is the frame rate the
+ * engine reaches and {@code gc.alloc.rate.norm} the bytes allocated per
+ * transition. {@link #frame()} measures single frames in frames per second.
+ * <p>
+ * The pool size is a {@code @Param}, run with {@code -p threads=1,2,4,8} to
+ * match the machine.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx2g", "-Djava.awt.headless=true"})
+public class TransitionBenchmark {
+
+    @Param({"1920x1080", "2560x1440", "3840x2160"})
+    public String resolution;
+
+    @Param({"30"})
+    public int frames;
+
+    @Param({"1", "4"})
+    public int threads;
+
+    private ForkJoinPool pool;
+    private TransitionEngine engine;
+    private BufferedImage from;
+    private BufferedImage to;
+    private int frame;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        int width = Integer.parseInt(resolution.substring(0, resolution.indexOf('x')));
+        int height = Integer.parseInt(resolution.substring(resolution.indexOf('x') + 1));
+        pool = new ForkJoinPool(threads);
+        engine = new TransitionEngine(pool);
+        from = picture(width, height, 1);
+        to = picture(width, height, 2);
+        engine.prepare(from, to);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        pool.shutdown();
+    }
+
+    @Benchmark
+    public BufferedImage transition() {
+        engine.prepare(from, to);
+        BufferedImage last = null;
+        for (int k = 1; k <= frames; k++) {
+            last = engine.frame(k, frames);
+        }
+        return last;
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.Throughput)
+    @OutputTimeUnit(TimeUnit.SECONDS)
+    public BufferedImage frame() {
+        frame = frame % frames + 1;
+        return engine.frame(frame, frames);
+    }
+
+    private static BufferedImage picture(int width, int height, long seed) {
+        BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        Random random = new Random(seed);
+        int[] row = new int[width];
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                row[x] = random.nextInt() & 0xFFFFFF;
+            }
+            image.setRGB(0, y, width, 1, row, 0, width);
+        }
+        return image;
+    }
+}
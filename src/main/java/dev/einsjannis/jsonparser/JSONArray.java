@@ -1,5 +1,11 @@
 package dev.einsjannis.jsonparser;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -8,16 +14,22 @@ import java.util.List;
  * {@link ArrayList} features, this class provides the functionality to parse
  * itself from a {@code JSON string}.
  * <p>
- * As part of the {@code JSON parser} witch is contained inside of this class,
- * it implements {@link ClassWithIterator}. The ability to change the position
- * of the {@code iterator} ({@link #i}) allows an external class to skip a section in the
- * parsing process and thus allowing {@code nested data structures}.
+ * The parsing itself is done in a single pass by the {@link JSONParser}. The
+ * class still implements {@link ClassWithIterator}, after parsing from a list
+ * of {@link JSONPart}s the {@code iterator} ({@link #i}) points to the closing
+ * bracket of this {@code JSONArray}.
+ * <p>
+ * Numbers are stored as {@link Long} if they are integral and fit into a
+ * {@code long}, otherwise as {@link Double}. The typed accessors like
+ * {@link #getLong(int)} and {@link #getDouble(int)} convert between them,
+ * {@link JSONNumberArray} stores numeric arrays without boxing.
  *
  * @author einsJannis
  * @author Flexusma
  * @version 1.0
  * @see ArrayList
  * @see ClassWithIterator
+ * @see JSONParser
  */
 public class JSONArray extends ArrayList<Object> implements ClassWithIterator {
 
@@ -40,50 +52,63 @@ public class JSONArray extends ArrayList<Object> implements ClassWithIterator {
      * @throws JSONSyntaxError if the json is malformed
      */
     public JSONArray(List<JSONPart> parts) throws JSONSyntaxError {
-        parseJSON(parts);
+        JSONParser parser = new JSONParser(parts);
+        parser.parseArray(this);
+        i = parser.getIterator() - 1;
     }
 
-    private void parseJSON(List<JSONPart> parts) throws JSONSyntaxError {
-        if (parts.get(0).getType() != JSONPart.Type.ARRAY_START) {
-            throw new JSONSyntaxError(parts.get(0));
-        }
-        if (parts.get(1).getType() == JSONPart.Type.ARRAY_END) {
-            return;
-        }
-        i = 1;
-        while (i < parts.size()) {
-            switch (parts.get(i).getType()) {
-                case ARRAY_START:
-                    this.add(JSONArray.scanForSelf(this, parts));
-                    break;
-                case OBJECT_START:
-                    this.add(JSONObject.scanForSelf(this, parts));
-                    break;
-                case BOOLEAN:
-                    this.add(parts.get(i).getValue().equals("true"));
-                    break;
-                case STRING:
-                    this.add(parts.get(i).getValue());
-                    break;
-                case NUMBER:
-                    this.add(Long.valueOf(parts.get(i).getValue()));
-                    break;
-                case NULL:
-                    this.add(null);
-                    break;
-                default:
-                    throw new JSONSyntaxError(parts.get(i));
-            }
-            i++;
-            if (parts.get(i).getType() == JSONPart.Type.ARRAY_END) {
-                return;
-            } else if (parts.get(i).getType() == JSONPart.Type.COMMA) {
-                i++;
-                continue;
-            }
-            throw new JSONSyntaxError(parts.get(i));
-        }
-        throw new JSONSyntaxError(parts.get(0));
+    /**
+     * Constructs a new empty {@code JSONArray}.
+     */
+    public JSONArray() {
+    }
+
+    /**
+     * Returns the number at an index as {@code long}. Numbers with a
+     * fraction are truncated.
+     *
+     * @param i index of the number
+     * @return the number as {@code long}
+     * @throws ClassCastException if the element is no number
+     * @throws NullPointerException if the element is {@code null}
+     */
+    public long getLong(int i) {
+        return ((Number) get(i)).longValue();
+    }
+
+    /**
+     * Returns the number at an index as {@code double}.
+     *
+     * @param i index of the number
+     * @return the number as {@code double}
+     * @throws ClassCastException if the element is no number
+     * @throws NullPointerException if the element is {@code null}
+     */
+    public double getDouble(int i) {
+        return ((Number) get(i)).doubleValue();
+    }
+
+    /**
+     * Returns the boolean at an index.
+     *
+     * @param i index of the boolean
+     * @return the boolean
+     * @throws ClassCastException if the element is no boolean
+     * @throws NullPointerException if the element is {@code null}
+     */
+    public boolean getBoolean(int i) {
+        return (Boolean) get(i);
+    }
+
+    /**
+     * Returns the string at an index.
+     *
+     * @param i index of the string
+     * @return the string
+     * @throws ClassCastException if the element is no string
+     */
+    public String getString(int i) {
+        return (String) get(i);
     }
 
     /**
@@ -98,22 +123,10 @@ public class JSONArray extends ArrayList<Object> implements ClassWithIterator {
      * @throws JSONSyntaxError if json is malformed
      */
     public static JSONArray scanForSelf(ClassWithIterator parent, List<JSONPart> parts) throws JSONSyntaxError {
-        List<JSONPart> partList = parts.subList(parent.getIterator(), parts.size());
-        int openObjects = 0;
-        for (int i = 0; i < partList.size(); i++) {
-            if (partList.get(i).getType() == JSONPart.Type.ARRAY_START) {
-                openObjects++;
-            }
-            if (partList.get(i).getType() == JSONPart.Type.ARRAY_END) {
-                if (openObjects == 1) {
-                    parent.setIterator(parent.getIterator() + i);
-                    return new JSONArray(partList.subList(0, i + 1));
-                } else {
-                    openObjects--;
-                }
-            }
-        }
-        throw new JSONSyntaxError(parts.get(0));
+        JSONParser parser = new JSONParser(parts, parent.getIterator());
+        JSONArray array = parser.parseArray(new JSONArray());
+        parent.setIterator(parser.getIterator() - 1);
+        return array;
     }
 
     /**
@@ -136,6 +149,150 @@ public class JSONArray extends ArrayList<Object> implements ClassWithIterator {
      * @throws JSONSyntaxError if parsed json is malformed
      */
     public static JSONArray fromChars(char[] chars) throws JSONSyntaxError {
-        return new JSONArray(new JSONLexer(chars).lex());
+        return new JSONParser(new JSONLexer(chars).lex()).parseDocumentArray();
+    }
+
+    /**
+     * Creates a {@code JSONArray} from a {@code JSON string} as
+     * {@code char array}. Keys and short string values are shared through
+     * the provided {@link JSONStringTable}, so repeated strings exist only
+     * once in memory.
+     *
+     * @param chars json string as char array witch should get parsed
+     * @param strings intern table for keys and short strings
+     * @return the parsed JSONArray
+     * @throws JSONSyntaxError if json is malformed
+     */
+    public static JSONArray fromChars(char[] chars, JSONStringTable strings) throws JSONSyntaxError {
+        return new JSONParser(new JSONLexer(chars, strings).lex()).parseDocumentArray();
+    }
+
+    /**
+     * Creates a new {@code JSONArray} from a {@link Reader}. The {@code JSON} is
+     * read through a {@link JSONReader}, so the document never has to be
+     * held in memory as a whole.
+     *
+     * @param reader reader witch provides the json
+     * @return the parsed JSONArray
+     * @throws IOException if the reader fails
+     * @throws JSONSyntaxError if json is malformed
+     */
+    public static JSONArray fromReader(Reader reader) throws IOException, JSONSyntaxError {
+        try {
+            return new JSONParser(new JSONReader(reader)).parseDocumentArray();
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    /**
+     * Creates a new {@code JSONArray} from an {@link InputStream} containing
+     * {@code UTF-8} encoded {@code JSON}.
+     *
+     * @param in stream witch provides the json
+     * @return the parsed JSONArray
+     * @throws IOException if the stream fails
+     * @throws JSONSyntaxError if json is malformed
+     */
+    public static JSONArray fromStream(InputStream in) throws IOException, JSONSyntaxError {
+        try {
+            return new JSONParser(new JSONReader(in)).parseDocumentArray();
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    /**
+     * Creates a new {@code JSONArray} from the {@code UTF-8} encoded bytes of a
+     * {@link ByteBuffer}, without decoding the whole buffer into chars.
+     *
+     * @param buffer buffer witch contains the json
+     * @return the parsed JSONArray
+     * @throws JSONSyntaxError if json is malformed
+     * @see JSONBufferLexer
+     */
+    public static JSONArray fromBuffer(ByteBuffer buffer) throws JSONSyntaxError {
+        return new JSONParser(new JSONBufferLexer(buffer).lex()).parseDocumentArray();
+    }
+
+    /**
+     * Creates a new {@code JSONArray} from a {@code UTF-8} encoded file. The
+     * file is mapped into memory instead of being read into a string.
+     *
+     * @param file file witch contains the json
+     * @return the parsed JSONArray
+     * @throws IOException if the file can't be read
+     * @throws JSONSyntaxError if json is malformed
+     */
+    public static JSONArray fromFile(Path file) throws IOException, JSONSyntaxError {
+        return new JSONParser(JSONBufferLexer.lexFile(file)).parseDocumentArray();
+    }
+
+    /**
+     * Creates a lazy {@code JSONArray} from the {@code UTF-8} encoded bytes of a
+     * {@link ByteBuffer}.
+     * <p>
+     * Only a {@link JSONIndex} of the document is built up front. The values
+     * are decoded when they are accessed, nested values witch are never
+     * accessed are skipped without being decoded at all. The returned
+     * {@code JSONArray} still supports every operation of a normal one.
+     *
+     * @param buffer buffer witch contains the json
+     * @return the lazy JSONArray
+     * @throws JSONSyntaxError if json is malformed
+     * @see JSONIndex
+     */
+    public static JSONArray lazyFromBuffer(ByteBuffer buffer) throws JSONSyntaxError {
+        return lazy(new JSONBufferLexer(buffer).lex());
+    }
+
+    /**
+     * Creates a lazy {@code JSONArray} from a {@code UTF-8} encoded file. The
+     * file is mapped into memory and only decoded where it is accessed.
+     *
+     * @param file file witch contains the json
+     * @return the lazy JSONArray
+     * @throws IOException if the file can't be read
+     * @throws JSONSyntaxError if json is malformed
+     * @see #lazyFromBuffer(ByteBuffer)
+     */
+    public static JSONArray lazyFromFile(Path file) throws IOException, JSONSyntaxError {
+        return lazy(JSONBufferLexer.lexFile(file));
+    }
+
+    /**
+     * Creates a new {@code JSONArray} from the {@code UTF-8} encoded bytes of a
+     * {@link ByteBuffer}. The elements of the array are parsed concurrently
+     * in the {@link java.util.concurrent.ForkJoinPool#commonPool()}.
+     *
+     * @param buffer buffer witch contains the json
+     * @return the parsed JSONArray
+     * @throws JSONSyntaxError if json is malformed
+     * @see JSONParallelParser
+     */
+    public static JSONArray parallelFromBuffer(ByteBuffer buffer) throws JSONSyntaxError {
+        return new JSONParallelParser().parseArray(buffer);
+    }
+
+    /**
+     * Creates a new {@code JSONArray} from a {@code UTF-8} encoded file. The
+     * file is mapped into memory and the elements of the array are parsed
+     * concurrently in the {@link java.util.concurrent.ForkJoinPool#commonPool()}.
+     *
+     * @param file file witch contains the json
+     * @return the parsed JSONArray
+     * @throws IOException if the file can't be read
+     * @throws JSONSyntaxError if json is malformed
+     * @see JSONParallelParser
+     */
+    public static JSONArray parallelFromFile(Path file) throws IOException, JSONSyntaxError {
+        return new JSONParallelParser().parseArrayFile(file);
+    }
+
+    private static JSONArray lazy(JSONTokens tokens) throws JSONSyntaxError {
+        if (tokens.size() == 0 || tokens.getType(0) != JSONPart.Type.ARRAY_START) {
+            return new JSONParser(tokens).parseDocumentArray();
+        }
+        return (JSONArray) new JSONIndex(tokens).getRoot();
     }
 }
@@ -0,0 +1,200 @@
+package dev.einsjannis.jsonparser;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * A variant of the {@link JSONLexer} witch works directly on the
+ * {@code UTF-8} encoded bytes of a {@link ByteBuffer}, for example a
+ * {@link MappedByteBuffer} of a file.
+ * <p>
+ * The input is never decoded into a {@code char array} and no
+ * {@link JSONPart}s are created. The result are {@link JSONTokens}, witch
+ * only record the {@code (type, offset, length)} of every token and decode
+ * the value of a token when it is read.
+ *
+ * @author einsJannis
+ * @author Flexusma
+ * @version 1.0
+ * @see JSONLexer
+ * @see JSONTokens
+ */
+public class JSONBufferLexer {
+
+    private final ByteBuffer buffer;
+    private final int end;
+    private int i;
+    private boolean lenient;
+
+    /**
+     * Constructs a new {@code instance} of the {@code JSONBufferLexer} witch
+     * lexes the remaining bytes of the provided buffer.
+     *
+     * @param buffer {@code UTF-8} encoded {@code JSON}
+     */
+    public JSONBufferLexer(ByteBuffer buffer) {
+        this.buffer = buffer;
+        this.i = buffer.position();
+        this.end = buffer.limit();
+        if (end - i >= 3 && buffer.get(i) == (byte) 0xEF && buffer.get(i + 1) == (byte) 0xBB && buffer.get(i + 2) == (byte) 0xBF) {
+            i += 3;
+        }
+    }
+
+    /**
+     * Sets whether the escapes of control chars ({@code \n}, {@code \t},
+     * ...) are kept as they are instead of being decoded, so hand written
+     * files with unescaped {@code Windows} paths like {@code C:\temp\new}
+     * keep their backslashes. {@code \"}, {@code \\} and unicode escapes
+     * are still decoded.
+     *
+     * @param lenient whether escapes of control chars are kept
+     * @return this lexer
+     */
+    public JSONBufferLexer setLenient(boolean lenient) {
+        this.lenient = lenient;
+        return this;
+    }
+
+    /**
+     * Maps a file into memory and lexes it.
+     *
+     * @param file the file witch contains the {@code JSON}
+     * @return the tokens of the file
+     * @throws IOException if the file can't be mapped
+     * @throws JSONSyntaxError if the {@code JSON} is malformed
+     */
+    public static JSONTokens lexFile(Path file) throws IOException, JSONSyntaxError {
+        return new JSONBufferLexer(map(file)).lex();
+    }
+
+    /**
+     * Maps a file read only into memory.
+     *
+     * @param file the file to map
+     * @return the mapped content of the file
+     * @throws IOException if the file can't be mapped
+     */
+    public static MappedByteBuffer map(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            return channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+    }
+
+    /**
+     * Does the lexical analysis on the provided buffer.
+     *
+     * @return the {@link JSONTokens} of the buffer
+     * @throws JSONSyntaxError if the {@code JSON} is malformed
+     */
+    public JSONTokens lex() throws JSONSyntaxError {
+        JSONTokens tokens = new JSONTokens(buffer, (end - i) / 6, lenient);
+        while (i < end) {
+            byte c = buffer.get(i);
+            int start = i;
+            i++;
+            switch (c) {
+                case ' ':
+                case '\n':
+                case '\r':
+                case '\t':
+                    break;
+                case '{':
+                    tokens.add(JSONPart.Type.OBJECT_START, start, 1);
+                    break;
+                case '}':
+                    tokens.add(JSONPart.Type.OBJECT_END, start, 1);
+                    break;
+                case '[':
+                    tokens.add(JSONPart.Type.ARRAY_START, start, 1);
+                    break;
+                case ']':
+                    tokens.add(JSONPart.Type.ARRAY_END, start, 1);
+                    break;
+                case ',':
+                    tokens.add(JSONPart.Type.COMMA, start, 1);
+                    break;
+                case ':':
+                    tokens.add(JSONPart.Type.DOUBLE_POINT, start, 1);
+                    break;
+                case '"':
+                case '\'':
+                    boolean escaped = scanForString(c);
+                    tokens.add(JSONPart.Type.STRING, start + 1, i - start - 2, escaped);
+                    break;
+                case 't':
+                    scanForLiteral("true");
+                    tokens.add(JSONPart.Type.BOOLEAN, start, 4);
+                    break;
+                case 'f':
+                    scanForLiteral("false");
+                    tokens.add(JSONPart.Type.BOOLEAN, start, 5);
+                    break;
+                case 'n':
+                    scanForLiteral("null");
+                    tokens.add(JSONPart.Type.NULL, start, 4);
+                    break;
+                default:
+                    if (JSONNumbers.isStart(c)) {
+                        scanForNumber(c);
+                        tokens.add(JSONPart.Type.NUMBER, start, i - start);
+                        break;
+                    }
+                    throw error(start);
+            }
+        }
+        return tokens;
+    }
+
+    private void scanForNumber(byte firstChar) throws JSONSyntaxError {
+        int state = JSONNumbers.next(JSONNumbers.START, firstChar);
+        while (i < end) {
+            int next = JSONNumbers.next(state, buffer.get(i));
+            if (next == JSONNumbers.END) {
+                break;
+            }
+            state = next;
+            i++;
+        }
+        if (!JSONNumbers.isComplete(state)) {
+            throw error(i);
+        }
+    }
+
+    private void scanForLiteral(String literal) throws JSONSyntaxError {
+        for (int j = 1; j < literal.length(); j++) {
+            if (i >= end || buffer.get(i) != literal.charAt(j)) {
+                throw error(i);
+            }
+            i++;
+        }
+    }
+
+    private boolean scanForString(byte endChar) throws JSONSyntaxError {
+        boolean escaped = false;
+        while (i < end) {
+            byte c = buffer.get(i++);
+            if (c == endChar) {
+                return escaped;
+            }
+            if (c == '\\') {
+                escaped = true;
+                if (i < end && JSONStrings.unescape((char) buffer.get(i)) >= 0) {
+                    i++;
+                }
+            }
+        }
+        throw error(end);
+    }
+
+    private JSONSyntaxError error(int position) {
+        if (position >= end) {
+            return new JSONSyntaxError("Unexpected end of json at position " + position + ".");
+        }
+        return new JSONSyntaxError(position, (char) (buffer.get(position) & 0xFF));
+    }
+}
@@ -0,0 +1,198 @@
+package dev.einsjannis.jsonparser;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * A structural index over the {@link JSONTokens} of a document, similar to
+ * the {@code tape} of {@code simdjson}.
+ * <p>
+ * The index is built in one pass over the tokens. It validates the grammar
+ * of the document and records for every opening bracket the position of the
+ * matching closing bracket (and the other way round). This allows the lazy
+ * {@link JSONObject}s and {@link JSONArray}s created by {@link #getRoot()} to
+ * skip a whole nested value in {@code O(1)} and to decode a value only when
+ * it is accessed.
+ *
+ * @author einsJannis
+ * @author Flexusma
+ * @version 1.0
+ * @see JSONTokens
+ * @see JSONBufferLexer
+ */
+public class JSONIndex {
+
+    private static final int VALUE = 0;
+    private static final int VALUE_OR_END = 1;
+    private static final int KEY_OR_END = 2;
+    private static final int KEY = 3;
+    private static final int COLON = 4;
+    private static final int COMMA_OR_END = 5;
+    private static final int DONE = 6;
+
+    private final JSONTokens tokens;
+    private final int[] match;
+
+    /**
+     * Builds the structural index for the provided tokens.
+     *
+     * @param tokens tokens of a complete {@code JSON document}
+     * @throws JSONSyntaxError if the tokens don't form exactly one valid value
+     */
+    public JSONIndex(JSONTokens tokens) throws JSONSyntaxError {
+        this.tokens = tokens;
+        this.match = new int[tokens.size()];
+        build();
+    }
+
+    private void build() throws JSONSyntaxError {
+        int[] stack = new int[16];
+        int depth = 0;
+        int state = VALUE;
+        for (int k = 0; k < tokens.size(); k++) {
+            JSONPart.Type type = tokens.getType(k);
+            boolean close = false;
+            boolean value = false;
+            // the first element of an array or member of an object is read like any other
+            if (state == VALUE_OR_END && type != JSONPart.Type.ARRAY_END) {
+                state = VALUE;
+            } else if (state == KEY_OR_END && type != JSONPart.Type.OBJECT_END) {
+                state = KEY;
+            }
+            switch (state) {
+                case VALUE_OR_END:
+                case KEY_OR_END:
+                    close = true;
+                    break;
+                case VALUE:
+                    if (type == JSONPart.Type.OBJECT_START || type == JSONPart.Type.ARRAY_START) {
+                        if (depth == stack.length) {
+                            int[] grown = new int[stack.length * 2];
+                            System.arraycopy(stack, 0, grown, 0, depth);
+                            stack = grown;
+                        }
+                        stack[depth++] = k;
+                        state = type == JSONPart.Type.OBJECT_START ? KEY_OR_END : VALUE_OR_END;
+                        continue;
+                    }
+                    if (type == JSONPart.Type.STRING || type == JSONPart.Type.NUMBER
+                            || type == JSONPart.Type.BOOLEAN || type == JSONPart.Type.NULL) {
+                        match[k] = k;
+                        value = true;
+                        break;
+                    }
+                    throw error(k);
+                case KEY:
+                    if (type != JSONPart.Type.STRING) {
+                        throw error(k);
+                    }
+                    match[k] = k;
+                    state = COLON;
+                    continue;
+                case COLON:
+                    if (type != JSONPart.Type.DOUBLE_POINT) {
+                        throw error(k);
+                    }
+                    state = VALUE;
+                    continue;
+                case COMMA_OR_END:
+                    if (type == JSONPart.Type.COMMA) {
+                        state = tokens.getType(stack[depth - 1]) == JSONPart.Type.OBJECT_START ? KEY : VALUE;
+                        continue;
+                    }
+                    close = true;
+                    break;
+                default:
+                    throw error(k);
+            }
+            if (close) {
+                JSONPart.Type open = tokens.getType(stack[depth - 1]);
+                if ((open == JSONPart.Type.OBJECT_START) != (type == JSONPart.Type.OBJECT_END)
+                        || (type != JSONPart.Type.OBJECT_END && type != JSONPart.Type.ARRAY_END)) {
+                    throw error(k);
+                }
+                int start = stack[--depth];
+                match[start] = k;
+                match[k] = start;
+                value = true;
+            }
+            if (value) {
+                state = depth == 0 ? DONE : COMMA_OR_END;
+            }
+        }
+        if (state != DONE) {
+            throw new JSONSyntaxError("Unexpected end of json after " + tokens.size() + " parts.");
+        }
+    }
+
+    /**
+     * Returns the tokens of the document.
+     *
+     * @return the indexed tokens
+     */
+    public JSONTokens getTokens() {
+        return tokens;
+    }
+
+    /**
+     * Returns the index of the token matching the provided token. For an
+     * opening bracket this is the closing bracket and the other way round,
+     * every other value token matches itself.
+     *
+     * @param index index of a token
+     * @return index of the matching token
+     */
+    public int getMatch(int index) {
+        return match[index];
+    }
+
+    /**
+     * Returns the value of the whole document. Objects and arrays are lazy,
+     * their values are only decoded when they are accessed.
+     *
+     * @return the root value of the document
+     */
+    public Object getRoot() {
+        return value(0);
+    }
+
+    Object value(int index) {
+        switch (tokens.getType(index)) {
+            case OBJECT_START:
+                return new LazyJSONObject(this, index);
+            case ARRAY_START:
+                return new LazyJSONArray(this, index);
+            case BOOLEAN:
+                return tokens.getLength(index) == 4;
+            case STRING:
+                return tokens.getString(index);
+            case NUMBER:
+                return tokens.getNumber(index);
+            default:
+                return null;
+        }
+    }
+
+    boolean keyEquals(int index, byte[] key) {
+        if (tokens.isEscaped(index)) {
+            return tokens.getString(index).equals(new String(key, StandardCharsets.UTF_8));
+        }
+        if (tokens.getLength(index) != key.length) {
+            return false;
+        }
+        int offset = tokens.getOffset(index);
+        for (int j = 0; j < key.length; j++) {
+            if (tokens.byteAt(offset + j) != key[j]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    static byte[] encode(Object key) {
+        return key instanceof String ? ((String) key).getBytes(StandardCharsets.UTF_8) : null;
+    }
+
+    private JSONSyntaxError error(int index) {
+        return new JSONSyntaxError(tokens.getOffset(index), (char) (tokens.byteAt(tokens.getOffset(index)) & 0xFF));
+    }
+}
@@ -1,5 +1,6 @@
 package dev.einsjannis.jsonparser;
 
+import java.nio.CharBuffer;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -13,6 +14,8 @@ import java.util.List;
  */
 public class JSONLexer {
     private final char[] chars;
+    private final JSONStringTable strings;
+    private boolean lenient;
     private int i = 0;
 
     /**
@@ -22,7 +25,33 @@ public class JSONLexer {
      * @param chars {@code JSON string} to parse as {@code Character array}
      */
     public JSONLexer(char[] chars) {
+        this(chars, null);
+    }
+
+    /**
+     * Constructs a new {@code instance} of the {@code JSONLexer} witch
+     * shares repeated keys and short string values through a
+     * {@link JSONStringTable}.
+     *
+     * @param chars {@code JSON string} to parse as {@code Character array}
+     * @param strings intern table for strings or {@code null} to create every string anew
+     */
+    public JSONLexer(char[] chars, JSONStringTable strings) {
         this.chars = chars;
+        this.strings = strings;
+    }
+
+    /**
+     * Sets whether the escapes of control chars ({@code \n}, {@code \t},
+     * ...) are kept as they are instead of being decoded, like
+     * {@link JSONBufferLexer#setLenient(boolean)}.
+     *
+     * @param lenient whether escapes of control chars are kept
+     * @return this lexer
+     */
+    public JSONLexer setLenient(boolean lenient) {
+        this.lenient = lenient;
+        return this;
     }
 
     /**
@@ -58,7 +87,7 @@ public class JSONLexer {
             } else if ( c == '"' || c == '\'' ) {
                 type = JSONPart.Type.STRING;
                 value = scanForString(c);
-            } else if ( ".0123456789".contains(c.toString()) ) {
+            } else if ( JSONNumbers.isStart(c) ) {
                 type = JSONPart.Type.NUMBER;
                 value = scanForNumber(c);
             } else if ( "tf".contains(c.toString()) ) {
@@ -76,50 +105,98 @@ public class JSONLexer {
     }
 
     private String scanForNumber(Character firstChar) throws JSONSyntaxError {
-        StringBuilder builder = new StringBuilder();
-        builder.append(firstChar);
+        int start = i - 1;
+        int state = JSONNumbers.next(JSONNumbers.START, firstChar);
         while ( i < chars.length ) {
-            Character c = Character.valueOf(chars[i]);
-            i++;
-            if ( !( "0123456789".contains(c.toString()) || ( c == '.' && !builder.toString().contains(".") ) ) ) {
-                i--;
-                return builder.toString();
+            int next = JSONNumbers.next(state, chars[i]);
+            if ( next == JSONNumbers.END ) {
+                break;
             }
-            builder.append(c);
+            state = next;
+            i++;
         }
-        throw new JSONSyntaxError(i-1,chars[i-1]);
+        if ( !JSONNumbers.isComplete(state) ) {
+            throw new JSONSyntaxError(i-1,chars[i-1]);
+        }
+        return new String(chars, start, i - start);
     }
 
     private String scanForNull() throws JSONSyntaxError {
-        if ( chars[i] == 'u' && chars[i+1] == 'l' && chars[i+2] == 'l' ) {
-            i+=3;
-            return null;
-        }
-        throw new JSONSyntaxError(i-1,chars[i-1]);
+        scanForLiteral("null");
+        return null;
     }
 
     private String scanForBoolean(char firstChar) throws JSONSyntaxError {
-        if ( firstChar == 't' && chars[i] == 'r' && chars[i+1] == 'u' && chars[i+2] == 'e' ) {
-            i += 3;
-            return "true";
+        String literal = firstChar == 't' ? "true" : "false";
+        scanForLiteral(literal);
+        return literal;
+    }
+
+    private void scanForLiteral(String literal) throws JSONSyntaxError {
+        for ( int j = 1; j < literal.length(); j++ ) {
+            if ( i >= chars.length ) {
+                throw new JSONSyntaxError("Unexpected end of json at position " + i + ".");
+            }
+            if ( chars[i] != literal.charAt(j) ) {
+                throw new JSONSyntaxError(i,chars[i]);
+            }
+            i++;
         }
-        if ( firstChar == 'f' && chars[i] == 'a' && chars[i+1] == 'l' && chars[i+2] == 's' && chars[i+3] == 'e' ) {
-            i += 4;
-            return "false";
+    }
+
+    private String scanForString(char endChar) throws JSONSyntaxError {
+        int start = i;
+        while ( i < chars.length ) {
+            char c = chars[i];
+            if ( c == endChar ) {
+                i++;
+                int length = i - 1 - start;
+                return strings != null ? strings.intern(chars, start, length) : new String(chars, start, length);
+            }
+            if ( c == '\\' ) {
+                return scanForEscapedString(endChar, start);
+            }
+            i++;
         }
         throw new JSONSyntaxError(i-1,chars[i-1]);
     }
 
-    private String scanForString(char endChar) throws JSONSyntaxError {
-        StringBuilder builder = new StringBuilder();
+    private String scanForEscapedString(char endChar, int start) throws JSONSyntaxError {
+        StringBuilder builder = new StringBuilder(i - start + 16);
+        builder.append(chars, start, i - start);
         while ( i < chars.length ) {
-            Character c = Character.valueOf(chars[i]);
+            char c = chars[i];
             i++;
             if (c == endChar) {
                 return builder.toString();
             }
+            if (c == '\\') {
+                int escaped = scanForEscape();
+                if (escaped >= 0) {
+                    builder.append((char) escaped);
+                    continue;
+                }
+            }
             builder.append(c);
         }
         throw new JSONSyntaxError(i-1,chars[i-1]);
     }
+
+    private int scanForEscape() {
+        if ( i >= chars.length ) {
+            return -1;
+        }
+        int escaped = JSONStrings.unescape(chars[i], lenient);
+        if ( escaped >= 0 ) {
+            i++;
+            return escaped;
+        }
+        if ( chars[i] == 'u' ) {
+            escaped = JSONStrings.unicode(CharBuffer.wrap(chars), i+1);
+            if ( escaped >= 0 ) {
+                i += 5;
+            }
+        }
+        return escaped;
+    }
 }
@@ -0,0 +1,493 @@
+package dev.einsjannis.jsonparser;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.ListIterator;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+import java.util.function.UnaryOperator;
+
+/**
+ * A {@link JSONArray} of numbers witch stores its elements in a primitive
+ * {@code long array} or {@code double array} instead of boxing every
+ * element.
+ * <p>
+ * {@link #getLong(int)} and {@link #getDouble(int)} read the primitive values
+ * directly, {@link #get(int)} and iterating box the element on access. A
+ * {@code long} backed array returns {@link Long}s, a {@code double} backed
+ * array returns {@link Double}s. Adding or setting numbers keeps the
+ * primitive storage (a {@code long} backed array switches to {@code double}s
+ * for the first non integral number), every other modification converts the
+ * array into a normal {@link JSONArray} of boxed elements.
+ * <p>
+ * The {@link JSONParser} creates {@code JSONNumberArray}s for arrays witch
+ * only contain numbers if {@link JSONParser#setPrimitiveArrays(boolean)} is
+ * enabled.
+ *
+ * @author einsJannis
+ * @author Flexusma
+ * @version 1.0
+ * @see JSONArray
+ */
+public class JSONNumberArray extends JSONArray {
+
+    private long[] longs;
+    private double[] doubles;
+    private int count;
+
+    /**
+     * Constructs a new empty {@code JSONNumberArray} backed by a
+     * {@code long array}.
+     */
+    public JSONNumberArray() {
+        this.longs = new long[8];
+    }
+
+    /**
+     * Constructs a new {@code JSONNumberArray} containing a copy of the
+     * provided values.
+     *
+     * @param values the elements of the array
+     */
+    public JSONNumberArray(long[] values) {
+        this(Arrays.copyOf(values, values.length), values.length);
+    }
+
+    /**
+     * Constructs a new {@code JSONNumberArray} containing a copy of the
+     * provided values.
+     *
+     * @param values the elements of the array
+     */
+    public JSONNumberArray(double[] values) {
+        this(Arrays.copyOf(values, values.length), values.length);
+    }
+
+    JSONNumberArray(long[] values, int count) {
+        this.longs = values;
+        this.count = count;
+    }
+
+    JSONNumberArray(double[] values, int count) {
+        this.doubles = values;
+        this.count = count;
+    }
+
+    /**
+     * Returns whether the elements are still stored in a primitive array.
+     *
+     * @return {@code true} if the array is backed by a {@code long array} or a {@code double array}
+     */
+    public boolean isPrimitive() {
+        return longs != null || doubles != null;
+    }
+
+    /**
+     * Returns whether the elements are stored as {@code double}s.
+     *
+     * @return {@code true} if the array is backed by a {@code double array}
+     */
+    public boolean isDouble() {
+        return doubles != null;
+    }
+
+    /**
+     * Returns a copy of the elements as {@code long array}.
+     *
+     * @return the elements converted to {@code long}s
+     */
+    public long[] toLongArray() {
+        if (longs != null) {
+            return Arrays.copyOf(longs, count);
+        }
+        long[] result = new long[size()];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = getLong(i);
+        }
+        return result;
+    }
+
+    /**
+     * Returns a copy of the elements as {@code double array}.
+     *
+     * @return the elements converted to {@code double}s
+     */
+    public double[] toDoubleArray() {
+        if (doubles != null) {
+            return Arrays.copyOf(doubles, count);
+        }
+        double[] result = new double[size()];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = getDouble(i);
+        }
+        return result;
+    }
+
+    @Override
+    public long getLong(int i) {
+        if (longs != null) {
+            return longs[check(i)];
+        }
+        if (doubles != null) {
+            return (long) doubles[check(i)];
+        }
+        return super.getLong(i);
+    }
+
+    @Override
+    public double getDouble(int i) {
+        if (doubles != null) {
+            return doubles[check(i)];
+        }
+        if (longs != null) {
+            return longs[check(i)];
+        }
+        return super.getDouble(i);
+    }
+
+    @Override
+    public Object get(int i) {
+        if (longs != null) {
+            return longs[check(i)];
+        }
+        if (doubles != null) {
+            return doubles[check(i)];
+        }
+        return super.get(i);
+    }
+
+    @Override
+    public int size() {
+        return isPrimitive() ? count : super.size();
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return size() == 0;
+    }
+
+    @Override
+    public Object set(int i, Object element) {
+        if (isPrimitive() && element instanceof Number) {
+            Object previous = get(i);
+            store(i, (Number) element);
+            return previous;
+        }
+        box();
+        return super.set(i, element);
+    }
+
+    @Override
+    public boolean add(Object o) {
+        if (isPrimitive() && o instanceof Number) {
+            int capacity = longs != null ? longs.length : doubles.length;
+            if (count == capacity) {
+                if (longs != null) {
+                    longs = Arrays.copyOf(longs, Math.max(8, capacity * 2));
+                } else {
+                    doubles = Arrays.copyOf(doubles, Math.max(8, capacity * 2));
+                }
+            }
+            count++;
+            store(count - 1, (Number) o);
+            return true;
+        }
+        box();
+        return super.add(o);
+    }
+
+    private void store(int i, Number number) {
+        if (longs != null && !(number instanceof Long || number instanceof Integer
+                || number instanceof Short || number instanceof Byte)) {
+            doubles = new double[longs.length];
+            for (int j = 0; j < count; j++) {
+                doubles[j] = longs[j];
+            }
+            longs = null;
+        }
+        if (longs != null) {
+            longs[i] = number.longValue();
+        } else {
+            doubles[i] = number.doubleValue();
+        }
+    }
+
+    @Override
+    public boolean contains(Object o) {
+        return indexOf(o) >= 0;
+    }
+
+    @Override
+    public int indexOf(Object o) {
+        if (!isPrimitive()) {
+            return super.indexOf(o);
+        }
+        for (int i = 0; i < count; i++) {
+            if (get(i).equals(o)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    @Override
+    public int lastIndexOf(Object o) {
+        if (!isPrimitive()) {
+            return super.lastIndexOf(o);
+        }
+        for (int i = count - 1; i >= 0; i--) {
+            if (get(i).equals(o)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    @Override
+    public Object[] toArray() {
+        if (!isPrimitive()) {
+            return super.toArray();
+        }
+        Object[] result = new Object[count];
+        for (int i = 0; i < count; i++) {
+            result[i] = get(i);
+        }
+        return result;
+    }
+
+    @Override
+    public <T> T[] toArray(T[] a) {
+        box();
+        return super.toArray(a);
+    }
+
+    @Override
+    public Iterator<Object> iterator() {
+        if (!isPrimitive()) {
+            return super.iterator();
+        }
+        return new Iterator<Object>() {
+            private int cursor;
+            private int last = -1;
+
+            @Override
+            public boolean hasNext() {
+                return cursor < size();
+            }
+
+            @Override
+            public Object next() {
+                if (cursor >= size()) {
+                    throw new NoSuchElementException();
+                }
+                last = cursor++;
+                return get(last);
+            }
+
+            @Override
+            public void remove() {
+                if (last < 0) {
+                    throw new IllegalStateException();
+                }
+                JSONNumberArray.this.remove(last);
+                cursor = last;
+                last = -1;
+            }
+        };
+    }
+
+    @Override
+    public void forEach(Consumer<? super Object> action) {
+        if (!isPrimitive()) {
+            super.forEach(action);
+            return;
+        }
+        for (int i = 0; i < count; i++) {
+            action.accept(get(i));
+        }
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (o == this) {
+            return true;
+        }
+        if (!(o instanceof List)) {
+            return false;
+        }
+        List<?> other = (List<?>) o;
+        if (other.size() != size()) {
+            return false;
+        }
+        Iterator<?> iterator = other.iterator();
+        for (int i = 0; i < size(); i++) {
+            Object element = get(i);
+            Object otherElement = iterator.next();
+            if (element == null ? otherElement != null : !element.equals(otherElement)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public int hashCode() {
+        int hash = 1;
+        for (int i = 0; i < size(); i++) {
+            Object element = get(i);
+            hash = 31 * hash + (element == null ? 0 : element.hashCode());
+        }
+        return hash;
+    }
+
+    private int check(int i) {
+        if (i < 0 || i >= count) {
+            throw new IndexOutOfBoundsException("Index: " + i + ", Size: " + count);
+        }
+        return i;
+    }
+
+    private void box() {
+        if (!isPrimitive()) {
+            return;
+        }
+        super.ensureCapacity(count);
+        for (int i = 0; i < count; i++) {
+            super.add(get(i));
+        }
+        longs = null;
+        doubles = null;
+        count = 0;
+    }
+
+    @Override
+    public void add(int i, Object element) {
+        box();
+        super.add(i, element);
+    }
+
+    @Override
+    public Object remove(int i) {
+        box();
+        return super.remove(i);
+    }
+
+    @Override
+    public boolean remove(Object o) {
+        box();
+        return super.remove(o);
+    }
+
+    @Override
+    public void clear() {
+        if (isPrimitive()) {
+            count = 0;
+            return;
+        }
+        super.clear();
+    }
+
+    @Override
+    public boolean addAll(Collection<?> c) {
+        box();
+        return super.addAll(c);
+    }
+
+    @Override
+    public boolean addAll(int i, Collection<?> c) {
+        box();
+        return super.addAll(i, c);
+    }
+
+    @Override
+    public boolean removeAll(Collection<?> c) {
+        box();
+        return super.removeAll(c);
+    }
+
+    @Override
+    public boolean retainAll(Collection<?> c) {
+        box();
+        return super.retainAll(c);
+    }
+
+    @Override
+    public boolean removeIf(Predicate<? super Object> filter) {
+        box();
+        return super.removeIf(filter);
+    }
+
+    @Override
+    public void replaceAll(UnaryOperator<Object> operator) {
+        box();
+        super.replaceAll(operator);
+    }
+
+    @Override
+    public void sort(Comparator<? super Object> c) {
+        box();
+        super.sort(c);
+    }
+
+    @Override
+    public ListIterator<Object> listIterator() {
+        box();
+        return super.listIterator();
+    }
+
+    @Override
+    public ListIterator<Object> listIterator(int i) {
+        box();
+        return super.listIterator(i);
+    }
+
+    @Override
+    public List<Object> subList(int fromIndex, int toIndex) {
+        box();
+        return super.subList(fromIndex, toIndex);
+    }
+
+    @Override
+    public Spliterator<Object> spliterator() {
+        box();
+        return super.spliterator();
+    }
+
+    @Override
+    public void trimToSize() {
+        if (longs != null) {
+            longs = Arrays.copyOf(longs, count);
+        } else if (doubles != null) {
+            doubles = Arrays.copyOf(doubles, count);
+        } else {
+            super.trimToSize();
+        }
+    }
+
+    @Override
+    public void ensureCapacity(int minCapacity) {
+        if (longs != null && longs.length < minCapacity) {
+            longs = Arrays.copyOf(longs, minCapacity);
+        } else if (doubles != null && doubles.length < minCapacity) {
+            doubles = Arrays.copyOf(doubles, minCapacity);
+        } else if (!isPrimitive()) {
+            super.ensureCapacity(minCapacity);
+        }
+    }
+
+    @Override
+    public Object clone() {
+        JSONNumberArray clone = (JSONNumberArray) super.clone();
+        if (longs != null) {
+            clone.longs = longs.clone();
+        } else if (doubles != null) {
+            clone.doubles = doubles.clone();
+        }
+        return clone;
+    }
+}
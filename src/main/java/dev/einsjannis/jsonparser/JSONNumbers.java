@@ -0,0 +1,245 @@
+package dev.einsjannis.jsonparser;
+
+/**
+ * Scans and parses {@code JSON numbers} directly from their chars.
+ * <p>
+ * All lexers use the same state machine ({@link #next(int, int)}) to find
+ * the end of a number, so every parse path accepts exactly the same numbers:
+ * an optional {@code '-'}, digits with an optional fraction and an optional
+ * exponent. Integral numbers witch fit into a {@code long} are represented as
+ * {@link Long}, every other number as {@link Double}. The digits are
+ * accumulated without creating an intermediate {@link String}, only numbers
+ * witch can't be converted exactly fall back to
+ * {@link Double#parseDouble(String)}.
+ *
+ * @author einsJannis
+ * @author Flexusma
+ * @version 1.0
+ */
+final class JSONNumbers {
+
+    static final int START = 0;
+    static final int END = -1;
+
+    private static final int SIGN = 1;
+    private static final int INTEGER = 2;
+    private static final int LEADING_POINT = 3;
+    private static final int POINT = 4;
+    private static final int EXPONENT = 5;
+    private static final int FRACTION = 6;
+    private static final int EXPONENT_SIGN = 7;
+    private static final int EXPONENT_DIGITS = 8;
+
+    private static final double[] POWERS_OF_TEN = {
+            1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+            1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+    };
+
+    private JSONNumbers() {
+    }
+
+    /**
+     * Returns whether a char can start a number.
+     *
+     * @param c the char
+     * @return {@code true} if the char starts a number
+     */
+    static boolean isStart(int c) {
+        return c == '-' || c == '.' || (c >= '0' && c <= '9');
+    }
+
+    /**
+     * Advances the number state machine by one char.
+     *
+     * @param state the current state, {@link #START} for the first char
+     * @param c the next char
+     * @return the next state or {@link #END} if the char is not part of the number
+     */
+    static int next(int state, int c) {
+        boolean digit = c >= '0' && c <= '9';
+        boolean exponent = c == 'e' || c == 'E';
+        switch (state) {
+            case START:
+                if (c == '-') {
+                    return SIGN;
+                }
+                return digit ? INTEGER : c == '.' ? LEADING_POINT : END;
+            case SIGN:
+                if (digit) {
+                    return INTEGER;
+                }
+                return c == '.' ? LEADING_POINT : END;
+            case INTEGER:
+                if (digit) {
+                    return INTEGER;
+                }
+                if (c == '.') {
+                    return POINT;
+                }
+                return exponent ? EXPONENT : END;
+            case LEADING_POINT:
+                return digit ? FRACTION : END;
+            case POINT:
+            case FRACTION:
+                if (digit) {
+                    return FRACTION;
+                }
+                return exponent ? EXPONENT : END;
+            case EXPONENT:
+                if (c == '+' || c == '-') {
+                    return EXPONENT_SIGN;
+                }
+                return digit ? EXPONENT_DIGITS : END;
+            case EXPONENT_SIGN:
+            case EXPONENT_DIGITS:
+                return digit ? EXPONENT_DIGITS : END;
+            default:
+                return END;
+        }
+    }
+
+    /**
+     * Returns whether a number may end in the provided state.
+     *
+     * @param state the state after the last char of the number
+     * @return {@code true} if the number is complete
+     */
+    static boolean isComplete(int state) {
+        return state == INTEGER || state == POINT || state == FRACTION || state == EXPONENT_DIGITS;
+    }
+
+    /**
+     * Returns whether a number has neither a fraction nor an exponent.
+     *
+     * @param chars the chars of the number
+     * @return {@code true} if the number is integral
+     */
+    static boolean isIntegral(CharSequence chars) {
+        for (int j = 0; j < chars.length(); j++) {
+            char c = chars.charAt(j);
+            if (c == '.' || c == 'e' || c == 'E') {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Parses a number into a {@link Long} if it is integral and fits into a
+     * {@code long}, otherwise into a {@link Double}.
+     *
+     * @param chars the chars of the number
+     * @return the parsed number
+     */
+    static Number parse(CharSequence chars) {
+        if (isIntegral(chars)) {
+            if (chars.length() <= 18) {
+                return integral(chars);
+            }
+            try {
+                return Long.parseLong(chars.toString());
+            } catch (NumberFormatException e) {
+                return Double.parseDouble(chars.toString());
+            }
+        }
+        return parseDouble(chars);
+    }
+
+    /**
+     * Parses a number into a {@code long}. Numbers with a fraction or an
+     * exponent are truncated like {@link Number#longValue()} does.
+     *
+     * @param chars the chars of the number
+     * @return the parsed number
+     */
+    static long parseLong(CharSequence chars) {
+        if (isIntegral(chars) && chars.length() <= 18) {
+            return integral(chars);
+        }
+        return parse(chars).longValue();
+    }
+
+    /**
+     * Parses a number into a {@code double}. If the number has at most 15
+     * significant digits and a small exponent the result is calculated
+     * exactly from the digits, otherwise {@link Double#parseDouble(String)}
+     * is used.
+     *
+     * @param chars the chars of the number
+     * @return the parsed number
+     */
+    static double parseDouble(CharSequence chars) {
+        int length = chars.length();
+        int j = 0;
+        boolean negative = length > 0 && chars.charAt(0) == '-';
+        if (negative) {
+            j++;
+        }
+        long mantissa = 0;
+        int digits = 0;
+        int scale = 0;
+        boolean fraction = false;
+        for (; j < length; j++) {
+            char c = chars.charAt(j);
+            if (c >= '0' && c <= '9') {
+                if (mantissa != 0 || c != '0') {
+                    digits++;
+                }
+                mantissa = mantissa * 10 + (c - '0');
+                if (fraction) {
+                    scale--;
+                }
+                if (digits > 15) {
+                    return Double.parseDouble(chars.toString());
+                }
+            } else if (c == '.') {
+                fraction = true;
+            } else {
+                break;
+            }
+        }
+        if (j < length) {
+            int exponent = 0;
+            boolean negativeExponent = false;
+            for (j++; j < length; j++) {
+                char c = chars.charAt(j);
+                if (c == '-') {
+                    negativeExponent = true;
+                } else if (c >= '0' && c <= '9') {
+                    exponent = exponent * 10 + (c - '0');
+                    if (exponent > 1000) {
+                        return Double.parseDouble(chars.toString());
+                    }
+                }
+            }
+            scale += negativeExponent ? -exponent : exponent;
+        }
+        double value;
+        if (mantissa == 0) {
+            value = 0;
+        } else if (scale >= 0 && scale < POWERS_OF_TEN.length) {
+            value = mantissa * POWERS_OF_TEN[scale];
+            if (digits + scale > 15) {
+                return Double.parseDouble(chars.toString());
+            }
+        } else if (scale < 0 && -scale < POWERS_OF_TEN.length) {
+            value = mantissa / POWERS_OF_TEN[-scale];
+        } else {
+            return Double.parseDouble(chars.toString());
+        }
+        return negative ? -value : value;
+    }
+
+    private static long integral(CharSequence chars) {
+        int j = 0;
+        boolean negative = chars.charAt(0) == '-';
+        if (negative) {
+            j++;
+        }
+        long value = 0;
+        for (; j < chars.length(); j++) {
+            value = value * 10 + (chars.charAt(j) - '0');
+        }
+        return negative ? -value : value;
+    }
+}
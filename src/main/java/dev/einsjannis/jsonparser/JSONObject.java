@@ -1,23 +1,36 @@
 package dev.einsjannis.jsonparser;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
 import java.util.HashMap;
 import java.util.List;
+import java.util.NoSuchElementException;
 
 /**
  * An extension to the {@link HashMap} class. In addition to all the
  * {@link HashMap} features, this class provides the functionality to parse
  * itself from a {@code JSON string}.
  * <p>
- * As part of the {@code JSON parser} witch is contained inside of this class,
- * it implements {@link ClassWithIterator}. The ability to change the position
- * of the {@code iterator} ({@link #i}) allows an external class to skip a section in the
- * parsing process and thus allowing {@code nested data structures}.
+ * The parsing itself is done in a single pass by the {@link JSONParser}. The
+ * class still implements {@link ClassWithIterator}, after parsing from a list
+ * of {@link JSONPart}s the {@code iterator} ({@link #i}) points to the closing
+ * bracket of this {@code JSONObject}.
+ * <p>
+ * Numbers are stored as {@link Long} if they are integral and fit into a
+ * {@code long}, otherwise as {@link Double}. The typed accessors like
+ * {@link #getLong(String)} and {@link #getDouble(String)} convert between
+ * them.
  *
  * @author einsJannis
  * @author Flexusma
  * @version 1.0
  * @see HashMap
  * @see ClassWithIterator
+ * @see JSONParser
  */
 public class JSONObject extends HashMap<String, Object> implements ClassWithIterator {
 
@@ -40,54 +53,100 @@ public class JSONObject extends HashMap<String, Object> implements ClassWithIter
      * @throws JSONSyntaxError if the json is malformed
      */
     public JSONObject(List<JSONPart> parts) throws JSONSyntaxError {
-        parseJSON(parts);
+        JSONParser parser = new JSONParser(parts);
+        parser.parseObject(this);
+        i = parser.getIterator() - 1;
     }
 
-    private void parseJSON(List<JSONPart> parts) throws JSONSyntaxError {
-        if (parts.get(0).getType() != JSONPart.Type.OBJECT_START) {
-            throw new JSONSyntaxError(parts.get(0));
-        }
-        i = 1;
-        while (i < parts.size()) {
-            if (parts.get(i).getType() != JSONPart.Type.STRING) {
-                throw new JSONSyntaxError(parts.get(i));
-            }
-            i++;
-            if (parts.get(i).getType() != JSONPart.Type.DOUBLE_POINT) {
-                throw new JSONSyntaxError(parts.get(i));
-            }
-            i++;
-            switch (parts.get(i).getType()) {
-                case ARRAY_START:
-                    this.put(parts.get(i-2).getValue(), JSONArray.scanForSelf(this, parts));
-                    break;
-                case OBJECT_START:
-                    this.put(parts.get(i-2).getValue(), JSONObject.scanForSelf(this, parts));
-                    break;
-                case BOOLEAN:
-                    this.put(parts.get(i-2).getValue(), parts.get(i).getValue().equals("true"));
-                    break;
-                case STRING:
-                    this.put(parts.get(i-2).getValue(), parts.get(i).getValue());
-                    break;
-                case NUMBER:
-                    this.put(parts.get(i-2).getValue(), Double.parseDouble(parts.get(i).getValue()));
-                    break;
-                case NULL:
-                    this.put(parts.get(i-2).getValue(), null);
-                    break;
-                default:
-                    throw new JSONSyntaxError(parts.get(i));
-            }
-            i++;
-            if (parts.get(i).getType() == JSONPart.Type.OBJECT_END) {
-                return;
-            } else if (parts.get(i).getType() == JSONPart.Type.COMMA) {
-                i++;
-                continue;
-            }
-            throw new JSONSyntaxError(parts.get(i));
+    /**
+     * Constructs a new empty {@code JSONObject}.
+     */
+    public JSONObject() {
+    }
+
+    /**
+     * Returns the number stored under a key as {@code long}. Numbers with a
+     * fraction are truncated.
+     *
+     * @param key key of the number
+     * @return the number as {@code long}
+     * @throws NoSuchElementException if there is no value for the key
+     * @throws ClassCastException if the value is no number
+     */
+    public long getLong(String key) {
+        return ((Number) require(key)).longValue();
+    }
+
+    /**
+     * Returns the number stored under a key as {@code long} or the default
+     * value if there is no value for the key.
+     *
+     * @param key key of the number
+     * @param defaultValue value witch is returned if the key is missing or {@code null}
+     * @return the number as {@code long}
+     * @throws ClassCastException if the value is no number
+     */
+    public long getLong(String key, long defaultValue) {
+        Object value = get(key);
+        return value == null ? defaultValue : ((Number) value).longValue();
+    }
+
+    /**
+     * Returns the number stored under a key as {@code double}.
+     *
+     * @param key key of the number
+     * @return the number as {@code double}
+     * @throws NoSuchElementException if there is no value for the key
+     * @throws ClassCastException if the value is no number
+     */
+    public double getDouble(String key) {
+        return ((Number) require(key)).doubleValue();
+    }
+
+    /**
+     * Returns the number stored under a key as {@code double} or the default
+     * value if there is no value for the key.
+     *
+     * @param key key of the number
+     * @param defaultValue value witch is returned if the key is missing or {@code null}
+     * @return the number as {@code double}
+     * @throws ClassCastException if the value is no number
+     */
+    public double getDouble(String key, double defaultValue) {
+        Object value = get(key);
+        return value == null ? defaultValue : ((Number) value).doubleValue();
+    }
+
+    /**
+     * Returns the boolean stored under a key.
+     *
+     * @param key key of the boolean
+     * @return the boolean
+     * @throws NoSuchElementException if there is no value for the key
+     * @throws ClassCastException if the value is no boolean
+     */
+    public boolean getBoolean(String key) {
+        return (Boolean) require(key);
+    }
+
+    /**
+     * Returns the string stored under a key.
+     *
+     * @param key key of the string
+     * @return the string
+     * @throws NoSuchElementException if there is no value for the key
+     * @throws ClassCastException if the value is no string
+     */
+    public String getString(String key) {
+        return (String) require(key);
+    }
+
+    private Object require(String key) {
+        Object value = get(key);
+        if (value == null) {
+            throw new NoSuchElementException("No value for key: " + key);
         }
+        return value;
     }
 
     /**
@@ -102,22 +161,10 @@ public class JSONObject extends HashMap<String, Object> implements ClassWithIter
      * @throws JSONSyntaxError if json is malformed
      */
     public static JSONObject scanForSelf(ClassWithIterator parent, List<JSONPart> parts) throws JSONSyntaxError {
-        List<JSONPart> partList = parts.subList(parent.getIterator(), parts.size());
-        int openObjects = 0;
-        for (int i = 0; i < partList.size(); i++) {
-            if (partList.get(i).getType() == JSONPart.Type.OBJECT_START) {
-                openObjects++;
-            }
-            if (partList.get(i).getType() == JSONPart.Type.OBJECT_END) {
-                if (openObjects == 1) {
-                    parent.setIterator(parent.getIterator() + i);
-                    return new JSONObject(partList.subList(0,i+1));
-                } else {
-                    openObjects--;
-                }
-            }
-        }
-        throw new JSONSyntaxError(parts.get(0));
+        JSONParser parser = new JSONParser(parts, parent.getIterator());
+        JSONObject object = parser.parseObject(new JSONObject());
+        parent.setIterator(parser.getIterator() - 1);
+        return object;
     }
 
     /**
@@ -140,6 +187,121 @@ public class JSONObject extends HashMap<String, Object> implements ClassWithIter
      * @throws JSONSyntaxError if json is malformed
      */
     public static JSONObject fromChars(char[] chars) throws JSONSyntaxError {
-        return new JSONObject(new JSONLexer(chars).lex());
+        return new JSONParser(new JSONLexer(chars).lex()).parseDocumentObject();
+    }
+
+    /**
+     * Creates a {@code JSONObject} from a {@code JSON string} as
+     * {@code char array}. Keys and short string values are shared through
+     * the provided {@link JSONStringTable}, so repeated strings exist only
+     * once in memory.
+     *
+     * @param chars json string as char array witch should get parsed
+     * @param strings intern table for keys and short strings
+     * @return the parsed JSONObject
+     * @throws JSONSyntaxError if json is malformed
+     */
+    public static JSONObject fromChars(char[] chars, JSONStringTable strings) throws JSONSyntaxError {
+        return new JSONParser(new JSONLexer(chars, strings).lex()).parseDocumentObject();
+    }
+
+    /**
+     * Creates a {@code JSONObject} from a {@link Reader}. The {@code JSON} is
+     * read through a {@link JSONReader}, so the document never has to be
+     * held in memory as a whole.
+     *
+     * @param reader reader witch provides the json
+     * @return the parsed JSONObject
+     * @throws IOException if the reader fails
+     * @throws JSONSyntaxError if json is malformed
+     */
+    public static JSONObject fromReader(Reader reader) throws IOException, JSONSyntaxError {
+        try {
+            return new JSONParser(new JSONReader(reader)).parseDocumentObject();
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    /**
+     * Creates a {@code JSONObject} from an {@link InputStream} containing
+     * {@code UTF-8} encoded {@code JSON}.
+     *
+     * @param in stream witch provides the json
+     * @return the parsed JSONObject
+     * @throws IOException if the stream fails
+     * @throws JSONSyntaxError if json is malformed
+     */
+    public static JSONObject fromStream(InputStream in) throws IOException, JSONSyntaxError {
+        try {
+            return new JSONParser(new JSONReader(in)).parseDocumentObject();
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    /**
+     * Creates a {@code JSONObject} from the {@code UTF-8} encoded bytes of a
+     * {@link ByteBuffer}, without decoding the whole buffer into chars.
+     *
+     * @param buffer buffer witch contains the json
+     * @return the parsed JSONObject
+     * @throws JSONSyntaxError if json is malformed
+     * @see JSONBufferLexer
+     */
+    public static JSONObject fromBuffer(ByteBuffer buffer) throws JSONSyntaxError {
+        return new JSONParser(new JSONBufferLexer(buffer).lex()).parseDocumentObject();
+    }
+
+    /**
+     * Creates a {@code JSONObject} from a {@code UTF-8} encoded file. The
+     * file is mapped into memory instead of being read into a string.
+     *
+     * @param file file witch contains the json
+     * @return the parsed JSONObject
+     * @throws IOException if the file can't be read
+     * @throws JSONSyntaxError if json is malformed
+     */
+    public static JSONObject fromFile(Path file) throws IOException, JSONSyntaxError {
+        return new JSONParser(JSONBufferLexer.lexFile(file)).parseDocumentObject();
+    }
+
+    /**
+     * Creates a lazy {@code JSONObject} from the {@code UTF-8} encoded bytes of a
+     * {@link ByteBuffer}.
+     * <p>
+     * Only a {@link JSONIndex} of the document is built up front. The values
+     * are decoded when they are accessed, nested values witch are never
+     * accessed are skipped without being decoded at all. The returned
+     * {@code JSONObject} still supports every operation of a normal one.
+     *
+     * @param buffer buffer witch contains the json
+     * @return the lazy JSONObject
+     * @throws JSONSyntaxError if json is malformed
+     * @see JSONIndex
+     */
+    public static JSONObject lazyFromBuffer(ByteBuffer buffer) throws JSONSyntaxError {
+        return lazy(new JSONBufferLexer(buffer).lex());
+    }
+
+    /**
+     * Creates a lazy {@code JSONObject} from a {@code UTF-8} encoded file. The
+     * file is mapped into memory and only decoded where it is accessed.
+     *
+     * @param file file witch contains the json
+     * @return the lazy JSONObject
+     * @throws IOException if the file can't be read
+     * @throws JSONSyntaxError if json is malformed
+     * @see #lazyFromBuffer(ByteBuffer)
+     */
+    public static JSONObject lazyFromFile(Path file) throws IOException, JSONSyntaxError {
+        return lazy(JSONBufferLexer.lexFile(file));
+    }
+
+    private static JSONObject lazy(JSONTokens tokens) throws JSONSyntaxError {
+        if (tokens.size() == 0 || tokens.getType(0) != JSONPart.Type.OBJECT_START) {
+            return new JSONParser(tokens).parseDocumentObject();
+        }
+        return (JSONObject) new JSONIndex(tokens).getRoot();
     }
 }
@@ -0,0 +1,404 @@
+package dev.einsjannis.jsonparser;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Parses a large {@code JSON array} or a file of newline delimited
+ * {@code JSON} values ({@code NDJSON}) on multiple threads.
+ * <p>
+ * A sequential structural pre-scan over the {@code UTF-8} encoded bytes only
+ * counts brackets and skips strings, it allocates nothing. It splits the
+ * elements of the top level array (or the lines) into ranges of roughly
+ * {@link #setChunkSize(int)} bytes. The ranges are lexed by a
+ * {@link JSONBufferLexer} and parsed by a {@link JSONParser} concurrently in
+ * a {@link ForkJoinPool}, afterwards the results are assembled in order.
+ * <p>
+ * All lexers work with absolute positions in the buffer, so a
+ * {@link JSONSyntaxError} reports the same position as the sequential
+ * {@link JSONArray#fromBuffer(ByteBuffer)} would. If several ranges are
+ * malformed the error of the first one is thrown.
+ * <p>
+ * The goal of scaling with the number of cores is not met yet: it was only
+ * benchmarked on a single core, where it is as fast as
+ * {@link JSONArray#fromBuffer(ByteBuffer)}, so there are no numbers for a
+ * speedup. The {@code ParallelParseBenchmark} measures it for any number of
+ * threads.
+ *
+ * @author einsJannis
+ * @author Flexusma
+ * @version 1.0
+ * @see JSONArray#parallelFromBuffer(ByteBuffer)
+ */
+public class JSONParallelParser {
+
+    private static final int DEFAULT_CHUNK_SIZE = 256 * 1024;
+    private static final String[] KEYWORDS = {"true", "false", "null"};
+
+    private final ForkJoinPool pool;
+    private int chunkSize = DEFAULT_CHUNK_SIZE;
+    private boolean primitiveArrays;
+
+    /**
+     * Constructs a new {@code JSONParallelParser} witch parses in the
+     * {@link ForkJoinPool#commonPool()}.
+     */
+    public JSONParallelParser() {
+        this(ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Constructs a new {@code JSONParallelParser} witch parses in the
+     * provided pool.
+     *
+     * @param pool the pool witch parses the ranges
+     */
+    public JSONParallelParser(ForkJoinPool pool) {
+        this.pool = pool;
+    }
+
+    /**
+     * Sets the minimum size of a range in bytes. The input is split into at
+     * most four ranges per thread of the pool, smaller inputs into fewer
+     * ranges, so small documents are still parsed in a single task.
+     *
+     * @param chunkSize minimum number of bytes per range
+     * @return this parser
+     */
+    public JSONParallelParser setChunkSize(int chunkSize) {
+        if (chunkSize < 1) {
+            throw new IllegalArgumentException("chunkSize must be positive: " + chunkSize);
+        }
+        this.chunkSize = chunkSize;
+        return this;
+    }
+
+    /**
+     * Enables or disables primitive arrays, see
+     * {@link JSONParser#setPrimitiveArrays(boolean)}.
+     *
+     * @param primitiveArrays whether numeric arrays should be stored as primitives
+     * @return this parser
+     */
+    public JSONParallelParser setPrimitiveArrays(boolean primitiveArrays) {
+        this.primitiveArrays = primitiveArrays;
+        return this;
+    }
+
+    /**
+     * Parses the remaining bytes of the buffer, witch have to contain exactly
+     * one {@code JSON array}.
+     *
+     * @param buffer buffer witch contains the json
+     * @return the parsed JSONArray
+     * @throws JSONSyntaxError if the json is malformed
+     */
+    public JSONArray parseArray(ByteBuffer buffer) throws JSONSyntaxError {
+        return parse(buffer, false);
+    }
+
+    /**
+     * Parses the remaining bytes of the buffer as newline delimited
+     * {@code JSON}. Every value becomes one element of the returned array,
+     * empty lines are skipped. A value may span several lines, but two
+     * values have to be separated by a newline.
+     *
+     * @param buffer buffer witch contains the json values
+     * @return all values in the order they appear in
+     * @throws JSONSyntaxError if one of the values is malformed
+     */
+    public JSONArray parseLines(ByteBuffer buffer) throws JSONSyntaxError {
+        return parse(buffer, true);
+    }
+
+    /**
+     * Maps a file into memory and parses it with {@link #parseArray(ByteBuffer)}.
+     *
+     * @param file file witch contains the json
+     * @return the parsed JSONArray
+     * @throws IOException if the file can't be read
+     * @throws JSONSyntaxError if the json is malformed
+     */
+    public JSONArray parseArrayFile(Path file) throws IOException, JSONSyntaxError {
+        return parseArray(JSONBufferLexer.map(file));
+    }
+
+    /**
+     * Maps a file into memory and parses it with {@link #parseLines(ByteBuffer)}.
+     *
+     * @param file file witch contains the json values
+     * @return all values in the order they appear in
+     * @throws IOException if the file can't be read
+     * @throws JSONSyntaxError if one of the values is malformed
+     */
+    public JSONArray parseLinesFile(Path file) throws IOException, JSONSyntaxError {
+        return parseLines(JSONBufferLexer.map(file));
+    }
+
+    private JSONArray parse(ByteBuffer buffer, boolean lines) throws JSONSyntaxError {
+        int start = buffer.position();
+        int end = buffer.limit();
+        if (end - start >= 3 && buffer.get(start) == (byte) 0xEF && buffer.get(start + 1) == (byte) 0xBB && buffer.get(start + 2) == (byte) 0xBF) {
+            start += 3;
+        }
+        int target = Math.max(chunkSize, (end - start) / (pool.getParallelism() * 4));
+        List<int[]> ranges = lines ? scanLines(buffer, start, end, target) : scanArray(buffer, start, end, target);
+        if (ranges.isEmpty()) {
+            return new JSONArray();
+        }
+        Object[][] results = new Object[ranges.size()][];
+        JSONSyntaxError[] errors = new JSONSyntaxError[ranges.size()];
+        pool.invoke(new ParseTask(buffer, ranges, results, errors, !lines, 0, ranges.size()));
+        int count = 0;
+        for (int k = 0; k < results.length; k++) {
+            if (errors[k] != null) {
+                throw errors[k];
+            }
+            count += results[k].length;
+        }
+        JSONArray array = new JSONArray();
+        array.ensureCapacity(count);
+        for (Object[] result : results) {
+            for (Object value : result) {
+                array.add(value);
+            }
+        }
+        return array;
+    }
+
+    private static List<int[]> scanArray(ByteBuffer buffer, int start, int end, int target) throws JSONSyntaxError {
+        List<int[]> ranges = new ArrayList<>();
+        int i = skipWhitespace(buffer, start, end);
+        if (i >= end) {
+            throw new JSONSyntaxError("Unexpected end of json at position " + i + ".");
+        }
+        if (buffer.get(i) != '[') {
+            throw error(buffer, i);
+        }
+        int rangeStart = ++i;
+        int depth = 1;
+        while (depth > 0) {
+            if (i >= end) {
+                throw new JSONSyntaxError("Unexpected end of json at position " + i + ".");
+            }
+            byte c = buffer.get(i);
+            if (c == '"' || c == '\'') {
+                i = skipString(buffer, i, end);
+                continue;
+            }
+            if (c == '[' || c == '{') {
+                depth++;
+            } else if (c == ']' || c == '}') {
+                depth--;
+            } else if (c == ',' && depth == 1 && i - rangeStart >= target) {
+                ranges.add(new int[]{rangeStart, i});
+                rangeStart = i + 1;
+            }
+            i++;
+        }
+        int close = i - 1;
+        if (buffer.get(close) != ']') {
+            throw error(buffer, close);
+        }
+        if (!ranges.isEmpty() || skipWhitespace(buffer, rangeStart, close) < close) {
+            ranges.add(new int[]{rangeStart, close});
+        }
+        i = skipWhitespace(buffer, i, end);
+        if (i < end) {
+            throw error(buffer, i);
+        }
+        return ranges;
+    }
+
+    private static List<int[]> scanLines(ByteBuffer buffer, int start, int end, int target) throws JSONSyntaxError {
+        List<int[]> ranges = new ArrayList<>();
+        int rangeStart = start;
+        int depth = 0;
+        // state of the current line: a top level value ended, the start of the top level number or literal
+        boolean ended = false;
+        int literal = -1;
+        int i = start;
+        while (i < end) {
+            byte c = buffer.get(i);
+            if (depth == 0 && c != '\n' && c != ' ' && c != '\r' && c != '\t') {
+                if (ended || literal >= 0 && (c == '"' || c == '\'' || c == '[' || c == '{')) {
+                    throw error(buffer, i);
+                }
+            }
+            if (c == '"' || c == '\'') {
+                i = skipString(buffer, i, end);
+                ended |= depth == 0;
+                continue;
+            }
+            if (c == '[' || c == '{') {
+                depth++;
+            } else if (c == ']' || c == '}') {
+                if (--depth < 0) {
+                    throw error(buffer, i);
+                }
+                ended |= depth == 0;
+            } else if (depth > 0) {
+                // inside a value
+            } else if (c == '\n') {
+                checkLiteral(buffer, literal, i);
+                ended = false;
+                literal = -1;
+                if (i - rangeStart >= target) {
+                    ranges.add(new int[]{rangeStart, i});
+                    rangeStart = i + 1;
+                }
+            } else if (c == ' ' || c == '\r' || c == '\t') {
+                checkLiteral(buffer, literal, i);
+                ended |= literal >= 0;
+                literal = -1;
+            } else if (literal < 0) {
+                literal = i;
+            }
+            i++;
+        }
+        checkLiteral(buffer, literal, end);
+        if (depth > 0) {
+            throw new JSONSyntaxError("Unexpected end of json at position " + end + ".");
+        }
+        ranges.add(new int[]{rangeStart, end});
+        return ranges;
+    }
+
+    /**
+     * Rejects a second number or literal directly behind the first one, like
+     * {@code truefalse} or {@code 1-2}, witch the lexer would read as two values.
+     */
+    private static void checkLiteral(ByteBuffer buffer, int start, int end) throws JSONSyntaxError {
+        if (start < 0) {
+            return;
+        }
+        int length = literalLength(buffer, start, end);
+        if (length > 0 && start + length < end) {
+            throw error(buffer, start + length);
+        }
+    }
+
+    private static int literalLength(ByteBuffer buffer, int start, int end) {
+        for (String keyword : KEYWORDS) {
+            if (end - start >= keyword.length() && matches(buffer, start, keyword)) {
+                return keyword.length();
+            }
+        }
+        int state = JSONNumbers.START;
+        int i = start;
+        while (i < end) {
+            int next = JSONNumbers.next(state, buffer.get(i));
+            if (next == JSONNumbers.END) {
+                break;
+            }
+            state = next;
+            i++;
+        }
+        return JSONNumbers.isComplete(state) ? i - start : 0;
+    }
+
+    private static boolean matches(ByteBuffer buffer, int start, String keyword) {
+        for (int j = 0; j < keyword.length(); j++) {
+            if (buffer.get(start + j) != keyword.charAt(j)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static int skipString(ByteBuffer buffer, int i, int end) throws JSONSyntaxError {
+        byte quote = buffer.get(i++);
+        while (i < end) {
+            byte c = buffer.get(i++);
+            if (c == quote) {
+                return i;
+            }
+            if (c == '\\') {
+                i++;
+            }
+        }
+        throw new JSONSyntaxError("Unexpected end of json at position " + end + ".");
+    }
+
+    private static int skipWhitespace(ByteBuffer buffer, int i, int end) {
+        while (i < end) {
+            byte c = buffer.get(i);
+            if (c != ' ' && c != '\n' && c != '\r' && c != '\t') {
+                break;
+            }
+            i++;
+        }
+        return i;
+    }
+
+    private static JSONSyntaxError error(ByteBuffer buffer, int position) {
+        return new JSONSyntaxError(position, (char) (buffer.get(position) & 0xFF));
+    }
+
+    private final class ParseTask extends RecursiveAction {
+
+        private final ByteBuffer buffer;
+        private final List<int[]> ranges;
+        private final Object[][] results;
+        private final JSONSyntaxError[] errors;
+        private final boolean commas;
+        private final int from;
+        private final int to;
+
+        private ParseTask(ByteBuffer buffer, List<int[]> ranges, Object[][] results, JSONSyntaxError[] errors,
+                          boolean commas, int from, int to) {
+            this.buffer = buffer;
+            this.ranges = ranges;
+            this.results = results;
+            this.errors = errors;
+            this.commas = commas;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from > 1) {
+                int middle = (from + to) >>> 1;
+                invokeAll(new ParseTask(buffer, ranges, results, errors, commas, from, middle),
+                        new ParseTask(buffer, ranges, results, errors, commas, middle, to));
+                return;
+            }
+            int[] range = ranges.get(from);
+            try {
+                results[from] = parseRange(range[0], range[1]);
+            } catch (JSONSyntaxError e) {
+                errors[from] = e;
+            }
+        }
+
+        private Object[] parseRange(int start, int end) throws JSONSyntaxError {
+            ByteBuffer slice = buffer.duplicate();
+            slice.limit(end);
+            slice.position(start);
+            JSONParser parser = new JSONParser(new JSONBufferLexer(slice).lex()).setPrimitiveArrays(primitiveArrays);
+            List<Object> values = new ArrayList<>();
+            if (!commas) {
+                while (parser.hasNextValue()) {
+                    values.add(parser.nextValue());
+                }
+                return values.toArray();
+            }
+            while (true) {
+                if (!parser.hasNextValue()) {
+                    throw error(buffer, end);
+                }
+                values.add(parser.nextValue());
+                if (!parser.hasNextValue()) {
+                    return values.toArray();
+                }
+                parser.nextComma();
+            }
+        }
+    }
+}
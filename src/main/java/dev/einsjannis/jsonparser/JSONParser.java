@@ -0,0 +1,387 @@
+package dev.einsjannis.jsonparser;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * A single pass {@code recursive descent parser} witch builds
+ * {@link JSONObject}s and {@link JSONArray}s from the list of
+ * {@link JSONPart}s produced by the {@link JSONLexer}, from the
+ * {@link JSONTokens} of the {@link JSONBufferLexer} or directly from the
+ * tokens of a {@link JSONReader}.
+ * <p>
+ * Every {@link JSONPart} is visited exactly once, nested values are parsed
+ * in place instead of searching for the matching closing bracket first, so
+ * the parse time grows linearly with the size of the input.
+ * <p>
+ * The parser implements {@link ClassWithIterator}. Its {@code iterator}
+ * always points to the next {@link JSONPart} (or token of the
+ * {@link JSONTokens}) witch has not been consumed yet. When reading from a {@link JSONReader} the {@code iterator} is not
+ * used.
+ *
+ * @author einsJannis
+ * @author Flexusma
+ * @version 1.0
+ * @see JSONLexer
+ * @see JSONReader
+ */
+public class JSONParser implements ClassWithIterator {
+
+    private final List<JSONPart> parts;
+    private final JSONTokens tokens;
+    private final JSONReader reader;
+    private int i;
+    private boolean primitiveArrays;
+
+    @Override
+    public int getIterator() {
+        return i;
+    }
+    @Override
+    public void setIterator(int i) {
+        this.i = i;
+    }
+
+    /**
+     * Constructs a new {@code JSONParser} witch starts parsing at the first
+     * {@link JSONPart} of the list.
+     *
+     * @param parts list of {@link JSONPart}s witch should get parsed
+     */
+    public JSONParser(List<JSONPart> parts) {
+        this(parts, 0);
+    }
+
+    /**
+     * Constructs a new {@code JSONParser} witch starts parsing at the
+     * provided position of the list.
+     *
+     * @param parts list of {@link JSONPart}s witch should get parsed
+     * @param start index of the first {@link JSONPart} to parse
+     */
+    public JSONParser(List<JSONPart> parts, int start) {
+        this.parts = parts;
+        this.tokens = null;
+        this.reader = null;
+        this.i = start;
+    }
+
+    /**
+     * Constructs a new {@code JSONParser} witch parses the {@link JSONTokens}
+     * of a {@link JSONBufferLexer}. The values of the tokens are decoded
+     * while they are added to the {@link JSONObject}s and {@link JSONArray}s.
+     *
+     * @param tokens the tokens witch should get parsed
+     */
+    public JSONParser(JSONTokens tokens) {
+        this.parts = null;
+        this.tokens = tokens;
+        this.reader = null;
+    }
+
+    /**
+     * Constructs a new {@code JSONParser} witch pulls its tokens from a
+     * {@link JSONReader} instead of a list of {@link JSONPart}s.
+     * <p>
+     * An {@link IOException} of the reader is rethrown as
+     * {@link UncheckedIOException}.
+     *
+     * @param reader the reader to parse from
+     */
+    public JSONParser(JSONReader reader) {
+        this.parts = null;
+        this.tokens = null;
+        this.reader = reader;
+    }
+
+    /**
+     * Enables or disables primitive arrays. If enabled, every nested array
+     * witch only contains numbers is parsed into a {@link JSONNumberArray}
+     * backed by a {@code long array} or {@code double array} instead of a
+     * list of boxed numbers. Arrays mixing {@link Long}s and {@link Double}s
+     * stay normal {@link JSONArray}s, so every element keeps its type.
+     *
+     * @param primitiveArrays whether numeric arrays should be stored as primitives
+     * @return this parser
+     */
+    public JSONParser setPrimitiveArrays(boolean primitiveArrays) {
+        this.primitiveArrays = primitiveArrays;
+        return this;
+    }
+
+    /**
+     * Parses a complete {@code JSON document} witch has to consist of exactly
+     * one {@code JSON object}.
+     *
+     * @return the parsed JSONObject
+     * @throws JSONSyntaxError if the json is malformed
+     */
+    public JSONObject parseDocumentObject() throws JSONSyntaxError {
+        JSONObject object = parseObject(new JSONObject());
+        expectEnd();
+        return object;
+    }
+
+    /**
+     * Parses a complete {@code JSON document} witch has to consist of exactly
+     * one {@code JSON array}.
+     *
+     * @return the parsed JSONArray
+     * @throws JSONSyntaxError if the json is malformed
+     */
+    public JSONArray parseDocumentArray() throws JSONSyntaxError {
+        JSONArray array = parseArray(new JSONArray());
+        expectEnd();
+        return array;
+    }
+
+    /**
+     * Parses the {@code JSON object} starting at the current position into
+     * the provided {@link JSONObject}. Afterwards the iterator points to the
+     * {@link JSONPart} following the closing bracket ({@code '}'}).
+     *
+     * @param object the JSONObject witch gets filled
+     * @return the provided JSONObject
+     * @throws JSONSyntaxError if the json is malformed
+     */
+    public JSONObject parseObject(JSONObject object) throws JSONSyntaxError {
+        expect(JSONPart.Type.OBJECT_START);
+        if (peek() == JSONPart.Type.OBJECT_END) {
+            expect(JSONPart.Type.OBJECT_END);
+            return object;
+        }
+        while (true) {
+            String key = expect(JSONPart.Type.STRING);
+            expect(JSONPart.Type.DOUBLE_POINT);
+            object.put(key, parseValue());
+            if (peek() == JSONPart.Type.OBJECT_END) {
+                expect(JSONPart.Type.OBJECT_END);
+                return object;
+            }
+            expect(JSONPart.Type.COMMA);
+        }
+    }
+
+    /**
+     * Parses the {@code JSON array} starting at the current position into
+     * the provided {@link JSONArray}. Afterwards the iterator points to the
+     * {@link JSONPart} following the closing bracket ({@code ']'}).
+     *
+     * @param array the JSONArray witch gets filled
+     * @return the provided JSONArray
+     * @throws JSONSyntaxError if the json is malformed
+     */
+    public JSONArray parseArray(JSONArray array) throws JSONSyntaxError {
+        expect(JSONPart.Type.ARRAY_START);
+        if (peek() == JSONPart.Type.ARRAY_END) {
+            expect(JSONPart.Type.ARRAY_END);
+            return array;
+        }
+        while (true) {
+            array.add(parseValue());
+            if (peek() == JSONPart.Type.ARRAY_END) {
+                expect(JSONPart.Type.ARRAY_END);
+                return array;
+            }
+            expect(JSONPart.Type.COMMA);
+        }
+    }
+
+    boolean hasNextValue() {
+        return i < size();
+    }
+
+    Object nextValue() throws JSONSyntaxError {
+        return parseValue();
+    }
+
+    void nextComma() throws JSONSyntaxError {
+        expect(JSONPart.Type.COMMA);
+    }
+
+    private Object parseValue() throws JSONSyntaxError {
+        JSONPart.Type type = peek();
+        switch (type) {
+            case OBJECT_START:
+                return parseObject(new JSONObject());
+            case ARRAY_START:
+                if (primitiveArrays) {
+                    return parsePrimitiveArray();
+                }
+                return parseArray(new JSONArray());
+            case BOOLEAN:
+                return expect(type).equals("true");
+            case STRING:
+                return expect(type);
+            case NUMBER:
+                return JSONNumbers.parse(nextNumber());
+            case NULL:
+                expect(type);
+                return null;
+            default:
+                throw error();
+        }
+    }
+
+    private JSONArray parsePrimitiveArray() throws JSONSyntaxError {
+        expect(JSONPart.Type.ARRAY_START);
+        long[] longs = new long[8];
+        double[] doubles = null;
+        int count = 0;
+        Number mixed = null;
+        while (peek() == JSONPart.Type.NUMBER) {
+            Number value = JSONNumbers.parse(nextNumber());
+            if (count == 0 && value instanceof Double) {
+                doubles = new double[8];
+            } else if (value instanceof Double != (doubles != null)) {
+                // longs and doubles are mixed, boxed elements keep their types
+                mixed = value;
+                break;
+            }
+            if (doubles == null) {
+                if (count == longs.length) {
+                    longs = Arrays.copyOf(longs, count * 2);
+                }
+                longs[count++] = value.longValue();
+            } else {
+                if (count == doubles.length) {
+                    doubles = Arrays.copyOf(doubles, count * 2);
+                }
+                doubles[count++] = value.doubleValue();
+            }
+            if (peek() == JSONPart.Type.ARRAY_END) {
+                expect(JSONPart.Type.ARRAY_END);
+                return doubles == null ? new JSONNumberArray(longs, count) : new JSONNumberArray(doubles, count);
+            }
+            expect(JSONPart.Type.COMMA);
+        }
+        JSONArray array = new JSONArray();
+        for (int j = 0; j < count; j++) {
+            array.add(doubles == null ? (Object) longs[j] : (Object) doubles[j]);
+        }
+        if (mixed != null) {
+            array.add(mixed);
+            if (peek() == JSONPart.Type.ARRAY_END) {
+                expect(JSONPart.Type.ARRAY_END);
+                return array;
+            }
+            expect(JSONPart.Type.COMMA);
+        } else if (count == 0 && peek() == JSONPart.Type.ARRAY_END) {
+            expect(JSONPart.Type.ARRAY_END);
+            return array;
+        }
+        while (true) {
+            array.add(parseValue());
+            if (peek() == JSONPart.Type.ARRAY_END) {
+                expect(JSONPart.Type.ARRAY_END);
+                return array;
+            }
+            expect(JSONPart.Type.COMMA);
+        }
+    }
+
+    private CharSequence nextNumber() throws JSONSyntaxError {
+        if (peek() != JSONPart.Type.NUMBER) {
+            throw error();
+        }
+        if (parts != null) {
+            return parts.get(i++).getValue();
+        }
+        if (tokens != null) {
+            return tokens.getChars(i++);
+        }
+        try {
+            return reader.nextNumberChars();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private JSONPart.Type peek() throws JSONSyntaxError {
+        if (reader != null) {
+            try {
+                JSONPart.Type type = reader.peek();
+                if (type == null) {
+                    throw reader.unexpectedEnd();
+                }
+                return type;
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+        if (i >= size()) {
+            throw unexpectedEnd();
+        }
+        return tokens != null ? tokens.getType(i) : parts.get(i).getType();
+    }
+
+    private String expect(JSONPart.Type type) throws JSONSyntaxError {
+        if (peek() != type) {
+            throw error();
+        }
+        if (parts != null) {
+            return parts.get(i++).getValue();
+        }
+        if (tokens != null) {
+            int index = i++;
+            switch (type) {
+                case STRING:
+                case BOOLEAN:
+                    return tokens.getString(index);
+                default:
+                    return null;
+            }
+        }
+        try {
+            switch (type) {
+                case STRING:
+                    return reader.nextString();
+                case BOOLEAN:
+                    return reader.nextBoolean() ? "true" : "false";
+                default:
+                    reader.nextToken();
+                    return null;
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private void expectEnd() throws JSONSyntaxError {
+        if (reader != null) {
+            try {
+                if (reader.peek() != null) {
+                    throw reader.error();
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        } else if (i < size()) {
+            throw error();
+        }
+    }
+
+    private int size() {
+        return tokens != null ? tokens.size() : parts.size();
+    }
+
+    private JSONSyntaxError error() {
+        if (reader != null) {
+            try {
+                return reader.error();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+        if (tokens != null) {
+            return new JSONSyntaxError(tokens.getOffset(i), (char) (tokens.byteAt(tokens.getOffset(i)) & 0xFF));
+        }
+        return new JSONSyntaxError(parts.get(i));
+    }
+
+    private JSONSyntaxError unexpectedEnd() {
+        return new JSONSyntaxError("Unexpected end of json after " + size() + " parts.");
+    }
+}
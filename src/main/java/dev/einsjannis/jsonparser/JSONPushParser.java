@@ -0,0 +1,415 @@
+package dev.einsjannis.jsonparser;
+
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.util.function.Consumer;
+
+/**
+ * An incremental {@code push parser} witch accepts the input in arbitrary
+ * chunks.
+ * <p>
+ * In contrast to the {@link JSONLexer} and the {@link JSONReader}, witch
+ * both pull their input, the {@code JSONPushParser} is fed by the caller
+ * with {@link #feed(char[])} or {@link #feed(ByteBuffer)} whenever input is
+ * available, for example from a pipe or a growing file. A chunk can end
+ * anywhere, also in the middle of a string, a number, an escape sequence or
+ * a literal like {@code true}; the parser keeps its state and continues with
+ * the next chunk. No input is parsed twice and the document is never
+ * buffered as a whole.
+ * <p>
+ * Every top level value is handed to the consumer as soon as it is complete,
+ * so a stream may contain any number of values one after another (like
+ * newline delimited {@code JSON}). With {@link #setEmitArrayElements(boolean)}
+ * the elements of a top level array are handed out one by one instead of
+ * the whole array at the end. {@link #end()} marks the end of the input and
+ * completes a trailing number.
+ *
+ * @author einsJannis
+ * @author Flexusma
+ * @version 1.0
+ * @see JSONReader
+ */
+public class JSONPushParser {
+
+    private static final int TOKEN = 0;
+    private static final int STRING = 1;
+    private static final int STRING_ESCAPE = 2;
+    private static final int STRING_UNICODE = 3;
+    private static final int NUMBER = 4;
+    private static final int LITERAL = 5;
+
+    private static final int VALUE = 0;
+    private static final int VALUE_OR_END = 1;
+    private static final int KEY_OR_END = 2;
+    private static final int KEY = 3;
+    private static final int COLON = 4;
+    private static final int COMMA_OR_END = 5;
+
+    private final Consumer<Object> consumer;
+    private final StringBuilder builder = new StringBuilder();
+    private boolean emitArrayElements;
+    private boolean lenient;
+
+    private int lexState = TOKEN;
+    private char quote;
+    private final char[] unicode = new char[4];
+    private int unicodeDigits;
+    private int numberState;
+    private String literal;
+    private int literalIndex;
+
+    private int state = VALUE;
+    private Object[] stack = new Object[16];
+    private String[] keys = new String[16];
+    private int depth;
+    private long position;
+    private boolean ended;
+
+    private CharsetDecoder decoder;
+    private ByteBuffer bytes;
+    private CharBuffer chars;
+
+    /**
+     * Constructs a new {@code JSONPushParser} witch hands every complete
+     * top level value to the provided consumer.
+     *
+     * @param consumer receives the values in the order they are completed
+     */
+    public JSONPushParser(Consumer<Object> consumer) {
+        this.consumer = consumer;
+    }
+
+    /**
+     * Enables or disables emitting the elements of a top level array one by
+     * one. If enabled, the consumer receives every element of a top level
+     * array as soon as it is complete and never the array itself.
+     *
+     * @param emitArrayElements whether top level arrays should be split into their elements
+     * @return this parser
+     */
+    public JSONPushParser setEmitArrayElements(boolean emitArrayElements) {
+        this.emitArrayElements = emitArrayElements;
+        return this;
+    }
+
+    /**
+     * Sets whether the escapes of control chars ({@code \n}, {@code \t},
+     * ...) are kept as they are instead of being decoded, like
+     * {@link JSONBufferLexer#setLenient(boolean)}.
+     *
+     * @param lenient whether escapes of control chars are kept
+     * @return this parser
+     */
+    public JSONPushParser setLenient(boolean lenient) {
+        this.lenient = lenient;
+        return this;
+    }
+
+    /**
+     * Parses the next chunk of the input.
+     *
+     * @param chunk the next chars of the input
+     * @throws JSONSyntaxError if the input is malformed
+     */
+    public void feed(char[] chunk) throws JSONSyntaxError {
+        feed(chunk, 0, chunk.length);
+    }
+
+    /**
+     * Parses the next chunk of the input.
+     *
+     * @param chunk array witch contains the next chars of the input
+     * @param offset index of the first char
+     * @param length number of chars
+     * @throws JSONSyntaxError if the input is malformed
+     */
+    public void feed(char[] chunk, int offset, int length) throws JSONSyntaxError {
+        if (ended) {
+            throw new IllegalStateException("The input has already ended.");
+        }
+        for (int j = offset; j < offset + length; j++) {
+            accept(chunk[j]);
+            position++;
+        }
+    }
+
+    /**
+     * Parses the remaining bytes of a buffer as the next chunk of
+     * {@code UTF-8} encoded input. A multi byte char may be split between
+     * two chunks.
+     *
+     * @param chunk the next bytes of the input
+     * @throws JSONSyntaxError if the input is malformed
+     */
+    public void feed(ByteBuffer chunk) throws JSONSyntaxError {
+        if (decoder == null) {
+            decoder = StandardCharsets.UTF_8.newDecoder()
+                    .onMalformedInput(CodingErrorAction.REPLACE)
+                    .onUnmappableCharacter(CodingErrorAction.REPLACE);
+            bytes = ByteBuffer.allocate(8192);
+            chars = CharBuffer.allocate(8192);
+        }
+        while (chunk.hasRemaining()) {
+            int count = Math.min(chunk.remaining(), bytes.remaining());
+            ByteBuffer part = chunk.duplicate();
+            part.limit(part.position() + count);
+            bytes.put(part);
+            chunk.position(chunk.position() + count);
+            decode(false);
+        }
+    }
+
+    private void decode(boolean endOfInput) throws JSONSyntaxError {
+        bytes.flip();
+        while (true) {
+            boolean overflow = decoder.decode(bytes, chars, endOfInput).isOverflow();
+            if (endOfInput && !overflow) {
+                overflow = decoder.flush(chars).isOverflow();
+            }
+            chars.flip();
+            feed(chars.array(), chars.position(), chars.remaining());
+            chars.clear();
+            if (!overflow) {
+                break;
+            }
+        }
+        bytes.compact();
+    }
+
+    /**
+     * Marks the end of the input. A trailing number is completed and
+     * emitted.
+     *
+     * @throws JSONSyntaxError if the input ends inside of a value
+     */
+    public void end() throws JSONSyntaxError {
+        if (ended) {
+            return;
+        }
+        if (decoder != null) {
+            decode(true);
+        }
+        ended = true;
+        if (lexState == NUMBER) {
+            endNumber();
+        }
+        if (lexState != TOKEN || depth > 0) {
+            throw new JSONSyntaxError("Unexpected end of json at position " + position + ".");
+        }
+    }
+
+    /**
+     * Returns the number of chars parsed so far.
+     *
+     * @return the position in the input
+     */
+    public long getPosition() {
+        return position;
+    }
+
+    private void accept(char c) throws JSONSyntaxError {
+        switch (lexState) {
+            case STRING:
+                string(c);
+                return;
+            case STRING_ESCAPE:
+                escape(c);
+                return;
+            case STRING_UNICODE:
+                unicode(c);
+                return;
+            case NUMBER:
+                int next = JSONNumbers.next(numberState, c);
+                if (next != JSONNumbers.END) {
+                    numberState = next;
+                    builder.append(c);
+                    return;
+                }
+                if (!JSONNumbers.isComplete(numberState)) {
+                    throw error(c);
+                }
+                endNumber();
+                break;
+            case LITERAL:
+                if (c != literal.charAt(literalIndex)) {
+                    throw error(c);
+                }
+                if (++literalIndex == literal.length()) {
+                    lexState = TOKEN;
+                    value(literal.equals("null") ? null : (Object) literal.equals("true"));
+                }
+                return;
+            default:
+                break;
+        }
+        switch (c) {
+            case ' ':
+            case '\n':
+            case '\r':
+            case '\t':
+                return;
+            case '{':
+                open(new JSONObject(), KEY_OR_END, c);
+                return;
+            case '[':
+                open(new JSONArray(), VALUE_OR_END, c);
+                return;
+            case '}':
+                close(KEY_OR_END, JSONObject.class, c);
+                return;
+            case ']':
+                close(VALUE_OR_END, JSONArray.class, c);
+                return;
+            case ',':
+                if (state != COMMA_OR_END) {
+                    throw error(c);
+                }
+                state = stack[depth - 1] instanceof JSONObject ? KEY : VALUE;
+                return;
+            case ':':
+                if (state != COLON) {
+                    throw error(c);
+                }
+                state = VALUE;
+                return;
+            case '"':
+            case '\'':
+                if (!acceptsValue() && state != KEY && state != KEY_OR_END) {
+                    throw error(c);
+                }
+                lexState = STRING;
+                quote = c;
+                builder.setLength(0);
+                return;
+            case 't':
+            case 'f':
+            case 'n':
+                if (!acceptsValue()) {
+                    throw error(c);
+                }
+                lexState = LITERAL;
+                literal = c == 't' ? "true" : c == 'f' ? "false" : "null";
+                literalIndex = 1;
+                return;
+            default:
+                if (!JSONNumbers.isStart(c) || !acceptsValue()) {
+                    throw error(c);
+                }
+                lexState = NUMBER;
+                numberState = JSONNumbers.next(JSONNumbers.START, c);
+                builder.setLength(0);
+                builder.append(c);
+        }
+    }
+
+    private void string(char c) {
+        if (c == quote) {
+            lexState = TOKEN;
+            String string = builder.toString();
+            if (state == KEY || state == KEY_OR_END) {
+                keys[depth - 1] = string;
+                state = COLON;
+            } else {
+                value(string);
+            }
+        } else if (c == '\\') {
+            lexState = STRING_ESCAPE;
+        } else {
+            builder.append(c);
+        }
+    }
+
+    private void escape(char c) {
+        int escaped = JSONStrings.unescape(c, lenient);
+        if (escaped >= 0) {
+            builder.append((char) escaped);
+            lexState = STRING;
+        } else if (c == 'u') {
+            lexState = STRING_UNICODE;
+            unicodeDigits = 0;
+        } else {
+            builder.append('\\');
+            lexState = STRING;
+            string(c);
+        }
+    }
+
+    private void unicode(char c) {
+        if (JSONStrings.hex(c) < 0) {
+            builder.append('\\').append('u').append(unicode, 0, unicodeDigits);
+            lexState = STRING;
+            string(c);
+            return;
+        }
+        unicode[unicodeDigits++] = c;
+        if (unicodeDigits == 4) {
+            builder.append((char) JSONStrings.unicode(CharBuffer.wrap(unicode), 0));
+            lexState = STRING;
+        }
+    }
+
+    private void endNumber() throws JSONSyntaxError {
+        if (!JSONNumbers.isComplete(numberState)) {
+            throw new JSONSyntaxError("Incomplete number at position " + position + ".");
+        }
+        lexState = TOKEN;
+        value(JSONNumbers.parse(builder));
+    }
+
+    private boolean acceptsValue() {
+        return state == VALUE || state == VALUE_OR_END;
+    }
+
+    private void open(Object container, int next, char c) throws JSONSyntaxError {
+        if (!acceptsValue()) {
+            throw error(c);
+        }
+        if (depth == stack.length) {
+            Object[] grownStack = new Object[depth * 2];
+            String[] grownKeys = new String[depth * 2];
+            System.arraycopy(stack, 0, grownStack, 0, depth);
+            System.arraycopy(keys, 0, grownKeys, 0, depth);
+            stack = grownStack;
+            keys = grownKeys;
+        }
+        stack[depth++] = container;
+        state = next;
+    }
+
+    private void close(int empty, Class<?> type, char c) throws JSONSyntaxError {
+        if ((state != empty && state != COMMA_OR_END) || !type.isInstance(stack[depth - 1])) {
+            throw error(c);
+        }
+        Object container = stack[--depth];
+        stack[depth] = null;
+        if (depth == 0 && emitArrayElements && container instanceof JSONArray) {
+            state = VALUE;
+            return;
+        }
+        value(container);
+    }
+
+    private void value(Object value) {
+        if (depth == 0) {
+            state = VALUE;
+            consumer.accept(value);
+            return;
+        }
+        Object parent = stack[depth - 1];
+        if (parent instanceof JSONObject) {
+            ((JSONObject) parent).put(keys[depth - 1], value);
+        } else if (depth == 1 && emitArrayElements) {
+            consumer.accept(value);
+        } else {
+            ((JSONArray) parent).add(value);
+        }
+        state = COMMA_OR_END;
+    }
+
+    private JSONSyntaxError error(char c) {
+        return new JSONSyntaxError((int) position, c);
+    }
+}
@@ -0,0 +1,286 @@
+package dev.einsjannis.jsonparser;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * A path query witch selects values from a {@code JSON document} while it is
+ * read.
+ * <p>
+ * A path is a {@code JSON Pointer} like {@code "/displays/0/delay"}: every
+ * segment names a member of an object or an index of an array,
+ * {@code "~1"} stands for {@code '/'} and {@code "~0"} for {@code '~'} in a
+ * segment. In addition the segment {@code "*"} matches every member or
+ * element, so {@code "/pictures/*"} selects all pictures one by one. The
+ * empty path selects the whole document.
+ * <p>
+ * The query runs on a {@link JSONReader}. Values witch are not on the path
+ * are skipped by counting brackets, without creating any tokens, strings or
+ * numbers for them; only the matches are parsed into values and streamed to
+ * the callback. A path without {@code "*"} stops reading at the first match,
+ * so reading a few fields near the start of a large document costs almost
+ * nothing. Because of that the rest of the document is not validated.
+ *
+ * @author einsJannis
+ * @author Flexusma
+ * @version 1.0
+ * @see JSONReader
+ */
+public final class JSONQuery {
+
+    private static final String WILDCARD = "*";
+
+    private final String path;
+    private final String[] segments;
+    private final int[] indices;
+    private final boolean wildcard;
+
+    private JSONQuery(String path) {
+        if (!path.isEmpty() && path.charAt(0) != '/') {
+            throw new IllegalArgumentException("A path has to be empty or start with '/': " + path);
+        }
+        this.path = path;
+        this.segments = path.isEmpty() ? new String[0] : path.substring(1).split("/", -1);
+        this.indices = new int[segments.length];
+        boolean wildcard = false;
+        for (int k = 0; k < segments.length; k++) {
+            segments[k] = segments[k].replace("~1", "/").replace("~0", "~");
+            indices[k] = index(segments[k]);
+            wildcard |= segments[k].equals(WILDCARD);
+        }
+        this.wildcard = wildcard;
+    }
+
+    /**
+     * Compiles a path, so it can be used for many documents.
+     *
+     * @param path the path, for example {@code "/pictures/*"}
+     * @return the compiled query
+     * @throws IllegalArgumentException if the path is neither empty nor starts with {@code '/'}
+     */
+    public static JSONQuery compile(String path) {
+        return new JSONQuery(path);
+    }
+
+    /**
+     * Streams all values on a path of a document to a callback.
+     *
+     * @param source reader witch provides the json
+     * @param path the path, for example {@code "/pictures/*"}
+     * @param callback receives the matching values in document order
+     * @return the number of matches
+     * @throws IOException if the reader fails
+     * @throws JSONSyntaxError if the json is malformed
+     */
+    public static int select(Reader source, String path, Consumer<Object> callback) throws IOException, JSONSyntaxError {
+        return compile(path).select(source, callback);
+    }
+
+    /**
+     * Streams all values on a path of a {@code UTF-8} encoded document to a
+     * callback.
+     *
+     * @param source stream witch provides the json
+     * @param path the path, for example {@code "/pictures/*"}
+     * @param callback receives the matching values in document order
+     * @return the number of matches
+     * @throws IOException if the stream fails
+     * @throws JSONSyntaxError if the json is malformed
+     */
+    public static int select(InputStream source, String path, Consumer<Object> callback) throws IOException, JSONSyntaxError {
+        return compile(path).select(source, callback);
+    }
+
+    /**
+     * Streams all values on a path of a {@code UTF-8} encoded file to a
+     * callback.
+     *
+     * @param file file witch contains the json
+     * @param path the path, for example {@code "/pictures/*"}
+     * @param callback receives the matching values in document order
+     * @return the number of matches
+     * @throws IOException if the file can't be read
+     * @throws JSONSyntaxError if the json is malformed
+     */
+    public static int select(Path file, String path, Consumer<Object> callback) throws IOException, JSONSyntaxError {
+        return compile(path).select(file, callback);
+    }
+
+    /**
+     * Streams all values on this path to a callback.
+     *
+     * @param source reader witch provides the json
+     * @param callback receives the matching values in document order
+     * @return the number of matches
+     * @throws IOException if the reader fails
+     * @throws JSONSyntaxError if the json is malformed
+     */
+    public int select(Reader source, Consumer<Object> callback) throws IOException, JSONSyntaxError {
+        return select(new JSONReader(source), callback);
+    }
+
+    /**
+     * Streams all values on this path of a {@code UTF-8} encoded document to
+     * a callback.
+     *
+     * @param source stream witch provides the json
+     * @param callback receives the matching values in document order
+     * @return the number of matches
+     * @throws IOException if the stream fails
+     * @throws JSONSyntaxError if the json is malformed
+     */
+    public int select(InputStream source, Consumer<Object> callback) throws IOException, JSONSyntaxError {
+        return select(new JSONReader(source), callback);
+    }
+
+    /**
+     * Streams all values on this path of a {@code UTF-8} encoded file to a
+     * callback.
+     *
+     * @param file file witch contains the json
+     * @param callback receives the matching values in document order
+     * @return the number of matches
+     * @throws IOException if the file can't be read
+     * @throws JSONSyntaxError if the json is malformed
+     */
+    public int select(Path file, Consumer<Object> callback) throws IOException, JSONSyntaxError {
+        try (InputStream in = Files.newInputStream(file)) {
+            return select(in, callback);
+        }
+    }
+
+    /**
+     * Streams all values on this path to a callback.
+     *
+     * @param reader reader positioned in front of the document
+     * @param callback receives the matching values in document order
+     * @return the number of matches
+     * @throws IOException if the reader fails
+     * @throws JSONSyntaxError if the json is malformed
+     */
+    public int select(JSONReader reader, Consumer<Object> callback) throws IOException, JSONSyntaxError {
+        return select(reader, callback, !wildcard);
+    }
+
+    private int select(JSONReader reader, Consumer<Object> callback, boolean first) throws IOException, JSONSyntaxError {
+        int[] matches = new int[1];
+        try {
+            walk(reader, new JSONParser(reader), 0, first, value -> {
+                matches[0]++;
+                callback.accept(value);
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        return matches[0];
+    }
+
+    /**
+     * Returns the first value on this path.
+     *
+     * @param source reader witch provides the json
+     * @return the first match or {@code null} if nothing matches
+     * @throws IOException if the reader fails
+     * @throws JSONSyntaxError if the json is malformed
+     */
+    public Object first(Reader source) throws IOException, JSONSyntaxError {
+        List<Object> result = new ArrayList<>(1);
+        select(new JSONReader(source), result::add, true);
+        return result.isEmpty() ? null : result.get(0);
+    }
+
+    /**
+     * Returns all values on this path.
+     *
+     * @param source reader witch provides the json
+     * @return the matches in document order
+     * @throws IOException if the reader fails
+     * @throws JSONSyntaxError if the json is malformed
+     */
+    public List<Object> selectAll(Reader source) throws IOException, JSONSyntaxError {
+        List<Object> result = new ArrayList<>();
+        select(source, result::add);
+        return result;
+    }
+
+    private boolean walk(JSONReader reader, JSONParser parser, int level, boolean first, Consumer<Object> callback)
+            throws IOException, JSONSyntaxError {
+        if (level == segments.length) {
+            callback.accept(parser.nextValue());
+            return first;
+        }
+        JSONPart.Type type = reader.peek();
+        if (type == null) {
+            throw reader.unexpectedEnd();
+        }
+        if (type == JSONPart.Type.OBJECT_START) {
+            reader.nextToken();
+            if (reader.peek() == JSONPart.Type.OBJECT_END) {
+                reader.nextToken();
+                return false;
+            }
+            while (true) {
+                CharSequence name = reader.nextNameChars();
+                if (segments[level].equals(WILDCARD) || segments[level].contentEquals(name)) {
+                    if (walk(reader, parser, level + 1, first, callback)) {
+                        return true;
+                    }
+                } else {
+                    reader.skipValue();
+                }
+                if (reader.peek() != JSONPart.Type.COMMA) {
+                    reader.nextToken(JSONPart.Type.OBJECT_END);
+                    return false;
+                }
+                reader.nextToken();
+            }
+        }
+        if (type == JSONPart.Type.ARRAY_START) {
+            reader.nextToken();
+            if (reader.peek() == JSONPart.Type.ARRAY_END) {
+                reader.nextToken();
+                return false;
+            }
+            for (int index = 0; ; index++) {
+                if (segments[level].equals(WILDCARD) || indices[level] == index) {
+                    if (walk(reader, parser, level + 1, first, callback)) {
+                        return true;
+                    }
+                } else {
+                    reader.skipValue();
+                }
+                if (reader.peek() != JSONPart.Type.COMMA) {
+                    reader.nextToken(JSONPart.Type.ARRAY_END);
+                    return false;
+                }
+                reader.nextToken();
+            }
+        }
+        reader.skipValue();
+        return false;
+    }
+
+    private static int index(String segment) {
+        if (segment.isEmpty() || segment.length() > 9 || (segment.length() > 1 && segment.charAt(0) == '0')) {
+            return -1;
+        }
+        for (int j = 0; j < segment.length(); j++) {
+            if (segment.charAt(j) < '0' || segment.charAt(j) > '9') {
+                return -1;
+            }
+        }
+        return Integer.parseInt(segment);
+    }
+
+    @Override
+    public String toString() {
+        return path;
+    }
+}
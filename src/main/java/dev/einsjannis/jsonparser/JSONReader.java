@@ -0,0 +1,499 @@
+package dev.einsjannis.jsonparser;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * A streaming {@code pull parser} witch reads {@code JSON} directly from a
+ * {@link Reader} or an {@link InputStream}.
+ * <p>
+ * In contrast to the {@link JSONLexer} the {@code JSONReader} never holds
+ * the whole document in memory. It reads the input through a fixed size
+ * buffer and hands out one token at a time, so even huge documents can be
+ * processed with constant memory. The tokens are the same
+ * {@link JSONPart.Type}s the {@link JSONLexer} produces, including
+ * {@link JSONPart.Type#COMMA} and {@link JSONPart.Type#DOUBLE_POINT}.
+ * <p>
+ * {@link #peek()} only looks at the first char of the next token. The value
+ * of a token is decoded by the typed methods like {@link #nextString()} or
+ * {@link #nextLong()}, {@link #nextToken()} and {@link #skipValue()} skip
+ * values without creating any objects.
+ *
+ * @author einsJannis
+ * @author Flexusma
+ * @version 1.0
+ * @see JSONLexer
+ * @see JSONParser
+ */
+public class JSONReader implements Closeable {
+
+    private static final int DEFAULT_BUFFER_SIZE = 8192;
+
+    private final Reader reader;
+    private final char[] buffer;
+    private final StringBuilder builder = new StringBuilder();
+    private boolean lenient;
+    private int pos;
+    private int limit;
+    private long offset;
+    private JSONPart.Type peeked;
+
+    /**
+     * Constructs a new {@code JSONReader} witch reads from a {@link Reader}.
+     *
+     * @param reader source of the {@code JSON}
+     */
+    public JSONReader(Reader reader) {
+        this(reader, DEFAULT_BUFFER_SIZE);
+    }
+
+    /**
+     * Constructs a new {@code JSONReader} witch reads from a {@link Reader}
+     * through a buffer of the provided size.
+     *
+     * @param reader source of the {@code JSON}
+     * @param bufferSize size of the char buffer
+     */
+    public JSONReader(Reader reader, int bufferSize) {
+        if (bufferSize < 1) {
+            throw new IllegalArgumentException("bufferSize must be positive: " + bufferSize);
+        }
+        this.reader = reader;
+        this.buffer = new char[bufferSize];
+    }
+
+    /**
+     * Constructs a new {@code JSONReader} witch reads {@code UTF-8} encoded
+     * {@code JSON} from an {@link InputStream}.
+     *
+     * @param in source of the {@code JSON}
+     */
+    public JSONReader(InputStream in) {
+        this(new InputStreamReader(in, StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Sets whether the escapes of control chars ({@code \n}, {@code \t},
+     * ...) are kept as they are instead of being decoded, like
+     * {@link JSONBufferLexer#setLenient(boolean)}.
+     *
+     * @param lenient whether escapes of control chars are kept
+     * @return this reader
+     */
+    public JSONReader setLenient(boolean lenient) {
+        this.lenient = lenient;
+        return this;
+    }
+
+    /**
+     * Returns the type of the next token without consuming it.
+     *
+     * @return the type of the next token or {@code null} at the end of the input
+     * @throws IOException if the underlying reader fails
+     * @throws JSONSyntaxError if the next char can't start a token
+     */
+    public JSONPart.Type peek() throws IOException, JSONSyntaxError {
+        if (peeked != null) {
+            return peeked;
+        }
+        if (!skipWhitespace()) {
+            return null;
+        }
+        char c = buffer[pos];
+        switch (c) {
+            case '{':
+                peeked = JSONPart.Type.OBJECT_START;
+                break;
+            case '}':
+                peeked = JSONPart.Type.OBJECT_END;
+                break;
+            case '[':
+                peeked = JSONPart.Type.ARRAY_START;
+                break;
+            case ']':
+                peeked = JSONPart.Type.ARRAY_END;
+                break;
+            case ',':
+                peeked = JSONPart.Type.COMMA;
+                break;
+            case ':':
+                peeked = JSONPart.Type.DOUBLE_POINT;
+                break;
+            case '"':
+            case '\'':
+                peeked = JSONPart.Type.STRING;
+                break;
+            case 't':
+            case 'f':
+                peeked = JSONPart.Type.BOOLEAN;
+                break;
+            case 'n':
+                peeked = JSONPart.Type.NULL;
+                break;
+            default:
+                if (JSONNumbers.isStart(c)) {
+                    peeked = JSONPart.Type.NUMBER;
+                    break;
+                }
+                throw error();
+        }
+        return peeked;
+    }
+
+    /**
+     * Returns whether there is another token left in the input.
+     *
+     * @return {@code true} if there is another token
+     * @throws IOException if the underlying reader fails
+     * @throws JSONSyntaxError if the next char can't start a token
+     */
+    public boolean hasNext() throws IOException, JSONSyntaxError {
+        return peek() != null;
+    }
+
+    /**
+     * Consumes the next token and returns its type. The value of
+     * {@link JSONPart.Type#STRING}, {@link JSONPart.Type#NUMBER},
+     * {@link JSONPart.Type#BOOLEAN} and {@link JSONPart.Type#NULL} tokens is
+     * skipped without being decoded.
+     *
+     * @return the type of the consumed token
+     * @throws IOException if the underlying reader fails
+     * @throws JSONSyntaxError if the input ended or the token is malformed
+     */
+    public JSONPart.Type nextToken() throws IOException, JSONSyntaxError {
+        JSONPart.Type type = require();
+        switch (type) {
+            case STRING:
+                scanString(false);
+                break;
+            case NUMBER:
+                scanNumber(false);
+                break;
+            case BOOLEAN:
+                scanBoolean();
+                break;
+            case NULL:
+                scanLiteral("null");
+                break;
+            default:
+                pos++;
+                break;
+        }
+        peeked = null;
+        return type;
+    }
+
+    /**
+     * Consumes the next token, witch has to be of the provided type.
+     *
+     * @param type the expected type
+     * @throws IOException if the underlying reader fails
+     * @throws JSONSyntaxError if the next token is of another type
+     */
+    public void nextToken(JSONPart.Type type) throws IOException, JSONSyntaxError {
+        if (require() != type) {
+            throw error();
+        }
+        nextToken();
+    }
+
+    /**
+     * Consumes a {@link JSONPart.Type#STRING} token and returns its value.
+     *
+     * @return the value of the string
+     * @throws IOException if the underlying reader fails
+     * @throws JSONSyntaxError if the next token is no string
+     */
+    public String nextString() throws IOException, JSONSyntaxError {
+        expect(JSONPart.Type.STRING);
+        scanString(true);
+        peeked = null;
+        return builder.toString();
+    }
+
+    /**
+     * Consumes a {@link JSONPart.Type#STRING} token followed by a
+     * {@link JSONPart.Type#DOUBLE_POINT} and returns the string, as it is the
+     * case for the keys of a {@code JSON object}.
+     *
+     * @return the name of the following member
+     * @throws IOException if the underlying reader fails
+     * @throws JSONSyntaxError if the next tokens are no key
+     */
+    public String nextName() throws IOException, JSONSyntaxError {
+        String name = nextString();
+        nextToken(JSONPart.Type.DOUBLE_POINT);
+        return name;
+    }
+
+    CharSequence nextNameChars() throws IOException, JSONSyntaxError {
+        expect(JSONPart.Type.STRING);
+        scanString(true);
+        peeked = null;
+        nextToken(JSONPart.Type.DOUBLE_POINT);
+        return builder;
+    }
+
+    /**
+     * Consumes a {@link JSONPart.Type#NUMBER} token and returns its digits
+     * as they appear in the input.
+     *
+     * @return the number as string
+     * @throws IOException if the underlying reader fails
+     * @throws JSONSyntaxError if the next token is no number
+     */
+    public String nextNumber() throws IOException, JSONSyntaxError {
+        return nextNumberChars().toString();
+    }
+
+    /**
+     * Consumes a {@link JSONPart.Type#NUMBER} token and returns it as
+     * {@code long}. Numbers with a fraction or an exponent are truncated. The
+     * digits are parsed directly from the reusable buffer of the reader
+     * without creating a {@link String}.
+     *
+     * @return the value of the number
+     * @throws IOException if the underlying reader fails
+     * @throws JSONSyntaxError if the next token is no number
+     */
+    public long nextLong() throws IOException, JSONSyntaxError {
+        return JSONNumbers.parseLong(nextNumberChars());
+    }
+
+    /**
+     * Consumes a {@link JSONPart.Type#NUMBER} token and returns it as
+     * {@code double}.
+     *
+     * @return the value of the number
+     * @throws IOException if the underlying reader fails
+     * @throws JSONSyntaxError if the next token is no number
+     */
+    public double nextDouble() throws IOException, JSONSyntaxError {
+        return JSONNumbers.parseDouble(nextNumberChars());
+    }
+
+    CharSequence nextNumberChars() throws IOException, JSONSyntaxError {
+        expect(JSONPart.Type.NUMBER);
+        scanNumber(true);
+        peeked = null;
+        return builder;
+    }
+
+    /**
+     * Consumes a {@link JSONPart.Type#BOOLEAN} token and returns its value.
+     *
+     * @return the value of the boolean
+     * @throws IOException if the underlying reader fails
+     * @throws JSONSyntaxError if the next token is no boolean
+     */
+    public boolean nextBoolean() throws IOException, JSONSyntaxError {
+        expect(JSONPart.Type.BOOLEAN);
+        boolean value = scanBoolean();
+        peeked = null;
+        return value;
+    }
+
+    /**
+     * Consumes a {@link JSONPart.Type#NULL} token.
+     *
+     * @throws IOException if the underlying reader fails
+     * @throws JSONSyntaxError if the next token is not {@code null}
+     */
+    public void nextNull() throws IOException, JSONSyntaxError {
+        expect(JSONPart.Type.NULL);
+        scanLiteral("null");
+        peeked = null;
+    }
+
+    /**
+     * Skips the next value. If the value is an object or an array, all of
+     * its nested values are skipped as well, without decoding any of them.
+     *
+     * @throws IOException if the underlying reader fails
+     * @throws JSONSyntaxError if the next token does not start a value or the value is malformed
+     */
+    public void skipValue() throws IOException, JSONSyntaxError {
+        JSONPart.Type type = require();
+        if (type == JSONPart.Type.OBJECT_END || type == JSONPart.Type.ARRAY_END
+                || type == JSONPart.Type.COMMA || type == JSONPart.Type.DOUBLE_POINT) {
+            throw error();
+        }
+        int depth = 0;
+        do {
+            type = nextToken();
+            if (type == JSONPart.Type.OBJECT_START || type == JSONPart.Type.ARRAY_START) {
+                depth++;
+            } else if (type == JSONPart.Type.OBJECT_END || type == JSONPart.Type.ARRAY_END) {
+                depth--;
+            }
+        } while (depth > 0);
+    }
+
+    /**
+     * Returns the position of the next unread char, counted in chars from
+     * the start of the input.
+     *
+     * @return the current position
+     */
+    public long getPosition() {
+        return offset + pos;
+    }
+
+    @Override
+    public void close() throws IOException {
+        reader.close();
+    }
+
+    JSONSyntaxError unexpectedEnd() {
+        return new JSONSyntaxError("Unexpected end of json at position " + getPosition() + ".");
+    }
+
+    JSONSyntaxError error() throws IOException {
+        if (pos >= limit && !fill()) {
+            return unexpectedEnd();
+        }
+        return new JSONSyntaxError((int) getPosition(), buffer[pos]);
+    }
+
+    private JSONPart.Type require() throws IOException, JSONSyntaxError {
+        JSONPart.Type type = peek();
+        if (type == null) {
+            throw unexpectedEnd();
+        }
+        return type;
+    }
+
+    private void expect(JSONPart.Type type) throws IOException, JSONSyntaxError {
+        if (require() != type) {
+            throw error();
+        }
+    }
+
+    private boolean fill() throws IOException {
+        offset += limit;
+        pos = 0;
+        limit = 0;
+        int read = reader.read(buffer, 0, buffer.length);
+        while (read == 0) {
+            read = reader.read(buffer, 0, buffer.length);
+        }
+        if (read < 0) {
+            return false;
+        }
+        limit = read;
+        return true;
+    }
+
+    private boolean skipWhitespace() throws IOException {
+        while (pos < limit || fill()) {
+            char c = buffer[pos];
+            if (c != ' ' && c != '\n' && c != '\t' && c != '\r') {
+                return true;
+            }
+            pos++;
+        }
+        return false;
+    }
+
+    private void scanString(boolean decode) throws IOException, JSONSyntaxError {
+        char endChar = buffer[pos++];
+        builder.setLength(0);
+        while (pos < limit || fill()) {
+            int start = pos;
+            while (pos < limit && buffer[pos] != endChar && buffer[pos] != '\\') {
+                pos++;
+            }
+            if (decode) {
+                builder.append(buffer, start, pos - start);
+            }
+            if (pos < limit) {
+                if (buffer[pos++] == endChar) {
+                    return;
+                }
+                scanEscape(decode);
+            }
+        }
+        throw unexpectedEnd();
+    }
+
+    private void scanEscape(boolean decode) throws IOException {
+        if (pos >= limit && !fill()) {
+            return;
+        }
+        int escaped = JSONStrings.unescape(buffer[pos], lenient);
+        if (escaped >= 0) {
+            pos++;
+            if (decode) {
+                builder.append((char) escaped);
+            }
+            return;
+        }
+        if (buffer[pos] != 'u') {
+            if (decode) {
+                builder.append('\\');
+            }
+            return;
+        }
+        pos++;
+        int value = 0;
+        int digits = 0;
+        while (digits < 4 && (pos < limit || fill()) && JSONStrings.hex(buffer[pos]) >= 0) {
+            value = value << 4 | JSONStrings.hex(buffer[pos++]);
+            digits++;
+        }
+        if (!decode) {
+            return;
+        }
+        if (digits == 4) {
+            builder.append((char) value);
+            return;
+        }
+        builder.append('\\').append('u');
+        for (int j = digits - 1; j >= 0; j--) {
+            builder.append(Character.forDigit(value >> (j * 4) & 0xF, 16));
+        }
+    }
+
+    private void scanNumber(boolean decode) throws IOException, JSONSyntaxError {
+        builder.setLength(0);
+        int state = JSONNumbers.START;
+        while (pos < limit || fill()) {
+            char c = buffer[pos];
+            int next = JSONNumbers.next(state, c);
+            if (next == JSONNumbers.END) {
+                break;
+            }
+            state = next;
+            if (decode) {
+                builder.append(c);
+            }
+            pos++;
+        }
+        if (!JSONNumbers.isComplete(state)) {
+            throw error();
+        }
+    }
+
+    private boolean scanBoolean() throws IOException, JSONSyntaxError {
+        if (buffer[pos] == 't') {
+            scanLiteral("true");
+            return true;
+        }
+        scanLiteral("false");
+        return false;
+    }
+
+    private void scanLiteral(String literal) throws IOException, JSONSyntaxError {
+        for (int j = 0; j < literal.length(); j++) {
+            if ((pos >= limit && !fill()) || buffer[pos] != literal.charAt(j)) {
+                throw error();
+            }
+            pos++;
+        }
+    }
+}
@@ -0,0 +1,402 @@
+package dev.einsjannis.jsonparser;
+
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32;
+
+/**
+ * A compact binary snapshot of a parsed {@code JSON document}, witch can be
+ * loaded without lexing or parsing any {@code JSON}.
+ * <p>
+ * {@link #load(Path)} keeps a snapshot next to a {@code JSON} file (the same
+ * name with {@code ".snapshot"} appended). The snapshot records the size,
+ * the modification time and a {@code CRC32} of the file it was built from.
+ * If all three still match, the snapshot is decoded,
+ * otherwise the file is parsed and the snapshot is rebuilt. A missing,
+ * outdated or damaged snapshot is never an error, it is simply replaced.
+ * The file is parsed {@link JSONBufferLexer#setLenient(boolean) leniently},
+ * so unescaped {@code Windows} paths in hand written configs keep their
+ * backslashes.
+ * <p>
+ * The encoding starts with a table of all distinct strings (keys and
+ * values), so every repeated string is stored and decoded only once. Counts
+ * and lengths are {@code varint}s, integral numbers are
+ * {@code zigzag varint}s and floating point numbers raw {@code double}s.
+ * {@link JSONNumberArray}s keep their primitive representation.
+ *
+ * @author einsJannis
+ * @author Flexusma
+ * @version 1.0
+ */
+public final class JSONSnapshot {
+
+    private static final int MAGIC = 0x4A534E50;
+    private static final int VERSION = 2;
+    private static final String SUFFIX = ".snapshot";
+    private static final int HEADER = 28;
+
+    private static final byte NULL = 0;
+    private static final byte FALSE = 1;
+    private static final byte TRUE = 2;
+    private static final byte LONG = 3;
+    private static final byte DOUBLE = 4;
+    private static final byte STRING = 5;
+    private static final byte OBJECT = 6;
+    private static final byte ARRAY = 7;
+    private static final byte LONG_ARRAY = 8;
+    private static final byte DOUBLE_ARRAY = 9;
+
+    private JSONSnapshot() {
+    }
+
+    /**
+     * Loads a {@code JSON file} through its snapshot {@code <file>.snapshot}.
+     *
+     * @param file the json file
+     * @return the parsed JSONObject
+     * @throws IOException if the json file can't be read
+     * @throws JSONSyntaxError if the json file has to be parsed and is malformed
+     * @see #load(Path, Path)
+     */
+    public static JSONObject load(Path file) throws IOException, JSONSyntaxError {
+        return load(file, file.resolveSibling(file.getFileName() + SUFFIX));
+    }
+
+    /**
+     * Loads a {@code JSON file} through a snapshot. If the snapshot belongs
+     * to the current content of the file it is decoded, otherwise the file is
+     * parsed and the snapshot is written anew. Failing to write the snapshot
+     * is ignored, the parsed file is returned anyway.
+     *
+     * @param file the json file
+     * @param snapshot the snapshot of the file
+     * @return the parsed JSONObject
+     * @throws IOException if the json file can't be read
+     * @throws JSONSyntaxError if the json file has to be parsed and is malformed
+     */
+    public static JSONObject load(Path file, Path snapshot) throws IOException, JSONSyntaxError {
+        // read instead of mapped: on Windows a mapped file can't be saved or replaced until the mapping is collected
+        ByteBuffer source = ByteBuffer.wrap(Files.readAllBytes(file));
+        long size = source.remaining();
+        long modified = Files.getLastModifiedTime(file).toMillis();
+        int checksum = checksum(source);
+        Object cached = read(snapshot, size, modified, checksum);
+        if (cached instanceof JSONObject) {
+            return (JSONObject) cached;
+        }
+        JSONObject object = new JSONParser(new JSONBufferLexer(source).setLenient(true).lex()).parseDocumentObject();
+        try {
+            write(snapshot, object, size, modified, checksum);
+        } catch (IOException e) {
+            // the snapshot is only a cache, the next start parses again
+        }
+        return object;
+    }
+
+    /**
+     * Encodes a value ({@link Map}s, {@link List}s, {@link String}s,
+     * {@link Number}s, {@link Boolean}s and {@code null}).
+     *
+     * @param value the value to encode
+     * @return the encoded value
+     * @throws IllegalArgumentException if the value can't be represented in {@code JSON}
+     */
+    public static byte[] encode(Object value) {
+        Encoder encoder = new Encoder();
+        encoder.collect(value);
+        Encoder body = new Encoder();
+        body.strings = encoder.strings;
+        body.value(value);
+        encoder.varint(encoder.table.size());
+        for (String string : encoder.table) {
+            byte[] bytes = string.getBytes(StandardCharsets.UTF_8);
+            encoder.varint(bytes.length);
+            encoder.bytes(bytes, bytes.length);
+        }
+        encoder.bytes(body.buffer, body.size);
+        return Arrays.copyOf(encoder.buffer, encoder.size);
+    }
+
+    /**
+     * Decodes a value written by {@link #encode(Object)}. Objects are decoded
+     * into {@link JSONObject}s, arrays into {@link JSONArray}s or
+     * {@link JSONNumberArray}s.
+     *
+     * @param buffer the encoded value, read from its position on
+     * @return the decoded value
+     * @throws IllegalArgumentException if the encoding is damaged
+     */
+    public static Object decode(ByteBuffer buffer) {
+        try {
+            String[] strings = new String[count(buffer, 1)];
+            byte[] bytes = new byte[64];
+            for (int k = 0; k < strings.length; k++) {
+                int length = count(buffer, 1);
+                if (length > bytes.length) {
+                    bytes = new byte[Math.max(length, bytes.length * 2)];
+                }
+                buffer.get(bytes, 0, length);
+                strings[k] = new String(bytes, 0, length, StandardCharsets.UTF_8);
+            }
+            return value(buffer, strings);
+        } catch (BufferUnderflowException | IndexOutOfBoundsException e) {
+            throw new IllegalArgumentException("Damaged snapshot.", e);
+        }
+    }
+
+    private static Object read(Path snapshot, long size, long modified, int checksum) {
+        if (!Files.isRegularFile(snapshot)) {
+            return null;
+        }
+        try {
+            ByteBuffer buffer = ByteBuffer.wrap(Files.readAllBytes(snapshot));
+            if (buffer.remaining() < HEADER || buffer.getInt() != MAGIC || buffer.getInt() != VERSION
+                    || buffer.getLong() != size || buffer.getLong() != modified || buffer.getInt() != checksum) {
+                return null;
+            }
+            return decode(buffer);
+        } catch (IOException | IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    private static void write(Path snapshot, Object value, long size, long modified, int checksum) throws IOException {
+        byte[] body = encode(value);
+        ByteBuffer header = ByteBuffer.allocate(HEADER);
+        header.putInt(MAGIC).putInt(VERSION).putLong(size).putLong(modified).putInt(checksum).flip();
+        Path temp = snapshot.resolveSibling(snapshot.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer content = ByteBuffer.wrap(body);
+            while (header.hasRemaining() || content.hasRemaining()) {
+                channel.write(new ByteBuffer[]{header, content});
+            }
+        }
+        try {
+            Files.move(temp, snapshot, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(temp, snapshot, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    private static int checksum(ByteBuffer source) {
+        CRC32 crc = new CRC32();
+        crc.update(source.duplicate());
+        return (int) crc.getValue();
+    }
+
+    private static Object value(ByteBuffer buffer, String[] strings) {
+        byte tag = buffer.get();
+        switch (tag) {
+            case NULL:
+                return null;
+            case FALSE:
+                return Boolean.FALSE;
+            case TRUE:
+                return Boolean.TRUE;
+            case LONG:
+                return zigzag(buffer);
+            case DOUBLE:
+                return buffer.getDouble();
+            case STRING:
+                return strings[varint(buffer)];
+            case OBJECT: {
+                int count = count(buffer, 2);
+                JSONObject object = new JSONObject();
+                for (int k = 0; k < count; k++) {
+                    String key = strings[varint(buffer)];
+                    object.put(key, value(buffer, strings));
+                }
+                return object;
+            }
+            case ARRAY: {
+                int count = count(buffer, 1);
+                JSONArray array = new JSONArray();
+                array.ensureCapacity(count);
+                for (int k = 0; k < count; k++) {
+                    array.add(value(buffer, strings));
+                }
+                return array;
+            }
+            case LONG_ARRAY: {
+                long[] longs = new long[count(buffer, 1)];
+                for (int k = 0; k < longs.length; k++) {
+                    longs[k] = zigzag(buffer);
+                }
+                return new JSONNumberArray(longs, longs.length);
+            }
+            case DOUBLE_ARRAY: {
+                double[] doubles = new double[count(buffer, 8)];
+                for (int k = 0; k < doubles.length; k++) {
+                    doubles[k] = buffer.getDouble();
+                }
+                return new JSONNumberArray(doubles, doubles.length);
+            }
+            default:
+                throw new IllegalArgumentException("Damaged snapshot, unknown tag " + tag + ".");
+        }
+    }
+
+    private static int varint(ByteBuffer buffer) {
+        long value = varlong(buffer);
+        if (value < 0 || value > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Damaged snapshot, invalid length.");
+        }
+        return (int) value;
+    }
+
+    /**
+     * Reads the number of elements witch take at least {@code size} bytes
+     * each, so a damaged count can't allocate more than the snapshot holds.
+     */
+    private static int count(ByteBuffer buffer, int size) {
+        int count = varint(buffer);
+        if (count > buffer.remaining() / size) {
+            throw new IllegalArgumentException("Damaged snapshot, " + count + " elements exceed the remaining "
+                    + buffer.remaining() + " bytes.");
+        }
+        return count;
+    }
+
+    private static long zigzag(ByteBuffer buffer) {
+        long value = varlong(buffer);
+        return value >>> 1 ^ -(value & 1);
+    }
+
+    private static long varlong(ByteBuffer buffer) {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            byte b = buffer.get();
+            value |= (long) (b & 0x7F) << shift;
+            if (b >= 0) {
+                return value;
+            }
+        }
+        throw new IllegalArgumentException("Damaged snapshot, invalid varint.");
+    }
+
+    private static final class Encoder {
+
+        private byte[] buffer = new byte[256];
+        private int size;
+        private Map<String, Integer> strings = new HashMap<>();
+        private final List<String> table = new ArrayList<>();
+
+        private void collect(Object value) {
+            if (value instanceof String) {
+                string((String) value);
+            } else if (value instanceof Map) {
+                for (Map.Entry<?, ?> entry : ((Map<?, ?>) value).entrySet()) {
+                    string(String.valueOf(entry.getKey()));
+                    collect(entry.getValue());
+                }
+            } else if (value instanceof JSONNumberArray && ((JSONNumberArray) value).isPrimitive()) {
+                return;
+            } else if (value instanceof List) {
+                for (Object element : (List<?>) value) {
+                    collect(element);
+                }
+            }
+        }
+
+        private void string(String string) {
+            if (!strings.containsKey(string)) {
+                strings.put(string, table.size());
+                table.add(string);
+            }
+        }
+
+        private void value(Object value) {
+            if (value == null) {
+                put(NULL);
+            } else if (value instanceof Boolean) {
+                put((Boolean) value ? TRUE : FALSE);
+            } else if (value instanceof Long || value instanceof Integer
+                    || value instanceof Short || value instanceof Byte) {
+                put(LONG);
+                zigzag(((Number) value).longValue());
+            } else if (value instanceof Number) {
+                put(DOUBLE);
+                putDouble(((Number) value).doubleValue());
+            } else if (value instanceof String) {
+                put(STRING);
+                varint(strings.get(value));
+            } else if (value instanceof Map) {
+                Map<?, ?> map = (Map<?, ?>) value;
+                put(OBJECT);
+                varint(map.size());
+                for (Map.Entry<?, ?> entry : map.entrySet()) {
+                    varint(strings.get(String.valueOf(entry.getKey())));
+                    value(entry.getValue());
+                }
+            } else if (value instanceof JSONNumberArray && ((JSONNumberArray) value).isPrimitive()) {
+                JSONNumberArray array = (JSONNumberArray) value;
+                put(array.isDouble() ? DOUBLE_ARRAY : LONG_ARRAY);
+                varint(array.size());
+                for (int k = 0; k < array.size(); k++) {
+                    if (array.isDouble()) {
+                        putDouble(array.getDouble(k));
+                    } else {
+                        zigzag(array.getLong(k));
+                    }
+                }
+            } else if (value instanceof List) {
+                List<?> list = (List<?>) value;
+                put(ARRAY);
+                varint(list.size());
+                for (Object element : list) {
+                    value(element);
+                }
+            } else {
+                throw new IllegalArgumentException("Can't encode " + value.getClass().getName() + " as json.");
+            }
+        }
+
+        private void zigzag(long value) {
+            varint(value << 1 ^ value >> 63);
+        }
+
+        private void varint(long value) {
+            while ((value & ~0x7FL) != 0) {
+                put((byte) (value & 0x7F | 0x80));
+                value >>>= 7;
+            }
+            put((byte) value);
+        }
+
+        private void putDouble(double value) {
+            long bits = Double.doubleToRawLongBits(value);
+            for (int shift = 56; shift >= 0; shift -= 8) {
+                put((byte) (bits >>> shift));
+            }
+        }
+
+        private void put(byte b) {
+            if (size == buffer.length) {
+                buffer = Arrays.copyOf(buffer, size * 2);
+            }
+            buffer[size++] = b;
+        }
+
+        private void bytes(byte[] bytes, int length) {
+            if (size + length > buffer.length) {
+                buffer = Arrays.copyOf(buffer, Math.max(size + length, buffer.length * 2));
+            }
+            System.arraycopy(bytes, 0, buffer, size, length);
+            size += length;
+        }
+    }
+}
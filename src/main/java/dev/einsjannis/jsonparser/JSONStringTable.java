@@ -0,0 +1,193 @@
+package dev.einsjannis.jsonparser;
+
+import java.util.Locale;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A bounded intern table for keys and short string values.
+ * <p>
+ * Documents like a picture manifest repeat the same keys ({@code "path"},
+ * {@code "tags"}, ...) and values thousands of times. A {@link JSONLexer}
+ * with a {@code JSONStringTable} looks every short string up by hashing its
+ * chars before a {@link String} is created, so every repetition shares one
+ * instance and no new {@link String} is allocated for it.
+ * <p>
+ * The table is direct mapped: every hash has exactly one slot and a new
+ * string simply replaces the string in its slot. The memory of the table is
+ * therefore bounded by {@code capacity} strings of at most
+ * {@code maxLength} chars, no matter how many different strings a document
+ * contains. The table can be shared between lexers and threads, the
+ * statistics ({@link #getHitRate()}, {@link #getSavedBytes()}) cover all of
+ * them.
+ *
+ * @author einsJannis
+ * @author Flexusma
+ * @version 1.0
+ * @see JSONLexer#JSONLexer(char[], JSONStringTable)
+ */
+public class JSONStringTable {
+
+    private static final int DEFAULT_CAPACITY = 4096;
+    private static final int DEFAULT_MAX_LENGTH = 32;
+    // since Java 9 strings of Latin-1 chars store one byte per char
+    private static final boolean COMPACT_STRINGS = !System.getProperty("java.specification.version").startsWith("1.");
+
+    private final String[] slots;
+    private final int mask;
+    private final int maxLength;
+    private final LongAdder lookups = new LongAdder();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder savedBytes = new LongAdder();
+
+    /**
+     * Constructs a new {@code JSONStringTable} with {@code 4096} slots for
+     * strings of up to {@code 32} chars.
+     */
+    public JSONStringTable() {
+        this(DEFAULT_CAPACITY, DEFAULT_MAX_LENGTH);
+    }
+
+    /**
+     * Constructs a new {@code JSONStringTable}.
+     *
+     * @param capacity number of slots, rounded up to a power of two
+     * @param maxLength longest string witch is interned, longer strings are always created anew
+     */
+    public JSONStringTable(int capacity, int maxLength) {
+        if (capacity < 1 || capacity > 1 << 30) {
+            throw new IllegalArgumentException("capacity must be between 1 and 2^30: " + capacity);
+        }
+        int size = Integer.highestOneBit(capacity);
+        if (size < capacity) {
+            size <<= 1;
+        }
+        this.slots = new String[size];
+        this.mask = size - 1;
+        this.maxLength = maxLength;
+    }
+
+    /**
+     * Returns the string for a range of chars. If the same string is already
+     * in the table, the existing instance is returned.
+     *
+     * @param chars the chars
+     * @param start index of the first char of the string
+     * @param length length of the string
+     * @return the string, shared with previous lookups of the same chars
+     */
+    public String intern(char[] chars, int start, int length) {
+        if (length > maxLength) {
+            return new String(chars, start, length);
+        }
+        int hash = 0;
+        int bits = 0;
+        for (int j = start; j < start + length; j++) {
+            hash = 31 * hash + chars[j];
+            bits |= chars[j];
+        }
+        int slot = (hash ^ hash >>> 16) & mask;
+        lookups.increment();
+        String candidate = slots[slot];
+        if (candidate != null && candidate.length() == length && candidate.hashCode() == hash
+                && matches(candidate, chars, start)) {
+            hits.increment();
+            savedBytes.add(size(length, bits <= 0xFF));
+            return candidate;
+        }
+        String string = new String(chars, start, length);
+        slots[slot] = string;
+        return string;
+    }
+
+    private static boolean matches(String candidate, char[] chars, int start) {
+        for (int j = 0; j < candidate.length(); j++) {
+            if (candidate.charAt(j) != chars[start + j]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Estimates the heap size of a {@link String} with its array:
+     * {@code 24} bytes for the {@link String}, {@code 16} bytes array header
+     * and two bytes per char, aligned to {@code 8} bytes. Compact strings
+     * of Latin-1 chars only take one byte per char.
+     */
+    private static long size(int length, boolean latin1) {
+        long bytesPerChar = COMPACT_STRINGS && latin1 ? 1 : 2;
+        return 24 + ((16 + bytesPerChar * length + 7) & ~7L);
+    }
+
+    /**
+     * Returns the longest string witch is interned.
+     *
+     * @return the maximum length of an interned string
+     */
+    public int getMaxLength() {
+        return maxLength;
+    }
+
+    /**
+     * Returns the number of slots.
+     *
+     * @return the capacity of the table
+     */
+    public int getCapacity() {
+        return slots.length;
+    }
+
+    /**
+     * Returns how many strings were looked up. Strings longer than
+     * {@link #getMaxLength()} are not counted.
+     *
+     * @return the number of lookups
+     */
+    public long getLookups() {
+        return lookups.sum();
+    }
+
+    /**
+     * Returns how many lookups returned an existing string.
+     *
+     * @return the number of hits
+     */
+    public long getHits() {
+        return hits.sum();
+    }
+
+    /**
+     * Returns the share of lookups witch returned an existing string.
+     *
+     * @return the hit rate between {@code 0} and {@code 1}
+     */
+    public double getHitRate() {
+        long lookups = getLookups();
+        return lookups == 0 ? 0 : (double) getHits() / lookups;
+    }
+
+    /**
+     * Returns an estimate of the heap memory saved by sharing strings, the
+     * size of all strings witch did not have to be created.
+     *
+     * @return the saved bytes
+     */
+    public long getSavedBytes() {
+        return savedBytes.sum();
+    }
+
+    /**
+     * Resets the statistics. The interned strings are kept.
+     */
+    public void resetStats() {
+        lookups.reset();
+        hits.reset();
+        savedBytes.reset();
+    }
+
+    @Override
+    public String toString() {
+        return "JSONStringTable{capacity=" + getCapacity() + ", lookups=" + getLookups() + ", hits=" + getHits()
+                + ", hitRate=" + String.format(Locale.ROOT, "%.3f", getHitRate()) + ", savedBytes=" + getSavedBytes() + "}";
+    }
+}
@@ -0,0 +1,189 @@
+package dev.einsjannis.jsonparser;
+
+/**
+ * Handles the escape sequences of {@code JSON strings}.
+ * <p>
+ * All lexers and the {@link JSONWriter} use these helpers, so a string
+ * witch was written by the {@link JSONWriter} is read back unchanged by
+ * every parse path. Unknown escape sequences are kept as they are (including
+ * the backslash) to stay compatible with documents witch contain unescaped
+ * backslashes, for example in {@code Windows} paths. In lenient mode the
+ * escapes of control chars ({@code \b}, {@code \f}, {@code \n},
+ * {@code \r} and {@code \t}) are kept as they are as well, so a path like
+ * {@code C:\temp\new} is not turned into control chars.
+ *
+ * @author einsJannis
+ * @author Flexusma
+ * @version 1.0
+ */
+final class JSONStrings {
+
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+    private JSONStrings() {
+    }
+
+    /**
+     * Returns the char a simple escape sequence ({@code \n}, {@code \"}, ...)
+     * stands for.
+     *
+     * @param c the char following the backslash
+     * @return the escaped char or {@code -1} if the sequence is unknown or a unicode sequence
+     */
+    static int unescape(char c) {
+        switch (c) {
+            case '"':
+            case '\'':
+            case '\\':
+            case '/':
+                return c;
+            case 'b':
+                return '\b';
+            case 'f':
+                return '\f';
+            case 'n':
+                return '\n';
+            case 'r':
+                return '\r';
+            case 't':
+                return '\t';
+            default:
+                return -1;
+        }
+    }
+
+    /**
+     * Returns the char a simple escape sequence stands for, in lenient mode
+     * the escapes of control chars are unknown.
+     *
+     * @param c the char following the backslash
+     * @param lenient whether escapes of control chars are kept as they are
+     * @return the escaped char or {@code -1} if the sequence is kept
+     */
+    static int unescape(char c, boolean lenient) {
+        return lenient && isControlEscape(c) ? -1 : unescape(c);
+    }
+
+    /**
+     * Returns whether a simple escape sequence stands for a control char.
+     *
+     * @param c the char following the backslash
+     * @return {@code true} for {@code b}, {@code f}, {@code n}, {@code r} and {@code t}
+     */
+    static boolean isControlEscape(char c) {
+        return c == 'b' || c == 'f' || c == 'n' || c == 'r' || c == 't';
+    }
+
+    /**
+     * Returns the value of a hexadecimal digit.
+     *
+     * @param c the digit
+     * @return the value of the digit or {@code -1} if the char is no hexadecimal digit
+     */
+    static int hex(char c) {
+        if (c >= '0' && c <= '9') {
+            return c - '0';
+        }
+        if (c >= 'a' && c <= 'f') {
+            return c - 'a' + 10;
+        }
+        if (c >= 'A' && c <= 'F') {
+            return c - 'A' + 10;
+        }
+        return -1;
+    }
+
+    /**
+     * Decodes all escape sequences of a raw string.
+     *
+     * @param raw the string as it appears between the quotes
+     * @return the decoded string
+     */
+    static String unescape(CharSequence raw) {
+        return unescape(raw, false);
+    }
+
+    /**
+     * Decodes the escape sequences of a raw string.
+     *
+     * @param raw the string as it appears between the quotes
+     * @param lenient whether escapes of control chars are kept as they are
+     * @return the decoded string
+     */
+    static String unescape(CharSequence raw, boolean lenient) {
+        StringBuilder builder = new StringBuilder(raw.length());
+        int length = raw.length();
+        for (int j = 0; j < length; j++) {
+            char c = raw.charAt(j);
+            if (c != '\\' || j + 1 >= length) {
+                builder.append(c);
+                continue;
+            }
+            char next = raw.charAt(j + 1);
+            int escaped = unescape(next, lenient);
+            if (escaped >= 0) {
+                builder.append((char) escaped);
+                j++;
+            } else if (next == 'u' && unicode(raw, j + 2) >= 0) {
+                builder.append((char) unicode(raw, j + 2));
+                j += 5;
+            } else {
+                builder.append(c);
+            }
+        }
+        return builder.toString();
+    }
+
+    /**
+     * Decodes the four hexadecimal digits of a unicode escape sequence.
+     *
+     * @param chars chars containing the digits
+     * @param start index of the first digit
+     * @return the decoded char or {@code -1} if the digits are invalid
+     */
+    static int unicode(CharSequence chars, int start) {
+        if (start + 4 > chars.length()) {
+            return -1;
+        }
+        int value = 0;
+        for (int j = start; j < start + 4; j++) {
+            int digit = hex(chars.charAt(j));
+            if (digit < 0) {
+                return -1;
+            }
+            value = value << 4 | digit;
+        }
+        return value;
+    }
+
+    /**
+     * Returns the escape sequence for a char witch must not appear
+     * unescaped in a {@code JSON string}.
+     *
+     * @param c the char
+     * @return the escape sequence or {@code null} if the char can be written as it is
+     */
+    static String escape(char c) {
+        switch (c) {
+            case '"':
+                return "\\\"";
+            case '\\':
+                return "\\\\";
+            case '\n':
+                return "\\n";
+            case '\r':
+                return "\\r";
+            case '\t':
+                return "\\t";
+            case '\b':
+                return "\\b";
+            case '\f':
+                return "\\f";
+            default:
+                if (c < 0x20 || c == 0x2028 || c == 0x2029) {
+                    return "\\u" + HEX[c >> 12 & 0xF] + HEX[c >> 8 & 0xF] + HEX[c >> 4 & 0xF] + HEX[c & 0xF];
+                }
+                return null;
+        }
+    }
+}
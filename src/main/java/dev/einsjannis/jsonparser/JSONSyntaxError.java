@@ -13,6 +13,7 @@ public class JSONSyntaxError extends Exception {
     private char errorChar;
     private int errorPosition;
     private JSONPart errorPart;
+    private String message;
 
     /**
      * Constructs a new {@code JSONSyntaxError} from a {@code Character} and
@@ -35,9 +36,21 @@ public class JSONSyntaxError extends Exception {
         this.errorPart = errorPart;
     }
 
+    /**
+     * Constructs a new {@code JSONSyntaxError} with a custom message, e.g. if
+     * the {@code JSON} ends unexpectedly.
+     *
+     * @param message description of the error
+     */
+    public JSONSyntaxError(String message) {
+        this.message = message;
+    }
+
     @Override
     public String getMessage() {
-        if (errorPart != null) {
+        if (message != null) {
+            return message;
+        } else if (errorPart != null) {
             return "Error in json at part: " + errorPart.toString();
         } else {
             return "Error in json at position " + String.valueOf(errorPosition) + " with char: '" + String.valueOf(errorChar) + "'.";
@@ -0,0 +1,245 @@
+package dev.einsjannis.jsonparser;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * The result of the {@link JSONBufferLexer}. Instead of a list of
+ * {@link JSONPart}s every token is stored as {@code (type, offset, length)}
+ * in a single primitive {@code int array}, while the text of the tokens stays
+ * inside of the original {@code UTF-8} encoded {@link ByteBuffer}.
+ * <p>
+ * The value of a token is only decoded into a {@link String} when it is
+ * requested by {@link #getString(int)}. For {@link JSONPart.Type#STRING}
+ * tokens offset and length exclude the quotes, strings containing escape
+ * sequences are marked, so they are unescaped while they are decoded.
+ *
+ * @author einsJannis
+ * @author Flexusma
+ * @version 1.0
+ * @see JSONBufferLexer
+ */
+public class JSONTokens {
+
+    private static final JSONPart.Type[] TYPES = JSONPart.Type.values();
+    private static final int STRIDE = 3;
+    private static final int ESCAPED = 0x100;
+    private static final int TYPE_MASK = 0xFF;
+
+    private final ByteBuffer buffer;
+    private final boolean lenient;
+    private int[] tape;
+    private int size;
+
+    JSONTokens(ByteBuffer buffer, int expectedTokens, boolean lenient) {
+        this.buffer = buffer;
+        this.lenient = lenient;
+        this.tape = new int[Math.max(expectedTokens, 16) * STRIDE];
+    }
+
+    void add(JSONPart.Type type, int offset, int length) {
+        add(type, offset, length, false);
+    }
+
+    void add(JSONPart.Type type, int offset, int length, boolean escaped) {
+        int index = size * STRIDE;
+        if (index + STRIDE > tape.length) {
+            int[] grown = new int[tape.length * 2];
+            System.arraycopy(tape, 0, grown, 0, index);
+            tape = grown;
+        }
+        tape[index] = escaped ? type.ordinal() | ESCAPED : type.ordinal();
+        tape[index + 1] = offset;
+        tape[index + 2] = length;
+        size++;
+    }
+
+    /**
+     * Returns the number of tokens.
+     *
+     * @return the number of tokens
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Returns the type of a token.
+     *
+     * @param index index of the token
+     * @return the type of the token
+     */
+    public JSONPart.Type getType(int index) {
+        return TYPES[tape[checkIndex(index) * STRIDE] & TYPE_MASK];
+    }
+
+    /**
+     * Returns whether a {@link JSONPart.Type#STRING} token contains escape
+     * sequences, so its bytes differ from its decoded value.
+     *
+     * @param index index of the token
+     * @return {@code true} if the token contains escape sequences
+     */
+    public boolean isEscaped(int index) {
+        return (tape[checkIndex(index) * STRIDE] & ESCAPED) != 0;
+    }
+
+    /**
+     * Returns the position of the first byte of a token in the buffer.
+     *
+     * @param index index of the token
+     * @return the byte offset of the token
+     */
+    public int getOffset(int index) {
+        return tape[checkIndex(index) * STRIDE + 1];
+    }
+
+    /**
+     * Returns the number of bytes of a token in the buffer.
+     *
+     * @param index index of the token
+     * @return the length of the token in bytes
+     */
+    public int getLength(int index) {
+        return tape[checkIndex(index) * STRIDE + 2];
+    }
+
+    /**
+     * Decodes the text of a token. Returns {@code null} for
+     * {@link JSONPart.Type#NULL} tokens.
+     *
+     * @param index index of the token
+     * @return the decoded text of the token
+     */
+    public String getString(int index) {
+        if (getType(index) == JSONPart.Type.NULL) {
+            return null;
+        }
+        String value = decode(getOffset(index), getLength(index));
+        return isEscaped(index) ? JSONStrings.unescape(value, lenient) : value;
+    }
+
+    /**
+     * Parses a {@link JSONPart.Type#NUMBER} token into a {@link Long} if it
+     * is integral, otherwise into a {@link Double}.
+     *
+     * @param index index of the token
+     * @return the value of the number
+     */
+    public Number getNumber(int index) {
+        return JSONNumbers.parse(getChars(index));
+    }
+
+    /**
+     * Parses a {@link JSONPart.Type#NUMBER} token into a {@code long}
+     * directly from the bytes of the buffer.
+     *
+     * @param index index of the token
+     * @return the value of the number
+     */
+    public long getLong(int index) {
+        return JSONNumbers.parseLong(getChars(index));
+    }
+
+    /**
+     * Parses a {@link JSONPart.Type#NUMBER} token into a {@code double}
+     * directly from the bytes of the buffer.
+     *
+     * @param index index of the token
+     * @return the value of the number
+     */
+    public double getDouble(int index) {
+        return JSONNumbers.parseDouble(getChars(index));
+    }
+
+    /**
+     * Returns the bytes of an {@code ASCII} token, like a number, as a
+     * {@link CharSequence} view on the buffer without copying them.
+     *
+     * @param index index of the token
+     * @return the chars of the token
+     */
+    CharSequence getChars(int index) {
+        return new AsciiChars(getOffset(index), getLength(index));
+    }
+
+    /**
+     * Returns the buffer witch contains the text of the tokens.
+     *
+     * @return the underlying buffer
+     */
+    public ByteBuffer getBuffer() {
+        return buffer.duplicate();
+    }
+
+    /**
+     * Converts the token at the provided index into a {@link JSONPart}.
+     *
+     * @param index index of the token
+     * @return the token as {@link JSONPart}
+     */
+    public JSONPart toPart(int index) {
+        JSONPart.Type type = getType(index);
+        switch (type) {
+            case STRING:
+            case NUMBER:
+            case BOOLEAN:
+                return new JSONPart(type, getString(index));
+            default:
+                return new JSONPart(type, null);
+        }
+    }
+
+    byte byteAt(int offset) {
+        return buffer.get(offset);
+    }
+
+    private String decode(int offset, int length) {
+        if (buffer.hasArray()) {
+            return new String(buffer.array(), buffer.arrayOffset() + offset, length, StandardCharsets.UTF_8);
+        }
+        byte[] bytes = new byte[length];
+        ByteBuffer slice = buffer.duplicate();
+        slice.position(offset);
+        slice.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private int checkIndex(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Token index: " + index + ", Size: " + size);
+        }
+        return index;
+    }
+
+    private final class AsciiChars implements CharSequence {
+
+        private final int offset;
+        private final int length;
+
+        private AsciiChars(int offset, int length) {
+            this.offset = offset;
+            this.length = length;
+        }
+
+        @Override
+        public int length() {
+            return length;
+        }
+
+        @Override
+        public char charAt(int index) {
+            return (char) (buffer.get(offset + index) & 0xFF);
+        }
+
+        @Override
+        public CharSequence subSequence(int start, int end) {
+            return new AsciiChars(offset + start, end - start);
+        }
+
+        @Override
+        public String toString() {
+            return decode(offset, length);
+        }
+    }
+}
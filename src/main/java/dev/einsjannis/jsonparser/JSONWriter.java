@@ -0,0 +1,449 @@
+package dev.einsjannis.jsonparser;
+
+import java.io.Closeable;
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A streaming {@code JSON} writer.
+ * <p>
+ * The {@code JSONWriter} writes {@link JSONObject}s, {@link JSONArray}s (or
+ * any other {@link Map} and {@link List}) with {@link #value(Object)}, or a
+ * document event by event with {@link #beginObject()}, {@link #name(String)},
+ * {@link #value(String)}, {@link #endObject()} and so on. The output goes
+ * through a reusable char buffer to a {@link Writer} or an
+ * {@link OutputStream}, the document is never built as a {@link String}.
+ * <p>
+ * By default the output is compact. With {@link #setIndent(String)} the
+ * output is pretty printed. Everything written by the {@code JSONWriter} can
+ * be read by the {@link JSONLexer}, the {@link JSONBufferLexer} and the
+ * {@link JSONReader}.
+ *
+ * @author einsJannis
+ * @author Flexusma
+ * @version 1.0
+ * @see JSONReader
+ */
+public class JSONWriter implements Closeable, Flushable {
+
+    private static final int DEFAULT_BUFFER_SIZE = 8192;
+
+    private static final int EMPTY_DOCUMENT = 0;
+    private static final int NONEMPTY_DOCUMENT = 1;
+    private static final int EMPTY_OBJECT = 2;
+    private static final int NONEMPTY_OBJECT = 3;
+    private static final int DANGLING_NAME = 4;
+    private static final int EMPTY_ARRAY = 5;
+    private static final int NONEMPTY_ARRAY = 6;
+
+    private final Writer out;
+    private final char[] buffer;
+    private int pos;
+    private int[] stack = new int[16];
+    private int depth;
+    private String indent;
+
+    /**
+     * Constructs a new {@code JSONWriter} witch writes to a {@link Writer}.
+     *
+     * @param out destination of the {@code JSON}
+     */
+    public JSONWriter(Writer out) {
+        this(out, DEFAULT_BUFFER_SIZE);
+    }
+
+    /**
+     * Constructs a new {@code JSONWriter} witch writes to a {@link Writer}
+     * through a buffer of the provided size.
+     *
+     * @param out destination of the {@code JSON}
+     * @param bufferSize size of the char buffer, at least {@code 32}
+     */
+    public JSONWriter(Writer out, int bufferSize) {
+        if (bufferSize < 32) {
+            throw new IllegalArgumentException("bufferSize must be at least 32: " + bufferSize);
+        }
+        this.out = out;
+        this.buffer = new char[bufferSize];
+        this.stack[depth++] = EMPTY_DOCUMENT;
+    }
+
+    /**
+     * Constructs a new {@code JSONWriter} witch writes {@code UTF-8} encoded
+     * {@code JSON} to an {@link OutputStream}.
+     *
+     * @param out destination of the {@code JSON}
+     */
+    public JSONWriter(OutputStream out) {
+        this(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Enables pretty printing. Every value is written on its own line and
+     * indented with the provided string per level. {@code null} or an empty
+     * string switch back to the compact output.
+     *
+     * @param indent indentation per level, for example four spaces
+     * @return this writer
+     */
+    public JSONWriter setIndent(String indent) {
+        this.indent = indent == null || indent.isEmpty() ? null : indent;
+        return this;
+    }
+
+    /**
+     * Starts a new {@code JSON object}.
+     *
+     * @return this writer
+     * @throws IOException if the underlying writer fails
+     */
+    public JSONWriter beginObject() throws IOException {
+        beforeValue();
+        push(EMPTY_OBJECT);
+        write('{');
+        return this;
+    }
+
+    /**
+     * Ends the current {@code JSON object}.
+     *
+     * @return this writer
+     * @throws IOException if the underlying writer fails
+     */
+    public JSONWriter endObject() throws IOException {
+        return end(EMPTY_OBJECT, NONEMPTY_OBJECT, '}');
+    }
+
+    /**
+     * Starts a new {@code JSON array}.
+     *
+     * @return this writer
+     * @throws IOException if the underlying writer fails
+     */
+    public JSONWriter beginArray() throws IOException {
+        beforeValue();
+        push(EMPTY_ARRAY);
+        write('[');
+        return this;
+    }
+
+    /**
+     * Ends the current {@code JSON array}.
+     *
+     * @return this writer
+     * @throws IOException if the underlying writer fails
+     */
+    public JSONWriter endArray() throws IOException {
+        return end(EMPTY_ARRAY, NONEMPTY_ARRAY, ']');
+    }
+
+    /**
+     * Writes the name of the next member of the current object.
+     *
+     * @param name the name of the member
+     * @return this writer
+     * @throws IOException if the underlying writer fails
+     */
+    public JSONWriter name(String name) throws IOException {
+        if (name == null) {
+            throw new NullPointerException("name == null");
+        }
+        int context = stack[depth - 1];
+        if (context == NONEMPTY_OBJECT) {
+            write(',');
+        } else if (context != EMPTY_OBJECT) {
+            throw new IllegalStateException("A name is only allowed inside of an object.");
+        }
+        newline();
+        string(name);
+        write(':');
+        if (indent != null) {
+            write(' ');
+        }
+        stack[depth - 1] = DANGLING_NAME;
+        return this;
+    }
+
+    /**
+     * Writes a string value.
+     *
+     * @param value the string or {@code null}
+     * @return this writer
+     * @throws IOException if the underlying writer fails
+     */
+    public JSONWriter value(String value) throws IOException {
+        if (value == null) {
+            return nullValue();
+        }
+        beforeValue();
+        string(value);
+        return this;
+    }
+
+    /**
+     * Writes a number value. The digits are written directly into the
+     * buffer.
+     *
+     * @param value the number
+     * @return this writer
+     * @throws IOException if the underlying writer fails
+     */
+    public JSONWriter value(long value) throws IOException {
+        beforeValue();
+        if (value == Long.MIN_VALUE) {
+            raw("-9223372036854775808");
+            return this;
+        }
+        if (pos + 20 > buffer.length) {
+            flushBuffer();
+        }
+        if (value < 0) {
+            buffer[pos++] = '-';
+            value = -value;
+        }
+        int end = pos + digits(value);
+        for (int j = end - 1; j >= pos; j--) {
+            buffer[j] = (char) ('0' + value % 10);
+            value /= 10;
+        }
+        pos = end;
+        return this;
+    }
+
+    /**
+     * Writes a number value.
+     *
+     * @param value the number, must be finite
+     * @return this writer
+     * @throws IOException if the underlying writer fails
+     */
+    public JSONWriter value(double value) throws IOException {
+        if (Double.isNaN(value) || Double.isInfinite(value)) {
+            throw new IllegalArgumentException("JSON can't represent " + value);
+        }
+        if (value == (long) value && Math.abs(value) < 1e15 && (value != 0 || 1 / value > 0)) {
+            beforeValue();
+            raw(Long.toString((long) value));
+            raw(".0");
+            return this;
+        }
+        beforeValue();
+        raw(Double.toString(value));
+        return this;
+    }
+
+    /**
+     * Writes a boolean value.
+     *
+     * @param value the boolean
+     * @return this writer
+     * @throws IOException if the underlying writer fails
+     */
+    public JSONWriter value(boolean value) throws IOException {
+        beforeValue();
+        raw(value ? "true" : "false");
+        return this;
+    }
+
+    /**
+     * Writes {@code null}.
+     *
+     * @return this writer
+     * @throws IOException if the underlying writer fails
+     */
+    public JSONWriter nullValue() throws IOException {
+        beforeValue();
+        raw("null");
+        return this;
+    }
+
+    /**
+     * Writes any value witch can be represented in {@code JSON}:
+     * {@link Map}s (like {@link JSONObject}), {@link List}s (like
+     * {@link JSONArray}), {@link String}s, {@link Number}s, {@link Boolean}s
+     * and {@code null}. Nested values are written recursively.
+     *
+     * @param value the value to write
+     * @return this writer
+     * @throws IOException if the underlying writer fails
+     * @throws IllegalArgumentException if the value can't be represented in {@code JSON}
+     */
+    public JSONWriter value(Object value) throws IOException {
+        if (value == null) {
+            return nullValue();
+        } else if (value instanceof String) {
+            return value((String) value);
+        } else if (value instanceof Long || value instanceof Integer
+                || value instanceof Short || value instanceof Byte) {
+            return value(((Number) value).longValue());
+        } else if (value instanceof Number) {
+            return value(((Number) value).doubleValue());
+        } else if (value instanceof Boolean) {
+            return value(((Boolean) value).booleanValue());
+        } else if (value instanceof Map) {
+            beginObject();
+            for (Map.Entry<?, ?> entry : ((Map<?, ?>) value).entrySet()) {
+                name(String.valueOf(entry.getKey()));
+                value(entry.getValue());
+            }
+            return endObject();
+        } else if (value instanceof JSONNumberArray && ((JSONNumberArray) value).isPrimitive()) {
+            JSONNumberArray array = (JSONNumberArray) value;
+            beginArray();
+            for (int i = 0; i < array.size(); i++) {
+                if (array.isDouble()) {
+                    value(array.getDouble(i));
+                } else {
+                    value(array.getLong(i));
+                }
+            }
+            return endArray();
+        } else if (value instanceof List) {
+            List<?> list = (List<?>) value;
+            beginArray();
+            for (int i = 0; i < list.size(); i++) {
+                value(list.get(i));
+            }
+            return endArray();
+        }
+        throw new IllegalArgumentException("Can't write " + value.getClass().getName() + " as json.");
+    }
+
+    /**
+     * Writes the buffered chars to the underlying writer and flushes it.
+     *
+     * @throws IOException if the underlying writer fails
+     */
+    @Override
+    public void flush() throws IOException {
+        flushBuffer();
+        out.flush();
+    }
+
+    /**
+     * Flushes and closes the underlying writer.
+     *
+     * @throws IOException if the underlying writer fails
+     */
+    @Override
+    public void close() throws IOException {
+        flushBuffer();
+        out.close();
+    }
+
+    private JSONWriter end(int empty, int nonempty, char bracket) throws IOException {
+        int context = stack[depth - 1];
+        if (context != empty && context != nonempty) {
+            throw new IllegalStateException("Nesting problem, can't close with '" + bracket + "'.");
+        }
+        depth--;
+        if (context == nonempty) {
+            newline();
+        }
+        write(bracket);
+        return this;
+    }
+
+    private void push(int context) {
+        if (depth == stack.length) {
+            int[] grown = new int[stack.length * 2];
+            System.arraycopy(stack, 0, grown, 0, depth);
+            stack = grown;
+        }
+        stack[depth++] = context;
+    }
+
+    private void beforeValue() throws IOException {
+        switch (stack[depth - 1]) {
+            case EMPTY_DOCUMENT:
+                stack[depth - 1] = NONEMPTY_DOCUMENT;
+                break;
+            case EMPTY_ARRAY:
+                stack[depth - 1] = NONEMPTY_ARRAY;
+                newline();
+                break;
+            case NONEMPTY_ARRAY:
+                write(',');
+                newline();
+                break;
+            case DANGLING_NAME:
+                stack[depth - 1] = NONEMPTY_OBJECT;
+                break;
+            case NONEMPTY_DOCUMENT:
+                throw new IllegalStateException("A json document can only contain one top level value.");
+            default:
+                throw new IllegalStateException("A value inside of an object needs a name.");
+        }
+    }
+
+    private void newline() throws IOException {
+        if (indent == null) {
+            return;
+        }
+        write('\n');
+        for (int j = 1; j < depth; j++) {
+            raw(indent);
+        }
+    }
+
+    private void string(String value) throws IOException {
+        write('"');
+        int length = value.length();
+        int start = 0;
+        for (int j = 0; j < length; j++) {
+            String escaped = JSONStrings.escape(value.charAt(j));
+            if (escaped != null) {
+                raw(value, start, j);
+                raw(escaped);
+                start = j + 1;
+            }
+        }
+        raw(value, start, length);
+        write('"');
+    }
+
+    private void write(char c) throws IOException {
+        if (pos == buffer.length) {
+            flushBuffer();
+        }
+        buffer[pos++] = c;
+    }
+
+    private void raw(String value) throws IOException {
+        raw(value, 0, value.length());
+    }
+
+    private void raw(String value, int start, int end) throws IOException {
+        while (start < end) {
+            if (pos == buffer.length) {
+                flushBuffer();
+            }
+            int count = Math.min(end - start, buffer.length - pos);
+            value.getChars(start, start + count, buffer, pos);
+            pos += count;
+            start += count;
+        }
+    }
+
+    private void flushBuffer() throws IOException {
+        if (pos > 0) {
+            out.write(buffer, 0, pos);
+            pos = 0;
+        }
+    }
+
+    private static int digits(long value) {
+        int digits = 1;
+        while (value >= 10) {
+            value /= 10;
+            digits++;
+        }
+        return digits;
+    }
+}
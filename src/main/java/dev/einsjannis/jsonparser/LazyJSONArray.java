@@ -0,0 +1,311 @@
+package dev.einsjannis.jsonparser;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.ListIterator;
+import java.util.Spliterator;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+import java.util.function.UnaryOperator;
+
+/**
+ * A {@link JSONArray} backed by a {@link JSONIndex}.
+ * <p>
+ * {@link #get(int)}, {@link #size()} and {@link #isEmpty()} work directly on
+ * the index and only decode the requested element. Every other operation
+ * first decodes all elements of this array (nested objects and arrays stay
+ * lazy) and then behaves exactly like a normal {@link JSONArray}.
+ *
+ * @author einsJannis
+ * @author Flexusma
+ * @version 1.0
+ * @see JSONIndex
+ */
+final class LazyJSONArray extends JSONArray {
+
+    private static final Object UNDECODED = new Object();
+
+    private JSONIndex index;
+    private final int start;
+    private int[] elements;
+    private Object[] values;
+    private boolean complete;
+
+    LazyJSONArray(JSONIndex index, int start) {
+        this.index = index;
+        this.start = start;
+    }
+
+    private void ensureElements() {
+        if (elements != null) {
+            return;
+        }
+        int end = index.getMatch(start);
+        int count = 0;
+        int[] found = new int[8];
+        for (int k = start + 1; k < end; k = index.getMatch(k) + 2) {
+            if (count == found.length) {
+                int[] grown = new int[found.length * 2];
+                System.arraycopy(found, 0, grown, 0, count);
+                found = grown;
+            }
+            found[count++] = k;
+        }
+        elements = new int[count];
+        System.arraycopy(found, 0, elements, 0, count);
+        values = new Object[count];
+        Arrays.fill(values, UNDECODED);
+    }
+
+    private Object decode(int i) {
+        if (values[i] == UNDECODED) {
+            values[i] = index.value(elements[i]);
+        }
+        return values[i];
+    }
+
+    private void ensureComplete() {
+        if (complete) {
+            return;
+        }
+        complete = true;
+        ensureElements();
+        super.ensureCapacity(elements.length);
+        for (int i = 0; i < elements.length; i++) {
+            super.add(decode(i));
+        }
+        index = null;
+        elements = null;
+        values = null;
+    }
+
+    @Override
+    public Object get(int i) {
+        if (complete) {
+            return super.get(i);
+        }
+        ensureElements();
+        if (i < 0 || i >= elements.length) {
+            throw new IndexOutOfBoundsException("Index: " + i + ", Size: " + elements.length);
+        }
+        return decode(i);
+    }
+
+    @Override
+    public long getLong(int i) {
+        int token = numberToken(i);
+        return token < 0 ? super.getLong(i) : index.getTokens().getLong(token);
+    }
+
+    @Override
+    public double getDouble(int i) {
+        int token = numberToken(i);
+        return token < 0 ? super.getDouble(i) : index.getTokens().getDouble(token);
+    }
+
+    private int numberToken(int i) {
+        if (complete) {
+            return -1;
+        }
+        ensureElements();
+        if (i < 0 || i >= elements.length || values[i] != UNDECODED
+                || index.getTokens().getType(elements[i]) != JSONPart.Type.NUMBER) {
+            return -1;
+        }
+        return elements[i];
+    }
+
+    @Override
+    public int size() {
+        if (complete) {
+            return super.size();
+        }
+        ensureElements();
+        return elements.length;
+    }
+
+    @Override
+    public boolean isEmpty() {
+        if (complete) {
+            return super.isEmpty();
+        }
+        return index.getMatch(start) == start + 1;
+    }
+
+    @Override
+    public boolean contains(Object o) {
+        ensureComplete();
+        return super.contains(o);
+    }
+
+    @Override
+    public int indexOf(Object o) {
+        ensureComplete();
+        return super.indexOf(o);
+    }
+
+    @Override
+    public int lastIndexOf(Object o) {
+        ensureComplete();
+        return super.lastIndexOf(o);
+    }
+
+    @Override
+    public Object[] toArray() {
+        ensureComplete();
+        return super.toArray();
+    }
+
+    @Override
+    public <T> T[] toArray(T[] a) {
+        ensureComplete();
+        return super.toArray(a);
+    }
+
+    @Override
+    public Object set(int i, Object element) {
+        ensureComplete();
+        return super.set(i, element);
+    }
+
+    @Override
+    public boolean add(Object o) {
+        ensureComplete();
+        return super.add(o);
+    }
+
+    @Override
+    public void add(int i, Object element) {
+        ensureComplete();
+        super.add(i, element);
+    }
+
+    @Override
+    public Object remove(int i) {
+        ensureComplete();
+        return super.remove(i);
+    }
+
+    @Override
+    public boolean remove(Object o) {
+        ensureComplete();
+        return super.remove(o);
+    }
+
+    @Override
+    public void clear() {
+        ensureComplete();
+        super.clear();
+    }
+
+    @Override
+    public boolean addAll(Collection<?> c) {
+        ensureComplete();
+        return super.addAll(c);
+    }
+
+    @Override
+    public boolean addAll(int i, Collection<?> c) {
+        ensureComplete();
+        return super.addAll(i, c);
+    }
+
+    @Override
+    public boolean removeAll(Collection<?> c) {
+        ensureComplete();
+        return super.removeAll(c);
+    }
+
+    @Override
+    public boolean retainAll(Collection<?> c) {
+        ensureComplete();
+        return super.retainAll(c);
+    }
+
+    @Override
+    public boolean removeIf(Predicate<? super Object> filter) {
+        ensureComplete();
+        return super.removeIf(filter);
+    }
+
+    @Override
+    public void replaceAll(UnaryOperator<Object> operator) {
+        ensureComplete();
+        super.replaceAll(operator);
+    }
+
+    @Override
+    public void sort(Comparator<? super Object> c) {
+        ensureComplete();
+        super.sort(c);
+    }
+
+    @Override
+    public Iterator<Object> iterator() {
+        ensureComplete();
+        return super.iterator();
+    }
+
+    @Override
+    public ListIterator<Object> listIterator() {
+        ensureComplete();
+        return super.listIterator();
+    }
+
+    @Override
+    public ListIterator<Object> listIterator(int i) {
+        ensureComplete();
+        return super.listIterator(i);
+    }
+
+    @Override
+    public List<Object> subList(int fromIndex, int toIndex) {
+        ensureComplete();
+        return super.subList(fromIndex, toIndex);
+    }
+
+    @Override
+    public void forEach(Consumer<? super Object> action) {
+        ensureComplete();
+        super.forEach(action);
+    }
+
+    @Override
+    public Spliterator<Object> spliterator() {
+        ensureComplete();
+        return super.spliterator();
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        ensureComplete();
+        return super.equals(o);
+    }
+
+    @Override
+    public int hashCode() {
+        ensureComplete();
+        return super.hashCode();
+    }
+
+    @Override
+    public void trimToSize() {
+        ensureComplete();
+        super.trimToSize();
+    }
+
+    @Override
+    public void ensureCapacity(int minCapacity) {
+        ensureComplete();
+        super.ensureCapacity(minCapacity);
+    }
+
+    @Override
+    public Object clone() {
+        ensureComplete();
+        return super.clone();
+    }
+}
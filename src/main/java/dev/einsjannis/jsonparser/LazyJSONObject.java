@@ -0,0 +1,260 @@
+package dev.einsjannis.jsonparser;
+
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.BiConsumer;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+
+/**
+ * A {@link JSONObject} backed by a {@link JSONIndex}.
+ * <p>
+ * {@link #get(Object)} and {@link #containsKey(Object)} search the members
+ * of the object directly in the index, skipping nested values in
+ * {@code O(1)}, and only decode the requested value. {@link #getLong(String)}
+ * and {@link #getDouble(String)} parse numbers directly from the buffer
+ * without boxing them. Decoded values are kept
+ * in the underlying {@link java.util.HashMap}. Every other operation first
+ * decodes all members of this object (nested objects and arrays stay lazy)
+ * and then behaves exactly like a normal {@link JSONObject}.
+ *
+ * @author einsJannis
+ * @author Flexusma
+ * @version 1.0
+ * @see JSONIndex
+ */
+final class LazyJSONObject extends JSONObject {
+
+    private JSONIndex index;
+    private final int start;
+    private boolean complete;
+
+    LazyJSONObject(JSONIndex index, int start) {
+        this.index = index;
+        this.start = start;
+    }
+
+    private int find(Object key) {
+        byte[] bytes = JSONIndex.encode(key);
+        if (bytes == null) {
+            return -1;
+        }
+        int found = -1;
+        int end = index.getMatch(start);
+        for (int k = start + 1; k < end; k = index.getMatch(k + 2) + 2) {
+            if (index.keyEquals(k, bytes)) {
+                found = k + 2;
+            }
+        }
+        return found;
+    }
+
+    private void ensureComplete() {
+        if (complete) {
+            return;
+        }
+        complete = true;
+        JSONTokens tokens = index.getTokens();
+        int end = index.getMatch(start);
+        Set<String> cached = new HashSet<String>(super.keySet());
+        for (int k = start + 1; k < end; k = index.getMatch(k + 2) + 2) {
+            String key = tokens.getString(k);
+            if (!cached.contains(key)) {
+                super.put(key, index.value(k + 2));
+            }
+        }
+        index = null;
+    }
+
+    @Override
+    public Object get(Object key) {
+        if (complete || super.containsKey(key)) {
+            return super.get(key);
+        }
+        int found = find(key);
+        if (found < 0) {
+            return null;
+        }
+        Object value = index.value(found);
+        super.put((String) key, value);
+        return value;
+    }
+
+    @Override
+    public long getLong(String key) {
+        int token = numberToken(key);
+        return token < 0 ? super.getLong(key) : index.getTokens().getLong(token);
+    }
+
+    @Override
+    public long getLong(String key, long defaultValue) {
+        int token = numberToken(key);
+        return token < 0 ? super.getLong(key, defaultValue) : index.getTokens().getLong(token);
+    }
+
+    @Override
+    public double getDouble(String key) {
+        int token = numberToken(key);
+        return token < 0 ? super.getDouble(key) : index.getTokens().getDouble(token);
+    }
+
+    @Override
+    public double getDouble(String key, double defaultValue) {
+        int token = numberToken(key);
+        return token < 0 ? super.getDouble(key, defaultValue) : index.getTokens().getDouble(token);
+    }
+
+    private int numberToken(String key) {
+        if (complete || super.containsKey(key)) {
+            return -1;
+        }
+        int found = find(key);
+        if (found < 0 || index.getTokens().getType(found) != JSONPart.Type.NUMBER) {
+            return -1;
+        }
+        return found;
+    }
+
+    @Override
+    public Object getOrDefault(Object key, Object defaultValue) {
+        return containsKey(key) ? get(key) : defaultValue;
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        if (complete || super.containsKey(key)) {
+            return super.containsKey(key);
+        }
+        return find(key) >= 0;
+    }
+
+    @Override
+    public boolean isEmpty() {
+        if (complete) {
+            return super.isEmpty();
+        }
+        return index.getMatch(start) == start + 1;
+    }
+
+    @Override
+    public int size() {
+        ensureComplete();
+        return super.size();
+    }
+
+    @Override
+    public boolean containsValue(Object value) {
+        ensureComplete();
+        return super.containsValue(value);
+    }
+
+    @Override
+    public Set<String> keySet() {
+        ensureComplete();
+        return super.keySet();
+    }
+
+    @Override
+    public Collection<Object> values() {
+        ensureComplete();
+        return super.values();
+    }
+
+    @Override
+    public Set<Map.Entry<String, Object>> entrySet() {
+        ensureComplete();
+        return super.entrySet();
+    }
+
+    @Override
+    public void forEach(BiConsumer<? super String, ? super Object> action) {
+        ensureComplete();
+        super.forEach(action);
+    }
+
+    @Override
+    public Object put(String key, Object value) {
+        ensureComplete();
+        return super.put(key, value);
+    }
+
+    @Override
+    public void putAll(Map<? extends String, ?> m) {
+        ensureComplete();
+        super.putAll(m);
+    }
+
+    @Override
+    public Object remove(Object key) {
+        ensureComplete();
+        return super.remove(key);
+    }
+
+    @Override
+    public boolean remove(Object key, Object value) {
+        ensureComplete();
+        return super.remove(key, value);
+    }
+
+    @Override
+    public void clear() {
+        ensureComplete();
+        super.clear();
+    }
+
+    @Override
+    public Object putIfAbsent(String key, Object value) {
+        ensureComplete();
+        return super.putIfAbsent(key, value);
+    }
+
+    @Override
+    public boolean replace(String key, Object oldValue, Object newValue) {
+        ensureComplete();
+        return super.replace(key, oldValue, newValue);
+    }
+
+    @Override
+    public Object replace(String key, Object value) {
+        ensureComplete();
+        return super.replace(key, value);
+    }
+
+    @Override
+    public void replaceAll(BiFunction<? super String, ? super Object, ?> function) {
+        ensureComplete();
+        super.replaceAll(function);
+    }
+
+    @Override
+    public Object computeIfAbsent(String key, Function<? super String, ?> mappingFunction) {
+        ensureComplete();
+        return super.computeIfAbsent(key, mappingFunction);
+    }
+
+    @Override
+    public Object computeIfPresent(String key, BiFunction<? super String, ? super Object, ?> remappingFunction) {
+        ensureComplete();
+        return super.computeIfPresent(key, remappingFunction);
+    }
+
+    @Override
+    public Object compute(String key, BiFunction<? super String, ? super Object, ?> remappingFunction) {
+        ensureComplete();
+        return super.compute(key, remappingFunction);
+    }
+
+    @Override
+    public Object merge(String key, Object value, BiFunction<? super Object, ? super Object, ?> remappingFunction) {
+        ensureComplete();
+        return super.merge(key, value, remappingFunction);
+    }
+
+    @Override
+    public Object clone() {
+        ensureComplete();
+        return super.clone();
+    }
+}
@@ -0,0 +1,262 @@
+package dev.ludium.wallpaperengine;
+
+import dev.einsjannis.jsonparser.JSONArray;
+import dev.einsjannis.jsonparser.JSONObject;
+
+import java.awt.Graphics2D;
+import java.awt.Rectangle;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Composes the wallpaper of several displays into one picture.
+ * <p>
+ * The layout is a list of display rectangles in desktop coordinates, the
+ * composed picture covers their bounds. {@link #span(Path)} stretches one
+ * picture over all displays, as if they were one large screen, so the
+ * picture continues across the gaps between them. {@link #compose(Path[])}
+ * shows a picture of its own on every display. Every display is a tile
+ * witch is cropped and scaled on its own; the tiles of the same picture are
+ * drawn in parallel on a {@link ForkJoinPool}, then the picture is closed
+ * before the next one is decoded. A tile is kept until its picture changes, so
+ * unchanged displays are not composed again. The
+ * composed picture is stored in the {@link ImageCache} under a key made of
+ * the layout and the pictures, so a composition seen before is not
+ * composed again at all.
+ * <p>
+ * Only uses {@link BufferedImage}s, so it works headless. Composing is
+ * expensive for large desktops, so it belongs on a worker thread like the
+ * ones of the {@link Prefetcher}, never on the scheduler thread.
+ */
+public class Compositor {
+
+    private final List<Rectangle> displays;
+    private final Rectangle bounds;
+    private final ImageCache cache;
+    private final ForkJoinPool pool;
+    private final Tile[] tiles;
+
+    /**
+     * @param displays the display rectangles
+     * @param cache cache for the composed pictures
+     */
+    public Compositor(List<Rectangle> displays, ImageCache cache) {
+        this(displays, cache, ForkJoinPool.commonPool());
+    }
+
+    public Compositor(List<Rectangle> displays, ImageCache cache, ForkJoinPool pool) {
+        if (displays.isEmpty()) {
+            throw new IllegalArgumentException("No displays");
+        }
+        List<Rectangle> copy = new ArrayList<>();
+        Rectangle union = null;
+        for (Rectangle display : displays) {
+            if (display.width <= 0 || display.height <= 0) {
+                throw new IllegalArgumentException("Empty display " + display);
+            }
+            copy.add(new Rectangle(display));
+            union = union == null ? new Rectangle(display) : union.union(display);
+        }
+        this.displays = Collections.unmodifiableList(copy);
+        this.bounds = union;
+        this.cache = cache;
+        this.pool = pool;
+        this.tiles = new Tile[copy.size()];
+    }
+
+    /**
+     * Reads a layout from the {@code "layout"} array of a config, every
+     * display as object with {@code "x"}, {@code "y"}, {@code "width"} and
+     * {@code "height"}.
+     */
+    public static List<Rectangle> layout(JSONObject config) {
+        if (!(config.get("layout") instanceof JSONArray)) {
+            throw new IllegalArgumentException("layout has to be an array of displays");
+        }
+        List<Rectangle> displays = new ArrayList<>();
+        for (Object display : (JSONArray) config.get("layout")) {
+            if (!(display instanceof JSONObject)) {
+                throw new IllegalArgumentException("Invalid display: " + display);
+            }
+            JSONObject rectangle = (JSONObject) display;
+            displays.add(new Rectangle((int) rectangle.getLong("x", 0), (int) rectangle.getLong("y", 0),
+                    (int) rectangle.getLong("width"), (int) rectangle.getLong("height")));
+        }
+        return displays;
+    }
+
+    public List<Rectangle> getDisplays() {
+        return displays;
+    }
+
+    /**
+     * Returns the bounds of all displays, the size of the composed picture.
+     */
+    public Rectangle getBounds() {
+        return new Rectangle(bounds);
+    }
+
+    /**
+     * Composes one picture spanning all displays.
+     *
+     * @return the composed picture
+     */
+    public Path span(Path picture) throws IOException {
+        Path[] pictures = new Path[displays.size()];
+        Arrays.fill(pictures, picture);
+        return compose(true, pictures);
+    }
+
+    /**
+     * Composes a picture of its own for every display.
+     *
+     * @param pictures one picture per display in the order of the layout, {@code null} for a black display
+     * @return the composed picture
+     */
+    public Path compose(Path[] pictures) throws IOException {
+        if (pictures.length != displays.size()) {
+            throw new IllegalArgumentException(pictures.length + " pictures for " + displays.size() + " displays");
+        }
+        return compose(false, pictures.clone());
+    }
+
+    private synchronized Path compose(boolean spanning, Path[] pictures) throws IOException {
+        String[] keys = new String[tiles.length];
+        StringBuilder layout = new StringBuilder();
+        for (int k = 0; k < tiles.length; k++) {
+            Rectangle display = displays.get(k);
+            keys[k] = (spanning ? "span " + bounds.width + "x" + bounds.height : "each") + " "
+                    + display.x + "," + display.y + "," + display.width + "x" + display.height + " "
+                    + (pictures[k] == null ? "none" : cache.hash(pictures[k]));
+            layout.append(keys[k]).append('\n');
+        }
+        String key = sha256(layout.toString()) + "-" + bounds.width + "x" + bounds.height + ".jpg";
+        return cache.get(key, target -> Prefetcher.writeJPEG(render(spanning, pictures, keys), target));
+    }
+
+    private BufferedImage render(boolean spanning, Path[] pictures, String[] keys) throws IOException {
+        boolean[] rendered = new boolean[tiles.length];
+        for (int k = 0; k < tiles.length; k++) {
+            rendered[k] = tiles[k] != null && tiles[k].key.equals(keys[k]);
+        }
+        for (int k = 0; k < tiles.length; k++) {
+            if (rendered[k]) {
+                continue;
+            }
+            if (pictures[k] == null) {
+                Rectangle display = displays.get(k);
+                tiles[k] = new Tile(keys[k], new BufferedImage(display.width, display.height, BufferedImage.TYPE_INT_RGB));
+                continue;
+            }
+            // every picture is closed before the next one is decoded, so a composition holds one reservation at most
+            Rectangle area = spanning ? bounds : displays.get(k);
+            try (ImageDecoder.Decoded decoded = ImageDecoder.getShared().decode(pictures[k], area.width, area.height, false)) {
+                List<ForkJoinTask<?>> changed = new ArrayList<>();
+                for (int j = k; j < tiles.length; j++) {
+                    if (!rendered[j] && pictures[k].equals(pictures[j])) {
+                        rendered[j] = true;
+                        changed.add(new TileTask(j, keys[j], decoded.getImage(), spanning));
+                    }
+                }
+                pool.invoke(new RecursiveAction() {
+                    @Override
+                    protected void compute() {
+                        invokeAll(changed);
+                    }
+                });
+            }
+        }
+        BufferedImage canvas = new BufferedImage(bounds.width, bounds.height, BufferedImage.TYPE_INT_RGB);
+        int[] out = ((DataBufferInt) canvas.getRaster().getDataBuffer()).getData();
+        for (int k = 0; k < tiles.length; k++) {
+            Rectangle display = displays.get(k);
+            int[] tile = ((DataBufferInt) tiles[k].image.getRaster().getDataBuffer()).getData();
+            for (int y = 0; y < display.height; y++) {
+                System.arraycopy(tile, y * display.width, out,
+                        (display.y - bounds.y + y) * bounds.width + display.x - bounds.x, display.width);
+            }
+        }
+        return canvas;
+    }
+
+    /**
+     * Draws the part of a picture witch falls on one display. The picture
+     * is scaled to cover an area, the bounds when spanning, else the display
+     * itself, and centered on it.
+     */
+    private static BufferedImage tile(BufferedImage source, Rectangle display, Rectangle area) {
+        BufferedImage tile = new BufferedImage(display.width, display.height, BufferedImage.TYPE_INT_RGB);
+        double scale = Math.max((double) area.width / source.getWidth(), (double) area.height / source.getHeight());
+        Graphics2D graphics = tile.createGraphics();
+        try {
+            graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+            graphics.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+            graphics.translate(area.x - display.x + (area.width - source.getWidth() * scale) / 2,
+                    area.y - display.y + (area.height - source.getHeight() * scale) / 2);
+            graphics.scale(scale, scale);
+            graphics.drawImage(source, 0, 0, null);
+        } finally {
+            graphics.dispose();
+        }
+        return tile;
+    }
+
+    private static String sha256(String text) {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+        StringBuilder hash = new StringBuilder(64);
+        for (byte b : digest.digest(text.getBytes(StandardCharsets.UTF_8))) {
+            hash.append(Character.forDigit(b >> 4 & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+        }
+        return hash.toString();
+    }
+
+    private final class TileTask extends RecursiveAction {
+
+        private final int display;
+        private final String key;
+        private final BufferedImage source;
+        private final boolean spanning;
+
+        private TileTask(int display, String key, BufferedImage source, boolean spanning) {
+            this.display = display;
+            this.key = key;
+            this.source = source;
+            this.spanning = spanning;
+        }
+
+        @Override
+        protected void compute() {
+            Rectangle rectangle = displays.get(display);
+            tiles[display] = new Tile(key, tile(source, rectangle, spanning ? bounds : rectangle));
+        }
+    }
+
+    private static final class Tile {
+
+        private final String key;
+        private final BufferedImage image;
+
+        private Tile(String key, BufferedImage image) {
+            this.key = key;
+            this.image = image;
+        }
+    }
+}
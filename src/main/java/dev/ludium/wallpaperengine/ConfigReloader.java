@@ -0,0 +1,215 @@
+package dev.ludium.wallpaperengine;
+
+import dev.einsjannis.jsonparser.JSONObject;
+import dev.einsjannis.jsonparser.JSONSnapshot;
+import dev.einsjannis.jsonparser.JSONSyntaxError;
+import dev.ludium.wallpaperengine.playlist.Playlist;
+import dev.ludium.wallpaperengine.playlist.Playlists;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Objects;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Applies changes of the config file while the engine is running.
+ * <p>
+ * A {@link WatchService} watches the directory of the config. Editors
+ * often write a file in several steps, so a reload only starts once no
+ * event came for {@link #DEBOUNCE} milliseconds. The config is parsed on
+ * the reloader's own thread and compared with the running one: a new
+ * {@code "delay"} and changed {@code "pictures"} or {@code "shuffle"} are
+ * handed to the {@link WallpaperScheduler}, witch keeps its position in the
+ * cycle, directory playlists witch are still configured are reused. A
+ * config witch can't be read or parsed is reported and the running one
+ * stays in place.
+ */
+public class ConfigReloader implements Closeable {
+
+    /**
+     * Milliseconds without a change before the config is reloaded.
+     */
+    public static final long DEBOUNCE = 300;
+
+    private final Path configFile;
+    private final Path playlistCache;
+    private final WallpaperScheduler scheduler;
+    private final ScheduledThreadPoolExecutor executor;
+    private final LatencyHistogram reloadLatency = new LatencyHistogram();
+    private final LatencyHistogram loadLatency = new LatencyHistogram();
+    private final AtomicLong reloads = new AtomicLong();
+    private final AtomicLong failures = new AtomicLong();
+    private WatchService watchService;
+    private ScheduledFuture<?> pending;
+    private volatile JSONObject config;
+    private volatile Playlist playlist;
+    private volatile String lastError;
+
+    /**
+     * @param configFile the config file
+     * @param config the running config
+     * @param playlist the running playlist
+     * @param scheduler the scheduler the changes are applied to
+     * @param playlistCache directory for the indices of directory playlists
+     */
+    public ConfigReloader(Path configFile, JSONObject config, Playlist playlist, WallpaperScheduler scheduler, Path playlistCache) {
+        this.configFile = configFile.toAbsolutePath();
+        this.config = config;
+        this.playlist = playlist;
+        this.scheduler = scheduler;
+        this.playlistCache = playlistCache;
+        this.executor = new ScheduledThreadPoolExecutor(1, runnable -> {
+            Thread thread = new Thread(runnable, "config-reloader");
+            thread.setDaemon(true);
+            return thread;
+        });
+        executor.setRemoveOnCancelPolicy(true);
+    }
+
+    /**
+     * Starts watching the config file.
+     */
+    public void start() throws IOException {
+        watchService = configFile.getFileSystem().newWatchService();
+        configFile.getParent().register(watchService, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY);
+        Thread watcher = new Thread(this::watch, "config-watcher");
+        watcher.setDaemon(true);
+        watcher.start();
+    }
+
+    /**
+     * Reloads the config after the debounce delay.
+     */
+    public void reload() {
+        long requested = System.nanoTime();
+        executor.execute(() -> {
+            if (pending != null) {
+                pending.cancel(false);
+            }
+            pending = executor.schedule(() -> apply(requested), DEBOUNCE, TimeUnit.MILLISECONDS);
+        });
+    }
+
+    private void watch() {
+        try {
+            while (true) {
+                WatchKey key = watchService.take();
+                for (WatchEvent<?> event : key.pollEvents()) {
+                    if (event.kind() == StandardWatchEventKinds.OVERFLOW
+                            || configFile.getFileName().equals(event.context())) {
+                        reload();
+                    }
+                }
+                key.reset();
+            }
+        } catch (ClosedWatchServiceException | InterruptedException e) {
+            // closed
+        }
+    }
+
+    private void apply(long requested) {
+        long start = System.nanoTime();
+        pending = null;
+        try {
+            JSONObject next = JSONSnapshot.load(configFile);
+            loadLatency.record(System.nanoTime() - start);
+            List<String> changes = new ArrayList<>();
+            boolean delayChanged = !Objects.equals(config.get("delay"), next.get("delay"));
+            long delay = next.getLong("delay");
+            if (delay <= 0) {
+                throw new IllegalArgumentException("delay has to be positive: " + delay);
+            }
+            Playlist previous = playlist;
+            Playlist changed = null;
+            if (!Objects.equals(config.get("pictures"), next.get("pictures"))
+                    || !Objects.equals(config.get("shuffle"), next.get("shuffle"))) {
+                changed = Playlists.fromConfig(next, playlistCache, previous);
+            }
+            if (delayChanged) {
+                scheduler.setDefaultDelay(delay);
+                changes.add("delay " + delay);
+            }
+            if (changed != null) {
+                scheduler.setPlaylist(changed);
+                playlist = changed;
+                Playlists.release(previous, changed);
+                changes.add("playlist of " + changed.size() + " pictures");
+            }
+            for (String key : new String[]{"backend", "prefetch", "transition", "displays", "duplicates"}) {
+                if (!Objects.equals(config.get(key), next.get(key))) {
+                    changes.add(key + " (takes effect after a restart)");
+                }
+            }
+            config = next;
+            reloads.incrementAndGet();
+            long end = System.nanoTime();
+            reloadLatency.record(end - start);
+            System.out.println(String.format(Locale.ROOT, "Reloaded %s in %.1fms (%.1fms after the change): %s", configFile.getFileName(),
+                    (end - start) / 1e6, (end - requested) / 1e6, changes.isEmpty() ? "no changes" : String.join(", ", changes)));
+        } catch (IOException | JSONSyntaxError | RuntimeException e) {
+            failures.incrementAndGet();
+            lastError = e.toString();
+            System.err.println("Could not reload " + configFile.getFileName() + ", keeping the running config: " + e);
+        }
+    }
+
+    public JSONObject getConfig() {
+        return config;
+    }
+
+    public Playlist getPlaylist() {
+        return playlist;
+    }
+
+    /**
+     * Returns how long parsing and applying a config took.
+     */
+    public LatencyHistogram getReloadLatency() {
+        return reloadLatency;
+    }
+
+    /**
+     * Returns how long reading and parsing the config took on a reload.
+     */
+    public LatencyHistogram getLoadLatency() {
+        return loadLatency;
+    }
+
+    public long getReloads() {
+        return reloads.get();
+    }
+
+    public long getFailures() {
+        return failures.get();
+    }
+
+    /**
+     * Returns the error of the last failed reload or {@code null}.
+     */
+    public String getLastError() {
+        return lastError;
+    }
+
+    /**
+     * Stops watching the config file.
+     */
+    @Override
+    public void close() throws IOException {
+        executor.shutdownNow();
+        if (watchService != null) {
+            watchService.close();
+        }
+    }
+}
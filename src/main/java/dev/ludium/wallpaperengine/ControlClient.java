@@ -0,0 +1,107 @@
+package dev.ludium.wallpaperengine;
+
+import dev.einsjannis.jsonparser.JSONObject;
+import dev.einsjannis.jsonparser.JSONSyntaxError;
+import dev.einsjannis.jsonparser.JSONWriter;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+/**
+ * Sends a command to the {@link ControlServer} of a running engine and
+ * prints the response.
+ * <pre>
+ * java -jar wallpaperengine.jar control [--port PORT] [--token-file FILE] COMMAND
+ * </pre>
+ * The token is read from {@value ControlServer#TOKEN_FILE} in the working
+ * directory, next to the config, unless another file is given.
+ * Exits with status {@code 1} if the command failed and {@code 2} if the
+ * engine could not be reached.
+ */
+public final class ControlClient {
+
+    private ControlClient() {
+    }
+
+    public static void main(String[] args) {
+        int port = ControlServer.DEFAULT_PORT;
+        Path tokenFile = Paths.get(ControlServer.TOKEN_FILE);
+        String command = null;
+        for (int i = 0; i < args.length; i++) {
+            if (args[i].equals("--port") && i + 1 < args.length) {
+                port = Integer.parseInt(args[++i]);
+            } else if (args[i].equals("--token-file") && i + 1 < args.length) {
+                tokenFile = Paths.get(args[++i]);
+            } else if (command == null) {
+                command = args[i];
+            } else {
+                usage();
+            }
+        }
+        if (command == null) {
+            usage();
+        }
+        String token;
+        try {
+            token = ControlServer.readToken(tokenFile);
+        } catch (IOException e) {
+            System.err.println("Could not read the control token, is the wallpaper engine running? " + e);
+            System.exit(2);
+            return;
+        }
+        try {
+            JSONObject response = send(port, token, command);
+            if (response.get("result") != null) {
+                Writer out = new OutputStreamWriter(System.out, StandardCharsets.UTF_8);
+                new JSONWriter(out).setIndent("  ").value(response.get("result")).flush();
+                System.out.println();
+            }
+            if (!Boolean.TRUE.equals(response.get("ok"))) {
+                System.err.println(response.get("error"));
+                System.exit(1);
+            }
+        } catch (IOException | JSONSyntaxError e) {
+            System.err.println("Could not reach the wallpaper engine on port " + port + ": " + e);
+            System.exit(2);
+        }
+    }
+
+    /**
+     * Sends a command and returns the response.
+     *
+     * @throws IOException if the server can't be reached
+     * @throws JSONSyntaxError if the response is malformed
+     */
+    public static JSONObject send(int port, String token, String command) throws IOException, JSONSyntaxError {
+        try (Socket socket = new Socket()) {
+            socket.connect(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 2000);
+            socket.setSoTimeout(10000);
+            Writer out = new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.UTF_8);
+            JSONObject request = new JSONObject();
+            request.put("command", command);
+            request.put("token", token);
+            new JSONWriter(out).value(request).flush();
+            out.write('\n');
+            out.flush();
+            String line = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8)).readLine();
+            if (line == null) {
+                throw new IOException("Connection closed without a response");
+            }
+            return JSONObject.fromString(line);
+        }
+    }
+
+    private static void usage() {
+        System.err.println("Usage: control [--port PORT] [--token-file FILE] next|prev|pause|resume|reload|status|metrics|help");
+        System.exit(2);
+    }
+}
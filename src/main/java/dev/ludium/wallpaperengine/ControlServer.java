@@ -0,0 +1,451 @@
+package dev.ludium.wallpaperengine;
+
+import dev.einsjannis.jsonparser.JSONObject;
+import dev.einsjannis.jsonparser.JSONSyntaxError;
+import dev.einsjannis.jsonparser.JSONWriter;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.CancelledKeyException;
+import java.nio.channels.ClosedSelectorException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Lets other processes control the running engine over a local socket.
+ * <p>
+ * Every request is one line with a {@code JSON} object like
+ * {@code {"command": "next", "token": "..."}}, a line with the name of a
+ * command and the token separated by a space is accepted as well. Every
+ * request is answered in order with one line, either
+ * {@code {"ok": true, "result": ...}} or {@code {"ok": false, "error": "..."}}.
+ * <p>
+ * The token is created randomly on every start and written to a file only
+ * the user can read ({@link #writeToken(Path)}), so other local users and
+ * web pages, witch can send requests to the loopback address but can't read
+ * the file, can't control the engine. A request witch is malformed, has a
+ * wrong token or an unknown command is answered and the connection is
+ * closed, so a connection speaking another protocol, like {@code HTTP},
+ * never gets a second request run.
+ * <p>
+ * All connections are served by one thread with a {@link Selector}, so
+ * many clients can be connected at once without a thread each. The
+ * commands run on this thread and must only hand their work to other
+ * threads, for example to the {@link WallpaperScheduler}, witch never waits
+ * for them. The server only listens on the loopback address.
+ *
+ * @see ControlClient
+ */
+public class ControlServer implements Closeable {
+
+    /**
+     * The port the server listens on if none is configured.
+     */
+    public static final int DEFAULT_PORT = 47474;
+
+    /**
+     * Name of the file with the token, next to the config.
+     */
+    public static final String TOKEN_FILE = "wallpaperengine-control.token";
+
+    private static final int MAX_LINE = 64 * 1024;
+    private static final int MAX_PENDING = 1024 * 1024;
+
+    private final InetSocketAddress address;
+    private final byte[] token;
+    private final Map<String, Command> commands = new ConcurrentHashMap<>();
+    private final LatencyHistogram latency = new LatencyHistogram();
+    private final AtomicLong requests = new AtomicLong();
+    private final AtomicLong errors = new AtomicLong();
+    private final AtomicLong connections = new AtomicLong();
+    private Selector selector;
+    private ServerSocketChannel server;
+
+    /**
+     * Runs a command.
+     */
+    public interface Command {
+
+        /**
+         * @param request the whole request
+         * @return the result, any value {@link JSONWriter#value(Object)} can write
+         * @throws Exception if the command failed, the message is sent to the client
+         */
+        Object run(JSONObject request) throws Exception;
+    }
+
+    /**
+     * @param port port on the loopback address, {@code 0} for any free port
+     * @param token the token every request has to contain
+     */
+    public ControlServer(int port, String token) {
+        if (token.isEmpty()) {
+            throw new IllegalArgumentException("The token must not be empty");
+        }
+        this.address = new InetSocketAddress(InetAddress.getLoopbackAddress(), port);
+        this.token = token.getBytes(StandardCharsets.UTF_8);
+        command("help", request -> new ArrayList<>(new TreeSet<>(commands.keySet())));
+    }
+
+    /**
+     * Creates a random token and writes it to a file only the user can
+     * read, replacing an older one.
+     *
+     * @return the token
+     */
+    public static String writeToken(Path file) throws IOException {
+        byte[] random = new byte[16];
+        new SecureRandom().nextBytes(random);
+        StringBuilder token = new StringBuilder(32);
+        for (byte b : random) {
+            token.append(Character.forDigit(b >> 4 & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+        }
+        Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+        Files.deleteIfExists(temp);
+        try {
+            Files.createFile(temp, PosixFilePermissions.asFileAttribute(PosixFilePermissions.fromString("rw-------")));
+        } catch (UnsupportedOperationException e) {
+            // Windows, the file inherits the permissions of the user's directory
+            Files.createFile(temp);
+        }
+        Files.write(temp, token.toString().getBytes(StandardCharsets.US_ASCII));
+        try {
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING);
+        }
+        return token.toString();
+    }
+
+    /**
+     * Reads a token written by {@link #writeToken(Path)}.
+     */
+    public static String readToken(Path file) throws IOException {
+        return new String(Files.readAllBytes(file), StandardCharsets.US_ASCII).trim();
+    }
+
+    /**
+     * Adds a command, replacing a command with the same name.
+     */
+    public ControlServer command(String name, Command command) {
+        commands.put(name, command);
+        return this;
+    }
+
+    /**
+     * Binds the socket and starts serving.
+     *
+     * @throws IOException if the port can't be bound
+     */
+    public void start() throws IOException {
+        selector = Selector.open();
+        server = ServerSocketChannel.open();
+        server.setOption(StandardSocketOptions.SO_REUSEADDR, true);
+        server.bind(address);
+        server.configureBlocking(false);
+        server.register(selector, SelectionKey.OP_ACCEPT);
+        Thread thread = new Thread(this::serve, "control-server");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Returns the port the server listens on.
+     */
+    public int getPort() {
+        return server == null ? address.getPort() : server.socket().getLocalPort();
+    }
+
+    private void serve() {
+        try {
+            while (selector.isOpen()) {
+                selector.select();
+                for (Iterator<SelectionKey> keys = selector.selectedKeys().iterator(); keys.hasNext(); ) {
+                    SelectionKey key = keys.next();
+                    keys.remove();
+                    try {
+                        if (!key.isValid()) {
+                            continue;
+                        }
+                        if (key.isAcceptable()) {
+                            accept();
+                        } else {
+                            Connection connection = (Connection) key.attachment();
+                            if (key.isReadable()) {
+                                connection.read();
+                            }
+                            if (key.isValid() && key.isWritable()) {
+                                connection.write();
+                            }
+                        }
+                    } catch (IOException e) {
+                        key.cancel();
+                        key.channel().close();
+                    } catch (CancelledKeyException e) {
+                        // the connection was closed by close()
+                        key.channel().close();
+                    }
+                }
+            }
+        } catch (ClosedSelectorException e) {
+            // closed
+        } catch (IOException e) {
+            System.err.println("The control server stopped: " + e);
+        }
+    }
+
+    private void accept() throws IOException {
+        SocketChannel channel;
+        while ((channel = server.accept()) != null) {
+            channel.configureBlocking(false);
+            channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+            SelectionKey key = channel.register(selector, SelectionKey.OP_READ);
+            key.attach(new Connection(key, channel));
+            connections.incrementAndGet();
+        }
+    }
+
+    /**
+     * Runs the request in the given line and returns the response line.
+     *
+     * @param connection the connection of the request, closed after an invalid request
+     */
+    private byte[] handle(ByteBuffer line, Connection connection) {
+        long start = System.nanoTime();
+        requests.incrementAndGet();
+        Map<String, Object> response = new LinkedHashMap<>();
+        try {
+            JSONObject request = parse(line);
+            Object result = commands.get(request.getString("command")).run(request);
+            response.put("ok", true);
+            response.put("result", result);
+        } catch (InvalidRequestException e) {
+            response.put("ok", false);
+            response.put("error", e.getMessage());
+            connection.reject();
+        } catch (Exception e) {
+            response.put("ok", false);
+            response.put("error", e.getMessage() == null ? e.toString() : e.getMessage());
+        }
+        if (response.get("ok") != Boolean.TRUE) {
+            errors.incrementAndGet();
+        }
+        byte[] bytes = toLine(response);
+        latency.record(System.nanoTime() - start);
+        return bytes;
+    }
+
+    /**
+     * Parses a request and checks its token and command.
+     */
+    private JSONObject parse(ByteBuffer line) throws InvalidRequestException {
+        JSONObject request;
+        if (line.get(line.position()) == '{') {
+            try {
+                request = JSONObject.fromBuffer(line);
+            } catch (JSONSyntaxError e) {
+                throw new InvalidRequestException("Invalid request: " + e.getMessage());
+            }
+        } else {
+            String[] words = StandardCharsets.UTF_8.decode(line).toString().trim().split("\\s+");
+            request = new JSONObject();
+            request.put("command", words[0]);
+            if (words.length == 2) {
+                request.put("token", words[1]);
+            }
+        }
+        if (!(request.get("token") instanceof String)
+                || !MessageDigest.isEqual(token, request.getString("token").getBytes(StandardCharsets.UTF_8))) {
+            throw new InvalidRequestException("Missing or wrong token, see " + TOKEN_FILE);
+        }
+        if (!(request.get("command") instanceof String)) {
+            throw new InvalidRequestException("The request has no command");
+        }
+        if (!commands.containsKey(request.getString("command"))) {
+            throw new InvalidRequestException("Unknown command " + request.getString("command")
+                    + ", available: " + String.join(", ", new TreeSet<>(commands.keySet())));
+        }
+        return request;
+    }
+
+    private static byte[] toLine(Object value) {
+        StringWriter out = new StringWriter();
+        try (JSONWriter writer = new JSONWriter(out)) {
+            writer.value(value);
+        } catch (IOException | IllegalArgumentException e) {
+            Map<String, Object> error = new LinkedHashMap<>();
+            error.put("ok", false);
+            error.put("error", "Can't write the result: " + e.getMessage());
+            return toLine(error);
+        }
+        return out.append('\n').toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Returns how long running a request took, from parsing the request to
+     * encoding the response.
+     */
+    public LatencyHistogram getLatency() {
+        return latency;
+    }
+
+    public long getRequests() {
+        return requests.get();
+    }
+
+    public long getErrors() {
+        return errors.get();
+    }
+
+    public long getConnections() {
+        return connections.get();
+    }
+
+    /**
+     * Stops serving and closes all connections.
+     */
+    @Override
+    public void close() throws IOException {
+        if (selector == null) {
+            return;
+        }
+        for (SelectionKey key : selector.keys()) {
+            key.channel().close();
+        }
+        selector.close();
+    }
+
+    private static final class InvalidRequestException extends Exception {
+
+        private InvalidRequestException(String message) {
+            super(message);
+        }
+    }
+
+    private final class Connection {
+
+        private final SelectionKey key;
+        private final SocketChannel channel;
+        private ByteBuffer in = ByteBuffer.allocate(1024);
+        private ByteBuffer out = ByteBuffer.allocate(1024);
+        private boolean closing;
+        private boolean rejected;
+
+        private Connection(SelectionKey key, SocketChannel channel) {
+            this.key = key;
+            this.channel = channel;
+            out.flip();
+        }
+
+        private void read() throws IOException {
+            int read = channel.read(in);
+            if (read < 0) {
+                closing = true;
+            }
+            in.flip();
+            int start = in.position();
+            for (int j = start; j < in.limit() && !rejected; j++) {
+                if (in.get(j) == '\n') {
+                    line(start, j);
+                    start = j + 1;
+                }
+            }
+            if (closing && !rejected && start < in.limit()) {
+                line(start, in.limit());
+                start = in.limit();
+            }
+            if (rejected) {
+                start = in.limit();
+            }
+            in.position(start);
+            in.compact();
+            if (in.position() == in.capacity()) {
+                if (in.capacity() >= MAX_LINE) {
+                    Map<String, Object> error = new LinkedHashMap<>();
+                    error.put("ok", false);
+                    error.put("error", "Request longer than " + MAX_LINE + " bytes");
+                    queue(toLine(error));
+                    closing = true;
+                } else {
+                    ByteBuffer larger = ByteBuffer.allocate(in.capacity() * 2);
+                    in.flip();
+                    in = larger.put(in);
+                }
+            }
+            write();
+        }
+
+        private void line(int start, int end) {
+            while (start < end && Character.isWhitespace(in.get(start))) {
+                start++;
+            }
+            while (end > start && Character.isWhitespace(in.get(end - 1))) {
+                end--;
+            }
+            if (end == start) {
+                return;
+            }
+            ByteBuffer line = in.duplicate();
+            line.limit(end).position(start);
+            queue(handle(line.slice(), this));
+        }
+
+        /**
+         * Answers no further requests and closes the connection once the
+         * responses are sent.
+         */
+        private void reject() {
+            rejected = true;
+            closing = true;
+        }
+
+        private void queue(byte[] bytes) {
+            if (out.capacity() - out.remaining() < bytes.length) {
+                ByteBuffer larger = ByteBuffer.allocate(Math.max(out.capacity() * 2, out.remaining() + bytes.length));
+                out = larger.put(out);
+            } else {
+                out.compact();
+            }
+            out.put(bytes).flip();
+        }
+
+        private void write() throws IOException {
+            if (out.hasRemaining()) {
+                channel.write(out);
+            }
+            if (!out.hasRemaining() && closing) {
+                key.cancel();
+                channel.close();
+                return;
+            }
+            int interest = out.hasRemaining() ? SelectionKey.OP_WRITE : 0;
+            if (!closing && out.remaining() < MAX_PENDING) {
+                // stops reading from clients witch don't read their responses
+                interest |= SelectionKey.OP_READ;
+            }
+            key.interestOps(interest);
+        }
+    }
+}
@@ -0,0 +1,377 @@
+package dev.ludium.wallpaperengine;
+
+import dev.einsjannis.jsonparser.JSONArray;
+import dev.einsjannis.jsonparser.JSONObject;
+import dev.einsjannis.jsonparser.JSONSyntaxError;
+import dev.einsjannis.jsonparser.JSONWriter;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+/**
+ * A size bounded directory of processed pictures.
+ * <p>
+ * Every file is stored under a key made of the {@code SHA-256} of the
+ * source picture, the target size and the format
+ * ({@link #key(Path, int, int, String)}), so a picture is processed once per
+ * size, no matter how often it is shown, where it is stored or what it is
+ * called. The hash of a source is remembered together with its size and
+ * modification time and only computed again when one of them changes.
+ * <p>
+ * When the files take more than the maximum size, the least recently used
+ * ones are deleted. The index ({@code index.json}) keeps the order of use
+ * and the remembered hashes; it is written at most every few seconds and on
+ * {@link #close()}, and read again on startup. Files produced after the
+ * last checkpoint are taken over, all other files in the directory witch
+ * are not in the index are deleted.
+ * <p>
+ * All methods can be used concurrently. If several threads ask for the same
+ * missing key at once, only one of them produces the file and the others
+ * wait for it.
+ */
+public class ImageCache implements Closeable {
+
+    private static final String INDEX = "index.json";
+    private static final Pattern KEY = Pattern.compile("[0-9a-f]{64}-\\d+x\\d+\\.\\w+");
+    private static final long CHECKPOINT_INTERVAL = TimeUnit.SECONDS.toNanos(10);
+
+    private final Path directory;
+    private final long maxSize;
+    private final LinkedHashMap<String, Long> entries = new LinkedHashMap<>(64, 0.75f, true);
+    private final Map<Path, Source> sources = new HashMap<>();
+    private final Map<String, FutureTask<Path>> loading = new ConcurrentHashMap<>();
+    private final Object checkpointLock = new Object();
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+    private long size;
+    private boolean dirty;
+    private long checkpointed = System.nanoTime();
+
+    /**
+     * Processes a picture into a file.
+     */
+    public interface Producer {
+
+        void write(Path target) throws IOException;
+    }
+
+    /**
+     * Opens a cache directory, restoring its index.
+     *
+     * @param directory the cache directory, created if missing
+     * @param maxSize bytes the files may take before the least recently used are deleted
+     */
+    public ImageCache(Path directory, long maxSize) throws IOException {
+        this.directory = directory.toAbsolutePath();
+        this.maxSize = maxSize;
+        Files.createDirectories(this.directory);
+        restore();
+    }
+
+    /**
+     * Returns the key of a processed picture.
+     *
+     * @param source the original picture
+     * @param width target width
+     * @param height target height
+     * @param format file extension of the processed picture, for example {@code "jpg"}
+     */
+    public String key(Path source, int width, int height, String format) throws IOException {
+        return hash(source) + "-" + width + "x" + height + "." + format;
+    }
+
+    /**
+     * Returns the file stored under a key, producing it first if it is
+     * missing.
+     *
+     * @throws IOException if the producer fails
+     */
+    public Path get(String key, Producer producer) throws IOException {
+        Path file = directory.resolve(key);
+        synchronized (this) {
+            if (entries.get(key) != null) {
+                if (Files.isRegularFile(file)) {
+                    hits.incrementAndGet();
+                    dirty = true;
+                    return file;
+                }
+                size -= entries.remove(key);
+            }
+        }
+        FutureTask<Path> task = new FutureTask<>(() -> produce(key, file, producer));
+        FutureTask<Path> running = loading.putIfAbsent(key, task);
+        if (running == null) {
+            misses.incrementAndGet();
+            running = task;
+            try {
+                task.run();
+            } finally {
+                loading.remove(key, task);
+            }
+        }
+        try {
+            return running.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while waiting for " + key, e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
+            }
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new IOException(e.getCause());
+        }
+    }
+
+    private Path produce(String key, Path file, Producer producer) throws IOException {
+        Path temp = directory.resolve(key + "." + Thread.currentThread().getId() + ".tmp");
+        try {
+            producer.write(temp);
+            move(temp, file);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+        long length = Files.size(file);
+        List<Path> evicted = new ArrayList<>();
+        synchronized (this) {
+            Long previous = entries.put(key, length);
+            size += length - (previous == null ? 0 : previous);
+            for (Iterator<Map.Entry<String, Long>> iterator = entries.entrySet().iterator();
+                 size > maxSize && iterator.hasNext(); ) {
+                Map.Entry<String, Long> entry = iterator.next();
+                if (!entry.getKey().equals(key)) {
+                    iterator.remove();
+                    size -= entry.getValue();
+                    evicted.add(directory.resolve(entry.getKey()));
+                }
+            }
+            dirty = true;
+        }
+        for (Path old : evicted) {
+            evictions.incrementAndGet();
+            Files.deleteIfExists(old);
+        }
+        checkpoint(false);
+        return file;
+    }
+
+    /**
+     * Returns the {@code SHA-256} of a file as hex string, remembered
+     * together with its size and modification time.
+     */
+    public String hash(Path source) throws IOException {
+        source = source.toAbsolutePath();
+        long length = Files.size(source);
+        long modified = Files.getLastModifiedTime(source).toMillis();
+        synchronized (this) {
+            Source known = sources.get(source);
+            if (known != null && known.size == length && known.modified == modified) {
+                return known.hash;
+            }
+        }
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+        ByteBuffer buffer = ByteBuffer.allocate(64 * 1024);
+        try (FileChannel channel = FileChannel.open(source, StandardOpenOption.READ)) {
+            while (channel.read(buffer) >= 0) {
+                buffer.flip();
+                digest.update(buffer);
+                buffer.clear();
+            }
+        }
+        StringBuilder hash = new StringBuilder(64);
+        for (byte b : digest.digest()) {
+            hash.append(Character.forDigit(b >> 4 & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+        }
+        synchronized (this) {
+            sources.put(source, new Source(length, modified, hash.toString()));
+            dirty = true;
+        }
+        return hash.toString();
+    }
+
+    /**
+     * Writes the index if it changed and, unless forced, the last write is
+     * some seconds ago.
+     */
+    public void checkpoint(boolean force) throws IOException {
+        JSONObject index;
+        synchronized (this) {
+            if (!dirty || (!force && System.nanoTime() - checkpointed < CHECKPOINT_INTERVAL)) {
+                return;
+            }
+            index = index();
+            dirty = false;
+            checkpointed = System.nanoTime();
+        }
+        synchronized (checkpointLock) {
+            Path temp = directory.resolve(INDEX + ".tmp");
+            try (OutputStream out = Files.newOutputStream(temp); JSONWriter writer = new JSONWriter(out)) {
+                writer.value(index);
+            }
+            move(temp, directory.resolve(INDEX));
+        }
+    }
+
+    private JSONObject index() {
+        Set<String> hashes = new HashSet<>();
+        JSONArray files = new JSONArray();
+        for (Map.Entry<String, Long> entry : entries.entrySet()) {
+            JSONObject file = new JSONObject();
+            file.put("key", entry.getKey());
+            file.put("size", entry.getValue());
+            files.add(file);
+            hashes.add(entry.getKey().substring(0, entry.getKey().indexOf('-')));
+        }
+        JSONObject known = new JSONObject();
+        for (Map.Entry<Path, Source> entry : sources.entrySet()) {
+            if (hashes.contains(entry.getValue().hash)) {
+                JSONObject source = new JSONObject();
+                source.put("size", entry.getValue().size);
+                source.put("modified", entry.getValue().modified);
+                source.put("hash", entry.getValue().hash);
+                known.put(entry.getKey().toString(), source);
+            }
+        }
+        JSONObject index = new JSONObject();
+        index.put("files", files);
+        index.put("sources", known);
+        return index;
+    }
+
+    private void restore() throws IOException {
+        Path indexFile = directory.resolve(INDEX);
+        if (Files.isRegularFile(indexFile)) {
+            try {
+                JSONObject index = JSONObject.fromFile(indexFile);
+                for (Object file : (JSONArray) index.get("files")) {
+                    String key = ((JSONObject) file).getString("key");
+                    Path path = directory.resolve(key);
+                    if (Files.isRegularFile(path) && path.getParent().equals(directory)) {
+                        long length = Files.size(path);
+                        entries.put(key, length);
+                        size += length;
+                    }
+                }
+                for (Map.Entry<String, Object> source : ((JSONObject) index.get("sources")).entrySet()) {
+                    JSONObject known = (JSONObject) source.getValue();
+                    sources.put(directory.getFileSystem().getPath(source.getKey()),
+                            new Source(known.getLong("size"), known.getLong("modified"), known.getString("hash")));
+                }
+            } catch (JSONSyntaxError | RuntimeException e) {
+                System.err.println("Ignoring damaged cache index " + indexFile + ": " + e);
+                entries.clear();
+                sources.clear();
+                size = 0;
+            }
+        }
+        try (Stream<Path> files = Files.list(directory)) {
+            for (Iterator<Path> iterator = files.iterator(); iterator.hasNext(); ) {
+                Path file = iterator.next();
+                String name = file.getFileName().toString();
+                if (name.equals(INDEX) || entries.containsKey(name) || !Files.isRegularFile(file)) {
+                    continue;
+                }
+                if (KEY.matcher(name).matches()) {
+                    // produced after the last checkpoint
+                    long length = Files.size(file);
+                    entries.put(name, length);
+                    size += length;
+                } else {
+                    Files.deleteIfExists(file);
+                }
+            }
+        }
+    }
+
+    private static void move(Path source, Path target) throws IOException {
+        try {
+            Files.move(source, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(source, target, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    public synchronized long getSize() {
+        return size;
+    }
+
+    public long getMaxSize() {
+        return maxSize;
+    }
+
+    public synchronized int getEntries() {
+        return entries.size();
+    }
+
+    public long getHits() {
+        return hits.get();
+    }
+
+    public long getMisses() {
+        return misses.get();
+    }
+
+    public long getEvictions() {
+        return evictions.get();
+    }
+
+    /**
+     * Writes the index.
+     */
+    @Override
+    public void close() throws IOException {
+        checkpoint(true);
+    }
+
+    @Override
+    public String toString() {
+        return "ImageCache{entries=" + getEntries() + ", size=" + getSize() + ", hits=" + getHits()
+                + ", misses=" + getMisses() + ", evictions=" + getEvictions() + "}";
+    }
+
+    private static final class Source {
+
+        private final long size;
+        private final long modified;
+        private final String hash;
+
+        private Source(long size, long modified, String hash) {
+            this.size = size;
+            this.modified = modified;
+            this.hash = hash;
+        }
+    }
+}
@@ -0,0 +1,280 @@
+package dev.ludium.wallpaperengine;
+
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
+import java.awt.Dimension;
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.file.Path;
+import java.util.Iterator;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Decodes pictures close to the size they are shown in, within a memory
+ * budget shared by all decodes.
+ * <p>
+ * The size of a picture is read from its header first. If only a smaller
+ * size is needed the {@link ImageReader} decodes every {@code n}th pixel of
+ * every {@code n}th row only, and with cropping only the part of the
+ * picture witch is visible when it covers the target size, so a huge
+ * panorama never exists in full size in memory. Before decoding, the size
+ * of the decoded picture is reserved from a {@link Semaphore} counting
+ * kilobytes; the reservation is held until the {@link Decoded} picture is
+ * closed, so all pictures being decoded and processed together never take
+ * more than the budget. A picture larger than the whole budget waits until
+ * it is the only one.
+ * <p>
+ * All components decode through the {@link #getShared() shared} decoder,
+ * so the budget applies to the whole engine.
+ */
+public class ImageDecoder {
+
+    /**
+     * The budget of the shared decoder if none is configured, in bytes.
+     */
+    public static final long DEFAULT_BUDGET = 256L << 20;
+
+    private static final int BYTES_PER_PIXEL = 4;
+
+    private static volatile ImageDecoder shared = new ImageDecoder(DEFAULT_BUDGET);
+
+    private final int budget;
+    private final Semaphore permits;
+    private final LatencyHistogram waitLatency = new LatencyHistogram();
+    private final LatencyHistogram decodeLatency = new LatencyHistogram();
+    private final AtomicLong decodes = new AtomicLong();
+    private final AtomicLong subsampled = new AtomicLong();
+    private final AtomicLong peak = new AtomicLong();
+
+    /**
+     * @param budget bytes all decoded pictures may take together
+     */
+    public ImageDecoder(long budget) {
+        if (budget < 1024) {
+            throw new IllegalArgumentException("The decode budget has to be at least 1 KB: " + budget);
+        }
+        this.budget = (int) Math.min(Integer.MAX_VALUE, budget >> 10);
+        this.permits = new Semaphore(this.budget, true);
+    }
+
+    /**
+     * Returns the decoder used by all components.
+     */
+    public static ImageDecoder getShared() {
+        return shared;
+    }
+
+    /**
+     * Replaces the shared decoder, before the components start decoding.
+     */
+    public static void setShared(ImageDecoder decoder) {
+        shared = decoder;
+    }
+
+    /**
+     * Reads the size of a picture from its header without decoding it.
+     */
+    public static Dimension dimensions(Path source) throws IOException {
+        try (ImageInputStream in = ImageIO.createImageInputStream(source.toFile())) {
+            ImageReader reader = reader(in, source);
+            try {
+                reader.setInput(in, true, true);
+                return new Dimension(reader.getWidth(0), reader.getHeight(0));
+            } finally {
+                reader.dispose();
+            }
+        }
+    }
+
+    /**
+     * Decodes a whole picture in full size.
+     */
+    public Decoded decode(Path source) throws IOException {
+        return decode(source, 0, 0, false);
+    }
+
+    /**
+     * Decodes a picture in the smallest size witch still covers the target
+     * size with a whole number of source pixels per decoded pixel, so it
+     * has to be scaled down by less than half at most.
+     *
+     * @param width target width, {@code 0} for the full size
+     * @param height target height, {@code 0} for the full size
+     * @param crop whether only the centered part with the aspect ratio of the target is decoded
+     * @return the picture, witch has to be closed once it isn't used anymore
+     * @throws IOException if the picture can't be read or decoded
+     * @throws InterruptedIOException if the thread is interrupted while waiting for memory
+     */
+    public Decoded decode(Path source, int width, int height, boolean crop) throws IOException {
+        try (ImageInputStream in = ImageIO.createImageInputStream(source.toFile())) {
+            ImageReader reader = reader(in, source);
+            try {
+                reader.setInput(in, true, true);
+                int sourceWidth = reader.getWidth(0);
+                int sourceHeight = reader.getHeight(0);
+                Rectangle region = new Rectangle(sourceWidth, sourceHeight);
+                int step = 1;
+                if (width > 0 && height > 0) {
+                    if (crop) {
+                        region = cover(sourceWidth, sourceHeight, width, height);
+                    }
+                    step = Math.max(1, Math.min(region.width / width, region.height / height));
+                }
+                long pixels = (long) ((region.width + step - 1) / step) * ((region.height + step - 1) / step);
+                int reserved = (int) Math.min(budget, (pixels * BYTES_PER_PIXEL + 1023) >> 10);
+                acquire(reserved);
+                boolean done = false;
+                try {
+                    long start = System.nanoTime();
+                    ImageReadParam param = reader.getDefaultReadParam();
+                    param.setSourceRegion(region);
+                    param.setSourceSubsampling(step, step, 0, 0);
+                    BufferedImage image = reader.read(0, param);
+                    decodeLatency.record(System.nanoTime() - start);
+                    decodes.incrementAndGet();
+                    if (step > 1 || !region.getSize().equals(new Dimension(sourceWidth, sourceHeight))) {
+                        subsampled.incrementAndGet();
+                    }
+                    done = true;
+                    return new Decoded(image, sourceWidth, sourceHeight, reserved);
+                } finally {
+                    if (!done) {
+                        permits.release(reserved);
+                    }
+                }
+            } finally {
+                reader.dispose();
+            }
+        }
+    }
+
+    /**
+     * Returns the centered part of a picture with the aspect ratio of the
+     * target, the part witch is visible when the picture covers the target.
+     */
+    static Rectangle cover(int sourceWidth, int sourceHeight, int width, int height) {
+        if ((long) sourceWidth * height > (long) sourceHeight * width) {
+            int visible = (int) Math.max(1, Math.min(sourceWidth, Math.round((double) sourceHeight * width / height)));
+            return new Rectangle((sourceWidth - visible) / 2, 0, visible, sourceHeight);
+        }
+        int visible = (int) Math.max(1, Math.min(sourceHeight, Math.round((double) sourceWidth * height / width)));
+        return new Rectangle(0, (sourceHeight - visible) / 2, sourceWidth, visible);
+    }
+
+    private static ImageReader reader(ImageInputStream in, Path source) throws IOException {
+        Iterator<ImageReader> readers = in == null ? null : ImageIO.getImageReaders(in);
+        if (readers == null || !readers.hasNext()) {
+            throw new IOException("Unsupported image format: " + source);
+        }
+        return readers.next();
+    }
+
+    private void acquire(int reserved) throws InterruptedIOException {
+        long start = System.nanoTime();
+        try {
+            permits.acquire(reserved);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for memory to decode");
+        }
+        waitLatency.record(System.nanoTime() - start);
+        peak.accumulateAndGet(getUsed(), Math::max);
+    }
+
+    /**
+     * Returns the budget in bytes.
+     */
+    public long getBudget() {
+        return (long) budget << 10;
+    }
+
+    /**
+     * Returns the bytes reserved by pictures witch are not closed yet.
+     */
+    public long getUsed() {
+        return (long) (budget - permits.availablePermits()) << 10;
+    }
+
+    /**
+     * Returns the most bytes reserved at once.
+     */
+    public long getPeak() {
+        return peak.get();
+    }
+
+    /**
+     * Returns how long decodes waited for memory.
+     */
+    public LatencyHistogram getWaitLatency() {
+        return waitLatency;
+    }
+
+    public LatencyHistogram getDecodeLatency() {
+        return decodeLatency;
+    }
+
+    public long getDecodes() {
+        return decodes.get();
+    }
+
+    /**
+     * Returns how many pictures were decoded smaller than their full size.
+     */
+    public long getSubsampled() {
+        return subsampled.get();
+    }
+
+    /**
+     * A decoded picture holding its share of the budget until it is closed.
+     */
+    public final class Decoded implements Closeable {
+
+        private final BufferedImage image;
+        private final int sourceWidth;
+        private final int sourceHeight;
+        private int reserved;
+
+        private Decoded(BufferedImage image, int sourceWidth, int sourceHeight, int reserved) {
+            this.image = image;
+            this.sourceWidth = sourceWidth;
+            this.sourceHeight = sourceHeight;
+            this.reserved = reserved;
+        }
+
+        public BufferedImage getImage() {
+            return image;
+        }
+
+        /**
+         * Returns the width of the picture in the file.
+         */
+        public int getSourceWidth() {
+            return sourceWidth;
+        }
+
+        /**
+         * Returns the height of the picture in the file.
+         */
+        public int getSourceHeight() {
+            return sourceHeight;
+        }
+
+        /**
+         * Gives the memory of the picture back to the budget, the picture
+         * must not be used anymore.
+         */
+        @Override
+        public synchronized void close() {
+            if (reserved > 0) {
+                permits.release(reserved);
+                reserved = 0;
+            }
+        }
+    }
+}
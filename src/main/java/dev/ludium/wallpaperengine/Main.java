@@ -2,29 +2,51 @@ package dev.ludium.wallpaperengine;
 
 import dev.einsjannis.jsonparser.JSONArray;
 import dev.einsjannis.jsonparser.JSONObject;
+import dev.einsjannis.jsonparser.JSONSnapshot;
 import dev.einsjannis.jsonparser.JSONSyntaxError;
+import dev.einsjannis.jsonparser.JSONWriter;
+import dev.ludium.wallpaperengine.dedup.DuplicateFinder;
+import dev.ludium.wallpaperengine.playlist.Playlist;
+import dev.ludium.wallpaperengine.playlist.Playlists;
 
+import javax.management.JMException;
+import java.awt.Dimension;
+import java.awt.GraphicsEnvironment;
+import java.awt.Rectangle;
+import java.awt.Toolkit;
 import java.io.*;
+import java.lang.management.ManagementFactory;
 import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
 
 public class Main {
 
     public static void main(String[] args) throws IOException, JSONSyntaxError {
+        if (args.length > 0 && args[0].equals("control")) {
+            ControlClient.main(Arrays.copyOfRange(args, 1, args.length));
+            return;
+        }
         File workingDirectory = new File(".");
         File configFile = new File("config.json");
         if (!configFile.exists()) {
-            PrintWriter configWriter = new PrintWriter(configFile);
-            configWriter.println("" +
-                    "{\n" +
-                    "    \"delay\":10000,\n" +
-                    "    \"pictures\": [\n" +
-                    "        \"sample-background-0.jpg\",\n" +
-                    "        \"sample-background-1.jpg\",\n" +
-                    "        \"sample-background-2.jpg\"\n" +
-                    "    ]\n" +
-                    "}");
-            configWriter.close();
+            JSONObject defaultConfig = new JSONObject();
+            JSONArray defaultPictures = new JSONArray();
+            for (int i = 0; i < 3; i++) {
+                defaultPictures.add("sample-background-" + i + ".jpg");
+            }
+            defaultConfig.put("delay", 10000L);
+            defaultConfig.put("pictures", defaultPictures);
+            try (JSONWriter configWriter = new JSONWriter(new FileOutputStream(configFile)).setIndent("    ")) {
+                configWriter.value(defaultConfig);
+            }
         }
         for (int i = 0; i < 3; i++) {
             File sampleBackground = new File("sample-background-" + i + ".jpg");
@@ -32,28 +54,243 @@ public class Main {
                 Files.copy(Main.class.getResourceAsStream("/sample-background-" + i + ".jpg"), sampleBackground.toPath(), StandardCopyOption.REPLACE_EXISTING);
             }
         }
-        FileReader configreader = new FileReader(configFile);
-        BufferedReader bufferedconfigreader = new BufferedReader(configreader);
-        String configstring = "";
-        while(true) {
-            String s = bufferedconfigreader.readLine();
-            if (s==null) {
-                break;
+        Metrics metrics = new Metrics();
+        long loadStart = System.nanoTime();
+        JSONObject configjson = JSONSnapshot.load(configFile.toPath());
+        metrics.histogram("config.load").record(System.nanoTime() - loadStart);
+        Path playlistCache = Paths.get("wallpaperengine-cache", "playlists");
+        Playlist playlist = Playlists.fromConfig(configjson, playlistCache);
+        String backendName = System.getProperty("wallpaperengine.backend", (String) configjson.get("backend"));
+        WallpaperApplier applier = new WallpaperApplier(WallpaperBackend.load(backendName));
+        if (configjson.get("transition") instanceof JSONObject) {
+            JSONObject transitionConfig = (JSONObject) configjson.get("transition");
+            applier.setTransition((int) transitionConfig.getLong("frames", 0), (int) transitionConfig.getLong("fps", 30),
+                    Paths.get("wallpaperengine-cache", "frames"));
+        }
+        JSONObject prefetchConfig = configjson.get("prefetch") instanceof JSONObject
+                ? (JSONObject) configjson.get("prefetch") : new JSONObject();
+        ImageDecoder.setShared(new ImageDecoder(prefetchConfig.getLong("decodeMemory", ImageDecoder.DEFAULT_BUDGET >> 20) << 20));
+        ImageCache cache = new ImageCache(Paths.get("wallpaperengine-cache"), prefetchConfig.getLong("cacheSize", 512) << 20);
+        Compositor compositor = null;
+        boolean span = false;
+        if (configjson.get("displays") instanceof JSONObject) {
+            JSONObject displayConfig = (JSONObject) configjson.get("displays");
+            compositor = new Compositor(Compositor.layout(displayConfig), cache);
+            span = !Boolean.FALSE.equals(displayConfig.get("span"));
+        }
+        Prefetcher prefetcher = prefetcher(prefetchConfig, cache, compositor, span);
+        // a picture shown on several displays of different shapes must not be cropped to one of them
+        prefetcher.setCrop(compositor == null || span || compositor.getDisplays().size() == 1);
+        if (compositor != null) {
+            prefetcher.setCompositor(compositor, span);
+        }
+        LongAdder switches = metrics.counter("switches");
+        WallpaperScheduler scheduler = new WallpaperScheduler(playlist, configjson.getLong("delay"), picture -> {
+            if (prefetcher.take(picture, applier::submit)) {
+                switches.increment();
+                System.out.println(new File(picture.getPath()).getAbsolutePath());
             }
-            configstring += s;
+        });
+        scheduler.setPrefetcher(prefetcher);
+        ConfigReloader reloader = new ConfigReloader(configFile.toPath(), configjson, playlist, scheduler, playlistCache);
+        register(metrics, scheduler, prefetcher, cache, applier, reloader);
+        DuplicateFinder duplicates = null;
+        if (configjson.get("duplicates") instanceof JSONObject || Boolean.TRUE.equals(configjson.get("duplicates"))) {
+            JSONObject duplicatesConfig = configjson.get("duplicates") instanceof JSONObject
+                    ? (JSONObject) configjson.get("duplicates") : new JSONObject();
+            duplicates = new DuplicateFinder(Paths.get("wallpaperengine-cache", "duplicates", "hashes.idx"),
+                    (int) duplicatesConfig.getLong("threshold", 8),
+                    (int) duplicatesConfig.getLong("threads", Math.max(1, Runtime.getRuntime().availableProcessors() / 2)));
+            DuplicateFinder finder = duplicates;
+            scheduler.setFilter(picture -> !finder.isDuplicate(picture));
+            metrics.histogram("duplicates.hash", duplicates.getHashLatency())
+                    .histogram("duplicates.search", duplicates.getRunLatency())
+                    .counter("duplicates.hashed", duplicates::getHashed)
+                    .counter("duplicates.failed", duplicates::getFailed)
+                    .counter("schedule.filtered", scheduler::getFiltered)
+                    .gauge("duplicates", duplicates::getDuplicates);
+            duplicates.start(scheduler::getPlaylist, duplicatesConfig.getLong("interval", 600000), TimeUnit.MILLISECONDS);
+        }
+        DuplicateFinder finalDuplicates = duplicates;
+        try {
+            metrics.registerMBeans(ManagementFactory.getPlatformMBeanServer());
+        } catch (JMException e) {
+            System.err.println("Could not register the metrics MBeans: " + e);
         }
-        JSONObject configjson = JSONObject.fromString(configstring);
-        JSONArray picturesarray = (JSONArray) configjson.get("pictures");
-        while (true) {
-            picturesarray.forEach(picture -> {
-                User32.INSTANCE.SystemParametersInfo(0x0014, 0, new File((String) picture).getAbsolutePath(), 1);
-                System.out.println(new File((String) picture).getAbsolutePath());
+        if (!Boolean.FALSE.equals(configjson.get("metrics"))) {
+            JSONObject metricsConfig = configjson.get("metrics") instanceof JSONObject
+                    ? (JSONObject) configjson.get("metrics") : new JSONObject();
+            String metricsFile = metricsConfig.get("file") instanceof String ? metricsConfig.getString("file") : "wallpaperengine-metrics.json";
+            metrics.startDump(Paths.get(metricsFile), metricsConfig.getLong("interval", 60000), TimeUnit.MILLISECONDS);
+        }
+        ControlServer control = null;
+        Path tokenFile = configFile.toPath().toAbsolutePath().resolveSibling(ControlServer.TOKEN_FILE);
+        if (!Boolean.FALSE.equals(configjson.get("control"))) {
+            JSONObject controlConfig = configjson.get("control") instanceof JSONObject
+                    ? (JSONObject) configjson.get("control") : new JSONObject();
+            control = control((int) controlConfig.getLong("port", ControlServer.DEFAULT_PORT), tokenFile,
+                    scheduler, applier, reloader, metrics);
+        }
+        ControlServer finalControl = control;
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            scheduler.shutdown();
+            if (finalControl != null) {
                 try {
-                    Thread.sleep(Math.round((Double) configjson.get("delay")));
-                } catch (InterruptedException e) {
+                    finalControl.close();
+                    Files.deleteIfExists(tokenFile);
+                } catch (IOException e) {
                     e.printStackTrace();
                 }
-            });
+            }
+            try {
+                reloader.close();
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+            reloader.getPlaylist().close();
+            System.out.println("Config reloads: " + reloader.getReloadLatency() + ", failures=" + reloader.getFailures());
+            prefetcher.shutdown();
+            applier.shutdown();
+            System.out.println("Switch drift: " + scheduler.getDrift() + ", missed=" + scheduler.getMissed()
+                    + ", skipped=" + scheduler.getSkipped());
+            System.out.println("Prefetch: " + prefetcher.getPrepareLatency() + ", broken=" + prefetcher.getBroken() + ", " + cache);
+            try {
+                cache.close();
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+            System.out.println("Apply latency (" + applier.getBackend().getName() + "): " + applier.getApplyLatency()
+                    + ", queued: " + applier.getQueueLatency() + ", coalesced=" + applier.getCoalesced()
+                    + ", failed=" + applier.getFailed());
+            if (applier.getTransitions() > 0) {
+                System.out.println("Transitions: " + applier.getTransitions() + ", frame latency: " + applier.getFrameLatency());
+            }
+            if (finalDuplicates != null) {
+                try {
+                    finalDuplicates.close();
+                } catch (IOException e) {
+                    e.printStackTrace();
+                }
+            }
+            try {
+                metrics.close();
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        }));
+        scheduler.start();
+        reloader.start();
+    }
+
+    private static ControlServer control(int port, Path tokenFile, WallpaperScheduler scheduler,
+                                         WallpaperApplier applier, ConfigReloader reloader, Metrics metrics) {
+        String token;
+        try {
+            token = ControlServer.writeToken(tokenFile);
+        } catch (IOException e) {
+            System.err.println("Could not write the control token to " + tokenFile + ": " + e);
+            return null;
+        }
+        ControlServer control = new ControlServer(port, token)
+                .command("next", request -> {
+                    scheduler.skip();
+                    return null;
+                })
+                .command("prev", request -> {
+                    scheduler.back();
+                    return null;
+                })
+                .command("pause", request -> {
+                    scheduler.pause();
+                    return null;
+                })
+                .command("resume", request -> {
+                    scheduler.resume();
+                    return null;
+                })
+                .command("reload", request -> {
+                    reloader.reload();
+                    return null;
+                })
+                .command("status", request -> {
+                    Map<String, Object> status = new LinkedHashMap<>();
+                    Picture current = scheduler.getCurrent();
+                    status.put("current", current == null ? null : new File(current.getPath()).getAbsolutePath());
+                    status.put("applied", applier.getApplied() == null ? null : applier.getApplied().toString());
+                    status.put("paused", scheduler.isPaused());
+                    status.put("pictures", reloader.getPlaylist().size());
+                    status.put("delay", reloader.getConfig().get("delay"));
+                    status.put("backend", applier.getBackend().getName());
+                    status.put("lastReloadError", reloader.getLastError());
+                    return status;
+                })
+                .command("metrics", request -> metrics.snapshot());
+        try {
+            control.start();
+        } catch (IOException e) {
+            System.err.println("Could not start the control server on port " + port + ": " + e);
+            return null;
+        }
+        metrics.histogram("control.latency", control.getLatency())
+                .counter("control.requests", control::getRequests)
+                .counter("control.errors", control::getErrors)
+                .counter("control.connections", control::getConnections);
+        return control;
+    }
+
+    private static void register(Metrics metrics, WallpaperScheduler scheduler, Prefetcher prefetcher, ImageCache cache,
+                                 WallpaperApplier applier, ConfigReloader reloader) {
+        metrics.histogram("config.reload", reloader.getReloadLatency())
+                .histogram("config.reload.load", reloader.getLoadLatency())
+                .counter("config.reloads", reloader::getReloads)
+                .counter("config.reload.failures", reloader::getFailures)
+                .histogram("schedule.drift", scheduler.getDrift())
+                .counter("schedule.missed", scheduler::getMissed)
+                .counter("schedule.skipped", scheduler::getSkipped)
+                .histogram("prefetch.prepare", prefetcher.getPrepareLatency())
+                .histogram("prefetch.decode", prefetcher.getDecodeLatency())
+                .counter("prefetch.broken", prefetcher::getBroken)
+                .counter("prefetch.late", prefetcher::getLate)
+                .histogram("decode.latency", ImageDecoder.getShared().getDecodeLatency())
+                .histogram("decode.wait", ImageDecoder.getShared().getWaitLatency())
+                .counter("decode.count", ImageDecoder.getShared()::getDecodes)
+                .counter("decode.subsampled", ImageDecoder.getShared()::getSubsampled)
+                .gauge("decode.memory.used", ImageDecoder.getShared()::getUsed)
+                .gauge("decode.memory.peak", ImageDecoder.getShared()::getPeak)
+                .counter("cache.hits", cache::getHits)
+                .counter("cache.misses", cache::getMisses)
+                .counter("cache.evictions", cache::getEvictions)
+                .gauge("cache.size", cache::getSize)
+                .gauge("cache.entries", cache::getEntries)
+                .histogram("apply.latency", applier.getApplyLatency())
+                .histogram("apply.queue", applier.getQueueLatency())
+                .histogram("apply.frame", applier.getFrameLatency())
+                .counter("apply.coalesced", applier::getCoalesced)
+                .counter("apply.failed", applier::getFailed)
+                .counter("apply.transitions", applier::getTransitions)
+                .gauge("playlist.size", () -> reloader.getPlaylist().size())
+                .gauge("paused", () -> scheduler.isPaused() ? 1 : 0)
+                .registerMemory();
+    }
+
+    private static Prefetcher prefetcher(JSONObject config, ImageCache cache, Compositor compositor, boolean span) {
+        int width = 0;
+        int height = 0;
+        if (config.get("width") instanceof Number && config.get("height") instanceof Number) {
+            width = (int) config.getLong("width");
+            height = (int) config.getLong("height");
+        } else if (compositor != null) {
+            for (Rectangle display : span ? Collections.singletonList(compositor.getBounds()) : compositor.getDisplays()) {
+                width = Math.max(width, display.width);
+                height = Math.max(height, display.height);
+            }
+        } else if (!GraphicsEnvironment.isHeadless()) {
+            Dimension screen = Toolkit.getDefaultToolkit().getScreenSize();
+            width = screen.width;
+            height = screen.height;
         }
+        int ahead = (int) config.getLong("ahead", 2);
+        int threads = (int) config.getLong("threads", Math.max(1, Runtime.getRuntime().availableProcessors() / 2));
+        return new Prefetcher(cache, width, height, ahead, threads);
     }
 }
@@ -0,0 +1,342 @@
+package dev.ludium.wallpaperengine;
+
+import dev.einsjannis.jsonparser.JSONWriter;
+
+import javax.management.Attribute;
+import javax.management.AttributeList;
+import javax.management.AttributeNotFoundException;
+import javax.management.DynamicMBean;
+import javax.management.JMException;
+import javax.management.MBeanAttributeInfo;
+import javax.management.MBeanInfo;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import javax.management.ReflectionException;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+
+/**
+ * Named counters, gauges and {@link LatencyHistogram}s of the engine.
+ * <p>
+ * The components keep their own lock-free counters and histograms and
+ * only register them here under a name, so recording a value costs a few
+ * atomic operations and nothing else; counters and gauges are only read
+ * when they are published. {@link #registerMBeans(MBeanServer)} publishes
+ * the counters and gauges as attributes of the MBean
+ * {@code dev.ludium.wallpaperengine:type=Metrics} and every histogram as
+ * MBean {@code dev.ludium.wallpaperengine:type=Histogram,name=<name>}.
+ * {@link #startDump(Path, long, TimeUnit)} writes all metrics periodically
+ * to a {@code JSON} file. Durations are in nanoseconds.
+ */
+public class Metrics implements Closeable {
+
+    private static final String DOMAIN = "dev.ludium.wallpaperengine";
+
+    private final Map<String, LongSupplier> counters = new ConcurrentHashMap<>();
+    private final Map<String, LongAdder> adders = new ConcurrentHashMap<>();
+    private final Map<String, LongSupplier> gauges = new ConcurrentHashMap<>();
+    private final Map<String, LatencyHistogram> histograms = new ConcurrentHashMap<>();
+    private final List<ObjectName> registered = new ArrayList<>();
+    private MBeanServer server;
+    private ScheduledThreadPoolExecutor dumper;
+    private Path dumpFile;
+
+    /**
+     * Returns the counter with the given name, created on first use.
+     */
+    public LongAdder counter(String name) {
+        return adders.computeIfAbsent(name, key -> {
+            LongAdder adder = new LongAdder();
+            counters.put(key, adder::sum);
+            return adder;
+        });
+    }
+
+    /**
+     * Registers a count kept by a component, for example
+     * {@code applier::getFailed}.
+     */
+    public Metrics counter(String name, LongSupplier value) {
+        counters.put(name, value);
+        return this;
+    }
+
+    /**
+     * Registers a value witch is read whenever the metrics are published.
+     */
+    public Metrics gauge(String name, LongSupplier value) {
+        gauges.put(name, value);
+        return this;
+    }
+
+    /**
+     * Returns the histogram with the given name, created on first use.
+     */
+    public LatencyHistogram histogram(String name) {
+        LatencyHistogram histogram = histograms.get(name);
+        if (histogram == null) {
+            LatencyHistogram created = new LatencyHistogram();
+            histogram = histograms.putIfAbsent(name, created);
+            if (histogram == null) {
+                histogram = created;
+                registerHistogram(name, histogram);
+            }
+        }
+        return histogram;
+    }
+
+    /**
+     * Registers a histogram kept by a component.
+     */
+    public Metrics histogram(String name, LatencyHistogram histogram) {
+        histograms.put(name, histogram);
+        registerHistogram(name, histogram);
+        return this;
+    }
+
+    /**
+     * Adds gauges for the heap and non heap memory of the JVM.
+     */
+    public Metrics registerMemory() {
+        MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+        gauge("memory.heap.used", () -> memory.getHeapMemoryUsage().getUsed());
+        gauge("memory.heap.committed", () -> memory.getHeapMemoryUsage().getCommitted());
+        gauge("memory.heap.max", () -> memory.getHeapMemoryUsage().getMax());
+        gauge("memory.nonheap.used", () -> memory.getNonHeapMemoryUsage().getUsed());
+        return this;
+    }
+
+    /**
+     * Publishes the metrics as MBeans, histograms registered later are
+     * published as well.
+     *
+     * @throws JMException if the MBeans could not be registered
+     */
+    public synchronized void registerMBeans(MBeanServer server) throws JMException {
+        this.server = server;
+        register(new ObjectName(DOMAIN + ":type=Metrics"), new MetricsBean("Counters and gauges", this::values));
+        for (Map.Entry<String, LatencyHistogram> histogram : histograms.entrySet()) {
+            registerHistogram(histogram.getKey(), histogram.getValue());
+        }
+    }
+
+    private synchronized void registerHistogram(String name, LatencyHistogram histogram) {
+        if (server == null) {
+            return;
+        }
+        try {
+            register(new ObjectName(DOMAIN + ":type=Histogram,name=" + ObjectName.quote(name)),
+                    new MetricsBean("Latency in nanoseconds", () -> values(histogram)));
+        } catch (JMException e) {
+            System.err.println("Could not register the histogram " + name + ": " + e);
+        }
+    }
+
+    private void register(ObjectName name, MetricsBean bean) throws JMException {
+        if (server.isRegistered(name)) {
+            server.unregisterMBean(name);
+        }
+        server.registerMBean(bean, name);
+        if (!registered.contains(name)) {
+            registered.add(name);
+        }
+    }
+
+    /**
+     * Writes the metrics to a file now and then periodically, until
+     * {@link #close()}.
+     */
+    public synchronized void startDump(Path file, long period, TimeUnit unit) {
+        if (dumper != null) {
+            throw new IllegalStateException("Already dumping to " + dumpFile);
+        }
+        dumpFile = file.toAbsolutePath();
+        dumper = new ScheduledThreadPoolExecutor(1, runnable -> {
+            Thread thread = new Thread(runnable, "metrics-dump");
+            thread.setDaemon(true);
+            thread.setPriority(Thread.MIN_PRIORITY);
+            return thread;
+        });
+        dumper.scheduleAtFixedRate(() -> {
+            try {
+                dump(dumpFile);
+            } catch (IOException | RuntimeException e) {
+                System.err.println("Could not write the metrics to " + dumpFile + ": " + e);
+            }
+        }, 0, period, unit);
+    }
+
+    /**
+     * Writes all metrics as {@code JSON} object with the members
+     * {@code "time"}, {@code "counters"}, {@code "gauges"} and
+     * {@code "histograms"}, replacing the file atomically.
+     */
+    public void dump(Path file) throws IOException {
+        Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+        try (OutputStream out = Files.newOutputStream(temp); JSONWriter writer = new JSONWriter(out).setIndent("  ")) {
+            write(writer);
+        }
+        try {
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    /**
+     * Writes all metrics as one {@code JSON} object.
+     */
+    public void write(JSONWriter writer) throws IOException {
+        writer.value(snapshot());
+    }
+
+    /**
+     * Returns the current values of all metrics in the structure of
+     * {@link #dump(Path)}.
+     */
+    public Map<String, Object> snapshot() {
+        Map<String, Object> counters = new TreeMap<>();
+        this.counters.forEach((name, counter) -> counters.put(name, counter.getAsLong()));
+        Map<String, Object> gauges = new TreeMap<>();
+        this.gauges.forEach((name, gauge) -> gauges.put(name, gauge.getAsLong()));
+        Map<String, Object> histograms = new TreeMap<>();
+        this.histograms.forEach((name, histogram) -> histograms.put(name, values(histogram)));
+        Map<String, Object> snapshot = new LinkedHashMap<>();
+        snapshot.put("time", System.currentTimeMillis());
+        snapshot.put("counters", counters);
+        snapshot.put("gauges", gauges);
+        snapshot.put("histograms", histograms);
+        return snapshot;
+    }
+
+    private Map<String, Object> values() {
+        Map<String, Object> values = new TreeMap<>();
+        counters.forEach((name, counter) -> values.put(name, counter.getAsLong()));
+        gauges.forEach((name, gauge) -> values.put(name, gauge.getAsLong()));
+        return values;
+    }
+
+    private static Map<String, Object> values(LatencyHistogram histogram) {
+        Map<String, Object> values = new LinkedHashMap<>();
+        values.put("count", histogram.getCount());
+        values.put("min", histogram.getMin());
+        values.put("mean", histogram.getMean());
+        values.put("p50", histogram.getPercentile(0.5));
+        values.put("p90", histogram.getPercentile(0.9));
+        values.put("p99", histogram.getPercentile(0.99));
+        values.put("p999", histogram.getPercentile(0.999));
+        values.put("max", histogram.getMax());
+        return values;
+    }
+
+    /**
+     * Stops the periodic dump after writing the file a last time and
+     * unregisters the MBeans.
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        if (dumper != null) {
+            dumper.shutdownNow();
+            try {
+                dumper.awaitTermination(1, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            dumper = null;
+            dump(dumpFile);
+        }
+        if (server != null) {
+            for (ObjectName name : registered) {
+                try {
+                    if (server.isRegistered(name)) {
+                        server.unregisterMBean(name);
+                    }
+                } catch (JMException e) {
+                    // already gone
+                }
+            }
+            registered.clear();
+            server = null;
+        }
+    }
+
+    /**
+     * Read only MBean whose attributes are read from a map on every access,
+     * so metrics registered later show up as well.
+     */
+    private static final class MetricsBean implements DynamicMBean {
+
+        private final String description;
+        private final Supplier<Map<String, Object>> values;
+
+        private MetricsBean(String description, Supplier<Map<String, Object>> values) {
+            this.description = description;
+            this.values = values;
+        }
+
+        @Override
+        public Object getAttribute(String attribute) throws AttributeNotFoundException {
+            Object value = values.get().get(attribute);
+            if (value == null) {
+                throw new AttributeNotFoundException(attribute);
+            }
+            return value;
+        }
+
+        @Override
+        public void setAttribute(Attribute attribute) throws AttributeNotFoundException {
+            throw new AttributeNotFoundException("Metrics are read only: " + attribute.getName());
+        }
+
+        @Override
+        public AttributeList getAttributes(String[] attributes) {
+            Map<String, Object> current = values.get();
+            AttributeList list = new AttributeList();
+            for (String attribute : attributes) {
+                if (current.containsKey(attribute)) {
+                    list.add(new Attribute(attribute, current.get(attribute)));
+                }
+            }
+            return list;
+        }
+
+        @Override
+        public AttributeList setAttributes(AttributeList attributes) {
+            return new AttributeList();
+        }
+
+        @Override
+        public Object invoke(String actionName, Object[] params, String[] signature) throws ReflectionException {
+            throw new ReflectionException(new NoSuchMethodException(actionName), "Metrics have no operations: " + actionName);
+        }
+
+        @Override
+        public MBeanInfo getMBeanInfo() {
+            List<MBeanAttributeInfo> attributes = new ArrayList<>();
+            for (Map.Entry<String, Object> value : values.get().entrySet()) {
+                attributes.add(new MBeanAttributeInfo(value.getKey(), value.getValue().getClass().getName(),
+                        value.getKey(), true, false, false));
+            }
+            return new MBeanInfo(getClass().getName(), description, attributes.toArray(new MBeanAttributeInfo[0]),
+                    null, null, null);
+        }
+    }
+}
@@ -0,0 +1,80 @@
+package dev.ludium.wallpaperengine;
+
+import dev.einsjannis.jsonparser.JSONObject;
+
+import java.util.Objects;
+
+/**
+ * An entry of the playlist: the path of a picture and optionally its own
+ * delay, witch overrides the {@code "delay"} of the config.
+ * <p>
+ * In the config a picture is either a path ({@code "beach.jpg"}) or an
+ * object ({@code {"path": "beach.jpg", "delay": 60000}}).
+ */
+public class Picture {
+
+    private final String path;
+    private final long delay;
+
+    public Picture(String path) {
+        this(path, 0);
+    }
+
+    /**
+     * @param delay milliseconds the picture is shown, {@code 0} for the default delay
+     */
+    public Picture(String path, long delay) {
+        this.path = Objects.requireNonNull(path, "path");
+        this.delay = delay;
+    }
+
+    /**
+     * Reads a picture from a {@code "pictures"} entry of the config.
+     *
+     * @throws IllegalArgumentException if the entry is neither a path nor an object with a path
+     */
+    public static Picture fromJSON(Object entry) {
+        if (entry instanceof String) {
+            return new Picture((String) entry);
+        }
+        if (entry instanceof JSONObject && ((JSONObject) entry).get("path") instanceof String) {
+            JSONObject picture = (JSONObject) entry;
+            return new Picture((String) picture.get("path"), picture.get("delay") instanceof Number ? picture.getLong("delay") : 0);
+        }
+        throw new IllegalArgumentException("Invalid picture: " + entry);
+    }
+
+    public String getPath() {
+        return path;
+    }
+
+    public long getDelay() {
+        return delay;
+    }
+
+    public long getDelay(long defaultDelay) {
+        return delay > 0 ? delay : defaultDelay;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof Picture)) {
+            return false;
+        }
+        Picture picture = (Picture) o;
+        return delay == picture.delay && path.equals(picture.path);
+    }
+
+    @Override
+    public int hashCode() {
+        return path.hashCode() * 31 + Long.hashCode(delay);
+    }
+
+    @Override
+    public String toString() {
+        return delay > 0 ? path + " (" + delay + "ms)" : path;
+    }
+}
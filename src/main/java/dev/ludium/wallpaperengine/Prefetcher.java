@@ -0,0 +1,412 @@
+package dev.ludium.wallpaperengine;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageOutputStream;
+import java.awt.Dimension;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * Prepares the next pictures of the playlist before they are due.
+ * <p>
+ * The {@link WallpaperScheduler} calls {@link #prefetch(Picture, List)} with the
+ * next pictures after every switch. Every picture witch is not prepared yet
+ * is checked and its size is read from the image header. If it is larger
+ * than the target size it is decoded in about the target size by the
+ * {@link ImageDecoder}, scaled down to cover the target size and written as
+ * {@code JPEG} into the {@link ImageCache}, on a small pool of low priority
+ * threads. A picture witch is already in the cache in the target size is
+ * not decoded again. At the switch {@link #take(Picture, Consumer)} hands
+ * over the prepared file, so the backend gets a small file witch decodes
+ * quickly; the scheduler never waits for a picture witch isn't ready yet.
+ * With a {@link #setCompositor(Compositor, boolean) compositor} the
+ * wallpapers of all displays are composed ahead on the workers as well.
+ * Pictures witch don't exist or can't be decoded are reported by
+ * {@link #isBroken(Picture)} and skipped by the scheduler before they are
+ * due.
+ */
+public class Prefetcher {
+
+    private static final float QUALITY = 0.92f;
+
+    private final ImageCache cache;
+    private final int width;
+    private final int height;
+    private final int ahead;
+    private final ThreadPoolExecutor executor;
+    private final Map<String, CompletableFuture<Path>> prepared = new ConcurrentHashMap<>();
+    private final LatencyHistogram prepareLatency = new LatencyHistogram();
+    private final LatencyHistogram decodeLatency = new LatencyHistogram();
+    private final AtomicLong broken = new AtomicLong();
+    private final AtomicLong taken = new AtomicLong();
+    private final AtomicLong late = new AtomicLong();
+    private final Map<String, CompletableFuture<Path>> composed = new ConcurrentHashMap<>();
+    private volatile boolean crop;
+    private volatile Compositor compositor;
+    private boolean span;
+    private String[] shown;
+    private int display;
+
+    /**
+     * @param cache cache for the scaled pictures
+     * @param width target width, {@code 0} to never scale
+     * @param height target height, {@code 0} to never scale
+     * @param ahead how many pictures are prepared ahead
+     * @param threads number of worker threads
+     */
+    public Prefetcher(ImageCache cache, int width, int height, int ahead, int threads) {
+        if (ahead < 1 || threads < 1) {
+            throw new IllegalArgumentException("ahead and threads have to be positive");
+        }
+        this.cache = cache;
+        this.width = width;
+        this.height = height;
+        this.ahead = ahead;
+        AtomicInteger count = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<>(), runnable -> {
+            Thread thread = new Thread(runnable, "wallpaper-prefetch-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            thread.setPriority(Thread.MIN_PRIORITY);
+            return thread;
+        });
+    }
+
+    /**
+     * Sets whether pictures are cropped to the aspect ratio of the target
+     * size, so only the part witch covers the target is decoded. Only
+     * useful if the picture is shown in exactly that size.
+     */
+    public void setCrop(boolean crop) {
+        this.crop = crop;
+    }
+
+    /**
+     * Composes the wallpapers of several displays ahead as well, so
+     * {@link #take(Picture, Consumer)} hands over the composed picture. When
+     * not spanning, every picture goes to the next display in turn and the
+     * other displays keep theirs.
+     *
+     * @param compositor the layout of the displays
+     * @param span whether every picture spans all displays
+     */
+    public synchronized void setCompositor(Compositor compositor, boolean span) {
+        this.span = span;
+        this.shown = new String[span ? 1 : compositor.getDisplays().size()];
+        this.display = 0;
+        this.compositor = compositor;
+    }
+
+    public int getAhead() {
+        return ahead;
+    }
+
+    /**
+     * Starts preparing the given pictures and forgets all other prepared
+     * pictures except the given current one.
+     *
+     * @param current the picture shown now, may be {@code null}
+     * @param upcoming the next pictures in the order they are due
+     */
+    public void prefetch(Picture current, List<Picture> upcoming) {
+        Set<String> keep = new HashSet<>();
+        if (current != null) {
+            keep.add(current.getPath());
+        }
+        for (Picture picture : upcoming) {
+            keep.add(picture.getPath());
+            prepared.computeIfAbsent(picture.getPath(), this::submit);
+        }
+        forget(prepared, keep);
+        if (compositor != null) {
+            Set<String> keepComposed = new HashSet<>();
+            String[] state;
+            int next;
+            synchronized (this) {
+                state = shown;
+                next = display;
+            }
+            keepComposed.add(key(state));
+            for (Picture picture : upcoming) {
+                state = advance(state, next++, picture.getPath());
+                String[] pictures = state;
+                keepComposed.add(key(pictures));
+                composed.computeIfAbsent(key(pictures), key -> compose(pictures));
+            }
+            forget(composed, keepComposed);
+        }
+    }
+
+    private static void forget(Map<String, CompletableFuture<Path>> futures, Set<String> keep) {
+        for (Iterator<Map.Entry<String, CompletableFuture<Path>>> iterator = futures.entrySet().iterator(); iterator.hasNext(); ) {
+            Map.Entry<String, CompletableFuture<Path>> entry = iterator.next();
+            if (!keep.contains(entry.getKey())) {
+                iterator.remove();
+                entry.getValue().cancel(false);
+            }
+        }
+    }
+
+    /**
+     * Returns whether a picture was already found to be missing or broken.
+     */
+    public boolean isBroken(Picture picture) {
+        CompletableFuture<Path> future = prepared.get(picture.getPath());
+        return future != null && future.isCompletedExceptionally() && !future.isCancelled();
+    }
+
+    /**
+     * Hands the prepared file of a picture, or the composed wallpaper with
+     * it, to {@code apply} without ever waiting for it. If the file is ready, {@code apply} runs right away on
+     * the calling thread, otherwise on the worker witch prepares it, as soon
+     * as it is done; but only if no other picture was taken in between, so
+     * a late picture never replaces a newer one.
+     *
+     * @return {@code false} if the picture is already known to be broken
+     */
+    public boolean take(Picture picture, Consumer<Path> apply) {
+        long generation = taken.incrementAndGet();
+        CompletableFuture<Path> future = prepared.computeIfAbsent(picture.getPath(), this::submit);
+        if (isBroken(picture)) {
+            return false;
+        }
+        if (compositor != null) {
+            String[] state;
+            synchronized (this) {
+                state = advance(shown, display++, picture.getPath());
+                shown = state;
+            }
+            String[] pictures = state;
+            future = composed.computeIfAbsent(key(pictures), key -> compose(pictures));
+        }
+        if (!future.isDone()) {
+            late.incrementAndGet();
+        }
+        future.whenComplete((file, error) -> {
+            if (taken.get() != generation) {
+                return;
+            }
+            if (error != null) {
+                Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+                if (cause instanceof BrokenPictureException) {
+                    dropBroken(((BrokenPictureException) cause).path);
+                    cause = cause.getCause();
+                }
+                System.err.println("Skipping " + picture.getPath() + ": " + cause);
+                return;
+            }
+            try {
+                apply.accept(file);
+            } catch (RuntimeException e) {
+                e.printStackTrace();
+            }
+        });
+        return true;
+    }
+
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * Returns how long preparing a picture took.
+     */
+    public LatencyHistogram getPrepareLatency() {
+        return prepareLatency;
+    }
+
+    /**
+     * Returns how long decoding and scaling a picture took, for pictures
+     * witch were not in the cache yet.
+     */
+    public LatencyHistogram getDecodeLatency() {
+        return decodeLatency;
+    }
+
+    /**
+     * Returns how many pictures were not prepared yet when they were due.
+     */
+    public long getLate() {
+        return late.get();
+    }
+
+    /**
+     * Returns how many pictures were missing or could not be decoded.
+     */
+    public long getBroken() {
+        return broken.get();
+    }
+
+    private CompletableFuture<Path> submit(String path) {
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                return prepare(path);
+            } catch (IOException e) {
+                throw new CompletionException(e);
+            }
+        }, executor);
+    }
+
+    /**
+     * Returns the displays' pictures after the next picture goes to a
+     * display. Displays witch have no picture yet get it as well.
+     */
+    private String[] advance(String[] state, int next, String picture) {
+        String[] advanced = state.clone();
+        for (int k = 0; k < advanced.length; k++) {
+            if (k == next % advanced.length || advanced[k] == null) {
+                advanced[k] = picture;
+            }
+        }
+        return advanced;
+    }
+
+    private static String key(String[] state) {
+        return String.join("\n", Arrays.asList(state));
+    }
+
+    /**
+     * Clears the displays showing a picture witch could not be prepared,
+     * so the next picture replaces it.
+     */
+    private synchronized void dropBroken(String path) {
+        for (int k = 0; k < shown.length; k++) {
+            if (path.equals(shown[k])) {
+                shown[k] = null;
+            }
+        }
+    }
+
+    private CompletableFuture<Path> compose(String[] state) {
+        Compositor compositor = this.compositor;
+        boolean span = this.span;
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                Path[] files = new Path[compositor.getDisplays().size()];
+                for (int k = 0; k < state.length; k++) {
+                    if (state[k] != null) {
+                        try {
+                            files[k] = preparedFile(state[k]);
+                        } catch (IOException | RuntimeException e) {
+                            throw new BrokenPictureException(state[k], e);
+                        }
+                    }
+                }
+                return span ? compositor.span(files[0]) : compositor.compose(files);
+            } catch (IOException e) {
+                throw new CompletionException(e);
+            }
+        }, executor);
+    }
+
+    /**
+     * Returns the prepared file of a picture, preparing it on this thread if
+     * its own task isn't done.
+     */
+    private Path preparedFile(String path) throws IOException {
+        CompletableFuture<Path> future = prepared.get(path);
+        if (future != null && future.isDone() && !future.isCompletedExceptionally()) {
+            return future.join();
+        }
+        return prepare(path);
+    }
+
+    private Path prepare(String path) throws IOException {
+        long start = System.nanoTime();
+        try {
+            Path source = Paths.get(path).toAbsolutePath();
+            if (!Files.isRegularFile(source)) {
+                throw new NoSuchFileException(source.toString());
+            }
+            Dimension size = ImageDecoder.dimensions(source);
+            double scale = width > 0 && height > 0
+                    ? Math.max((double) width / size.width, (double) height / size.height) : 1;
+            if (scale >= 1) {
+                return source;
+            }
+            int targetWidth = crop ? width : Math.max(1, (int) Math.round(size.width * scale));
+            int targetHeight = crop ? height : Math.max(1, (int) Math.round(size.height * scale));
+            return cache.get(cache.key(source, targetWidth, targetHeight, "jpg"), target -> {
+                long decodeStart = System.nanoTime();
+                try (ImageDecoder.Decoded decoded = ImageDecoder.getShared().decode(source, targetWidth, targetHeight, crop)) {
+                    BufferedImage scaled = scale(decoded.getImage(), targetWidth, targetHeight);
+                    decodeLatency.record(System.nanoTime() - decodeStart);
+                    writeJPEG(scaled, target);
+                }
+            });
+        } catch (IOException | RuntimeException e) {
+            broken.incrementAndGet();
+            throw e;
+        } finally {
+            prepareLatency.record(System.nanoTime() - start);
+        }
+    }
+
+    /**
+     * Scales down in steps of at most one half, witch keeps the quality of
+     * bilinear filtering also for large factors.
+     */
+    static BufferedImage scale(BufferedImage image, int targetWidth, int targetHeight) {
+        BufferedImage current = image;
+        int currentWidth = image.getWidth();
+        int currentHeight = image.getHeight();
+        do {
+            currentWidth = Math.max(targetWidth, currentWidth / 2);
+            currentHeight = Math.max(targetHeight, currentHeight / 2);
+            BufferedImage step = new BufferedImage(currentWidth, currentHeight, BufferedImage.TYPE_INT_RGB);
+            Graphics2D graphics = step.createGraphics();
+            graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+            graphics.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+            graphics.drawImage(current, 0, 0, currentWidth, currentHeight, null);
+            graphics.dispose();
+            current = step;
+        } while (currentWidth != targetWidth || currentHeight != targetHeight);
+        return current;
+    }
+
+    static void writeJPEG(BufferedImage image, Path target) throws IOException {
+        ImageWriter writer = ImageIO.getImageWritersByFormatName("jpeg").next();
+        try (ImageOutputStream out = ImageIO.createImageOutputStream(target.toFile())) {
+            ImageWriteParam param = writer.getDefaultWriteParam();
+            param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+            param.setCompressionQuality(QUALITY);
+            writer.setOutput(out);
+            writer.write(null, new IIOImage(image, null, null), param);
+        } finally {
+            writer.dispose();
+        }
+    }
+
+    private static final class BrokenPictureException extends IOException {
+
+        private final String path;
+
+        private BrokenPictureException(String path, Throwable cause) {
+            super(path + ": " + cause, cause);
+            this.path = path;
+        }
+    }
+}
@@ -0,0 +1,274 @@
+package dev.ludium.wallpaperengine;
+
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.io.IOException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.BooleanSupplier;
+
+/**
+ * Blends the frames of a cross-fade from one picture to another.
+ * <p>
+ * {@link #prepare(BufferedImage, BufferedImage)} draws both pictures into two
+ * {@code int} {@code RGB} rasters of the size of the new picture. Every
+ * {@link #frame(int, int)} then blends them into one of two output rasters,
+ * split into bands of rows witch are blended in parallel on a
+ * {@link ForkJoinPool}. The rasters and the fork/join tasks are allocated
+ * once per size and reused for every frame and every transition of that
+ * size, so a transition creates no garbage. A frame is valid until the
+ * next but one frame is blended.
+ * <p>
+ * {@link #next(BufferedImage, int, int)} keeps the new picture of the last
+ * transition in its raster as old picture of the next one, so the caller
+ * doesn't have to keep the decoded picture shown between two switches.
+ * <p>
+ * An instance is used by one thread at a time.
+ */
+public class TransitionEngine {
+
+    private final ForkJoinPool pool;
+    private final FrameTask frameTask = new FrameTask();
+
+    private int width;
+    private int height;
+    private BufferedImage fromImage;
+    private BufferedImage toImage;
+    private final BufferedImage[] frames = new BufferedImage[2];
+    private int[] from;
+    private int[] to;
+    private int[] out;
+    private boolean last;
+    private int weight;
+    private Band[] bands = new Band[0];
+
+    /**
+     * Constructs a new {@code TransitionEngine} witch blends on the
+     * {@link ForkJoinPool#commonPool()}.
+     */
+    public TransitionEngine() {
+        this(ForkJoinPool.commonPool());
+    }
+
+    public TransitionEngine(ForkJoinPool pool) {
+        this.pool = pool;
+    }
+
+    /**
+     * Sets the pictures of the next transition. The old picture is scaled
+     * to the size of the new one.
+     */
+    public void prepare(BufferedImage oldPicture, BufferedImage newPicture) {
+        prepare(oldPicture, newPicture, 0, 0);
+    }
+
+    /**
+     * Sets the pictures of the next transition like
+     * {@link #prepare(BufferedImage, BufferedImage)}, but the frames are
+     * scaled down to fit into the given size.
+     *
+     * @param maxWidth maximum width of the frames, {@code 0} for no limit
+     * @param maxHeight maximum height of the frames, {@code 0} for no limit
+     */
+    public void prepare(BufferedImage oldPicture, BufferedImage newPicture, int maxWidth, int maxHeight) {
+        fit(newPicture, maxWidth, maxHeight);
+        draw(oldPicture, fromImage);
+        draw(newPicture, toImage);
+        last = true;
+    }
+
+    /**
+     * Sets the picture of the next transition from the new picture of the
+     * last one, scaled to the size of the new picture like
+     * {@link #prepare(BufferedImage, BufferedImage, int, int)}. The new
+     * picture is drawn into the engine's own raster, so it can be released
+     * as soon as this returns.
+     *
+     * @return {@code false} if there was no last picture and nothing to play
+     */
+    public boolean next(BufferedImage newPicture, int maxWidth, int maxHeight) {
+        boolean had = last;
+        BufferedImage previous = toImage;
+        int[] previousPixels = to;
+        fit(newPicture, maxWidth, maxHeight);
+        if (had && previous == toImage) {
+            // same size, the rasters only swap their roles
+            toImage = fromImage;
+            to = from;
+            fromImage = previous;
+            from = previousPixels;
+        } else if (had) {
+            draw(previous, fromImage);
+        }
+        draw(newPicture, toImage);
+        last = true;
+        return had;
+    }
+
+    /**
+     * Forgets the last picture, so the next {@link #next(BufferedImage, int, int)}
+     * has nothing to play.
+     */
+    public void clear() {
+        last = false;
+    }
+
+    private void fit(BufferedImage picture, int maxWidth, int maxHeight) {
+        int width = picture.getWidth();
+        int height = picture.getHeight();
+        if (maxWidth > 0 && maxHeight > 0 && (width > maxWidth || height > maxHeight)) {
+            double scale = Math.min((double) maxWidth / width, (double) maxHeight / height);
+            width = Math.max(1, (int) (width * scale));
+            height = Math.max(1, (int) (height * scale));
+        }
+        resize(width, height);
+    }
+
+    /**
+     * Blends a frame of the prepared transition.
+     *
+     * @param frame number of the frame, from {@code 1} to {@code count}
+     * @param count number of frames between the old and the new picture
+     * @return the frame, overwritten by the next but one frame
+     */
+    public BufferedImage frame(int frame, int count) {
+        if (from == null) {
+            throw new IllegalStateException("No transition prepared.");
+        }
+        BufferedImage image = frames[frame & 1];
+        out = ((DataBufferInt) image.getRaster().getDataBuffer()).getData();
+        weight = (int) ((256L * frame + (count + 1) / 2) / (count + 1));
+        frameTask.reinitialize();
+        for (Band band : bands) {
+            band.reinitialize();
+        }
+        pool.invoke(frameTask);
+        return image;
+    }
+
+    /**
+     * Plays a whole transition: blends {@code count} frames and hands them
+     * to the sink at the given rate, each frame at its own absolute deadline.
+     *
+     * @param oldPicture the picture shown now
+     * @param newPicture the picture to show
+     * @param count number of frames between the pictures
+     * @param fps frames per second
+     * @param sink receives the frames
+     * @param cancelled checked before every frame, stops the transition if it returns {@code true}
+     * @return the number of frames handed to the sink
+     * @throws IOException if the sink fails
+     */
+    public int play(BufferedImage oldPicture, BufferedImage newPicture, int count, int fps, FrameSink sink,
+                    BooleanSupplier cancelled) throws IOException {
+        prepare(oldPicture, newPicture);
+        return play(count, fps, sink, cancelled);
+    }
+
+    /**
+     * Plays the prepared transition like
+     * {@link #play(BufferedImage, BufferedImage, int, int, FrameSink, BooleanSupplier)}.
+     *
+     * @return the number of frames handed to the sink
+     * @throws IOException if the sink fails
+     */
+    public int play(int count, int fps, FrameSink sink, BooleanSupplier cancelled) throws IOException {
+        long period = TimeUnit.SECONDS.toNanos(1) / Math.max(1, fps);
+        long deadline = System.nanoTime();
+        for (int frame = 1; frame <= count; frame++) {
+            if (cancelled.getAsBoolean()) {
+                return frame - 1;
+            }
+            BufferedImage image = frame(frame, count);
+            deadline += period;
+            for (long wait; (wait = deadline - System.nanoTime()) > 0; ) {
+                LockSupport.parkNanos(wait);
+            }
+            sink.accept(image);
+        }
+        return count;
+    }
+
+    private void resize(int width, int height) {
+        if (fromImage != null && this.width == width && this.height == height) {
+            return;
+        }
+        this.width = width;
+        this.height = height;
+        fromImage = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        toImage = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        frames[0] = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        frames[1] = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        from = ((DataBufferInt) fromImage.getRaster().getDataBuffer()).getData();
+        to = ((DataBufferInt) toImage.getRaster().getDataBuffer()).getData();
+        int count = Math.max(1, Math.min(height, pool.getParallelism() * 4));
+        bands = new Band[count];
+        for (int k = 0; k < count; k++) {
+            bands[k] = new Band((int) ((long) height * k / count) * width, (int) ((long) height * (k + 1) / count) * width);
+        }
+    }
+
+    private static void draw(BufferedImage source, BufferedImage target) {
+        Graphics2D graphics = target.createGraphics();
+        try {
+            graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+            graphics.drawImage(source, 0, 0, target.getWidth(), target.getHeight(), null);
+        } finally {
+            graphics.dispose();
+        }
+    }
+
+    /**
+     * Blends red and blue with one multiplication and green with another.
+     */
+    private void blend(int start, int end) {
+        int[] from = this.from;
+        int[] to = this.to;
+        int[] out = this.out;
+        int weight = this.weight;
+        int inverse = 256 - weight;
+        for (int j = start; j < end; j++) {
+            int a = from[j];
+            int b = to[j];
+            int redBlue = ((a & 0xFF00FF) * inverse + (b & 0xFF00FF) * weight) >>> 8 & 0xFF00FF;
+            int green = ((a & 0xFF00) * inverse + (b & 0xFF00) * weight) >>> 8 & 0xFF00;
+            out[j] = 0xFF000000 | redBlue | green;
+        }
+    }
+
+    /**
+     * Receives the frames of a transition.
+     */
+    public interface FrameSink {
+
+        void accept(BufferedImage frame) throws IOException;
+    }
+
+    private final class FrameTask extends RecursiveAction {
+
+        @Override
+        protected void compute() {
+            invokeAll(bands);
+        }
+    }
+
+    private final class Band extends RecursiveAction {
+
+        private final int start;
+        private final int end;
+
+        private Band(int start, int end) {
+            this.start = start;
+            this.end = end;
+        }
+
+        @Override
+        protected void compute() {
+            blend(start, end);
+        }
+    }
+}
@@ -0,0 +1,240 @@
+package dev.ludium.wallpaperengine;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Applies wallpapers asynchronously on its own thread.
+ * <p>
+ * {@link #submit(Path)} only stores the picture in a single slot and
+ * returns at once, so a slow {@link WallpaperBackend} never delays the
+ * {@link WallpaperScheduler}. The applier thread takes the newest picture
+ * out of the slot whenever it is idle; a picture witch is replaced before
+ * it was taken is never applied (coalesced), as it would be outdated
+ * anyway.
+ * <p>
+ * With {@link #setTransition(int, int, Path)} every switch cross-fades
+ * from the previous picture with a {@link TransitionEngine}. A transition
+ * stops as soon as a newer picture is waiting. The engine keeps the previous
+ * picture in its own raster, so a decoded picture only holds its share of
+ * the {@link ImageDecoder} budget while it is drawn into the engine. Backends witch only take
+ * files get at most {@code 4} frames of at most {@code 1920x1080}, as every
+ * frame is written to disk and loaded again by the system.
+ * <p>
+ * {@link #getQueueLatency()} records how long pictures waited in the slot,
+ * {@link #getApplyLatency()} how long the backend took to apply them.
+ */
+public class WallpaperApplier {
+
+    /**
+     * Larger pictures are decoded for transitions with less than twice this
+     * size, not in full size.
+     */
+    private static final int MAX_FRAME_WIDTH = 3840;
+    private static final int MAX_FRAME_HEIGHT = 2160;
+    /**
+     * Limits of the transitions of backends witch only take files.
+     */
+    private static final int MAX_FILE_FRAMES = 4;
+    private static final int MAX_FILE_FRAME_WIDTH = 1920;
+    private static final int MAX_FILE_FRAME_HEIGHT = 1080;
+
+    private final WallpaperBackend backend;
+    private final AtomicReference<Request> pending = new AtomicReference<>();
+    private final Thread thread;
+    private final LatencyHistogram queueLatency = new LatencyHistogram();
+    private final LatencyHistogram applyLatency = new LatencyHistogram();
+    private final AtomicLong coalesced = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    private final AtomicLong transitions = new AtomicLong();
+    private final LatencyHistogram frameLatency = new LatencyHistogram();
+    private volatile Path applied;
+    private volatile boolean running = true;
+    private volatile int frames;
+    private volatile int fps;
+    private volatile Path frameDirectory;
+    private TransitionEngine engine;
+    private int frameFile;
+
+    public WallpaperApplier(WallpaperBackend backend) {
+        this.backend = backend;
+        this.thread = new Thread(this::run, "wallpaper-applier");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Applies a picture as soon as the backend is idle, replacing a picture
+     * witch is still waiting.
+     */
+    public void submit(Path picture) {
+        if (pending.getAndSet(new Request(picture, System.nanoTime())) != null) {
+            coalesced.incrementAndGet();
+        }
+        LockSupport.unpark(thread);
+    }
+
+    /**
+     * Enables transitions between pictures.
+     *
+     * @param frames number of frames between two pictures, {@code 0} to switch without a transition
+     * @param fps frames per second
+     * @param frameDirectory directory for the frames of backends witch only take files
+     */
+    public void setTransition(int frames, int fps, Path frameDirectory) {
+        if (frames < 0 || fps < 1) {
+            throw new IllegalArgumentException("frames can't be negative and fps has to be positive");
+        }
+        this.frameDirectory = frameDirectory;
+        this.fps = fps;
+        this.frames = frames;
+    }
+
+    /**
+     * Stops the applier thread after the current apply, a waiting picture is
+     * dropped.
+     */
+    public void shutdown() {
+        running = false;
+        LockSupport.unpark(thread);
+    }
+
+    public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+        thread.join(Math.max(1, unit.toMillis(timeout)));
+        return !thread.isAlive();
+    }
+
+    private void run() {
+        while (running) {
+            Request request = pending.getAndSet(null);
+            if (request == null) {
+                LockSupport.park(this);
+                continue;
+            }
+            queueLatency.record(System.nanoTime() - request.submitted);
+            try {
+                if (frames > 0 && !transition(request.picture)) {
+                    continue;
+                }
+            } catch (IOException | RuntimeException e) {
+                System.err.println("Skipping the transition to " + request.picture + ": " + e);
+            }
+            long start = System.nanoTime();
+            try {
+                backend.apply(request.picture);
+                applied = request.picture;
+            } catch (IOException | RuntimeException e) {
+                failed.incrementAndGet();
+                System.err.println("Could not apply " + request.picture + " with " + backend.getName() + ": " + e);
+            } finally {
+                applyLatency.record(System.nanoTime() - start);
+            }
+        }
+    }
+
+    /**
+     * Plays the transition to a picture.
+     *
+     * @return {@code false} if a newer picture is waiting
+     */
+    private boolean transition(Path picture) throws IOException {
+        if (engine == null) {
+            engine = new TransitionEngine();
+        }
+        boolean files = !backend.acceptsFrames();
+        boolean previous;
+        try (ImageDecoder.Decoded decoded = files
+                ? ImageDecoder.getShared().decode(picture, MAX_FILE_FRAME_WIDTH, MAX_FILE_FRAME_HEIGHT, false)
+                : ImageDecoder.getShared().decode(picture, MAX_FRAME_WIDTH, MAX_FRAME_HEIGHT, false)) {
+            previous = files ? engine.next(decoded.getImage(), MAX_FILE_FRAME_WIDTH, MAX_FILE_FRAME_HEIGHT)
+                    : engine.next(decoded.getImage(), 0, 0);
+        } catch (IOException | RuntimeException e) {
+            // the picture is applied without a transition, so the next one must not start from the last picture
+            engine.clear();
+            throw e;
+        }
+        if (!previous) {
+            return true;
+        }
+        int count = files ? Math.min(frames, MAX_FILE_FRAMES) : frames;
+        transitions.incrementAndGet();
+        int played = engine.play(count, fps, this::showFrame, () -> !running || pending.get() != null);
+        return played == count;
+    }
+
+    private void showFrame(BufferedImage frame) throws IOException {
+        long start = System.nanoTime();
+        try {
+            if (backend.acceptsFrames()) {
+                backend.applyFrame(frame);
+            } else {
+                // alternates between two files, as some systems don't reload a wallpaper with the same path
+                Files.createDirectories(frameDirectory);
+                Path file = frameDirectory.resolve("frame-" + (frameFile ^= 1) + ".bmp").toAbsolutePath();
+                ImageIO.write(frame, "bmp", file.toFile());
+                backend.applyFrame(file);
+            }
+        } finally {
+            frameLatency.record(System.nanoTime() - start);
+        }
+    }
+
+    public WallpaperBackend getBackend() {
+        return backend;
+    }
+
+    /**
+     * Returns the picture applied last.
+     */
+    public Path getApplied() {
+        return applied;
+    }
+
+    public LatencyHistogram getQueueLatency() {
+        return queueLatency;
+    }
+
+    public LatencyHistogram getApplyLatency() {
+        return applyLatency;
+    }
+
+    /**
+     * Returns how many pictures were replaced before they were applied.
+     */
+    public long getCoalesced() {
+        return coalesced.get();
+    }
+
+    public long getFailed() {
+        return failed.get();
+    }
+
+    public long getTransitions() {
+        return transitions.get();
+    }
+
+    /**
+     * Returns how long the backend took to show a frame of a transition.
+     */
+    public LatencyHistogram getFrameLatency() {
+        return frameLatency;
+    }
+
+    private static final class Request {
+
+        private final Path picture;
+        private final long submitted;
+
+        private Request(Path picture, long submitted) {
+            this.picture = picture;
+            this.submitted = submitted;
+        }
+    }
+}
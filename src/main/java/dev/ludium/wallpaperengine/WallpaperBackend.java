@@ -0,0 +1,105 @@
+package dev.ludium.wallpaperengine;
+
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.ServiceLoader;
+
+/**
+ * Sets the desktop wallpaper on one kind of system.
+ * <p>
+ * Backends are found with a {@link ServiceLoader}, so further backends can
+ * be added by listing them in
+ * {@code META-INF/services/dev.ludium.wallpaperengine.WallpaperBackend} of
+ * any jar on the class path. Backends must not touch native libraries
+ * before {@link #apply(Path)} is called, so all of them can be loaded on
+ * every system.
+ *
+ * @see WallpaperApplier
+ */
+public interface WallpaperBackend {
+
+    /**
+     * The name the backend is selected with, for example {@code "user32"}.
+     */
+    String getName();
+
+    /**
+     * Whether the backend can be used on this system without being selected
+     * by name.
+     */
+    boolean isSupported();
+
+    /**
+     * Sets a picture as wallpaper. Called on a single thread only.
+     *
+     * @param picture absolute path of the picture
+     * @throws IOException if the wallpaper could not be set
+     */
+    void apply(Path picture) throws IOException;
+
+    /**
+     * Whether the backend takes the frames of a transition directly with
+     * {@link #applyFrame(BufferedImage)}. Other backends get every frame as a
+     * file through {@link #apply(Path)}.
+     */
+    default boolean acceptsFrames() {
+        return false;
+    }
+
+    /**
+     * Shows a frame of a transition. The frame is only valid during the call.
+     * Called on the same thread as {@link #apply(Path)}.
+     *
+     * @throws IOException if the frame could not be shown
+     */
+    default void applyFrame(BufferedImage frame) throws IOException {
+        throw new UnsupportedOperationException(getName() + " takes no frames");
+    }
+
+    /**
+     * Shows a frame of a transition written to a file, for backends witch
+     * don't {@link #acceptsFrames() accept frames}. Unlike
+     * {@link #apply(Path)} the frame doesn't have to outlast a restart, so
+     * backends can skip persisting it. Called on the same thread as
+     * {@link #apply(Path)}.
+     *
+     * @param frame absolute path of the frame
+     * @throws IOException if the frame could not be shown
+     */
+    default void applyFrame(Path frame) throws IOException {
+        apply(frame);
+    }
+
+    /**
+     * Returns all backends on the class path.
+     */
+    static List<WallpaperBackend> available() {
+        List<WallpaperBackend> backends = new ArrayList<>();
+        ServiceLoader.load(WallpaperBackend.class).forEach(backends::add);
+        return backends;
+    }
+
+    /**
+     * Returns the backend with the given name, or the first supported one if
+     * no name is given.
+     *
+     * @param name name of the backend or {@code null}
+     * @throws IllegalArgumentException if there is no such backend or no backend supports this system
+     */
+    static WallpaperBackend load(String name) {
+        List<WallpaperBackend> backends = available();
+        for (WallpaperBackend backend : backends) {
+            if (name == null ? backend.isSupported() : backend.getName().equalsIgnoreCase(name)) {
+                return backend;
+            }
+        }
+        List<String> names = new ArrayList<>();
+        backends.forEach(backend -> names.add(backend.getName()));
+        throw new IllegalArgumentException(name == null
+                ? "No wallpaper backend supports " + System.getProperty("os.name") + ", available: " + names
+                : "Unknown wallpaper backend " + name + ", available: " + names);
+    }
+}
@@ -0,0 +1,338 @@
+package dev.ludium.wallpaperengine;
+
+import dev.ludium.wallpaperengine.playlist.Playlist;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+
+/**
+ * Switches through the pictures of a playlist on a single scheduler thread.
+ * <p>
+ * Every switch has an absolute deadline on the {@link System#nanoTime()}
+ * clock: the deadline of the next picture is the deadline of the current
+ * one plus its delay, not the time the switch actually happened plus the
+ * delay. Time spent switching or a late wake up therefore never adds up
+ * over the cycles. If a deadline has already passed when the next one is
+ * computed (for example after the system was suspended), the missed
+ * switches are dropped and the timing starts anew from now.
+ * <p>
+ * All state is only touched by the scheduler thread, the public methods
+ * hand their work to it. How late every switch happened compared to its
+ * deadline is recorded in {@link #getDrift()}.
+ */
+public class WallpaperScheduler {
+
+    private static final int SEARCH_LIMIT = 100000;
+
+    private final ScheduledThreadPoolExecutor executor;
+    private final Consumer<Picture> action;
+    private final LatencyHistogram drift = new LatencyHistogram();
+    private final AtomicLong missed = new AtomicLong();
+    private final AtomicLong skipped = new AtomicLong();
+    private final AtomicLong filtered = new AtomicLong();
+    private volatile Prefetcher prefetcher;
+    private volatile Predicate<Picture> filter;
+
+    private volatile Playlist playlist;
+    private long defaultDelay;
+    private int index;
+    private long deadline;
+    private long remaining = -1;
+    private ScheduledFuture<?> next;
+    private volatile Picture current;
+    private volatile boolean paused;
+
+    /**
+     * @param playlist the pictures to switch through
+     * @param defaultDelay milliseconds a picture without its own delay is shown
+     * @param action shows a picture, called on the scheduler thread
+     */
+    public WallpaperScheduler(Playlist playlist, long defaultDelay, Consumer<Picture> action) {
+        this.playlist = playlist;
+        this.defaultDelay = checkDelay(defaultDelay);
+        this.action = action;
+        this.executor = new ScheduledThreadPoolExecutor(1, runnable -> new Thread(runnable, "wallpaper-scheduler"));
+        executor.setExecuteExistingDelayedTasksAfterShutdownPolicy(false);
+        executor.setRemoveOnCancelPolicy(true);
+    }
+
+    /**
+     * Shows the first picture now and starts switching.
+     */
+    public void start() {
+        run(() -> {
+            if (next == null && remaining < 0) {
+                deadline = System.nanoTime();
+                schedule();
+            }
+        });
+    }
+
+    /**
+     * Stops switching, the current picture keeps the rest of its delay for
+     * {@link #resume()}.
+     */
+    public void pause() {
+        run(() -> {
+            if (next != null) {
+                next.cancel(false);
+                next = null;
+                remaining = Math.max(0, deadline - System.nanoTime());
+                paused = true;
+            }
+        });
+    }
+
+    /**
+     * Continues switching after {@link #pause()} with the rest of the delay
+     * of the current picture.
+     */
+    public void resume() {
+        run(() -> {
+            if (remaining >= 0) {
+                deadline = System.nanoTime() + remaining;
+                remaining = -1;
+                paused = false;
+                schedule();
+            }
+        });
+    }
+
+    /**
+     * Shows the next picture now. Its delay starts now, a paused scheduler
+     * stays paused.
+     */
+    public void skip() {
+        run(() -> jump(true));
+    }
+
+    /**
+     * Shows the previous picture now, like {@link #skip()} in the other
+     * direction.
+     */
+    public void back() {
+        run(() -> {
+            int size = playlist.size();
+            if (size > 0) {
+                // index points behind the current picture
+                index = Math.floorMod(index - 2, size);
+            }
+            jump(false);
+        });
+    }
+
+    private void jump(boolean forward) {
+        if (next != null) {
+            next.cancel(false);
+        }
+        deadline = System.nanoTime();
+        if (remaining >= 0) {
+            show(forward);
+            remaining = delayNanos(current);
+        } else {
+            tick(forward);
+        }
+    }
+
+    /**
+     * Replaces the playlist, the current deadline is not changed and the
+     * old playlist is not closed. If the current picture is part of the new
+     * playlist, the playlist continues after it, otherwise at the same
+     * position. Only the first {@code 100000} pictures are searched; the
+     * search runs on the calling thread, so it never delays a switch.
+     */
+    public void setPlaylist(Playlist playlist) {
+        Picture searched = this.current;
+        int position = -1;
+        if (searched != null) {
+            int size = Math.min(playlist.size(), SEARCH_LIMIT);
+            for (int k = 0; k < size; k++) {
+                if (playlist.get(k).getPath().equals(searched.getPath())) {
+                    position = k;
+                    break;
+                }
+            }
+        }
+        int found = position;
+        run(() -> {
+            this.playlist = playlist;
+            // a switch in the meantime made the position useless
+            if (found >= 0 && current == searched) {
+                index = found + 1;
+            }
+        });
+    }
+
+    /**
+     * Changes the delay of pictures without their own delay, starting with
+     * the next switch.
+     */
+    public void setDefaultDelay(long defaultDelay) {
+        checkDelay(defaultDelay);
+        run(() -> this.defaultDelay = defaultDelay);
+    }
+
+    /**
+     * Lets a {@link Prefetcher} prepare the next pictures after every switch.
+     * Pictures the prefetcher found to be broken are skipped.
+     */
+    public void setPrefetcher(Prefetcher prefetcher) {
+        this.prefetcher = prefetcher;
+    }
+
+    /**
+     * Skips the pictures the filter returns {@code false} for, for example
+     * duplicates. If the filter rejects all pictures, none is shown.
+     */
+    public void setFilter(Predicate<Picture> filter) {
+        this.filter = filter;
+    }
+
+    /**
+     * Stops the scheduler. A switch witch is running is completed, no new
+     * one is started.
+     */
+    public void shutdown() {
+        executor.shutdown();
+    }
+
+    public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+        return executor.awaitTermination(timeout, unit);
+    }
+
+    /**
+     * Returns how late the switches happened compared to their deadlines.
+     */
+    public LatencyHistogram getDrift() {
+        return drift;
+    }
+
+    /**
+     * Returns how many switches were dropped because their deadline had
+     * already passed.
+     */
+    public long getMissed() {
+        return missed.get();
+    }
+
+    /**
+     * Returns how many broken pictures were skipped.
+     */
+    public long getSkipped() {
+        return skipped.get();
+    }
+
+    /**
+     * Returns how many pictures the filter skipped.
+     */
+    public long getFiltered() {
+        return filtered.get();
+    }
+
+    public Picture getCurrent() {
+        return current;
+    }
+
+    public boolean isPaused() {
+        return paused;
+    }
+
+    public Playlist getPlaylist() {
+        return playlist;
+    }
+
+    private void tick(boolean forward) {
+        drift.record(System.nanoTime() - deadline);
+        show(forward);
+        deadline += delayNanos(current);
+        long now = System.nanoTime();
+        if (deadline - now < 0) {
+            missed.incrementAndGet();
+            deadline = now + delayNanos(current);
+        }
+        schedule();
+    }
+
+    /**
+     * Shows the picture at the index or the next one witch isn't broken.
+     * The playlist is only rewound when moving forward over its start, so
+     * going back keeps the order of a shuffled playlist.
+     */
+    private void show(boolean forward) {
+        Prefetcher prefetcher = this.prefetcher;
+        Predicate<Picture> filter = this.filter;
+        int size = playlist.size();
+        current = null;
+        for (int tries = 0; tries < size && current == null; tries++) {
+            if (index >= size) {
+                index = 0;
+            }
+            if (index == 0 && forward) {
+                playlist.rewind();
+            }
+            Picture candidate = playlist.get(index++);
+            if (prefetcher != null && prefetcher.isBroken(candidate)) {
+                skipped.incrementAndGet();
+            } else if (filter != null && !filter.test(candidate)) {
+                filtered.incrementAndGet();
+            } else {
+                current = candidate;
+            }
+        }
+        if (current != null) {
+            try {
+                action.accept(current);
+            } catch (RuntimeException e) {
+                e.printStackTrace();
+            }
+        }
+        if (prefetcher != null) {
+            prefetcher.prefetch(current, upcoming(prefetcher.getAhead(), size, filter));
+        }
+    }
+
+    private List<Picture> upcoming(int count, int size, Predicate<Picture> filter) {
+        List<Picture> upcoming = new ArrayList<>(count);
+        for (int k = 0; k < size && upcoming.size() < count; k++) {
+            Picture picture = playlist.get((index + k) % size);
+            if (filter == null || filter.test(picture)) {
+                upcoming.add(picture);
+            }
+        }
+        return upcoming;
+    }
+
+    private void schedule() {
+        try {
+            next = executor.schedule(() -> tick(true), deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+        } catch (RejectedExecutionException e) {
+            next = null;
+        }
+    }
+
+    private long delayNanos(Picture picture) {
+        return TimeUnit.MILLISECONDS.toNanos(picture == null ? defaultDelay : picture.getDelay(defaultDelay));
+    }
+
+    private void run(Runnable task) {
+        try {
+            executor.execute(task);
+        } catch (RejectedExecutionException e) {
+            throw new IllegalStateException("The scheduler has been shut down.", e);
+        }
+    }
+
+    private static long checkDelay(long delay) {
+        if (delay <= 0) {
+            throw new IllegalArgumentException("delay has to be positive: " + delay);
+        }
+        return delay;
+    }
+}
@@ -0,0 +1,107 @@
+package dev.ludium.wallpaperengine.backend;
+
+import dev.ludium.wallpaperengine.WallpaperBackend;
+
+import java.io.IOException;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Sets the wallpaper on Linux by running a command.
+ * <p>
+ * The command is taken from the system property
+ * {@code wallpaperengine.command}, with {@code %s} standing for the picture
+ * (for example {@code "swaymsg output * bg %s fill"}). Without it the
+ * command is chosen by the desktop: {@code gsettings} on GNOME like
+ * desktops, {@code plasma-apply-wallpaperimage} on KDE and {@code feh}
+ * everywhere else.
+ * <p>
+ * If the system property {@code wallpaperengine.file} names a file, every
+ * picture is first copied there atomically and the command gets that file
+ * instead, for setups witch display a fixed file. Without a command (the
+ * property set to an empty string) only the file is written.
+ */
+public class LinuxBackend implements WallpaperBackend {
+
+    private static final long TIMEOUT = 10;
+
+    @Override
+    public String getName() {
+        return "linux";
+    }
+
+    @Override
+    public boolean isSupported() {
+        return System.getProperty("os.name", "").startsWith("Linux");
+    }
+
+    @Override
+    public void apply(Path picture) throws IOException {
+        String file = System.getProperty("wallpaperengine.file");
+        if (file != null && !file.isEmpty()) {
+            picture = copy(picture, Paths.get(file).toAbsolutePath());
+        }
+        List<String> command = command(picture.toString());
+        if (!command.isEmpty()) {
+            run(command);
+        }
+    }
+
+    private static Path copy(Path picture, Path target) throws IOException {
+        Path temp = target.resolveSibling(target.getFileName() + ".tmp");
+        Files.copy(picture, temp, StandardCopyOption.REPLACE_EXISTING);
+        try {
+            Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING);
+        }
+        return target;
+    }
+
+    private static List<String> command(String picture) {
+        String template = System.getProperty("wallpaperengine.command");
+        if (template != null) {
+            List<String> command = new ArrayList<>();
+            for (String part : template.trim().split("\\s+")) {
+                if (!part.isEmpty()) {
+                    command.add(part.replace("%s", picture));
+                }
+            }
+            return command;
+        }
+        String desktop = String.valueOf(System.getenv("XDG_CURRENT_DESKTOP")).toUpperCase(Locale.ROOT);
+        if (desktop.contains("GNOME") || desktop.contains("UNITY") || desktop.contains("BUDGIE")) {
+            return Arrays.asList("gsettings", "set", "org.gnome.desktop.background", "picture-uri",
+                    Paths.get(picture).toUri().toString());
+        }
+        if (desktop.contains("KDE")) {
+            return Arrays.asList("plasma-apply-wallpaperimage", picture);
+        }
+        return Arrays.asList("feh", "--no-fehbg", "--bg-fill", picture);
+    }
+
+    private static void run(List<String> command) throws IOException {
+        Process process = new ProcessBuilder(command).inheritIO().start();
+        try {
+            if (!process.waitFor(TIMEOUT, TimeUnit.SECONDS)) {
+                process.destroyForcibly();
+                throw new IOException(command.get(0) + " did not finish within " + TIMEOUT + "s");
+            }
+        } catch (InterruptedException e) {
+            process.destroyForcibly();
+            Thread.currentThread().interrupt();
+            throw new IOException(command.get(0) + " was interrupted", e);
+        }
+        if (process.exitValue() != 0) {
+            throw new IOException(command.get(0) + " exited with " + process.exitValue());
+        }
+    }
+}
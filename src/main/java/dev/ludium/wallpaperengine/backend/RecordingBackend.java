@@ -0,0 +1,94 @@
+package dev.ludium.wallpaperengine.backend;
+
+import dev.ludium.wallpaperengine.WallpaperBackend;
+
+import java.awt.image.BufferedImage;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Only records the applied pictures in memory, for tests and for running
+ * the engine headless. Never selected automatically, only by its name
+ * {@code "recording"}.
+ */
+public class RecordingBackend implements WallpaperBackend {
+
+    private final List<Path> applied = new ArrayList<>();
+    private final List<Long> times = new ArrayList<>();
+    private final List<Long> frameTimes = new ArrayList<>();
+    private volatile long latency;
+
+    @Override
+    public String getName() {
+        return "recording";
+    }
+
+    @Override
+    public boolean isSupported() {
+        return false;
+    }
+
+    @Override
+    public void apply(Path picture) {
+        if (latency > 0) {
+            try {
+                TimeUnit.NANOSECONDS.sleep(latency);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        synchronized (this) {
+            applied.add(picture);
+            times.add(System.nanoTime());
+        }
+    }
+
+    @Override
+    public boolean acceptsFrames() {
+        return true;
+    }
+
+    @Override
+    public synchronized void applyFrame(BufferedImage frame) {
+        frameTimes.add(System.nanoTime());
+    }
+
+    /**
+     * Lets every apply take the given time, to simulate a slow backend.
+     */
+    public RecordingBackend setLatency(long latency, TimeUnit unit) {
+        this.latency = unit.toNanos(latency);
+        return this;
+    }
+
+    /**
+     * Returns the applied pictures in order.
+     */
+    public synchronized List<Path> getApplied() {
+        return new ArrayList<>(applied);
+    }
+
+    /**
+     * Returns the {@link System#nanoTime()} at witch every picture was
+     * applied.
+     */
+    public synchronized List<Long> getTimes() {
+        return new ArrayList<>(times);
+    }
+
+    /**
+     * Returns the {@link System#nanoTime()} at witch every frame of a
+     * transition was shown.
+     */
+    public synchronized List<Long> getFrameTimes() {
+        return new ArrayList<>(frameTimes);
+    }
+
+    public synchronized void clear() {
+        applied.clear();
+        times.clear();
+        frameTimes.clear();
+    }
+}
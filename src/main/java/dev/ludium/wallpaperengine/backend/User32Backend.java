@@ -0,0 +1,47 @@
+package dev.ludium.wallpaperengine.backend;
+
+import dev.ludium.wallpaperengine.User32;
+import dev.ludium.wallpaperengine.WallpaperBackend;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+/**
+ * Sets the wallpaper on Windows with {@code SystemParametersInfo} of
+ * {@code user32.dll}. The library is loaded on the first apply.
+ */
+public class User32Backend implements WallpaperBackend {
+
+    private static final int SPI_SETDESKWALLPAPER = 0x0014;
+    private static final int SPIF_UPDATEINIFILE = 0x01;
+
+    @Override
+    public String getName() {
+        return "user32";
+    }
+
+    @Override
+    public boolean isSupported() {
+        return System.getProperty("os.name", "").startsWith("Windows");
+    }
+
+    @Override
+    public void apply(Path picture) throws IOException {
+        setWallpaper(picture, SPIF_UPDATEINIFILE);
+    }
+
+    /**
+     * Shows the frame without writing it to the user profile, so a
+     * transition doesn't write the registry on every frame.
+     */
+    @Override
+    public void applyFrame(Path frame) throws IOException {
+        setWallpaper(frame, 0);
+    }
+
+    private static void setWallpaper(Path picture, int flags) throws IOException {
+        if (!User32.INSTANCE.SystemParametersInfo(SPI_SETDESKWALLPAPER, 0, picture.toString(), flags)) {
+            throw new IOException("SystemParametersInfo failed for " + picture);
+        }
+    }
+}
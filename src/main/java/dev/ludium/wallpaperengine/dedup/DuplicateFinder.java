@@ -0,0 +1,278 @@
+package dev.ludium.wallpaperengine.dedup;
+
+import dev.ludium.wallpaperengine.LatencyHistogram;
+import dev.ludium.wallpaperengine.Picture;
+import dev.ludium.wallpaperengine.playlist.Playlist;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Finds pictures of a playlist witch look nearly the same as another one,
+ * like resized copies, pictures encoded again or slightly cropped.
+ * <p>
+ * Every picture is hashed with {@link PerceptualHash} in parallel on a
+ * {@link ForkJoinPool}; pictures witch are unchanged since the last run
+ * are taken from the {@link HashIndex}, so only new pictures are decoded.
+ * The {@code pHash}es are put into a {@link MultiIndex} and every picture
+ * is looked up in it: two pictures are duplicates if their {@code pHash}es
+ * differ in at most {@code threshold} bits and their {@code dHash}es in at
+ * most twice as many. Duplicates are grouped transitively with a union-find,
+ * so a chain of similar pictures forms one group. Of every group the picture
+ * with the most pixels is kept (then the larger file, then the first path),
+ * the others are reported by {@link #isDuplicate(Picture)}.
+ */
+public class DuplicateFinder implements Closeable {
+
+    private final HashIndex index;
+    private final int threshold;
+    private final ForkJoinPool pool;
+    private final ScheduledThreadPoolExecutor executor;
+    private final LatencyHistogram hashLatency = new LatencyHistogram();
+    private final LatencyHistogram runLatency = new LatencyHistogram();
+    private final AtomicLong hashed = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    private volatile Set<String> duplicates = Collections.emptySet();
+
+    /**
+     * @param indexFile file of the {@link HashIndex}
+     * @param threshold bits the {@code pHash}es of duplicates may differ in
+     * @param threads number of threads hashing pictures
+     */
+    public DuplicateFinder(Path indexFile, int threshold, int threads) {
+        if (threshold < 0 || threads < 1) {
+            throw new IllegalArgumentException("threshold can't be negative and threads has to be positive");
+        }
+        this.index = new HashIndex(indexFile);
+        this.threshold = threshold;
+        this.pool = new ForkJoinPool(threads);
+        this.executor = new ScheduledThreadPoolExecutor(1, runnable -> {
+            Thread thread = new Thread(runnable, "duplicate-finder");
+            thread.setDaemon(true);
+            thread.setPriority(Thread.MIN_PRIORITY);
+            return thread;
+        });
+    }
+
+    /**
+     * Searches the playlist for duplicates now and then periodically, so
+     * changed playlists and directories are covered as well.
+     *
+     * @param playlist returns the current playlist
+     */
+    public void start(Supplier<Playlist> playlist, long period, TimeUnit unit) {
+        executor.scheduleWithFixedDelay(() -> {
+            try {
+                search(playlist.get());
+            } catch (RuntimeException e) {
+                System.err.println("Could not search for duplicates: " + e);
+            }
+        }, 0, period, unit);
+    }
+
+    /**
+     * Hashes the pictures of a playlist and replaces the known duplicates
+     * with the ones found in it.
+     */
+    public void search(Playlist playlist) {
+        long start = System.nanoTime();
+        Set<String> unique = new LinkedHashSet<>();
+        for (int k = 0; k < playlist.size(); k++) {
+            unique.add(normalize(playlist.get(k).getPath()));
+        }
+        String[] paths = unique.toArray(new String[0]);
+        HashIndex.Entry[] entries = new HashIndex.Entry[paths.length];
+        long before = hashed.get();
+        pool.invoke(new HashTask(paths, entries, 0, paths.length));
+        index.retain(unique);
+        try {
+            index.save();
+        } catch (IOException e) {
+            System.err.println("Could not save the hash index: " + e);
+        }
+        long[] hashes = new long[entries.length];
+        for (int k = 0; k < entries.length; k++) {
+            hashes[k] = entries[k] == null ? 0 : entries[k].getPHash();
+        }
+        MultiIndex similar = new MultiIndex(hashes);
+        int[] groups = new int[entries.length];
+        for (int k = 0; k < groups.length; k++) {
+            groups[k] = k;
+        }
+        for (int k = 0; k < entries.length; k++) {
+            HashIndex.Entry entry = entries[k];
+            if (entry == null) {
+                continue;
+            }
+            int self = k;
+            similar.search(entry.getPHash(), threshold, other -> {
+                if (other > self && entries[other] != null
+                        && PerceptualHash.distance(entries[other].getDHash(), entry.getDHash()) <= 2 * threshold) {
+                    union(groups, self, other);
+                }
+            });
+        }
+        // the best picture of every group, found by its root
+        int[] best = new int[entries.length];
+        Arrays.fill(best, -1);
+        for (int k = 0; k < entries.length; k++) {
+            int root = find(groups, k);
+            if (entries[k] != null && (best[root] < 0 || better(entries[k], paths[k], entries[best[root]], paths[best[root]]))) {
+                best[root] = k;
+            }
+        }
+        Set<String> found = new HashSet<>();
+        for (int k = 0; k < entries.length; k++) {
+            if (entries[k] != null && best[find(groups, k)] != k) {
+                found.add(paths[k]);
+            }
+        }
+        duplicates = found;
+        long end = System.nanoTime();
+        runLatency.record(end - start);
+        System.out.println(String.format(Locale.ROOT, "Found %d duplicates among %d pictures in %.1fms (%d hashed)",
+                found.size(), paths.length, (end - start) / 1e6, hashed.get() - before));
+    }
+
+    /**
+     * Returns the root of the group of a picture, halving the path to it.
+     */
+    private static int find(int[] groups, int k) {
+        while (groups[k] != k) {
+            groups[k] = groups[groups[k]];
+            k = groups[k];
+        }
+        return k;
+    }
+
+    private static void union(int[] groups, int a, int b) {
+        int rootA = find(groups, a);
+        int rootB = find(groups, b);
+        if (rootA != rootB) {
+            groups[Math.max(rootA, rootB)] = Math.min(rootA, rootB);
+        }
+    }
+
+    private static boolean better(HashIndex.Entry a, String pathA, HashIndex.Entry b, String pathB) {
+        long pixelsA = (long) a.getWidth() * a.getHeight();
+        long pixelsB = (long) b.getWidth() * b.getHeight();
+        if (pixelsA != pixelsB) {
+            return pixelsA > pixelsB;
+        }
+        if (a.getSize() != b.getSize()) {
+            return a.getSize() > b.getSize();
+        }
+        return pathA.compareTo(pathB) < 0;
+    }
+
+    private HashIndex.Entry hash(String path) {
+        try {
+            Path file = Paths.get(path);
+            BasicFileAttributes attributes = Files.readAttributes(file, BasicFileAttributes.class);
+            long modified = attributes.lastModifiedTime().toMillis();
+            HashIndex.Entry entry = index.get(path, attributes.size(), modified);
+            if (entry == null) {
+                long start = System.nanoTime();
+                entry = PerceptualHash.hash(file, attributes.size(), modified);
+                hashLatency.record(System.nanoTime() - start);
+                hashed.incrementAndGet();
+                index.put(path, entry);
+            }
+            return entry;
+        } catch (IOException | RuntimeException e) {
+            // missing and broken pictures are skipped by the prefetcher
+            failed.incrementAndGet();
+            return null;
+        }
+    }
+
+    private static String normalize(String path) {
+        return Paths.get(path).toAbsolutePath().normalize().toString();
+    }
+
+    /**
+     * Returns whether the picture looks like another picture of the
+     * playlist witch is kept instead.
+     */
+    public boolean isDuplicate(Picture picture) {
+        Set<String> duplicates = this.duplicates;
+        return !duplicates.isEmpty() && duplicates.contains(normalize(picture.getPath()));
+    }
+
+    public int getDuplicates() {
+        return duplicates.size();
+    }
+
+    /**
+     * Returns how long hashing a picture took, for pictures witch were not
+     * in the index.
+     */
+    public LatencyHistogram getHashLatency() {
+        return hashLatency;
+    }
+
+    /**
+     * Returns how long a whole search took.
+     */
+    public LatencyHistogram getRunLatency() {
+        return runLatency;
+    }
+
+    public long getHashed() {
+        return hashed.get();
+    }
+
+    public long getFailed() {
+        return failed.get();
+    }
+
+    @Override
+    public void close() throws IOException {
+        executor.shutdownNow();
+        pool.shutdownNow();
+        index.save();
+    }
+
+    private final class HashTask extends RecursiveAction {
+
+        private final String[] paths;
+        private final HashIndex.Entry[] entries;
+        private final int start;
+        private final int end;
+
+        private HashTask(String[] paths, HashIndex.Entry[] entries, int start, int end) {
+            this.paths = paths;
+            this.entries = entries;
+            this.start = start;
+            this.end = end;
+        }
+
+        @Override
+        protected void compute() {
+            if (end - start <= 1) {
+                if (end > start) {
+                    entries[start] = hash(paths[start]);
+                }
+                return;
+            }
+            int middle = (start + end) >>> 1;
+            invokeAll(new HashTask(paths, entries, start, middle), new HashTask(paths, entries, middle, end));
+        }
+    }
+}
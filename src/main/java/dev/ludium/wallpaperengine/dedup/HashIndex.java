@@ -0,0 +1,208 @@
+package dev.ludium.wallpaperengine.dedup;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The perceptual hashes of pictures, remembered together with the size and
+ * modification time of the files, so a picture is only hashed again after
+ * it changed.
+ * <p>
+ * The index is saved as binary file: the paths are sorted and every path
+ * only stores the bytes after the prefix it shares with the path before
+ * (front coding), numbers are stored as variable length integers, so an
+ * entry of a large directory takes about 30 bytes.
+ */
+public class HashIndex {
+
+    private static final int MAGIC = 0x57504848;
+    // 2: pHashes compare with the median of the 63 coefficients
+    private static final int VERSION = 2;
+
+    private final Path file;
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+    private volatile boolean dirty;
+
+    /**
+     * Loads an index, a missing or damaged file gives an empty index.
+     */
+    public HashIndex(Path file) {
+        this.file = file;
+        load();
+    }
+
+    /**
+     * Returns the entry of a file if its size and modification time still
+     * match, else {@code null}.
+     */
+    public Entry get(String path, long size, long modified) {
+        Entry entry = entries.get(path);
+        return entry != null && entry.size == size && entry.modified == modified ? entry : null;
+    }
+
+    public void put(String path, Entry entry) {
+        entries.put(path, entry);
+        dirty = true;
+    }
+
+    /**
+     * Forgets all files except the given ones.
+     */
+    public void retain(Collection<String> paths) {
+        if (entries.keySet().retainAll(paths)) {
+            dirty = true;
+        }
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    /**
+     * Saves the index if it changed.
+     */
+    public synchronized void save() throws IOException {
+        if (!dirty) {
+            return;
+        }
+        dirty = false;
+        Files.createDirectories(file.toAbsolutePath().getParent());
+        Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp)))) {
+            Map<String, Entry> sorted = new TreeMap<>(entries);
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(sorted.size());
+            byte[] previous = new byte[0];
+            for (Map.Entry<String, Entry> item : sorted.entrySet()) {
+                byte[] path = item.getKey().getBytes(StandardCharsets.UTF_8);
+                int shared = 0;
+                while (shared < path.length && shared < previous.length && path[shared] == previous[shared]) {
+                    shared++;
+                }
+                writeVarLong(out, shared);
+                writeVarLong(out, path.length - shared);
+                out.write(path, shared, path.length - shared);
+                Entry entry = item.getValue();
+                writeVarLong(out, entry.size);
+                writeVarLong(out, entry.modified);
+                writeVarLong(out, entry.width);
+                writeVarLong(out, entry.height);
+                out.writeLong(entry.dHash);
+                out.writeLong(entry.pHash);
+                previous = path;
+            }
+        }
+        try {
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    private void load() {
+        if (!Files.isRegularFile(file)) {
+            return;
+        }
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+                return;
+            }
+            int count = in.readInt();
+            byte[] path = new byte[256];
+            for (int k = 0; k < count; k++) {
+                int shared = (int) readVarLong(in);
+                int length = shared + (int) readVarLong(in);
+                if (length > path.length) {
+                    path = Arrays.copyOf(path, Math.max(length, path.length * 2));
+                }
+                in.readFully(path, shared, length - shared);
+                String name = new String(path, 0, length, StandardCharsets.UTF_8);
+                entries.put(name, new Entry(readVarLong(in), readVarLong(in), (int) readVarLong(in), (int) readVarLong(in),
+                        in.readLong(), in.readLong()));
+            }
+        } catch (IOException | RuntimeException e) {
+            System.err.println("Ignoring damaged hash index " + file + ": " + e);
+            entries.clear();
+        }
+    }
+
+    private static void writeVarLong(DataOutputStream out, long value) throws IOException {
+        while ((value & ~0x7FL) != 0) {
+            out.writeByte((int) (value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.writeByte((int) value);
+    }
+
+    private static long readVarLong(DataInputStream in) throws IOException {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            int b = in.readUnsignedByte();
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IOException("Malformed number");
+    }
+
+    /**
+     * The hashes and the size of a picture.
+     */
+    public static final class Entry {
+
+        private final long size;
+        private final long modified;
+        private final int width;
+        private final int height;
+        private final long dHash;
+        private final long pHash;
+
+        public Entry(long size, long modified, int width, int height, long dHash, long pHash) {
+            this.size = size;
+            this.modified = modified;
+            this.width = width;
+            this.height = height;
+            this.dHash = dHash;
+            this.pHash = pHash;
+        }
+
+        public long getSize() {
+            return size;
+        }
+
+        public long getModified() {
+            return modified;
+        }
+
+        public int getWidth() {
+            return width;
+        }
+
+        public int getHeight() {
+            return height;
+        }
+
+        public long getDHash() {
+            return dHash;
+        }
+
+        public long getPHash() {
+            return pHash;
+        }
+    }
+}
@@ -0,0 +1,99 @@
+package dev.ludium.wallpaperengine.dedup;
+
+import java.util.Arrays;
+import java.util.function.IntConsumer;
+
+/**
+ * Finds 64 bit hashes within a small Hamming distance of a hash without
+ * comparing it with all of them (multi-index hashing).
+ * <p>
+ * Every hash is split into four 16 bit chunks and every chunk position has
+ * its own table from chunk to hashes. If two hashes differ in at most
+ * {@code d} bits, at least one of their four chunks differs in at most
+ * {@code d / 4} bits, so a search only looks up the chunks within that
+ * distance in every table, for {@code d = 8} 137 of 65536 buckets each,
+ * and compares only the hashes found there. The tables are built once for
+ * all hashes as sorted arrays of values with an offset per bucket.
+ */
+public class MultiIndex {
+
+    private static final int CHUNKS = 4;
+    private static final int BITS = 16;
+    private static final int BUCKETS = 1 << BITS;
+
+    private final long[] hashes;
+    private final int[][] offsets = new int[CHUNKS][];
+    private final int[][] entries = new int[CHUNKS][];
+    private final int[] seen;
+    private int query;
+
+    /**
+     * Indexes the given hashes, a search reports the index into this array.
+     */
+    public MultiIndex(long[] hashes) {
+        this.hashes = hashes.clone();
+        this.seen = new int[hashes.length];
+        for (int chunk = 0; chunk < CHUNKS; chunk++) {
+            int[] offsets = new int[BUCKETS + 1];
+            for (long hash : hashes) {
+                offsets[chunk(hash, chunk) + 1]++;
+            }
+            for (int bucket = 0; bucket < BUCKETS; bucket++) {
+                offsets[bucket + 1] += offsets[bucket];
+            }
+            int[] entries = new int[hashes.length];
+            int[] next = offsets.clone();
+            for (int k = 0; k < hashes.length; k++) {
+                entries[next[chunk(hashes[k], chunk)]++] = k;
+            }
+            this.offsets[chunk] = offsets;
+            this.entries[chunk] = entries;
+        }
+    }
+
+    /**
+     * Passes the index of every hash within the given distance of a hash
+     * to the consumer, each once. Not thread safe.
+     */
+    public void search(long hash, int maxDistance, IntConsumer consumer) {
+        if (++query == 0) {
+            Arrays.fill(seen, 0);
+            query = 1;
+        }
+        int radius = Math.min(maxDistance / CHUNKS, BITS);
+        for (int chunk = 0; chunk < CHUNKS; chunk++) {
+            probe(chunk, chunk(hash, chunk), 0, radius, hash, maxDistance, consumer);
+        }
+    }
+
+    /**
+     * Looks up the bucket and all buckets witch differ in up to
+     * {@code radius} more bits at or above {@code from}.
+     */
+    private void probe(int chunk, int bucket, int from, int radius, long hash, int maxDistance, IntConsumer consumer) {
+        int[] offsets = this.offsets[chunk];
+        int[] entries = this.entries[chunk];
+        for (int j = offsets[bucket]; j < offsets[bucket + 1]; j++) {
+            int entry = entries[j];
+            if (seen[entry] != query) {
+                seen[entry] = query;
+                if (PerceptualHash.distance(hashes[entry], hash) <= maxDistance) {
+                    consumer.accept(entry);
+                }
+            }
+        }
+        if (radius > 0) {
+            for (int bit = from; bit < BITS; bit++) {
+                probe(chunk, bucket ^ 1 << bit, bit + 1, radius - 1, hash, maxDistance, consumer);
+            }
+        }
+    }
+
+    private static int chunk(long hash, int chunk) {
+        return (int) (hash >>> (chunk * BITS)) & (BUCKETS - 1);
+    }
+
+    public int size() {
+        return hashes.length;
+    }
+}
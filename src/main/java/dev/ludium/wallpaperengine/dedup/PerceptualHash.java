@@ -0,0 +1,137 @@
+package dev.ludium.wallpaperengine.dedup;
+
+import dev.ludium.wallpaperengine.ImageDecoder;
+
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+/**
+ * Perceptual hashes of pictures: 64 bit fingerprints witch stay nearly the
+ * same when a picture is resized, encoded again or slightly changed, so
+ * the number of different bits ({@link #distance(long, long)}) tells how
+ * similar two pictures look.
+ * <p>
+ * {@link #dHash(BufferedImage)} compares the brightness of neighbouring
+ * cells of a 9x8 grid, {@link #pHash(BufferedImage)} compares the lowest
+ * 8x8 frequencies of the discrete cosine transform of a 32x32 grid with
+ * their median. Both only need a few thousand pixels, so pictures are
+ * decoded at a fraction of their resolution ({@link #hash(Path, long, long)}).
+ */
+public final class PerceptualHash {
+
+    /**
+     * Smallest side of the decoded pictures, enough for the 32x32 grid.
+     */
+    public static final int DECODE_SIZE = 64;
+
+    private static final int DCT_SIZE = 32;
+    private static final int LOW = 8;
+    private static final double[][] COSINES = new double[LOW][DCT_SIZE];
+
+    static {
+        for (int u = 0; u < LOW; u++) {
+            for (int x = 0; x < DCT_SIZE; x++) {
+                COSINES[u][x] = Math.cos((2 * x + 1) * u * Math.PI / (2 * DCT_SIZE));
+            }
+        }
+    }
+
+    private PerceptualHash() {
+    }
+
+    /**
+     * Returns the number of bits in witch two hashes differ.
+     */
+    public static int distance(long a, long b) {
+        return Long.bitCount(a ^ b);
+    }
+
+    public static long dHash(BufferedImage image) {
+        double[] gray = gray(image, 9, 8);
+        long hash = 0;
+        for (int y = 0; y < 8; y++) {
+            for (int x = 0; x < 8; x++) {
+                hash = hash << 1 | (gray[y * 9 + x] > gray[y * 9 + x + 1] ? 1 : 0);
+            }
+        }
+        return hash;
+    }
+
+    public static long pHash(BufferedImage image) {
+        double[] gray = gray(image, DCT_SIZE, DCT_SIZE);
+        // separable transform, only the lowest frequencies are needed
+        double[] rows = new double[DCT_SIZE * LOW];
+        for (int y = 0; y < DCT_SIZE; y++) {
+            for (int u = 0; u < LOW; u++) {
+                double sum = 0;
+                for (int x = 0; x < DCT_SIZE; x++) {
+                    sum += gray[y * DCT_SIZE + x] * COSINES[u][x];
+                }
+                rows[y * LOW + u] = sum;
+            }
+        }
+        double[] coefficients = new double[LOW * LOW];
+        for (int v = 0; v < LOW; v++) {
+            for (int u = 0; u < LOW; u++) {
+                double sum = 0;
+                for (int y = 0; y < DCT_SIZE; y++) {
+                    sum += rows[y * LOW + u] * COSINES[v][y];
+                }
+                coefficients[v * LOW + u] = sum;
+            }
+        }
+        // the first coefficient is the average brightness and left out of the median of the other 63
+        double[] sorted = Arrays.copyOfRange(coefficients, 1, coefficients.length);
+        Arrays.sort(sorted);
+        double median = sorted[sorted.length / 2];
+        long hash = 0;
+        for (double coefficient : coefficients) {
+            hash = hash << 1 | (coefficient > median ? 1 : 0);
+        }
+        return hash;
+    }
+
+    /**
+     * Averages the brightness of the picture in a grid of the given size.
+     */
+    static double[] gray(BufferedImage image, int width, int height) {
+        int imageWidth = image.getWidth();
+        int imageHeight = image.getHeight();
+        double[] sums = new double[width * height];
+        int[] counts = new int[width * height];
+        int[] row = new int[imageWidth];
+        for (int y = 0; y < imageHeight; y++) {
+            image.getRGB(0, y, imageWidth, 1, row, 0, imageWidth);
+            int cellRow = (int) ((long) y * height / imageHeight) * width;
+            for (int x = 0; x < imageWidth; x++) {
+                int rgb = row[x];
+                int cell = cellRow + (int) ((long) x * width / imageWidth);
+                sums[cell] += 0.299 * (rgb >> 16 & 0xFF) + 0.587 * (rgb >> 8 & 0xFF) + 0.114 * (rgb & 0xFF);
+                counts[cell]++;
+            }
+        }
+        for (int k = 0; k < sums.length; k++) {
+            sums[k] = counts[k] == 0 ? 0 : sums[k] / counts[k];
+        }
+        return sums;
+    }
+
+    /**
+     * Hashes a picture file. The {@link ImageDecoder} decodes only every
+     * {@code n}th pixel of the picture, so its smaller side is still at
+     * least {@link #DECODE_SIZE}.
+     *
+     * @param size size of the file, stored in the entry
+     * @param modified modification time of the file, stored in the entry
+     * @throws IOException if the picture can't be read or decoded
+     */
+    public static HashIndex.Entry hash(Path source, long size, long modified) throws IOException {
+        try (ImageDecoder.Decoded decoded = ImageDecoder.getShared().decode(source, DECODE_SIZE, DECODE_SIZE, false)) {
+            BufferedImage image = decoded.getImage();
+            return new HashIndex.Entry(size, modified, decoded.getSourceWidth(), decoded.getSourceHeight(),
+                    dHash(image), pHash(image));
+        }
+    }
+}
@@ -0,0 +1,55 @@
+package dev.ludium.wallpaperengine.playlist;
+
+import dev.ludium.wallpaperengine.Picture;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Several playlists played one after another.
+ */
+public class CompositePlaylist implements Playlist {
+
+    private final List<Playlist> parts;
+
+    public CompositePlaylist(List<Playlist> parts) {
+        this.parts = new ArrayList<>(parts);
+    }
+
+    @Override
+    public int size() {
+        int size = 0;
+        for (Playlist part : parts) {
+            size += part.size();
+        }
+        return size;
+    }
+
+    @Override
+    public Picture get(int index) {
+        int total = size();
+        int rest = total == 0 ? index : index % total;
+        for (Playlist part : parts) {
+            int size = part.size();
+            if (rest < size) {
+                return part.get(rest);
+            }
+            rest -= size;
+        }
+        throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size());
+    }
+
+    @Override
+    public void rewind() {
+        parts.forEach(Playlist::rewind);
+    }
+
+    @Override
+    public void close() {
+        parts.forEach(Playlist::close);
+    }
+
+    public List<Playlist> getParts() {
+        return parts;
+    }
+}
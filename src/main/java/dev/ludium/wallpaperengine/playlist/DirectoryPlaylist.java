@@ -0,0 +1,551 @@
+package dev.ludium.wallpaperengine.playlist;
+
+import dev.ludium.wallpaperengine.Picture;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileSystems;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.PathMatcher;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Locale;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * All pictures in a directory, optionally with its subdirectories, witch
+ * match a glob pattern.
+ * <p>
+ * The paths are kept relative to the directory as {@code UTF-8} bytes in one
+ * array, no {@link Path}, {@link String} or {@link Picture} exists for a
+ * file until it is played. The index is saved in the cache directory and
+ * loaded on the next start, so the engine starts right away no matter how
+ * many files the directory contains; the directory is then scanned again in
+ * the background. Afterwards a {@link WatchService} adds and removes files
+ * as they are created and deleted.
+ * <p>
+ * A glob without {@code '/'} is matched against the file names, otherwise
+ * against the paths relative to the directory. Without a glob all common
+ * picture formats are matched.
+ */
+public class DirectoryPlaylist implements Playlist {
+
+    private static final int MAGIC = 0x57504C49;
+    private static final int VERSION = 1;
+    private static final long SAVE_INTERVAL = TimeUnit.SECONDS.toNanos(30);
+
+    private final Path root;
+    private final String glob;
+    private final boolean recursive;
+    private final long delay;
+    private final Path indexFile;
+    private final PathMatcher matcher;
+    private final boolean matchName;
+    private final WatchService watchService;
+    private final Set<String> directories = new HashSet<>();
+    private volatile boolean closed;
+
+    private PathIndex index = new PathIndex();
+    private boolean dirty;
+    private long saved = System.nanoTime();
+
+    /**
+     * @param root the directory
+     * @param glob glob pattern for the pictures, {@code null} for all pictures
+     * @param recursive whether subdirectories are included
+     * @param delay delay of every picture, {@code 0} for the default delay
+     * @param cacheDirectory directory for the saved index, {@code null} to not save it
+     */
+    public DirectoryPlaylist(Path root, String glob, boolean recursive, long delay, Path cacheDirectory) throws IOException {
+        this.root = root.toAbsolutePath().normalize();
+        this.glob = glob;
+        this.recursive = recursive;
+        this.delay = delay;
+        this.matchName = glob == null || !glob.contains("/");
+        this.matcher = FileSystems.getDefault().getPathMatcher("glob:" + (glob == null ? "*.{jpg,jpeg,png,bmp,gif}" : glob));
+        this.indexFile = cacheDirectory == null ? null : cacheDirectory.resolve("playlist-"
+                + Integer.toHexString(Objects.hash(this.root.toString(), glob, recursive)) + ".idx");
+        if (!Files.isDirectory(this.root)) {
+            throw new IOException("Not a directory: " + this.root);
+        }
+        this.watchService = this.root.getFileSystem().newWatchService();
+        boolean loaded = load();
+        if (!loaded) {
+            scan();
+        }
+        Thread watcher = new Thread(() -> watch(loaded), "playlist-watcher-" + this.root.getFileName());
+        watcher.setDaemon(true);
+        watcher.start();
+    }
+
+    @Override
+    public synchronized int size() {
+        return index.count;
+    }
+
+    @Override
+    public Picture get(int position) {
+        String relative;
+        synchronized (this) {
+            if (index.count == 0) {
+                throw new IndexOutOfBoundsException("The directory " + root + " contains no pictures.");
+            }
+            relative = index.get(position % index.count);
+        }
+        return new Picture(root.resolve(relative).toString(), delay);
+    }
+
+    public Path getRoot() {
+        return root;
+    }
+
+    public String getGlob() {
+        return glob;
+    }
+
+    public boolean isRecursive() {
+        return recursive;
+    }
+
+    public long getDelay() {
+        return delay;
+    }
+
+    /**
+     * Stops watching the directory and saves the index.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        try {
+            watchService.close();
+        } catch (IOException e) {
+            // the watcher ends anyway
+        }
+        save(true);
+    }
+
+    private void watch(boolean rescan) {
+        try {
+            if (rescan) {
+                scan();
+            }
+            save(true);
+            while (!closed) {
+                WatchKey key = watchService.poll(1, TimeUnit.SECONDS);
+                if (key != null) {
+                    handle(key);
+                }
+                save(false);
+            }
+        } catch (ClosedWatchServiceException | InterruptedException e) {
+            // closed
+        } catch (IOException e) {
+            System.err.println("Stopped watching " + root + ": " + e);
+        }
+    }
+
+    private void handle(WatchKey key) throws IOException {
+        Path directory = (Path) key.watchable();
+        for (WatchEvent<?> event : key.pollEvents()) {
+            if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+                scan();
+                continue;
+            }
+            Path file = directory.resolve((Path) event.context());
+            String relative = root.relativize(file).toString();
+            if (event.kind() == StandardWatchEventKinds.ENTRY_CREATE) {
+                if (Files.isDirectory(file)) {
+                    if (recursive) {
+                        add(file);
+                    }
+                } else if (matches(file)) {
+                    synchronized (this) {
+                        dirty |= index.add(relative);
+                    }
+                }
+            } else if (event.kind() == StandardWatchEventKinds.ENTRY_DELETE) {
+                String prefix = relative + root.getFileSystem().getSeparator();
+                // only a watched directory can contain pictures, so only its removal has to search the whole index
+                boolean tree = directories.remove(relative);
+                if (tree) {
+                    directories.removeIf(path -> path.startsWith(prefix));
+                }
+                synchronized (this) {
+                    dirty |= index.remove(relative);
+                    if (tree) {
+                        dirty |= index.removeTree(prefix);
+                    }
+                }
+            }
+        }
+        key.reset();
+    }
+
+    /**
+     * Scans the whole directory into a new index and replaces the current
+     * one with it.
+     */
+    private void scan() throws IOException {
+        PathIndex scanned = new PathIndex();
+        if (recursive) {
+            Files.walkFileTree(root, new SimpleFileVisitor<Path>() {
+                @Override
+                public FileVisitResult preVisitDirectory(Path directory, BasicFileAttributes attributes) throws IOException {
+                    register(directory);
+                    return FileVisitResult.CONTINUE;
+                }
+
+                @Override
+                public FileVisitResult visitFile(Path file, BasicFileAttributes attributes) {
+                    if (attributes.isRegularFile() && matches(file)) {
+                        scanned.add(root.relativize(file).toString());
+                    }
+                    return FileVisitResult.CONTINUE;
+                }
+
+                @Override
+                public FileVisitResult visitFileFailed(Path file, IOException e) {
+                    return FileVisitResult.CONTINUE;
+                }
+            });
+        } else {
+            register(root);
+            try (DirectoryStream<Path> files = Files.newDirectoryStream(root)) {
+                for (Path file : files) {
+                    if (matches(file) && Files.isRegularFile(file)) {
+                        scanned.add(root.relativize(file).toString());
+                    }
+                }
+            }
+        }
+        synchronized (this) {
+            index = scanned;
+            dirty = true;
+        }
+    }
+
+    /**
+     * Adds a new directory with all its files.
+     */
+    private void add(Path directory) throws IOException {
+        Files.walkFileTree(directory, new SimpleFileVisitor<Path>() {
+            @Override
+            public FileVisitResult preVisitDirectory(Path directory, BasicFileAttributes attributes) throws IOException {
+                register(directory);
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attributes) {
+                if (attributes.isRegularFile() && matches(file)) {
+                    String relative = root.relativize(file).toString();
+                    synchronized (DirectoryPlaylist.this) {
+                        dirty |= index.add(relative);
+                    }
+                }
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult visitFileFailed(Path file, IOException e) {
+                return FileVisitResult.CONTINUE;
+            }
+        });
+    }
+
+    private void register(Path directory) throws IOException {
+        if (!directory.equals(root)) {
+            directories.add(root.relativize(directory).toString());
+        }
+        directory.register(watchService, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_DELETE);
+    }
+
+    private boolean matches(Path file) {
+        Path name = matchName ? file.getFileName() : root.relativize(file);
+        if (glob == null) {
+            name = name.getFileSystem().getPath(name.toString().toLowerCase(Locale.ROOT));
+        }
+        return matcher.matches(name);
+    }
+
+    private boolean load() {
+        if (indexFile == null || !Files.isRegularFile(indexFile)) {
+            return false;
+        }
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(indexFile)))) {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION || !in.readUTF().equals(root.toString())
+                    || !in.readUTF().equals(String.valueOf(glob)) || in.readBoolean() != recursive) {
+                return false;
+            }
+            PathIndex loaded = new PathIndex();
+            int count = in.readInt();
+            byte[] path = new byte[256];
+            for (int k = 0; k < count; k++) {
+                int length = in.readUnsignedShort();
+                if (length > path.length) {
+                    path = new byte[length];
+                }
+                in.readFully(path, 0, length);
+                loaded.add(path, 0, length);
+            }
+            synchronized (this) {
+                index = loaded;
+            }
+            return true;
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    private void save(boolean force) {
+        if (indexFile == null) {
+            return;
+        }
+        PathIndex saved;
+        synchronized (this) {
+            if (!dirty || (!force && System.nanoTime() - this.saved < SAVE_INTERVAL)) {
+                return;
+            }
+            saved = index.copy();
+            this.saved = System.nanoTime();
+            dirty = false;
+        }
+        Path temp = indexFile.resolveSibling(indexFile.getFileName() + ".tmp");
+        try {
+            Files.createDirectories(indexFile.getParent());
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp)))) {
+                out.writeInt(MAGIC);
+                out.writeInt(VERSION);
+                out.writeUTF(root.toString());
+                out.writeUTF(String.valueOf(glob));
+                out.writeBoolean(recursive);
+                out.writeInt(saved.count);
+                for (int k = 0; k < saved.count; k++) {
+                    out.writeShort(saved.lengths[k]);
+                    out.write(saved.bytes, saved.offsets[k], saved.lengths[k]);
+                }
+            }
+            try {
+                Files.move(temp, indexFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temp, indexFile, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } catch (IOException e) {
+            System.err.println("Could not save the playlist index " + indexFile + ": " + e);
+        }
+    }
+
+    /**
+     * Relative paths as {@code UTF-8} bytes in one growing array. Removed
+     * paths are replaced by the last one and their bytes are reclaimed when
+     * they make up half of the array. An open addressing hash table of the
+     * positions finds a path without comparing it to the others.
+     */
+    private static final class PathIndex {
+
+        private byte[] bytes = new byte[8192];
+        private int used;
+        private int garbage;
+        private int[] offsets = new int[256];
+        private int[] lengths = new int[256];
+        private int[] hashes = new int[256];
+        /**
+         * Position plus one of the path in every slot, {@code 0} for an
+         * empty slot; linear probing, never more than half full.
+         */
+        private int[] table = new int[512];
+        private int count;
+
+        private boolean add(String path) {
+            byte[] encoded = path.getBytes(StandardCharsets.UTF_8);
+            return add(encoded, 0, encoded.length);
+        }
+
+        /**
+         * Adds a path if it isn't contained yet.
+         */
+        private boolean add(byte[] path, int offset, int length) {
+            int hash = hash(path, offset, length);
+            if (length > 0xFFFF || indexOf(path, offset, length, hash) >= 0) {
+                return false;
+            }
+            if (used + length > bytes.length) {
+                bytes = Arrays.copyOf(bytes, Math.max(used + length, bytes.length * 2));
+            }
+            if (count == offsets.length) {
+                offsets = Arrays.copyOf(offsets, count * 2);
+                lengths = Arrays.copyOf(lengths, count * 2);
+                hashes = Arrays.copyOf(hashes, count * 2);
+            }
+            if ((count + 1) * 2 > table.length) {
+                table = new int[table.length * 2];
+                for (int k = 0; k < count; k++) {
+                    insert(k);
+                }
+            }
+            System.arraycopy(path, offset, bytes, used, length);
+            offsets[count] = used;
+            lengths[count] = length;
+            hashes[count] = hash;
+            used += length;
+            insert(count);
+            count++;
+            return true;
+        }
+
+        private String get(int position) {
+            if (position < 0 || position >= count) {
+                throw new IndexOutOfBoundsException("Index: " + position + ", Size: " + count);
+            }
+            return new String(bytes, offsets[position], lengths[position], StandardCharsets.UTF_8);
+        }
+
+        private int indexOf(String path) {
+            byte[] encoded = path.getBytes(StandardCharsets.UTF_8);
+            return indexOf(encoded, 0, encoded.length, hash(encoded, 0, encoded.length));
+        }
+
+        private int indexOf(byte[] path, int offset, int length, int hash) {
+            int mask = table.length - 1;
+            for (int slot = hash & mask; table[slot] != 0; slot = (slot + 1) & mask) {
+                int position = table[slot] - 1;
+                if (hashes[position] == hash && lengths[position] == length && equals(position, path, offset)) {
+                    return position;
+                }
+            }
+            return -1;
+        }
+
+        private boolean remove(String path) {
+            int position = indexOf(path);
+            if (position < 0) {
+                return false;
+            }
+            removeAt(position);
+            return true;
+        }
+
+        private boolean removeTree(String prefix) {
+            byte[] encoded = prefix.getBytes(StandardCharsets.UTF_8);
+            boolean removed = false;
+            for (int k = count - 1; k >= 0; k--) {
+                if (lengths[k] > encoded.length && equals(k, encoded, 0, encoded.length)) {
+                    removeAt(k);
+                    removed = true;
+                }
+            }
+            return removed;
+        }
+
+        private boolean equals(int position, byte[] path, int offset) {
+            return equals(position, path, offset, lengths[position]);
+        }
+
+        private boolean equals(int position, byte[] path, int offset, int length) {
+            int start = offsets[position];
+            for (int j = 0; j < length; j++) {
+                if (bytes[start + j] != path[offset + j]) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private void removeAt(int position) {
+            delete(slotOf(position));
+            garbage += lengths[position];
+            count--;
+            if (position != count) {
+                table[slotOf(count)] = position + 1;
+                offsets[position] = offsets[count];
+                lengths[position] = lengths[count];
+                hashes[position] = hashes[count];
+            }
+            if (garbage > used / 2) {
+                PathIndex compact = copy();
+                bytes = compact.bytes;
+                used = compact.used;
+                garbage = 0;
+                offsets = compact.offsets;
+                lengths = compact.lengths;
+                hashes = compact.hashes;
+                table = compact.table;
+            }
+        }
+
+        private void insert(int position) {
+            int mask = table.length - 1;
+            int slot = hashes[position] & mask;
+            while (table[slot] != 0) {
+                slot = (slot + 1) & mask;
+            }
+            table[slot] = position + 1;
+        }
+
+        private int slotOf(int position) {
+            int mask = table.length - 1;
+            int slot = hashes[position] & mask;
+            while (table[slot] != position + 1) {
+                slot = (slot + 1) & mask;
+            }
+            return slot;
+        }
+
+        /**
+         * Empties a slot and moves the following entries of the probe
+         * sequence back, so no entry becomes unreachable.
+         */
+        private void delete(int hole) {
+            int mask = table.length - 1;
+            table[hole] = 0;
+            for (int slot = (hole + 1) & mask; table[slot] != 0; slot = (slot + 1) & mask) {
+                int home = hashes[table[slot] - 1] & mask;
+                if (((slot - home) & mask) >= ((slot - hole) & mask)) {
+                    table[hole] = table[slot];
+                    table[slot] = 0;
+                    hole = slot;
+                }
+            }
+        }
+
+        private static int hash(byte[] path, int offset, int length) {
+            int hash = 1;
+            for (int j = offset; j < offset + length; j++) {
+                hash = 31 * hash + path[j];
+            }
+            return hash ^ hash >>> 16;
+        }
+
+        private PathIndex copy() {
+            PathIndex copy = new PathIndex();
+            copy.bytes = new byte[Math.max(16, used - garbage)];
+            copy.offsets = new int[Math.max(16, count)];
+            copy.lengths = new int[Math.max(16, count)];
+            copy.hashes = new int[Math.max(16, count)];
+            copy.table = new int[Integer.highestOneBit(Math.max(16, count) * 4 - 1)];
+            for (int k = 0; k < count; k++) {
+                copy.add(bytes, offsets[k], lengths[k]);
+            }
+            return copy;
+        }
+    }
+}
@@ -0,0 +1,32 @@
+package dev.ludium.wallpaperengine.playlist;
+
+import dev.ludium.wallpaperengine.Picture;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The pictures listed one by one in the config.
+ */
+public class ListPlaylist implements Playlist {
+
+    private final List<Picture> pictures;
+
+    public ListPlaylist(List<Picture> pictures) {
+        this.pictures = new ArrayList<>(pictures);
+    }
+
+    @Override
+    public int size() {
+        return pictures.size();
+    }
+
+    @Override
+    public Picture get(int index) {
+        return pictures.get(index);
+    }
+
+    public List<Picture> getPictures() {
+        return pictures;
+    }
+}
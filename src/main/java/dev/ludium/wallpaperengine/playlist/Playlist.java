@@ -0,0 +1,36 @@
+package dev.ludium.wallpaperengine.playlist;
+
+import dev.ludium.wallpaperengine.Picture;
+
+/**
+ * The pictures the {@link dev.ludium.wallpaperengine.WallpaperScheduler}
+ * switches through, accessed by position so no playlist has to hold all of
+ * its pictures as objects.
+ * <p>
+ * A playlist may change while it is used (for example when files are added
+ * to a watched directory), positions are therefore always taken modulo the
+ * current {@link #size()}.
+ */
+public interface Playlist extends AutoCloseable {
+
+    int size();
+
+    /**
+     * @param index position between {@code 0} and {@link #size()}
+     */
+    Picture get(int index);
+
+    /**
+     * Called when the scheduler starts the playlist anew, so a shuffled
+     * playlist can choose a new order.
+     */
+    default void rewind() {
+    }
+
+    /**
+     * Stops watching the sources of the playlist.
+     */
+    @Override
+    default void close() {
+    }
+}
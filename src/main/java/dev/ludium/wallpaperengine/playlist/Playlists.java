@@ -0,0 +1,129 @@
+package dev.ludium.wallpaperengine.playlist;
+
+import dev.einsjannis.jsonparser.JSONArray;
+import dev.einsjannis.jsonparser.JSONObject;
+import dev.ludium.wallpaperengine.Picture;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Builds the playlist of a config.
+ * <p>
+ * Every entry of {@code "pictures"} is either a picture (a path or an
+ * object with {@code "path"}, see {@link Picture#fromJSON(Object)}) or a
+ * directory: {@code {"directory": "D:/photos", "glob": "*.jpg",
+ * "recursive": true, "delay": 30000}}, where everything but
+ * {@code "directory"} is optional. With {@code "shuffle": true} the whole
+ * playlist is played in a random order.
+ */
+public final class Playlists {
+
+    private Playlists() {
+    }
+
+    /**
+     * @param config the config
+     * @param cacheDirectory directory for the indices of directory playlists
+     * @throws IOException if a directory can't be read
+     * @throws IllegalArgumentException if an entry is invalid
+     */
+    public static Playlist fromConfig(JSONObject config, Path cacheDirectory) throws IOException {
+        return fromConfig(config, cacheDirectory, null);
+    }
+
+    /**
+     * Builds the playlist of a changed config. Directory playlists of the
+     * previous playlist witch are still in the config are used again
+     * instead of being scanned anew; the caller should {@link #release(Playlist, Playlist)}
+     * the rest of the previous playlist.
+     *
+     * @param config the config
+     * @param cacheDirectory directory for the indices of directory playlists
+     * @param previous the playlist of the previous config or {@code null}
+     * @throws IOException if a directory can't be read
+     * @throws IllegalArgumentException if an entry is invalid
+     */
+    public static Playlist fromConfig(JSONObject config, Path cacheDirectory, Playlist previous) throws IOException {
+        List<DirectoryPlaylist> reusable = new ArrayList<>();
+        collect(previous, reusable);
+        List<Playlist> parts = new ArrayList<>();
+        List<Picture> pictures = new ArrayList<>();
+        Object entries = config.get("pictures");
+        if (entries instanceof JSONArray) {
+            try {
+                for (Object entry : (JSONArray) entries) {
+                    if (entry instanceof JSONObject && ((JSONObject) entry).get("directory") instanceof String) {
+                        if (!pictures.isEmpty()) {
+                            parts.add(new ListPlaylist(pictures));
+                            pictures.clear();
+                        }
+                        parts.add(directory((JSONObject) entry, cacheDirectory, reusable));
+                    } else {
+                        pictures.add(Picture.fromJSON(entry));
+                    }
+                }
+            } catch (IOException | RuntimeException e) {
+                release(new CompositePlaylist(parts), previous);
+                throw e;
+            }
+        }
+        if (!pictures.isEmpty() || parts.isEmpty()) {
+            parts.add(new ListPlaylist(pictures));
+        }
+        Playlist playlist = parts.size() == 1 ? parts.get(0) : new CompositePlaylist(parts);
+        if (Boolean.TRUE.equals(config.get("shuffle"))) {
+            playlist = new ShuffledPlaylist(playlist, System.nanoTime());
+        }
+        return playlist;
+    }
+
+    /**
+     * Closes every directory playlist of an old playlist witch isn't used
+     * by the new one.
+     *
+     * @param old the playlist witch is not used anymore
+     * @param current the playlist witch is used now, may be {@code null}
+     */
+    public static void release(Playlist old, Playlist current) {
+        List<DirectoryPlaylist> used = new ArrayList<>();
+        collect(current, used);
+        List<DirectoryPlaylist> unused = new ArrayList<>();
+        collect(old, unused);
+        for (DirectoryPlaylist directory : unused) {
+            if (used.stream().noneMatch(playlist -> playlist == directory)) {
+                directory.close();
+            }
+        }
+    }
+
+    private static void collect(Playlist playlist, List<DirectoryPlaylist> directories) {
+        if (playlist instanceof DirectoryPlaylist) {
+            directories.add((DirectoryPlaylist) playlist);
+        } else if (playlist instanceof ShuffledPlaylist) {
+            collect(((ShuffledPlaylist) playlist).getPlaylist(), directories);
+        } else if (playlist instanceof CompositePlaylist) {
+            ((CompositePlaylist) playlist).getParts().forEach(part -> collect(part, directories));
+        }
+    }
+
+    private static DirectoryPlaylist directory(JSONObject entry, Path cacheDirectory, List<DirectoryPlaylist> reusable)
+            throws IOException {
+        Path root = Paths.get(entry.getString("directory")).toAbsolutePath().normalize();
+        String glob = (String) entry.get("glob");
+        boolean recursive = Boolean.TRUE.equals(entry.get("recursive"));
+        long delay = entry.getLong("delay", 0);
+        for (DirectoryPlaylist directory : reusable) {
+            if (directory.getRoot().equals(root) && Objects.equals(directory.getGlob(), glob)
+                    && directory.isRecursive() == recursive && directory.getDelay() == delay) {
+                reusable.remove(directory);
+                return directory;
+            }
+        }
+        return new DirectoryPlaylist(root, glob, recursive, delay, cacheDirectory);
+    }
+}
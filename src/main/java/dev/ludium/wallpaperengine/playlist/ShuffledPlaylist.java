@@ -0,0 +1,95 @@
+package dev.ludium.wallpaperengine.playlist;
+
+import dev.ludium.wallpaperengine.Picture;
+
+import java.util.Random;
+
+/**
+ * Plays another playlist in a random order witch changes on every
+ * {@link #rewind()}.
+ * <p>
+ * The order is not stored anywhere: position {@code i} is mapped to a
+ * position of the underlying playlist by a keyed permutation (a small
+ * Feistel network over the next power of four, walking the cycle until
+ * the result is in range). Every picture is still played exactly once per
+ * cycle, with constant memory for any size.
+ */
+public class ShuffledPlaylist implements Playlist {
+
+    private static final int ROUNDS = 4;
+
+    private final Playlist playlist;
+    private final Random random;
+    private volatile long key;
+
+    public ShuffledPlaylist(Playlist playlist, long seed) {
+        this.playlist = playlist;
+        this.random = new Random(seed);
+        this.key = random.nextLong();
+    }
+
+    @Override
+    public int size() {
+        return playlist.size();
+    }
+
+    @Override
+    public Picture get(int index) {
+        // the size is read once, the playlist may shrink in the meantime
+        int size = playlist.size();
+        if (size == 0) {
+            return playlist.get(index);
+        }
+        return playlist.get(permute(Math.floorMod(index, size), size, key));
+    }
+
+    @Override
+    public synchronized void rewind() {
+        key = random.nextLong();
+        playlist.rewind();
+    }
+
+    @Override
+    public void close() {
+        playlist.close();
+    }
+
+    public Playlist getPlaylist() {
+        return playlist;
+    }
+
+    /**
+     * Maps a position between {@code 0} and {@code size} to another one;
+     * outside this range the cycle walk would never end.
+     */
+    static int permute(int index, int size, long key) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+        }
+        if (size == 1) {
+            return index;
+        }
+        int halfBits = (32 - Integer.numberOfLeadingZeros(size - 1) + 1) / 2;
+        long mask = (1L << halfBits) - 1;
+        long value = index;
+        do {
+            long left = value >>> halfBits;
+            long right = value & mask;
+            for (int round = 0; round < ROUNDS; round++) {
+                long next = left ^ (mix(right, key + round) & mask);
+                left = right;
+                right = next;
+            }
+            value = left << halfBits | right;
+        } while (value >= size);
+        return (int) value;
+    }
+
+    private static long mix(long value, long key) {
+        long h = value * 0x9E3779B97F4A7C15L ^ key;
+        h ^= h >>> 33;
+        h *= 0xFF51AFD7ED558CCDL;
+        h ^= h >>> 33;
+        return h;
+    }
+}
@@ -0,0 +1,61 @@
+package dev.einsjannis.jsonparser;
+
+import java.util.Arrays;
+
+/**
+ * A document using every kind of {@code JSON} value and the values it
+ * parses into, shared by the tests of the parse paths.
+ */
+final class Documents {
+
+    static final String DOCUMENT = "{\n"
+            + "  \"name\": \"wallpaper\",\n"
+            + "  \"delay\": 60000,\n"
+            + "  \"negative\": -42,\n"
+            + "  \"ratio\": 1.5,\n"
+            + "  \"exponent\": -2.5e-3,\n"
+            + "  \"large\": 123456789012345678901234567890,\n"
+            + "  \"enabled\": true,\n"
+            + "  \"disabled\": false,\n"
+            + "  \"missing\": null,\n"
+            + "  \"empty\": {},\n"
+            + "  \"pictures\": [\"a.jpg\", {\"path\": \"b.png\", \"delay\": 5}, [], [1, [2, 3]]],\n"
+            + "  \"escaped\": \"quote \\\" backslash \\\\ slash \\/ e \\u00e9 tab \\t newline \\n\"\n"
+            + "}";
+
+    static final String[] MALFORMED = {
+            "{\"a\": }", "{\"a\": [1, 2}", "{\"a\" 1}", "{\"a\": \"open}", "{\"a\": 1} x", "{\"a\": tru}", "{\"a\": 1,}"
+    };
+
+    private Documents() {
+    }
+
+    static JSONArray array(Object... values) {
+        JSONArray array = new JSONArray();
+        array.addAll(Arrays.asList(values));
+        return array;
+    }
+
+    /**
+     * Returns the values of {@link #DOCUMENT}.
+     */
+    static JSONObject expected() {
+        JSONObject object = new JSONObject();
+        object.put("name", "wallpaper");
+        object.put("delay", 60000L);
+        object.put("negative", -42L);
+        object.put("ratio", 1.5);
+        object.put("exponent", -2.5e-3);
+        object.put("large", 123456789012345678901234567890.0);
+        object.put("enabled", true);
+        object.put("disabled", false);
+        object.put("missing", null);
+        object.put("empty", new JSONObject());
+        JSONObject picture = new JSONObject();
+        picture.put("path", "b.png");
+        picture.put("delay", 5L);
+        object.put("pictures", array("a.jpg", picture, new JSONArray(), array(1L, array(2L, 3L))));
+        object.put("escaped", "quote \" backslash \\ slash / e \u00e9 tab \t newline \n");
+        return object;
+    }
+}
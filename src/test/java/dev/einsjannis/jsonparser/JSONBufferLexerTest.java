@@ -0,0 +1,61 @@
+package dev.einsjannis.jsonparser;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+public class JSONBufferLexerTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private static ByteBuffer utf8(String json) {
+        return ByteBuffer.wrap(json.getBytes(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void parsesTheSameValuesAsTheLexer() throws Exception {
+        assertEquals(Documents.expected(), JSONObject.fromBuffer(utf8(Documents.DOCUMENT)));
+    }
+
+    @Test
+    public void decodesMultiByteCharsAndSkipsTheByteOrderMark() throws Exception {
+        String json = "\ufeff{\"caf\u00e9\": \"\u65e5\u672c \ud83d\ude00\"}";
+        JSONObject object = JSONObject.fromBuffer(utf8(json));
+        assertEquals("\u65e5\u672c \ud83d\ude00", object.get("caf\u00e9"));
+    }
+
+    @Test
+    public void lexesOnlyTheRemainingBytes() throws Exception {
+        ByteBuffer buffer = utf8("xx{\"a\": 1}yy");
+        buffer.position(2).limit(buffer.limit() - 2);
+        assertEquals(1L, JSONObject.fromBuffer(buffer).get("a"));
+    }
+
+    @Test
+    public void parsesMappedFiles() throws Exception {
+        Path file = folder.newFile("document.json").toPath();
+        Files.write(file, Documents.DOCUMENT.getBytes(StandardCharsets.UTF_8));
+        assertEquals(Documents.expected(), JSONObject.fromFile(file));
+    }
+
+    @Test
+    public void rejectsMalformedJson() {
+        for (String json : Documents.MALFORMED) {
+            try {
+                JSONObject.fromBuffer(utf8(json));
+                fail("accepted " + json);
+            } catch (JSONSyntaxError expected) {
+                // expected
+            }
+        }
+    }
+}
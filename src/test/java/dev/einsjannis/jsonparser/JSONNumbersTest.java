@@ -0,0 +1,90 @@
+package dev.einsjannis.jsonparser;
+
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class JSONNumbersTest {
+
+    private static boolean isNumber(String chars) {
+        int state = JSONNumbers.START;
+        for (int j = 0; j < chars.length(); j++) {
+            state = JSONNumbers.next(state, chars.charAt(j));
+            if (state == JSONNumbers.END) {
+                return false;
+            }
+        }
+        return JSONNumbers.isComplete(state);
+    }
+
+    @Test
+    public void scansNumbers() {
+        for (String number : new String[]{"0", "-12", "1.5", "-0.25e+3", "2E-7", "1e10", ".5", "1."}) {
+            assertTrue(number, isNumber(number));
+        }
+        for (String number : new String[]{"-", "+1", "1e", "1e+", "--1", "1.2.3", "1e5e5", "."}) {
+            assertFalse(number, isNumber(number));
+        }
+    }
+
+    @Test
+    public void parsesIntegralNumbersAsLongsAndOthersAsDoubles() {
+        assertEquals(42L, JSONNumbers.parse("42"));
+        assertEquals(-9223372036854775808L, JSONNumbers.parse("-9223372036854775808"));
+        assertEquals(1e19, JSONNumbers.parse("10000000000000000000"));
+        assertEquals(2.5, JSONNumbers.parse("2.5"));
+        assertEquals(100.0, JSONNumbers.parse("1e2"));
+        assertEquals(3, JSONNumbers.parseLong("3.9"));
+    }
+
+    @Test
+    public void parsesDoublesExactly() {
+        Random random = new Random(1);
+        for (int k = 0; k < 100000; k++) {
+            double value = k % 2 == 0 ? random.nextDouble() * Math.pow(10, random.nextInt(40) - 20) : random.nextInt(1000000) / 1000.0;
+            String chars = Double.toString(value);
+            assertEquals(chars, Double.parseDouble(chars), JSONNumbers.parseDouble(chars), 0);
+        }
+        for (String chars : new String[]{"0.1", "-0.0", "123456789012345678", "1e-320", "1.7976931348623157e308", "4.9e-324"}) {
+            assertEquals(chars, Double.parseDouble(chars), JSONNumbers.parseDouble(chars), 0);
+        }
+    }
+
+    @Test
+    public void typedAccessorsConvertNumbers() throws Exception {
+        JSONObject object = JSONObject.fromString("{\"long\": 7, \"double\": 7.5, \"array\": [1, 2.5]}");
+        assertEquals(7.0, object.getDouble("long"), 0);
+        assertEquals(7, object.getLong("double"));
+        assertEquals(5, object.getLong("missing", 5));
+        JSONArray array = (JSONArray) object.get("array");
+        assertEquals(2, array.getLong(1));
+        assertEquals(1.0, array.getDouble(0), 0);
+    }
+
+    @Test
+    public void primitiveArraysKeepNumberTypes() throws Exception {
+        String json = "{\"longs\": [1, 2, 3], \"doubles\": [1.5, 2e3], \"mixed\": [1, 2.5], \"reversed\": [2.5, 1],"
+                + " \"huge\": [1, 99999999999999999999], \"other\": [1, \"a\"], \"empty\": []}";
+        JSONParser parser = new JSONParser(new JSONBufferLexer(ByteBuffer.wrap(json.getBytes(StandardCharsets.UTF_8))).lex())
+                .setPrimitiveArrays(true);
+        JSONObject object = parser.parseDocumentObject();
+        assertArrayEquals(new long[]{1, 2, 3}, ((JSONNumberArray) object.get("longs")).toLongArray());
+        assertArrayEquals(new double[]{1.5, 2000}, ((JSONNumberArray) object.get("doubles")).toDoubleArray(), 0);
+        for (String key : new String[]{"mixed", "reversed", "huge", "other"}) {
+            assertFalse(key, object.get(key) instanceof JSONNumberArray);
+        }
+        assertEquals(Arrays.asList(1L, 2.5), object.get("mixed"));
+        assertEquals(Arrays.asList(2.5, 1L), object.get("reversed"));
+        assertEquals(Arrays.asList(1L, 1e20), object.get("huge"));
+        assertEquals(Arrays.asList(1L, "a"), object.get("other"));
+        assertEquals(new JSONArray(), object.get("empty"));
+    }
+}
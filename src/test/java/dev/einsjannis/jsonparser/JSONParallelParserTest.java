@@ -0,0 +1,81 @@
+package dev.einsjannis.jsonparser;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+public class JSONParallelParserTest {
+
+    private final ForkJoinPool pool = new ForkJoinPool(4);
+    // tiny ranges, so even small documents are split into many of them
+    private final JSONParallelParser parser = new JSONParallelParser(pool).setChunkSize(16);
+
+    @After
+    public void shutdown() {
+        pool.shutdown();
+    }
+
+    private static ByteBuffer utf8(String json) {
+        return ByteBuffer.wrap(json.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static String manifest(int pictures, String separator) {
+        StringBuilder json = new StringBuilder();
+        for (int k = 0; k < pictures; k++) {
+            json.append(k == 0 ? "" : separator)
+                    .append("{\"path\": \"C:\\\\pictures\\\\").append(k).append(".jpg\", \"tags\": [\"a,b\", \"}\"], \"delay\": ")
+                    .append(k).append('}');
+        }
+        return json.toString();
+    }
+
+    @Test
+    public void parsesArraysLikeTheSequentialParser() throws Exception {
+        String json = "[" + manifest(500, ", ") + ", 1, -2.5e3, true, null, \"]\"]";
+        JSONArray parsed = parser.parseArray(utf8(json));
+        assertEquals(505, parsed.size());
+        assertEquals(JSONArray.fromBuffer(utf8(json)), parsed);
+        assertEquals(new JSONArray(), parser.parseArray(utf8(" [ ] ")));
+    }
+
+    @Test
+    public void parsesNewlineDelimitedJson() throws Exception {
+        String lines = manifest(500, "\n") + "\n\n1\r\ntrue\n\"text\"\n[1,\n 2]\n";
+        JSONArray parsed = parser.parseLines(utf8(lines));
+        JSONArray expected = JSONArray.fromBuffer(utf8("[" + manifest(500, ",") + ", 1, true, \"text\", [1, 2]]"));
+        assertEquals(expected, parsed);
+    }
+
+    @Test
+    public void rejectsTwoValuesOnOneLine() {
+        String[] lines = {"1 2", "true false", "truefalse", "1-2", "1true", "nullnull", "{} {}", "1 \"a\"", "\"a\"1",
+                "[1]\n2 3", "1,2"};
+        for (String line : lines) {
+            try {
+                parser.parseLines(utf8(line));
+                fail("accepted " + line);
+            } catch (JSONSyntaxError expected) {
+                // expected
+            }
+        }
+    }
+
+    @Test
+    public void rejectsMalformedJson() {
+        String[] arrays = {"[1, 2", "[1, 2,]", "[1 2]", "[1, 2] x", "{\"a\": 1}", "[\"open]", "[1, tru]"};
+        for (String json : arrays) {
+            try {
+                parser.parseArray(utf8(json));
+                fail("accepted " + json);
+            } catch (JSONSyntaxError expected) {
+                // expected
+            }
+        }
+    }
+}
@@ -0,0 +1,61 @@
+package dev.einsjannis.jsonparser;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class JSONParserTest {
+
+    @Test
+    public void parsesEveryKindOfValue() throws Exception {
+        JSONObject parsed = JSONObject.fromString(Documents.DOCUMENT);
+        assertEquals(Documents.expected(), parsed);
+        assertEquals(Long.class, parsed.get("delay").getClass());
+        assertEquals(Double.class, parsed.get("ratio").getClass());
+    }
+
+    @Test
+    public void parsesTopLevelArrays() throws Exception {
+        assertEquals(Documents.array(1L, "a", null, new JSONObject()), JSONArray.fromString("[1, \"a\", null, {}]"));
+        assertEquals(new JSONArray(), JSONArray.fromString(" [ ] "));
+    }
+
+    @Test
+    public void rejectsMalformedJson() {
+        for (String json : Documents.MALFORMED) {
+            try {
+                JSONObject.fromString(json);
+                fail("accepted " + json);
+            } catch (JSONSyntaxError expected) {
+                // expected
+            }
+        }
+    }
+
+    @Test
+    public void rejectsAnArrayAsObjectDocument() {
+        try {
+            JSONObject.fromString("[1]");
+            fail();
+        } catch (JSONSyntaxError expected) {
+            // expected
+        }
+    }
+
+    @Test
+    public void parsesLargeDocumentsInLinearTime() throws Exception {
+        StringBuilder json = new StringBuilder("{\"pictures\": [");
+        for (int k = 0; k < 200000; k++) {
+            json.append(k == 0 ? "" : ",").append("{\"path\": \"").append(k).append(".jpg\", \"delay\": ").append(k).append('}');
+        }
+        json.append("]}");
+        long start = System.nanoTime();
+        JSONArray pictures = (JSONArray) JSONObject.fromString(json.toString()).get("pictures");
+        assertEquals(200000, pictures.size());
+        assertEquals(199999L, ((JSONObject) pictures.get(199999)).get("delay"));
+        // re-scanning the parts for every nested value took minutes for this size
+        assertTrue(System.nanoTime() - start < 10_000_000_000L);
+    }
+}
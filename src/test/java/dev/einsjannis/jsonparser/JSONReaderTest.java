@@ -0,0 +1,80 @@
+package dev.einsjannis.jsonparser;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class JSONReaderTest {
+
+    @Test
+    public void parsesTheSameValuesAsTheLexer() throws Exception {
+        assertEquals(Documents.expected(), JSONObject.fromReader(new StringReader(Documents.DOCUMENT)));
+        assertEquals(Documents.expected(),
+                JSONObject.fromStream(new ByteArrayInputStream(Documents.DOCUMENT.getBytes(StandardCharsets.UTF_8))));
+    }
+
+    @Test
+    public void tokensMayCrossTheBufferBoundary() throws Exception {
+        // a buffer of one char splits every token, string and escape
+        for (int size = 1; size <= 8; size++) {
+            JSONReader reader = new JSONReader(new StringReader(Documents.DOCUMENT), size);
+            assertEquals("buffer " + size, Documents.expected(), new JSONParser(reader).parseDocumentObject());
+        }
+    }
+
+    @Test
+    public void pullsTokensOneByOne() throws Exception {
+        JSONReader reader = new JSONReader(new StringReader("{\"delay\": 5, \"skip\": {\"a\": [1, {}]}, \"name\": \"x\", \"on\": true, \"none\": null}"));
+        assertEquals(JSONPart.Type.OBJECT_START, reader.nextToken());
+        assertEquals("delay", reader.nextName());
+        assertEquals(5, reader.nextLong());
+        reader.nextToken(JSONPart.Type.COMMA);
+        assertEquals("skip", reader.nextName());
+        reader.skipValue();
+        reader.nextToken(JSONPart.Type.COMMA);
+        assertEquals("name", reader.nextName());
+        assertEquals(JSONPart.Type.STRING, reader.peek());
+        assertEquals("x", reader.nextString());
+        reader.nextToken(JSONPart.Type.COMMA);
+        assertEquals("on", reader.nextName());
+        assertTrue(reader.nextBoolean());
+        reader.nextToken(JSONPart.Type.COMMA);
+        assertEquals("none", reader.nextName());
+        reader.nextNull();
+        assertEquals(JSONPart.Type.OBJECT_END, reader.nextToken());
+        assertFalse(reader.hasNext());
+        assertNull(reader.peek());
+    }
+
+    @Test
+    public void rejectsTokensOfAnotherType() throws Exception {
+        JSONReader reader = new JSONReader(new StringReader("[\"text\"]"));
+        reader.nextToken(JSONPart.Type.ARRAY_START);
+        try {
+            reader.nextLong();
+            fail();
+        } catch (JSONSyntaxError expected) {
+            // expected
+        }
+    }
+
+    @Test
+    public void rejectsMalformedJson() throws Exception {
+        for (String json : Documents.MALFORMED) {
+            try {
+                JSONObject.fromReader(new StringReader(json));
+                fail("accepted " + json);
+            } catch (JSONSyntaxError expected) {
+                // expected
+            }
+        }
+    }
+}
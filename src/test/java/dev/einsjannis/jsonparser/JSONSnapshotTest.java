@@ -0,0 +1,99 @@
+package dev.einsjannis.jsonparser;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.Arrays;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class JSONSnapshotTest {
+
+    private static final String CONFIG = "{\"pictures\": [\"C:\\temp\\new\\beach.jpg\", \"D:\\\\walls\\\\\\u00e9t\\u00e9.png\"],"
+            + " \"delay\": 60000}";
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void encodesAndDecodesEveryKindOfValue() {
+        JSONObject expected = Documents.expected();
+        assertEquals(expected, JSONSnapshot.decode(ByteBuffer.wrap(JSONSnapshot.encode(expected))));
+        assertEquals(Documents.array(1L, -1L, Long.MIN_VALUE, 0.5, null),
+                JSONSnapshot.decode(ByteBuffer.wrap(JSONSnapshot.encode(Documents.array(1L, -1L, Long.MIN_VALUE, 0.5, null)))));
+    }
+
+    @Test
+    public void keepsWindowsPathsAndReusesTheSnapshot() throws Exception {
+        Path config = folder.getRoot().toPath().resolve("config.json");
+        Files.write(config, CONFIG.getBytes(StandardCharsets.UTF_8));
+        Path snapshot = folder.getRoot().toPath().resolve("config.json.snapshot");
+        JSONObject loaded = JSONSnapshot.load(config);
+        assertEquals(Documents.array("C:\\temp\\new\\beach.jpg", "D:\\walls\\\u00e9t\u00e9.png"), loaded.get("pictures"));
+        assertEquals(60000L, loaded.get("delay"));
+        assertTrue(Files.exists(snapshot));
+        assertEquals(loaded, JSONSnapshot.load(config));
+    }
+
+    @Test
+    public void parsesAgainWhenTheFileChanged() throws Exception {
+        Path config = folder.getRoot().toPath().resolve("config.json");
+        Files.write(config, CONFIG.getBytes(StandardCharsets.UTF_8));
+        JSONSnapshot.load(config);
+        FileTime modified = Files.getLastModifiedTime(config);
+        // same size and modification time, only the checksum differs
+        Files.write(config, CONFIG.replace("60000", "30000").getBytes(StandardCharsets.UTF_8));
+        Files.setLastModifiedTime(config, modified);
+        assertEquals(30000L, JSONSnapshot.load(config).get("delay"));
+    }
+
+    @Test
+    public void rejectsDamagedCountsWithoutAllocatingThem() {
+        byte[] huge = {(byte) 0xFF, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, 0x07};
+        byte[][] damaged = {
+                // string table
+                huge,
+                // array, object, long array and double array
+                concat(new byte[]{0, 7}, huge), concat(new byte[]{0, 6}, huge),
+                concat(new byte[]{0, 8}, huge), concat(new byte[]{0, 9}, huge),
+                // a double array of two elements with the bytes of only one
+                {0, 9, 2, 0, 0, 0, 0, 0, 0, 0, 0, 0},
+        };
+        for (byte[] bytes : damaged) {
+            try {
+                JSONSnapshot.decode(ByteBuffer.wrap(bytes));
+                fail("decoded " + Arrays.toString(bytes));
+            } catch (IllegalArgumentException expected) {
+                // expected
+            }
+        }
+    }
+
+    @Test
+    public void replacesADamagedSnapshot() throws Exception {
+        Path config = folder.getRoot().toPath().resolve("config.json");
+        Files.write(config, CONFIG.getBytes(StandardCharsets.UTF_8));
+        Path snapshot = folder.getRoot().toPath().resolve("config.json.snapshot");
+        JSONObject loaded = JSONSnapshot.load(config);
+        byte[] bytes = Files.readAllBytes(snapshot);
+        // the header stays valid, the count of the string table becomes Integer.MAX_VALUE
+        byte[] damaged = concat(Arrays.copyOf(bytes, 28), new byte[]{(byte) 0xFF, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, 0x07});
+        Files.write(snapshot, damaged);
+        assertEquals(loaded, JSONSnapshot.load(config));
+        assertTrue(Arrays.equals(bytes, Files.readAllBytes(snapshot)));
+    }
+
+    private static byte[] concat(byte[] first, byte[] second) {
+        byte[] bytes = Arrays.copyOf(first, first.length + second.length);
+        System.arraycopy(second, 0, bytes, first.length, second.length);
+        return bytes;
+    }
+}
@@ -0,0 +1,42 @@
+package dev.einsjannis.jsonparser;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+public class JSONStringTableTest {
+
+    private static final boolean COMPACT_STRINGS = !System.getProperty("java.specification.version").startsWith("1.");
+
+    @Test
+    public void sharesRepeatedStrings() throws Exception {
+        JSONStringTable strings = new JSONStringTable(64, 8);
+        JSONArray array = JSONArray.fromChars("[{\"path\": \"a\"}, {\"path\": \"a\"}, {\"path\": \"a long value\"}, {\"path\": \"a long value\"}]".toCharArray(), strings);
+        JSONObject first = (JSONObject) array.get(0);
+        JSONObject second = (JSONObject) array.get(1);
+        assertSame(first.keySet().iterator().next(), second.keySet().iterator().next());
+        assertSame(first.get("path"), second.get("path"));
+        // longer than the maximum length
+        assertNotSame(((JSONObject) array.get(2)).get("path"), ((JSONObject) array.get(3)).get("path"));
+        assertEquals(6, strings.getLookups());
+        assertEquals(4, strings.getHits());
+    }
+
+    @Test
+    public void estimatesTheSizeOfCompactStrings() {
+        JSONStringTable strings = new JSONStringTable();
+        char[] latin1 = "abcdefghijklmnop".toCharArray();
+        strings.intern(latin1, 0, 16);
+        strings.intern(latin1, 0, 16);
+        // 24 bytes string, 16 bytes array header and one byte per char with compact strings
+        assertEquals(COMPACT_STRINGS ? 24 + 32 : 24 + 48, strings.getSavedBytes());
+        strings.resetStats();
+        char[] greek = "\u03b1\u03b2\u03b3\u03b4\u03b5\u03b6\u03b7\u03b8\u03b9\u03ba\u03bb\u03bc\u03bd\u03be\u03bf\u03c0".toCharArray();
+        strings.intern(greek, 0, 16);
+        strings.intern(greek, 0, 16);
+        assertEquals(24 + 48, strings.getSavedBytes());
+        assertEquals(0.5, strings.getHitRate(), 0);
+    }
+}
@@ -0,0 +1,106 @@
+package dev.einsjannis.jsonparser;
+
+import org.junit.Test;
+
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Checks that json written by the {@link JSONWriter} is read back unchanged
+ * by every parse path and that all paths decode escapes alike, strictly by
+ * default and leniently on request.
+ */
+public class JSONWriterTest {
+
+    private static final String[] PATHS = {"lexer", "reader", "buffer", "lazy", "push"};
+
+    private static JSONObject parse(String path, String json, boolean lenient) throws Exception {
+        byte[] bytes = json.getBytes(StandardCharsets.UTF_8);
+        switch (path) {
+            case "lexer":
+                return new JSONParser(new JSONLexer(json.toCharArray()).setLenient(lenient).lex()).parseDocumentObject();
+            case "reader":
+                return new JSONParser(new JSONReader(new StringReader(json)).setLenient(lenient)).parseDocumentObject();
+            case "buffer":
+                return new JSONParser(new JSONBufferLexer(ByteBuffer.wrap(bytes)).setLenient(lenient).lex()).parseDocumentObject();
+            case "lazy":
+                return (JSONObject) new JSONIndex(new JSONBufferLexer(ByteBuffer.wrap(bytes)).setLenient(lenient).lex()).getRoot();
+            case "push":
+                List<Object> values = new ArrayList<>();
+                JSONPushParser parser = new JSONPushParser(values::add).setLenient(lenient);
+                // one char at a time, so escapes are split between chunks
+                for (char c : json.toCharArray()) {
+                    parser.feed(new char[]{c});
+                }
+                parser.end();
+                assertEquals(1, values.size());
+                return (JSONObject) values.get(0);
+            default:
+                throw new IllegalArgumentException(path);
+        }
+    }
+
+    private static String write(Object value, String indent) throws Exception {
+        StringWriter out = new StringWriter();
+        JSONWriter writer = new JSONWriter(out);
+        if (indent != null) {
+            writer.setIndent(indent);
+        }
+        writer.value(value).flush();
+        return out.toString();
+    }
+
+    @Test
+    public void writtenJsonParsesIntoTheSameValues() throws Exception {
+        JSONObject expected = Documents.expected();
+        expected.put("control", "bell \u0007, unit separator \u001f, line separator \u2028");
+        expected.put("keys \"quoted\"", Documents.array(Long.MIN_VALUE, Double.MIN_VALUE, -0.5));
+        for (String indent : new String[]{null, "  "}) {
+            String json = write(expected, indent);
+            for (String path : PATHS) {
+                assertEquals(path, expected, parse(path, json, false));
+            }
+        }
+    }
+
+    @Test
+    public void writesCompactAndIndentedJson() throws Exception {
+        JSONObject object = new JSONObject();
+        object.put("a", Documents.array(1L, true, null));
+        assertEquals("{\"a\":[1,true,null]}", write(object, null));
+        assertEquals("{\n  \"a\": [\n    1,\n    true,\n    null\n  ]\n}", write(object, "  "));
+    }
+
+    @Test
+    public void allPathsDecodeEscapesAlike() throws Exception {
+        String[] escapes = {"\\\"", "\\\\", "\\/", "\\b", "\\f", "\\n", "\\r", "\\t", "\\u0041", "\\u00e9", "\\ud83d\\ude00", "\\q", "\\u12"};
+        for (boolean lenient : new boolean[]{false, true}) {
+            for (String escape : escapes) {
+                String json = "{\"value\": \"a" + escape + "b\"}";
+                Object first = parse(PATHS[0], json, lenient).get("value");
+                for (String path : PATHS) {
+                    assertEquals(path + " " + escape + " lenient " + lenient, first, parse(path, json, lenient).get("value"));
+                }
+            }
+        }
+    }
+
+    @Test
+    public void decodesControlEscapesUnlessLenient() throws Exception {
+        String json = "{\"path\": \"C:\\temp\\new\\beach.jpg\", \"quoted\": \"\\\"\\\\\\u00e9\"}";
+        for (String path : PATHS) {
+            JSONObject strict = parse(path, json, false);
+            assertEquals(path, "C:\temp\new\beach.jpg", strict.get("path"));
+            JSONObject lenient = parse(path, json, true);
+            assertEquals(path, "C:\\temp\\new\\beach.jpg", lenient.get("path"));
+            assertEquals(path, "\"\\\u00e9", lenient.get("quoted"));
+        }
+        assertEquals("C:\temp\new\beach.jpg", JSONObject.fromString(json).get("path"));
+    }
+}
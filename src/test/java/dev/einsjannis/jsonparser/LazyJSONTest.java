@@ -0,0 +1,74 @@
+package dev.einsjannis.jsonparser;
+
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class LazyJSONTest {
+
+    private static JSONObject lazy(String json) throws JSONSyntaxError {
+        return JSONObject.lazyFromBuffer(ByteBuffer.wrap(json.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    @Test
+    public void equalsTheEagerlyParsedDocument() throws Exception {
+        JSONObject object = lazy(Documents.DOCUMENT);
+        assertEquals(Documents.expected(), object);
+        assertEquals(Documents.expected().hashCode(), object.hashCode());
+        assertEquals(Documents.expected().keySet(), lazy(Documents.DOCUMENT).keySet());
+    }
+
+    @Test
+    public void decodesSingleMembersOnAccess() throws Exception {
+        JSONObject object = lazy(Documents.DOCUMENT);
+        assertEquals(60000, object.getLong("delay"));
+        assertEquals(1.5, object.getDouble("ratio"), 0);
+        assertEquals("wallpaper", object.getString("name"));
+        assertTrue(object.containsKey("missing"));
+        assertNull(object.get("missing"));
+        assertFalse(object.containsKey("unknown"));
+        JSONArray pictures = (JSONArray) object.get("pictures");
+        assertEquals("b.png", ((JSONObject) pictures.get(1)).get("path"));
+        assertEquals(4, pictures.size());
+    }
+
+    @Test
+    public void behavesLikeAMapAfterModification() throws Exception {
+        JSONObject object = lazy("{\"a\": 1, \"b\": {\"c\": [1, 2]}, \"a\": 3}");
+        // the last of duplicate keys wins, like for the eager parser
+        assertEquals(3L, object.get("a"));
+        object.put("d", "new");
+        object.remove("a");
+        assertEquals(2, object.size());
+        JSONArray c = (JSONArray) ((JSONObject) object.get("b")).get("c");
+        c.add(3L);
+        assertEquals(Documents.array(1L, 2L, 3L), c);
+        assertEquals(JSONObject.fromString("{\"b\": {\"c\": [1, 2, 3]}, \"d\": \"new\"}"), object);
+    }
+
+    @Test
+    public void parsesTopLevelArrays() throws Exception {
+        JSONArray array = JSONArray.lazyFromBuffer(ByteBuffer.wrap("[{\"a\": 1}, 2, [3]]".getBytes(StandardCharsets.UTF_8)));
+        assertEquals(JSONArray.fromString("[{\"a\": 1}, 2, [3]]"), array);
+        assertEquals(2, array.getLong(1));
+    }
+
+    @Test
+    public void rejectsMalformedJsonWhileIndexing() {
+        for (String json : Documents.MALFORMED) {
+            try {
+                lazy(json);
+                fail("accepted " + json);
+            } catch (JSONSyntaxError expected) {
+                // expected
+            }
+        }
+    }
+}
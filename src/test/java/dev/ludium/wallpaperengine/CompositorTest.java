@@ -0,0 +1,139 @@
+package dev.ludium.wallpaperengine;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import javax.imageio.ImageIO;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class CompositorTest {
+
+    // two displays of different sizes with a gap between them, the second one lower
+    private static final Rectangle LEFT = new Rectangle(0, 0, 100, 60);
+    private static final Rectangle RIGHT = new Rectangle(120, 20, 80, 40);
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private ImageCache cache;
+    private Compositor compositor;
+    private Path red;
+    private Path green;
+    private Path blue;
+
+    @Before
+    public void setUp() throws IOException {
+        cache = new ImageCache(folder.newFolder("cache").toPath(), 64L << 20);
+        compositor = new Compositor(Arrays.asList(LEFT, RIGHT), cache);
+        red = picture("red.png", Color.RED, Color.RED);
+        green = picture("green.png", Color.GREEN, Color.GREEN);
+        blue = picture("blue.png", Color.BLUE, Color.BLUE);
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        cache.close();
+    }
+
+    /**
+     * Writes a picture with the aspect ratio of the whole desktop, its left
+     * and right half in the given colors.
+     */
+    private Path picture(String name, Color left, Color right) throws IOException {
+        BufferedImage image = new BufferedImage(400, 120, BufferedImage.TYPE_INT_RGB);
+        Graphics2D graphics = image.createGraphics();
+        graphics.setColor(left);
+        graphics.fillRect(0, 0, 200, 120);
+        graphics.setColor(right);
+        graphics.fillRect(200, 0, 200, 120);
+        graphics.dispose();
+        Path file = folder.getRoot().toPath().resolve(name);
+        ImageIO.write(image, "png", file.toFile());
+        return file;
+    }
+
+    private static void assertColor(Color expected, BufferedImage image, int x, int y) {
+        Color actual = new Color(image.getRGB(x, y));
+        // the composed pictures are JPEGs
+        assertTrue(expected + " expected at " + x + "," + y + " but was " + actual,
+                Math.abs(expected.getRed() - actual.getRed()) < 40
+                        && Math.abs(expected.getGreen() - actual.getGreen()) < 40
+                        && Math.abs(expected.getBlue() - actual.getBlue()) < 40);
+    }
+
+    @Test
+    public void placesEveryPictureOnItsDisplay() throws IOException {
+        BufferedImage composed = ImageIO.read(compositor.compose(new Path[]{red, green}).toFile());
+        assertEquals(200, composed.getWidth());
+        assertEquals(60, composed.getHeight());
+        assertColor(Color.RED, composed, 2, 2);
+        assertColor(Color.RED, composed, 97, 57);
+        assertColor(Color.GREEN, composed, 123, 23);
+        assertColor(Color.GREEN, composed, 197, 57);
+        // the gap and the part above the lower display stay black
+        assertColor(Color.BLACK, composed, 110, 30);
+        assertColor(Color.BLACK, composed, 160, 10);
+    }
+
+    @Test
+    public void leavesDisplaysWithoutPictureBlack() throws IOException {
+        BufferedImage composed = ImageIO.read(compositor.compose(new Path[]{red, null}).toFile());
+        assertColor(Color.RED, composed, 50, 30);
+        assertColor(Color.BLACK, composed, 160, 40);
+    }
+
+    @Test
+    public void spansOnePictureOverAllDisplays() throws IOException {
+        Path split = picture("split.png", Color.BLUE, Color.YELLOW);
+        BufferedImage composed = ImageIO.read(compositor.span(split).toFile());
+        assertColor(Color.BLUE, composed, 50, 30);
+        assertColor(Color.YELLOW, composed, 160, 40);
+        assertColor(Color.BLACK, composed, 110, 30);
+    }
+
+    @Test
+    public void composesOnlyChangedDisplays() throws IOException {
+        ImageDecoder decoder = ImageDecoder.getShared();
+        long decodes = decoder.getDecodes();
+        Path first = compositor.compose(new Path[]{red, green});
+        assertEquals(2, decoder.getDecodes() - decodes);
+        // the tile of the left display is kept
+        BufferedImage composed = ImageIO.read(compositor.compose(new Path[]{red, blue}).toFile());
+        assertEquals(3, decoder.getDecodes() - decodes);
+        assertColor(Color.RED, composed, 50, 30);
+        assertColor(Color.BLUE, composed, 160, 40);
+        // a composition seen before comes from the cache
+        assertEquals(first, compositor.compose(new Path[]{red, green}));
+        assertEquals(3, decoder.getDecodes() - decodes);
+        // the same picture on both displays is decoded once
+        compositor.compose(new Path[]{blue, blue});
+        assertEquals(4, decoder.getDecodes() - decodes);
+    }
+
+    @Test(timeout = 10000)
+    public void decodesOnePictureAtATime() throws IOException {
+        ImageDecoder shared = ImageDecoder.getShared();
+        // decoded for the displays the pictures take 47 KB and 21 KB, both together don't fit
+        ImageDecoder.setShared(new ImageDecoder(56L << 10));
+        try {
+            BufferedImage composed = ImageIO.read(compositor.compose(new Path[]{red, green}).toFile());
+            assertColor(Color.RED, composed, 50, 30);
+            assertColor(Color.GREEN, composed, 160, 40);
+            assertEquals(0, ImageDecoder.getShared().getUsed());
+        } finally {
+            ImageDecoder.setShared(shared);
+        }
+    }
+}
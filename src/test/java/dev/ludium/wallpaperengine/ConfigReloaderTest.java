@@ -0,0 +1,118 @@
+package dev.ludium.wallpaperengine;
+
+import dev.einsjannis.jsonparser.JSONObject;
+import dev.ludium.wallpaperengine.playlist.Playlist;
+import dev.ludium.wallpaperengine.playlist.Playlists;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class ConfigReloaderTest {
+
+    private static final String CONFIG = "{\"delay\": 60000, \"pictures\": [\"a.jpg\", \"b.jpg\"]}";
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private Path file;
+    private WallpaperScheduler scheduler;
+    private ConfigReloader reloader;
+
+    @Before
+    public void open() throws Exception {
+        file = folder.getRoot().toPath().resolve("config.json");
+        write(CONFIG);
+        JSONObject config = JSONObject.fromString(CONFIG);
+        Playlist playlist = Playlists.fromConfig(config, null);
+        scheduler = new WallpaperScheduler(playlist, 60000, picture -> { });
+        reloader = new ConfigReloader(file, config, playlist, scheduler, null);
+    }
+
+    @After
+    public void close() throws Exception {
+        reloader.close();
+        scheduler.shutdown();
+        scheduler.awaitTermination(5, TimeUnit.SECONDS);
+    }
+
+    private void write(String config) throws IOException {
+        Files.write(file, config.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static void await(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (!condition.getAsBoolean()) {
+            assertTrue("Timed out", System.nanoTime() < deadline);
+            Thread.sleep(20);
+        }
+    }
+
+    @Test
+    public void handsAChangedPlaylistToTheScheduler() throws Exception {
+        Playlist running = reloader.getPlaylist();
+        write("{\"delay\": 30000, \"pictures\": [\"a.jpg\", \"b.jpg\", \"c.jpg\"]}");
+        reloader.reload();
+        await(() -> reloader.getReloads() == 1);
+        assertEquals(30000L, reloader.getConfig().get("delay"));
+        assertEquals(3, reloader.getPlaylist().size());
+        await(() -> scheduler.getPlaylist() == reloader.getPlaylist());
+        assertTrue(running != reloader.getPlaylist());
+    }
+
+    @Test
+    public void keepsThePlaylistIfOnlyTheDelayChanged() throws Exception {
+        Playlist running = reloader.getPlaylist();
+        write("{\"delay\": 30000, \"pictures\": [\"a.jpg\", \"b.jpg\"]}");
+        reloader.reload();
+        await(() -> reloader.getReloads() == 1);
+        assertSame(running, reloader.getPlaylist());
+    }
+
+    @Test
+    public void debouncesBurstsOfChanges() throws Exception {
+        write("{\"delay\": 30000, \"pictures\": [\"a.jpg\"]}");
+        for (int k = 0; k < 10; k++) {
+            reloader.reload();
+            Thread.sleep(ConfigReloader.DEBOUNCE / 10);
+        }
+        await(() -> reloader.getReloads() == 1);
+        Thread.sleep(ConfigReloader.DEBOUNCE * 2);
+        assertEquals(1, reloader.getReloads());
+    }
+
+    @Test
+    public void keepsTheRunningConfigIfTheNewOneIsInvalid() throws Exception {
+        JSONObject running = reloader.getConfig();
+        write("{\"delay\": 30000, \"pictures\": [");
+        reloader.reload();
+        await(() -> reloader.getFailures() == 1);
+        write("{\"delay\": -1, \"pictures\": []}");
+        reloader.reload();
+        await(() -> reloader.getFailures() == 2);
+        assertNotNull(reloader.getLastError());
+        assertSame(running, reloader.getConfig());
+        assertEquals(0, reloader.getReloads());
+    }
+
+    @Test
+    public void reloadsWhenTheFileIsSaved() throws Exception {
+        reloader.start();
+        write("{\"delay\": 30000, \"pictures\": [\"c.jpg\"]}");
+        await(() -> reloader.getReloads() >= 1 && reloader.getPlaylist().size() == 1);
+        assertEquals(new Picture("c.jpg"), reloader.getPlaylist().get(0));
+    }
+}
@@ -0,0 +1,143 @@
+package dev.ludium.wallpaperengine;
+
+import dev.einsjannis.jsonparser.JSONObject;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.PosixFilePermission;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class ControlServerTest {
+
+    private static final String TOKEN = "0123456789abcdef";
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private final AtomicInteger nexts = new AtomicInteger();
+    private ControlServer server;
+
+    @Before
+    public void start() throws IOException {
+        server = new ControlServer(0, TOKEN)
+                .command("next", request -> nexts.incrementAndGet())
+                .command("fail", request -> {
+                    throw new IllegalStateException("broken");
+                });
+        server.start();
+    }
+
+    @After
+    public void stop() throws IOException {
+        server.close();
+    }
+
+    /**
+     * Sends the text on one connection and returns every line of the
+     * response until the server closes the connection or {@code count}
+     * lines are read.
+     */
+    private List<String> exchange(String text, int count) throws IOException {
+        try (Socket socket = new Socket(InetAddress.getLoopbackAddress(), server.getPort())) {
+            socket.setSoTimeout(10000);
+            OutputStream out = socket.getOutputStream();
+            out.write(text.getBytes(StandardCharsets.UTF_8));
+            out.flush();
+            BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+            List<String> lines = new ArrayList<>();
+            String line;
+            while (lines.size() < count && (line = in.readLine()) != null) {
+                lines.add(line);
+            }
+            return lines;
+        }
+    }
+
+    @Test
+    public void runsCommandsWithTheToken() throws Exception {
+        JSONObject response = ControlClient.send(server.getPort(), TOKEN, "next");
+        assertTrue(response.getBoolean("ok"));
+        assertEquals(1L, response.get("result"));
+        assertEquals(1, nexts.get());
+        List<String> lines = exchange("next " + TOKEN + "\n{\"command\": \"next\", \"token\": \"" + TOKEN + "\"}\n", 2);
+        assertEquals(2, lines.size());
+        assertEquals(2L, JSONObject.fromString(lines.get(0)).get("result"));
+        assertEquals(3L, JSONObject.fromString(lines.get(1)).get("result"));
+    }
+
+    @Test
+    public void rejectsAWrongToken() throws Exception {
+        JSONObject response = ControlClient.send(server.getPort(), "fedcba9876543210", "next");
+        assertFalse(response.getBoolean("ok"));
+        assertTrue(response.getString("error").contains(ControlServer.TOKEN_FILE));
+        assertEquals(0, nexts.get());
+        assertFalse(ControlClient.send(server.getPort(), TOKEN, "unknown").getBoolean("ok"));
+        assertEquals(2, server.getErrors());
+    }
+
+    @Test
+    public void closesTheConnectionAfterAnInvalidRequest() throws Exception {
+        // the second request is never run
+        List<String> lines = exchange("next wrong\nnext " + TOKEN + "\n", Integer.MAX_VALUE);
+        assertEquals(1, lines.size());
+        assertFalse(JSONObject.fromString(lines.get(0)).getBoolean("ok"));
+        lines = exchange("{\"command\": \n", Integer.MAX_VALUE);
+        assertEquals(1, lines.size());
+        assertEquals(0, nexts.get());
+    }
+
+    @Test
+    public void neverRunsAnHttpRequest() throws Exception {
+        String body = "next " + TOKEN + "\n";
+        List<String> lines = exchange("POST / HTTP/1.1\r\nHost: 127.0.0.1\r\nContent-Type: text/plain\r\n"
+                + "Content-Length: " + body.length() + "\r\n\r\n" + body, Integer.MAX_VALUE);
+        assertEquals(1, lines.size());
+        assertFalse(JSONObject.fromString(lines.get(0)).getBoolean("ok"));
+        assertEquals(0, nexts.get());
+    }
+
+    @Test
+    public void keepsTheConnectionAfterAFailedCommand() throws Exception {
+        List<String> lines = exchange("fail " + TOKEN + "\nnext " + TOKEN + "\n", 2);
+        assertEquals(2, lines.size());
+        JSONObject failed = JSONObject.fromString(lines.get(0));
+        assertFalse(failed.getBoolean("ok"));
+        assertEquals("broken", failed.getString("error"));
+        assertTrue(JSONObject.fromString(lines.get(1)).getBoolean("ok"));
+        assertEquals(1, nexts.get());
+    }
+
+    @Test
+    public void writesATokenOnlyTheUserCanRead() throws Exception {
+        Path file = folder.getRoot().toPath().resolve(ControlServer.TOKEN_FILE);
+        String first = ControlServer.writeToken(file);
+        assertEquals(32, first.length());
+        assertEquals(first, ControlServer.readToken(file));
+        String second = ControlServer.writeToken(file);
+        assertFalse(first.equals(second));
+        assertEquals(second, ControlServer.readToken(file));
+        if (Files.getFileStore(file).supportsFileAttributeView("posix")) {
+            assertEquals(EnumSet.of(PosixFilePermission.OWNER_READ, PosixFilePermission.OWNER_WRITE),
+                    Files.getPosixFilePermissions(file));
+        }
+    }
+}
@@ -0,0 +1,161 @@
+package dev.ludium.wallpaperengine;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class ImageCacheTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private Path source(String name, String content) throws IOException {
+        Path file = folder.getRoot().toPath().resolve(name);
+        Files.write(file, content.getBytes("UTF-8"));
+        return file;
+    }
+
+    private static ImageCache.Producer bytes(int count) {
+        return target -> Files.write(target, new byte[count]);
+    }
+
+    @Test
+    public void producesEveryKeyOnce() throws Exception {
+        try (ImageCache cache = new ImageCache(folder.newFolder("cache").toPath(), 1000)) {
+            String key = cache.key(source("a.png", "a"), 200, 100, "jpg");
+            AtomicInteger produced = new AtomicInteger();
+            ImageCache.Producer producer = target -> {
+                produced.incrementAndGet();
+                Files.write(target, new byte[10]);
+            };
+            Path file = cache.get(key, producer);
+            assertEquals(file, cache.get(key, producer));
+            assertEquals(1, produced.get());
+            assertEquals(1, cache.getMisses());
+            assertEquals(1, cache.getHits());
+            assertEquals(10, cache.getSize());
+        }
+    }
+
+    @Test
+    public void keysDependOnTheContentNotTheName() throws Exception {
+        try (ImageCache cache = new ImageCache(folder.newFolder("cache").toPath(), 1000)) {
+            String key = cache.key(source("a.png", "same"), 200, 100, "jpg");
+            assertEquals(key, cache.key(source("b.png", "same"), 200, 100, "jpg"));
+            assertNotEquals(key, cache.key(source("c.png", "other"), 200, 100, "jpg"));
+            assertNotEquals(key, cache.key(source("a.png", "same"), 100, 100, "jpg"));
+            assertTrue(key.endsWith("-200x100.jpg"));
+        }
+    }
+
+    @Test
+    public void evictsTheLeastRecentlyUsedFiles() throws Exception {
+        try (ImageCache cache = new ImageCache(folder.newFolder("cache").toPath(), 250)) {
+            Path a = cache.get(cache.key(source("a.png", "a"), 1, 1, "jpg"), bytes(100));
+            Path b = cache.get(cache.key(source("b.png", "b"), 1, 1, "jpg"), bytes(100));
+            // a is used again, so b is the least recently used one
+            cache.get(cache.key(source("a.png", "a"), 1, 1, "jpg"), bytes(100));
+            Path c = cache.get(cache.key(source("c.png", "c"), 1, 1, "jpg"), bytes(100));
+            assertTrue(Files.exists(a));
+            assertFalse(Files.exists(b));
+            assertTrue(Files.exists(c));
+            assertEquals(1, cache.getEvictions());
+            assertEquals(200, cache.getSize());
+        }
+    }
+
+    @Test
+    public void restoresTheIndexAndDeletesStrayFiles() throws Exception {
+        Path directory = folder.newFolder("cache").toPath();
+        String key;
+        try (ImageCache cache = new ImageCache(directory, 1000)) {
+            key = cache.key(source("a.png", "a"), 1, 1, "jpg");
+            cache.get(key, bytes(100));
+        }
+        Files.write(directory.resolve("stray.tmp"), new byte[5]);
+        try (ImageCache cache = new ImageCache(directory, 1000)) {
+            assertEquals(1, cache.getEntries());
+            assertEquals(100, cache.getSize());
+            cache.get(key, target -> fail("produced again"));
+            assertFalse(Files.exists(directory.resolve("stray.tmp")));
+        }
+    }
+
+    @Test
+    public void ignoresADamagedIndex() throws Exception {
+        Path directory = folder.newFolder("cache").toPath();
+        try (ImageCache cache = new ImageCache(directory, 1000)) {
+            cache.get(cache.key(source("a.png", "a"), 1, 1, "jpg"), bytes(100));
+        }
+        Files.write(directory.resolve("index.json"), "{\"files\": [".getBytes("UTF-8"));
+        try (ImageCache cache = new ImageCache(directory, 1000)) {
+            // the file is taken over as produced after the last checkpoint
+            assertEquals(1, cache.getEntries());
+        }
+    }
+
+    @Test
+    public void keepsNothingOfAFailedProducer() throws Exception {
+        Path directory = folder.newFolder("cache").toPath();
+        try (ImageCache cache = new ImageCache(directory, 1000)) {
+            String key = cache.key(source("a.png", "a"), 1, 1, "jpg");
+            try {
+                cache.get(key, target -> {
+                    Files.write(target, new byte[10]);
+                    throw new IOException("broken picture");
+                });
+                fail();
+            } catch (IOException expected) {
+                assertEquals("broken picture", expected.getMessage());
+            }
+            assertEquals(0, cache.getEntries());
+            assertFalse(Files.exists(directory.resolve(key)));
+        }
+    }
+
+    @Test
+    public void concurrentRequestsForAKeyShareOneProducer() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try (ImageCache cache = new ImageCache(folder.newFolder("cache").toPath(), 1000)) {
+            String key = cache.key(source("a.png", "a"), 1, 1, "jpg");
+            AtomicInteger produced = new AtomicInteger();
+            CountDownLatch release = new CountDownLatch(1);
+            Future<?>[] futures = new Future<?>[4];
+            for (int k = 0; k < futures.length; k++) {
+                futures[k] = executor.submit(() -> cache.get(key, target -> {
+                    produced.incrementAndGet();
+                    try {
+                        release.await();
+                    } catch (InterruptedException e) {
+                        throw new IOException(e);
+                    }
+                    Files.write(target, new byte[10]);
+                }));
+            }
+            Thread.sleep(100);
+            release.countDown();
+            for (Future<?> future : futures) {
+                future.get(5, TimeUnit.SECONDS);
+            }
+            assertEquals(1, produced.get());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,141 @@
+package dev.ludium.wallpaperengine;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import javax.imageio.ImageIO;
+import java.awt.Dimension;
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.fail;
+
+public class ImageDecoderTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private Path picture(String name, int width, int height) throws IOException {
+        BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                image.setRGB(x, y, x < width / 2 ? 0xFF0000 : 0x0000FF);
+            }
+        }
+        Path file = folder.getRoot().toPath().resolve(name);
+        ImageIO.write(image, "png", file.toFile());
+        return file;
+    }
+
+    @Test
+    public void reservesThePictureUntilItIsClosed() throws Exception {
+        ImageDecoder decoder = new ImageDecoder(16L << 20);
+        Path file = picture("a.png", 512, 256);
+        try (ImageDecoder.Decoded decoded = decoder.decode(file)) {
+            assertEquals(512, decoded.getImage().getWidth());
+            assertEquals(512 * 256 * 4, decoder.getUsed());
+            decoded.close();
+            assertEquals(0, decoder.getUsed());
+        }
+        // closing twice releases the reservation once
+        assertEquals(0, decoder.getUsed());
+        assertEquals(512 * 256 * 4, decoder.getPeak());
+        assertEquals(1, decoder.getDecodes());
+    }
+
+    @Test
+    public void decodesEveryNthPixelOfLargePictures() throws Exception {
+        ImageDecoder decoder = new ImageDecoder(16L << 20);
+        Path file = picture("a.png", 1000, 400);
+        try (ImageDecoder.Decoded decoded = decoder.decode(file, 300, 100, false)) {
+            // every third pixel still covers the target
+            assertEquals(334, decoded.getImage().getWidth());
+            assertEquals(134, decoded.getImage().getHeight());
+            assertEquals(1000, decoded.getSourceWidth());
+            assertEquals(400, decoded.getSourceHeight());
+        }
+        try (ImageDecoder.Decoded decoded = decoder.decode(file, 100, 100, true)) {
+            // only the centered square, the left half red and the right half blue
+            BufferedImage image = decoded.getImage();
+            assertEquals(100, image.getWidth());
+            assertEquals(100, image.getHeight());
+            assertEquals(0xFF0000, image.getRGB(10, 50) & 0xFFFFFF);
+            assertEquals(0x0000FF, image.getRGB(90, 50) & 0xFFFFFF);
+        }
+        assertEquals(2, decoder.getSubsampled());
+        assertEquals(new Rectangle(300, 0, 400, 400), ImageDecoder.cover(1000, 400, 1, 1));
+        assertEquals(new Dimension(1000, 400), ImageDecoder.dimensions(file));
+    }
+
+    @Test(timeout = 20000)
+    public void waitsUntilThePictureFitsIntoTheBudget() throws Exception {
+        // one picture takes 1MB
+        ImageDecoder decoder = new ImageDecoder(3L << 19);
+        Path file = picture("a.png", 512, 512);
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            Future<?> second;
+            try (ImageDecoder.Decoded first = decoder.decode(file)) {
+                second = executor.submit(() -> {
+                    decoder.decode(file).close();
+                    return null;
+                });
+                try {
+                    second.get(200, TimeUnit.MILLISECONDS);
+                    fail("decoded beyond the budget");
+                } catch (TimeoutException expected) {
+                    assertFalse(second.isDone());
+                }
+            }
+            second.get(10, TimeUnit.SECONDS);
+            assertEquals(0, decoder.getUsed());
+            assertEquals(1L << 20, decoder.getPeak());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test(timeout = 20000)
+    public void decodesAPictureLargerThanTheBudgetAlone() throws Exception {
+        ImageDecoder decoder = new ImageDecoder(64L << 10);
+        try (ImageDecoder.Decoded decoded = decoder.decode(picture("a.png", 512, 512))) {
+            assertEquals(512, decoded.getImage().getWidth());
+            assertEquals(64L << 10, decoder.getUsed());
+        }
+        assertEquals(0, decoder.getUsed());
+    }
+
+    @Test
+    public void releasesTheReservationOfABrokenPicture() throws Exception {
+        ImageDecoder decoder = new ImageDecoder(16L << 20);
+        Path file = picture("a.png", 256, 256);
+        byte[] bytes = Files.readAllBytes(file);
+        // keeps the header, so the size is known and the reservation is made
+        Files.write(file, Arrays.copyOf(bytes, 100));
+        try {
+            decoder.decode(file).close();
+            fail("decoded a broken picture");
+        } catch (IOException expected) {
+            assertEquals(0, decoder.getUsed());
+        }
+        Files.write(folder.getRoot().toPath().resolve("notes.txt"), new byte[]{'a'});
+        try {
+            decoder.decode(folder.getRoot().toPath().resolve("notes.txt"));
+            fail("decoded a text file");
+        } catch (IOException expected) {
+            assertEquals(0, decoder.getUsed());
+        }
+    }
+}
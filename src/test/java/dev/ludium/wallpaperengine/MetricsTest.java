@@ -0,0 +1,76 @@
+package dev.ludium.wallpaperengine;
+
+import dev.einsjannis.jsonparser.JSONObject;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import javax.management.MBeanServer;
+import javax.management.MBeanServerFactory;
+import javax.management.ObjectName;
+import javax.management.ReflectionException;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class MetricsTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void snapshotsAllMetrics() {
+        Metrics metrics = new Metrics();
+        metrics.counter("switches").add(3);
+        AtomicLong failed = new AtomicLong(2);
+        metrics.counter("failed", failed::get).gauge("queue", () -> 7);
+        metrics.histogram("apply").record(1000);
+        failed.incrementAndGet();
+        Map<String, Object> snapshot = metrics.snapshot();
+        Map<String, Object> counters = (Map<String, Object>) snapshot.get("counters");
+        assertEquals(3L, counters.get("switches"));
+        assertEquals(3L, counters.get("failed"));
+        assertEquals(7L, ((Map<String, Object>) snapshot.get("gauges")).get("queue"));
+        assertEquals(1L, ((Map<String, Object>) ((Map<String, Object>) snapshot.get("histograms")).get("apply")).get("count"));
+    }
+
+    @Test
+    public void dumpsTheMetricsAsJson() throws Exception {
+        Metrics metrics = new Metrics();
+        metrics.counter("switches").increment();
+        Path file = folder.getRoot().toPath().resolve("metrics.json");
+        metrics.dump(file);
+        JSONObject dumped = JSONObject.fromFile(file);
+        assertEquals(1L, ((JSONObject) dumped.get("counters")).get("switches"));
+        assertTrue(dumped.get("time") instanceof Long);
+    }
+
+    @Test
+    public void publishesReadOnlyMBeans() throws Exception {
+        MBeanServer server = MBeanServerFactory.newMBeanServer();
+        ObjectName counters = new ObjectName("dev.ludium.wallpaperengine:type=Metrics");
+        ObjectName histogram = new ObjectName("dev.ludium.wallpaperengine:type=Histogram,name=\"apply\"");
+        try (Metrics metrics = new Metrics()) {
+            metrics.counter("switches").add(5);
+            metrics.registerMBeans(server);
+            // registered after the MBeans, published as well
+            metrics.histogram("apply").record(1000);
+            assertEquals(5L, server.getAttribute(counters, "switches"));
+            assertEquals(1L, server.getAttribute(histogram, "count"));
+            try {
+                server.invoke(counters, "reset", new Object[0], new String[0]);
+                fail();
+            } catch (ReflectionException expected) {
+                assertTrue(expected.getTargetException() instanceof NoSuchMethodException);
+            }
+        }
+        assertFalse(server.isRegistered(counters));
+        assertFalse(server.isRegistered(histogram));
+    }
+}
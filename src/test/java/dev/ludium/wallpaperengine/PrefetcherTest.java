@@ -0,0 +1,144 @@
+package dev.ludium.wallpaperengine;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class PrefetcherTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private ImageCache cache;
+    private Prefetcher prefetcher;
+    private final BlockingQueue<Path> applied = new LinkedBlockingQueue<>();
+
+    @Before
+    public void open() throws IOException {
+        cache = new ImageCache(folder.newFolder("cache").toPath(), 64L << 20);
+    }
+
+    @After
+    public void close() throws IOException {
+        if (prefetcher != null) {
+            prefetcher.shutdown();
+        }
+        cache.close();
+    }
+
+    private Picture picture(String name, int width, int height) throws IOException {
+        Path file = folder.getRoot().toPath().resolve(name);
+        BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                image.setRGB(x, y, x < width / 2 ? 0xFF0000 : 0x0000FF);
+            }
+        }
+        ImageIO.write(image, "png", file.toFile());
+        return new Picture(file.toString());
+    }
+
+    private static void await(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (!condition.getAsBoolean()) {
+            assertTrue("Timed out", System.nanoTime() < deadline);
+            Thread.sleep(5);
+        }
+    }
+
+    @Test
+    public void scalesLargePicturesIntoTheCache() throws Exception {
+        prefetcher = new Prefetcher(cache, 200, 100, 2, 1);
+        Picture large = picture("large.png", 800, 600);
+        prefetcher.prefetch(null, Collections.singletonList(large));
+        assertTrue(prefetcher.take(large, applied::add));
+        Path file = applied.poll(5, TimeUnit.SECONDS);
+        assertTrue(file.startsWith(folder.getRoot().toPath().resolve("cache")));
+        BufferedImage scaled = ImageIO.read(file.toFile());
+        // scaled to cover the target size, keeping the aspect ratio
+        assertEquals(200, scaled.getWidth());
+        assertEquals(150, scaled.getHeight());
+        assertEquals(1, prefetcher.getDecodeLatency().getCount());
+    }
+
+    @Test
+    public void cropsToTheTargetSize() throws Exception {
+        prefetcher = new Prefetcher(cache, 200, 100, 2, 1);
+        prefetcher.setCrop(true);
+        Picture large = picture("large.png", 800, 600);
+        assertTrue(prefetcher.take(large, applied::add));
+        BufferedImage cropped = ImageIO.read(applied.poll(5, TimeUnit.SECONDS).toFile());
+        assertEquals(200, cropped.getWidth());
+        assertEquals(100, cropped.getHeight());
+    }
+
+    @Test
+    public void handsOverSmallPicturesUnchanged() throws Exception {
+        prefetcher = new Prefetcher(cache, 200, 100, 2, 1);
+        Picture small = picture("small.png", 100, 50);
+        assertTrue(prefetcher.take(small, applied::add));
+        assertEquals(small.getPath(), applied.poll(5, TimeUnit.SECONDS).toString());
+        assertEquals(0, prefetcher.getDecodeLatency().getCount());
+    }
+
+    @Test
+    public void decodesAPictureOnlyOncePerSize() throws Exception {
+        Picture large = picture("large.png", 800, 600);
+        prefetcher = new Prefetcher(cache, 200, 100, 2, 1);
+        prefetcher.take(large, applied::add);
+        Path first = applied.poll(5, TimeUnit.SECONDS);
+        prefetcher.shutdown();
+        // a new prefetcher finds the picture in the cache
+        prefetcher = new Prefetcher(cache, 200, 100, 2, 1);
+        prefetcher.take(large, applied::add);
+        assertEquals(first, applied.poll(5, TimeUnit.SECONDS));
+        assertEquals(0, prefetcher.getDecodeLatency().getCount());
+        assertEquals(1, cache.getHits());
+    }
+
+    @Test
+    public void reportsBrokenPictures() throws Exception {
+        prefetcher = new Prefetcher(cache, 200, 100, 2, 1);
+        Picture missing = new Picture(folder.getRoot().toPath().resolve("missing.png").toString());
+        Path corrupt = folder.newFile("corrupt.png").toPath();
+        Files.write(corrupt, new byte[]{1, 2, 3});
+        Picture broken = new Picture(corrupt.toString());
+        prefetcher.prefetch(null, Arrays.asList(missing, broken));
+        await(() -> prefetcher.isBroken(missing) && prefetcher.isBroken(broken));
+        assertEquals(2, prefetcher.getBroken());
+        assertFalse(prefetcher.take(missing, applied::add));
+    }
+
+    @Test
+    public void neverHandsOverALatePictureAfterANewerOne() throws Exception {
+        prefetcher = new Prefetcher(cache, 200, 100, 2, 1);
+        Picture large = picture("large.png", 2400, 1800);
+        Picture small = picture("small.png", 100, 50);
+        // the single worker scales the large picture first, it is done after the small one was taken
+        prefetcher.take(large, applied::add);
+        prefetcher.take(small, applied::add);
+        assertEquals(small.getPath(), applied.poll(5, TimeUnit.SECONDS).toString());
+        assertNull(applied.poll(100, TimeUnit.MILLISECONDS));
+        assertEquals(1, prefetcher.getDecodeLatency().getCount());
+        assertEquals(2, prefetcher.getLate());
+    }
+}
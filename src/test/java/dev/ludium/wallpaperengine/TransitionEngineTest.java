@@ -0,0 +1,132 @@
+package dev.ludium.wallpaperengine;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class TransitionEngineTest {
+
+    private final ForkJoinPool pool = new ForkJoinPool(3);
+    private final TransitionEngine engine = new TransitionEngine(pool);
+
+    @After
+    public void shutdown() {
+        pool.shutdown();
+    }
+
+    private static BufferedImage filled(int width, int height, int rgb) {
+        BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                image.setRGB(x, y, rgb);
+            }
+        }
+        return image;
+    }
+
+    private static void assertColor(int expected, int actual) {
+        for (int shift = 0; shift < 24; shift += 8) {
+            int difference = Math.abs((expected >> shift & 0xFF) - (actual >> shift & 0xFF));
+            assertTrue(String.format("expected %06x but was %06x", expected, actual & 0xFFFFFF), difference <= 1);
+        }
+    }
+
+    @Test
+    public void blendsEveryPixel() {
+        engine.prepare(filled(64, 37, 0x000000), filled(64, 37, 0xFF8040));
+        BufferedImage middle = engine.frame(1, 1);
+        assertEquals(64, middle.getWidth());
+        assertEquals(37, middle.getHeight());
+        for (int y = 0; y < 37; y++) {
+            for (int x = 0; x < 64; x++) {
+                assertColor(0x804020, middle.getRGB(x, y));
+            }
+        }
+        engine.prepare(filled(64, 37, 0xFFFFFF), filled(64, 37, 0x000000));
+        assertColor(0xBFBFBF, engine.frame(1, 3).getRGB(10, 10));
+        assertColor(0x404040, engine.frame(3, 3).getRGB(63, 36));
+    }
+
+    @Test
+    public void scalesTheOldPictureToTheNewSize() {
+        engine.prepare(filled(10, 10, 0xFF0000), filled(200, 100, 0x0000FF));
+        BufferedImage frame = engine.frame(1, 1);
+        assertEquals(200, frame.getWidth());
+        assertEquals(100, frame.getHeight());
+        assertColor(0x800080, frame.getRGB(100, 50));
+    }
+
+    @Test
+    public void fitsTheFramesIntoTheMaximumSize() {
+        engine.prepare(filled(10, 10, 0xFF0000), filled(4000, 1000, 0x0000FF), 1920, 1080);
+        BufferedImage frame = engine.frame(1, 1);
+        assertEquals(1920, frame.getWidth());
+        assertEquals(480, frame.getHeight());
+        engine.prepare(filled(10, 10, 0xFF0000), filled(400, 100, 0x0000FF), 1920, 1080);
+        assertEquals(400, engine.frame(1, 1).getWidth());
+    }
+
+    @Test
+    public void reusesTwoFramesPerSize() {
+        engine.prepare(filled(32, 32, 0), filled(32, 32, 0xFFFFFF));
+        BufferedImage first = engine.frame(1, 4);
+        BufferedImage second = engine.frame(2, 4);
+        assertNotSame(first, second);
+        assertSame(first, engine.frame(3, 4));
+        engine.prepare(filled(32, 32, 0), filled(32, 32, 0));
+        assertSame(second, engine.frame(2, 4));
+    }
+
+    @Test
+    public void startsTheNextTransitionFromTheLastPicture() {
+        assertFalse(engine.next(filled(64, 32, 0xFF0000), 0, 0));
+        BufferedImage blue = filled(64, 32, 0x0000FF);
+        assertTrue(engine.next(blue, 0, 0));
+        // the picture was copied and can be reused
+        blue.setRGB(0, 0, 0x00FF00);
+        assertColor(0x800080, engine.frame(1, 1).getRGB(0, 0));
+        assertTrue(engine.next(filled(128, 64, 0xFFFFFF), 0, 0));
+        BufferedImage frame = engine.frame(1, 1);
+        assertEquals(128, frame.getWidth());
+        assertColor(0x8080FF, frame.getRGB(100, 50));
+        engine.clear();
+        assertFalse(engine.next(filled(128, 64, 0), 0, 0));
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void needsAPreparedTransition() {
+        engine.frame(1, 1);
+    }
+
+    @Test
+    public void playsTheFramesAtTheirRate() throws Exception {
+        List<Long> times = new ArrayList<>();
+        long start = System.nanoTime();
+        int played = engine.play(filled(16, 16, 0), filled(16, 16, 0xFFFFFF), 10, 50, frame -> times.add(System.nanoTime()),
+                () -> false);
+        assertEquals(10, played);
+        assertEquals(10, times.size());
+        // ten frames at 50 fps take 200ms
+        assertTrue(times.get(9) - start >= TimeUnit.MILLISECONDS.toNanos(195));
+    }
+
+    @Test
+    public void stopsWhenCancelled() throws Exception {
+        List<Integer> colors = new ArrayList<>();
+        int played = engine.play(filled(16, 16, 0), filled(16, 16, 0xFFFFFF), 10, 1000, frame -> colors.add(frame.getRGB(0, 0)),
+                () -> colors.size() == 3);
+        assertEquals(3, played);
+        assertTrue((colors.get(0) & 0xFF) < (colors.get(2) & 0xFF));
+    }
+}
@@ -0,0 +1,196 @@
+package dev.ludium.wallpaperengine;
+
+import dev.ludium.wallpaperengine.backend.RecordingBackend;
+import org.junit.After;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class WallpaperApplierTest {
+
+    private static final Path FIRST = Paths.get("first.jpg");
+    private static final Path SECOND = Paths.get("second.jpg");
+    private static final Path THIRD = Paths.get("third.jpg");
+    private static final Path FOURTH = Paths.get("fourth.jpg");
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private WallpaperApplier applier;
+
+    @After
+    public void shutdown() throws InterruptedException {
+        if (applier != null) {
+            applier.shutdown();
+            applier.awaitTermination(5, TimeUnit.SECONDS);
+        }
+    }
+
+    private static void await(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (!condition.getAsBoolean()) {
+            assertTrue("Timed out", System.nanoTime() < deadline);
+            Thread.sleep(5);
+        }
+    }
+
+    private Path picture(String name, int width, int height, int rgb) throws IOException {
+        BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                image.setRGB(x, y, rgb);
+            }
+        }
+        Path file = folder.getRoot().toPath().resolve(name);
+        ImageIO.write(image, "png", file.toFile());
+        return file;
+    }
+
+    @Test
+    public void appliesOnlyTheNewestWaitingPicture() throws Exception {
+        CountDownLatch applying = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        RecordingBackend backend = new RecordingBackend() {
+            @Override
+            public void apply(Path picture) {
+                applying.countDown();
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                super.apply(picture);
+            }
+        };
+        applier = new WallpaperApplier(backend);
+        applier.submit(FIRST);
+        assertTrue(applying.await(5, TimeUnit.SECONDS));
+        // the backend is busy with the first picture, the others wait in the slot
+        applier.submit(SECOND);
+        applier.submit(THIRD);
+        applier.submit(FOURTH);
+        release.countDown();
+        await(() -> backend.getApplied().size() == 2);
+        Thread.sleep(50);
+        assertEquals(Arrays.asList(FIRST, FOURTH), backend.getApplied());
+        assertEquals(FOURTH, applier.getApplied());
+        assertEquals(2, applier.getCoalesced());
+        assertEquals(2, applier.getApplyLatency().getCount());
+    }
+
+    @Test
+    public void submitNeverWaitsForTheBackend() throws Exception {
+        RecordingBackend backend = new RecordingBackend().setLatency(200, TimeUnit.MILLISECONDS);
+        applier = new WallpaperApplier(backend);
+        long start = System.nanoTime();
+        for (int k = 0; k < 100; k++) {
+            applier.submit(Paths.get(k + ".jpg"));
+        }
+        assertTrue(System.nanoTime() - start < TimeUnit.MILLISECONDS.toNanos(100));
+        await(() -> Paths.get("99.jpg").equals(applier.getApplied()));
+        assertTrue(backend.getApplied().size() < 100);
+        assertEquals(100, backend.getApplied().size() + applier.getCoalesced());
+    }
+
+    @Test
+    public void keepsApplyingAfterAFailure() throws Exception {
+        RecordingBackend backend = new RecordingBackend() {
+            @Override
+            public void apply(Path picture) {
+                if (picture.equals(FIRST)) {
+                    throw new IllegalStateException("broken backend");
+                }
+                super.apply(picture);
+            }
+        };
+        applier = new WallpaperApplier(backend);
+        applier.submit(FIRST);
+        await(() -> applier.getFailed() == 1);
+        applier.submit(SECOND);
+        await(() -> SECOND.equals(applier.getApplied()));
+        assertEquals(Arrays.asList(SECOND), backend.getApplied());
+    }
+
+    @Test
+    public void limitsTheTransitionsOfBackendsWitchOnlyTakeFiles() throws Exception {
+        List<BufferedImage> frames = new ArrayList<>();
+        List<Path> applied = new ArrayList<>();
+        RecordingBackend backend = new RecordingBackend() {
+            @Override
+            public boolean acceptsFrames() {
+                return false;
+            }
+
+            @Override
+            public synchronized void apply(Path picture) {
+                applied.add(picture);
+            }
+
+            @Override
+            public synchronized void applyFrame(Path frame) throws IOException {
+                frames.add(ImageIO.read(frame.toFile()));
+            }
+        };
+        Path first = picture("first.png", 4000, 2000, 0x000000);
+        Path second = picture("second.png", 4000, 2000, 0xFFFFFF);
+        applier = new WallpaperApplier(backend);
+        applier.setTransition(30, 1000, folder.newFolder("frames").toPath());
+        applier.submit(first);
+        await(() -> first.equals(applier.getApplied()));
+        applier.submit(second);
+        await(() -> second.equals(applier.getApplied()));
+        synchronized (backend) {
+            // the frames are not applied like pictures
+            assertEquals(Arrays.asList(first, second), applied);
+            assertEquals(4, frames.size());
+            for (BufferedImage frame : frames) {
+                assertEquals(1920, frame.getWidth());
+                assertEquals(960, frame.getHeight());
+            }
+        }
+    }
+
+    @Test(timeout = 20000)
+    public void decodesTheNextPictureAfterReleasingTheShownOne() throws Exception {
+        ImageDecoder shared = ImageDecoder.getShared();
+        // one 1000x1000 picture takes 4MB, two don't fit
+        ImageDecoder decoder = new ImageDecoder(6L << 20);
+        ImageDecoder.setShared(decoder);
+        try {
+            RecordingBackend backend = new RecordingBackend();
+            Path first = picture("first.png", 1000, 1000, 0x000000);
+            Path second = picture("second.png", 1000, 1000, 0xFFFFFF);
+            Path third = picture("third.png", 500, 500, 0x000000);
+            applier = new WallpaperApplier(backend);
+            applier.setTransition(3, 100, folder.newFolder("frames").toPath());
+            applier.submit(first);
+            await(() -> first.equals(applier.getApplied()));
+            // nothing is reserved between two switches
+            assertEquals(0, decoder.getUsed());
+            applier.submit(second);
+            await(() -> second.equals(applier.getApplied()));
+            applier.submit(third);
+            await(() -> third.equals(applier.getApplied()));
+            assertEquals(0, decoder.getUsed());
+            assertEquals(2, applier.getTransitions());
+            assertEquals(6, backend.getFrameTimes().size());
+        } finally {
+            ImageDecoder.setShared(shared);
+        }
+    }
+}
@@ -0,0 +1,144 @@
+package dev.ludium.wallpaperengine;
+
+import dev.ludium.wallpaperengine.playlist.ListPlaylist;
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class WallpaperSchedulerTest {
+
+    private static final Picture A = new Picture("a.jpg");
+    private static final Picture B = new Picture("b.jpg");
+    private static final Picture C = new Picture("c.jpg");
+
+    private final BlockingQueue<Picture> shown = new LinkedBlockingQueue<>();
+    private WallpaperScheduler scheduler;
+
+    @After
+    public void shutdown() throws InterruptedException {
+        if (scheduler != null) {
+            scheduler.shutdown();
+            scheduler.awaitTermination(5, TimeUnit.SECONDS);
+        }
+    }
+
+    private static ListPlaylist playlist(Picture... pictures) {
+        return new ListPlaylist(Arrays.asList(pictures));
+    }
+
+    private Picture next() throws InterruptedException {
+        return shown.poll(5, TimeUnit.SECONDS);
+    }
+
+    private List<Picture> next(int count) throws InterruptedException {
+        List<Picture> pictures = new ArrayList<>();
+        for (int k = 0; k < count; k++) {
+            pictures.add(next());
+        }
+        return pictures;
+    }
+
+    @Test
+    public void switchesInOrderAndStartsAgain() throws Exception {
+        scheduler = new WallpaperScheduler(playlist(A, B, C), 20, shown::add);
+        scheduler.start();
+        assertEquals(Arrays.asList(A, B, C, A, B), next(5));
+        assertTrue(scheduler.getDrift().getCount() >= 5);
+    }
+
+    @Test
+    public void keepsTheDeadlinesOfPicturesWithTheirOwnDelay() throws Exception {
+        Picture slow = new Picture("slow.jpg", 300);
+        scheduler = new WallpaperScheduler(playlist(slow, A), 20, shown::add);
+        long start = System.nanoTime();
+        scheduler.start();
+        assertEquals(slow, next());
+        assertEquals(A, next());
+        long elapsed = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        assertTrue("switched after " + elapsed + "ms", elapsed >= 290);
+        assertEquals(slow, next());
+    }
+
+    @Test
+    public void skipsAndGoesBack() throws Exception {
+        scheduler = new WallpaperScheduler(playlist(A, B, C), 60000, shown::add);
+        scheduler.start();
+        assertEquals(A, next());
+        scheduler.skip();
+        assertEquals(B, next());
+        scheduler.skip();
+        assertEquals(C, next());
+        scheduler.back();
+        assertEquals(B, next());
+        scheduler.back();
+        assertEquals(A, next());
+        scheduler.back();
+        assertEquals(C, next());
+    }
+
+    @Test
+    public void pausesWithTheRestOfTheDelay() throws Exception {
+        scheduler = new WallpaperScheduler(playlist(A, B), 200, shown::add);
+        scheduler.start();
+        assertEquals(A, next());
+        scheduler.pause();
+        assertNull(shown.poll(400, TimeUnit.MILLISECONDS));
+        assertTrue(scheduler.isPaused());
+        // skipping while paused shows the next picture but stays paused
+        scheduler.skip();
+        assertEquals(B, next());
+        assertNull(shown.poll(400, TimeUnit.MILLISECONDS));
+        scheduler.resume();
+        assertEquals(A, next());
+        assertFalse(scheduler.isPaused());
+    }
+
+    @Test
+    public void continuesAfterTheCurrentPictureInANewPlaylist() throws Exception {
+        scheduler = new WallpaperScheduler(playlist(A, B), 60000, shown::add);
+        scheduler.start();
+        assertEquals(A, next());
+        scheduler.setPlaylist(playlist(C, A, B));
+        scheduler.skip();
+        assertEquals(B, next());
+        scheduler.skip();
+        assertEquals(C, next());
+    }
+
+    @Test
+    public void skipsFilteredPictures() throws Exception {
+        scheduler = new WallpaperScheduler(playlist(A, B, C), 20, shown::add);
+        scheduler.setFilter(picture -> picture != B);
+        scheduler.start();
+        assertEquals(Arrays.asList(A, C, A, C), next(4));
+        assertTrue(scheduler.getFiltered() >= 2);
+    }
+
+    @Test
+    public void keepsSwitchingAfterAFailingAction() throws Exception {
+        scheduler = new WallpaperScheduler(playlist(A, B), 20, picture -> {
+            shown.add(picture);
+            if (picture == A) {
+                throw new IllegalStateException("broken backend");
+            }
+        });
+        scheduler.start();
+        assertEquals(Arrays.asList(A, B, A), next(3));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsNonPositiveDelays() {
+        new WallpaperScheduler(playlist(A), 0, shown::add);
+    }
+}
@@ -0,0 +1,69 @@
+package dev.ludium.wallpaperengine.dedup;
+
+import dev.ludium.wallpaperengine.Picture;
+import dev.ludium.wallpaperengine.playlist.ListPlaylist;
+import dev.ludium.wallpaperengine.playlist.Playlist;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import javax.imageio.ImageIO;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class DuplicateFinderTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private Picture picture(String name, int width, int height, long seed) throws IOException {
+        Path file = folder.getRoot().toPath().resolve(name);
+        ImageIO.write(PerceptualHashTest.drawing(width, height, seed), "png", file.toFile());
+        return new Picture(file.toString());
+    }
+
+    @Test
+    public void keepsTheLargestPictureOfEveryGroup() throws Exception {
+        Picture large = picture("large.png", 1200, 800, 1);
+        Picture small = picture("small.png", 300, 200, 1);
+        Picture medium = picture("medium.png", 600, 400, 1);
+        Picture other = picture("other.png", 1200, 800, 2);
+        Picture missing = new Picture(folder.getRoot().toPath().resolve("missing.png").toString());
+        Playlist playlist = new ListPlaylist(Arrays.asList(small, large, other, medium, missing, small));
+        try (DuplicateFinder finder = new DuplicateFinder(folder.getRoot().toPath().resolve("hashes.bin"), 8, 2)) {
+            finder.search(playlist);
+            assertEquals(2, finder.getDuplicates());
+            assertTrue(finder.isDuplicate(small));
+            assertTrue(finder.isDuplicate(medium));
+            assertFalse(finder.isDuplicate(large));
+            assertFalse(finder.isDuplicate(other));
+            assertFalse(finder.isDuplicate(missing));
+            assertEquals(4, finder.getHashed());
+            assertEquals(1, finder.getFailed());
+        }
+    }
+
+    @Test
+    public void hashesOnlyChangedPicturesAgain() throws Exception {
+        Path indexFile = folder.getRoot().toPath().resolve("hashes.bin");
+        Picture a = picture("a.png", 400, 300, 1);
+        Picture b = picture("b.png", 400, 300, 2);
+        Playlist playlist = new ListPlaylist(Arrays.asList(a, b));
+        try (DuplicateFinder finder = new DuplicateFinder(indexFile, 8, 1)) {
+            finder.search(playlist);
+            assertEquals(2, finder.getHashed());
+        }
+        picture("b.png", 200, 150, 1);
+        try (DuplicateFinder finder = new DuplicateFinder(indexFile, 8, 1)) {
+            finder.search(playlist);
+            assertEquals(1, finder.getHashed());
+            // b is now a smaller copy of a
+            assertTrue(finder.isDuplicate(b));
+        }
+    }
+}
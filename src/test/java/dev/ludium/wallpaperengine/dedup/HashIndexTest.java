@@ -0,0 +1,45 @@
+package dev.ludium.wallpaperengine.dedup;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+public class HashIndexTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void savesAndLoadsTheEntries() throws Exception {
+        Path file = folder.getRoot().toPath().resolve("index").resolve("hashes.bin");
+        HashIndex index = new HashIndex(file);
+        String a = folder.getRoot().toPath().resolve("pictures").resolve("a.png").toString();
+        String b = folder.getRoot().toPath().resolve("pictures").resolve("b.png").toString();
+        index.put(a, new HashIndex.Entry(100, 5, 1920, 1080, -1L, 0x123456789L));
+        index.put(b, new HashIndex.Entry(200, 6, 640, 480, 42, Long.MIN_VALUE));
+        index.save();
+        HashIndex loaded = new HashIndex(file);
+        assertEquals(2, loaded.size());
+        HashIndex.Entry entry = loaded.get(a, 100, 5);
+        assertNotNull(entry);
+        assertEquals(1920, entry.getWidth());
+        assertEquals(-1L, entry.getDHash());
+        assertEquals(0x123456789L, entry.getPHash());
+        assertEquals(Long.MIN_VALUE, loaded.get(b, 200, 6).getPHash());
+        // a changed file has no entry
+        assertNull(loaded.get(a, 100, 6));
+        loaded.retain(Arrays.asList(b));
+        loaded.save();
+        assertEquals(1, new HashIndex(file).size());
+        Files.write(file, new byte[]{1, 2, 3});
+        assertEquals(0, new HashIndex(file).size());
+    }
+}
@@ -0,0 +1,47 @@
+package dev.ludium.wallpaperengine.dedup;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+
+public class MultiIndexTest {
+
+    @Test
+    public void findsTheSameHashesAsComparingAll() {
+        Random random = new Random(5);
+        long[] hashes = new long[2000];
+        for (int k = 0; k < hashes.length; k++) {
+            // every other hash is a copy of an earlier one with a few bits flipped
+            hashes[k] = k % 2 == 0 ? random.nextLong() : hashes[k - 1] ^ flips(random, random.nextInt(12));
+        }
+        MultiIndex index = new MultiIndex(hashes);
+        assertEquals(hashes.length, index.size());
+        for (int distance : new int[]{0, 3, 8, 11}) {
+            for (int query = 0; query < hashes.length; query += 37) {
+                List<Integer> expected = new ArrayList<>();
+                for (int k = 0; k < hashes.length; k++) {
+                    if (PerceptualHash.distance(hashes[k], hashes[query]) <= distance) {
+                        expected.add(k);
+                    }
+                }
+                List<Integer> found = new ArrayList<>();
+                index.search(hashes[query], distance, found::add);
+                Collections.sort(found);
+                assertEquals(expected, found);
+            }
+        }
+    }
+
+    private static long flips(Random random, int count) {
+        long mask = 0;
+        while (Long.bitCount(mask) < count) {
+            mask |= 1L << random.nextInt(64);
+        }
+        return mask;
+    }
+}
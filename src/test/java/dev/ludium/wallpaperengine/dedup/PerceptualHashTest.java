@@ -0,0 +1,83 @@
+package dev.ludium.wallpaperengine.dedup;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import javax.imageio.ImageIO;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class PerceptualHashTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    /**
+     * Draws the same random rectangles for a seed at every size.
+     */
+    static BufferedImage drawing(int width, int height, long seed) {
+        BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        Graphics2D graphics = image.createGraphics();
+        Random random = new Random(seed);
+        graphics.setColor(new Color(random.nextInt(0x1000000)));
+        graphics.fillRect(0, 0, width, height);
+        for (int k = 0; k < 12; k++) {
+            graphics.setColor(new Color(random.nextInt(0x1000000)));
+            double x = random.nextDouble();
+            double y = random.nextDouble();
+            graphics.fillRect((int) (x * width), (int) (y * height),
+                    (int) ((1 - x) * random.nextDouble() * width) + 1, (int) ((1 - y) * random.nextDouble() * height) + 1);
+        }
+        graphics.dispose();
+        return image;
+    }
+
+    @Test
+    public void resizedPicturesHaveNearlyTheSameHashes() {
+        BufferedImage large = drawing(1600, 900, 1);
+        BufferedImage small = drawing(400, 225, 1);
+        BufferedImage other = drawing(1600, 900, 2);
+        assertTrue(PerceptualHash.distance(PerceptualHash.pHash(large), PerceptualHash.pHash(small)) <= 4);
+        assertTrue(PerceptualHash.distance(PerceptualHash.dHash(large), PerceptualHash.dHash(small)) <= 8);
+        assertTrue(PerceptualHash.distance(PerceptualHash.pHash(large), PerceptualHash.pHash(other)) > 16);
+    }
+
+    @Test
+    public void halfOfThePHashBitsAreSet() {
+        for (long seed = 0; seed < 20; seed++) {
+            int bits = Long.bitCount(PerceptualHash.pHash(drawing(320, 240, seed)));
+            // the median of the 63 coefficients leaves 31 of them above it, the first may be above as well
+            assertTrue(bits == 31 || bits == 32);
+        }
+    }
+
+    @Test
+    public void averagesTheBrightnessOfEveryCell() {
+        BufferedImage image = new BufferedImage(4, 2, BufferedImage.TYPE_INT_RGB);
+        image.setRGB(0, 0, 0xFFFFFF);
+        image.setRGB(1, 0, 0xFFFFFF);
+        double[] gray = PerceptualHash.gray(image, 2, 1);
+        assertEquals(127.5, gray[0], 0.01);
+        assertEquals(0, gray[1], 0.01);
+    }
+
+    @Test
+    public void hashesAPictureFile() throws Exception {
+        Path file = folder.getRoot().toPath().resolve("a.png");
+        BufferedImage image = drawing(1200, 800, 3);
+        ImageIO.write(image, "png", file.toFile());
+        HashIndex.Entry entry = PerceptualHash.hash(file, Files.size(file), 7);
+        assertEquals(1200, entry.getWidth());
+        assertEquals(800, entry.getHeight());
+        assertEquals(7, entry.getModified());
+        assertTrue(PerceptualHash.distance(PerceptualHash.pHash(image), entry.getPHash()) <= 4);
+    }
+}
@@ -0,0 +1,129 @@
+package dev.ludium.wallpaperengine.playlist;
+
+import dev.einsjannis.jsonparser.JSONObject;
+import dev.ludium.wallpaperengine.Picture;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class DirectoryPlaylistTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private Path file(String relative) throws IOException {
+        Path file = folder.getRoot().toPath().resolve("pictures").resolve(relative);
+        Files.createDirectories(file.getParent());
+        return Files.write(file, new byte[1]);
+    }
+
+    private static Set<String> names(Playlist playlist) {
+        Set<String> names = new HashSet<>();
+        for (int k = 0; k < playlist.size(); k++) {
+            names.add(playlist.get(k).getPath().replace('\\', '/').replaceAll(".*/pictures/", ""));
+        }
+        return names;
+    }
+
+    private static Set<String> set(String... names) {
+        Set<String> set = new HashSet<>();
+        for (String name : names) {
+            set.add(name);
+        }
+        return set;
+    }
+
+    private static void await(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (!condition.getAsBoolean()) {
+            assertTrue("Timed out", System.nanoTime() < deadline);
+            Thread.sleep(20);
+        }
+    }
+
+    @Test
+    public void listsTheMatchingPictures() throws Exception {
+        file("a.jpg");
+        file("B.PNG");
+        file("notes.txt");
+        file("sub/c.jpg");
+        Path root = folder.getRoot().toPath().resolve("pictures");
+        try (DirectoryPlaylist flat = new DirectoryPlaylist(root, null, false, 0, null);
+             DirectoryPlaylist recursive = new DirectoryPlaylist(root, "*.jpg", true, 30000, null);
+             DirectoryPlaylist relative = new DirectoryPlaylist(root, "sub/*", true, 0, null)) {
+            assertEquals(set("a.jpg", "B.PNG"), names(flat));
+            assertEquals(set("a.jpg", "sub/c.jpg"), names(recursive));
+            assertEquals(30000, recursive.get(0).getDelay());
+            assertEquals(set("sub/c.jpg"), names(relative));
+        }
+    }
+
+    @Test
+    public void followsCreatedAndDeletedFiles() throws Exception {
+        file("a.jpg");
+        Path root = folder.getRoot().toPath().resolve("pictures");
+        try (DirectoryPlaylist playlist = new DirectoryPlaylist(root, null, true, 0, null)) {
+            Path b = file("b.jpg");
+            file("sub/c.jpg");
+            await(() -> playlist.size() == 3);
+            assertEquals(set("a.jpg", "b.jpg", "sub/c.jpg"), names(playlist));
+            Files.delete(b);
+            await(() -> playlist.size() == 2);
+            assertEquals(set("a.jpg", "sub/c.jpg"), names(playlist));
+            // positions are taken modulo the size
+            assertEquals(playlist.get(0), playlist.get(2));
+        }
+    }
+
+    @Test
+    public void startsFromTheSavedIndex() throws Exception {
+        file("a.jpg");
+        file("b.jpg");
+        Path root = folder.getRoot().toPath().resolve("pictures");
+        Path cache = folder.newFolder("cache").toPath();
+        new DirectoryPlaylist(root, null, false, 0, cache).close();
+        Files.delete(root.resolve("b.jpg"));
+        try (DirectoryPlaylist playlist = new DirectoryPlaylist(root, null, false, 0, cache)) {
+            // the saved index is used until the rescan in the background is done
+            await(() -> playlist.size() == 1);
+            assertEquals(set("a.jpg"), names(playlist));
+        }
+    }
+
+    @Test
+    public void buildsThePlaylistOfAConfig() throws Exception {
+        file("a.jpg");
+        file("b.jpg");
+        String root = folder.getRoot().toPath().resolve("pictures").toString().replace("\\", "\\\\");
+        JSONObject config = JSONObject.fromString("{\"pictures\": [\"first.jpg\", {\"path\": \"second.jpg\", \"delay\": 5},"
+                + " {\"directory\": \"" + root + "\"}, \"last.jpg\"]}");
+        Playlist playlist = Playlists.fromConfig(config, null);
+        try {
+            assertEquals(5, playlist.size());
+            assertEquals(new Picture("first.jpg"), playlist.get(0));
+            assertEquals(new Picture("second.jpg", 5), playlist.get(1));
+            assertEquals(new Picture("last.jpg"), playlist.get(4));
+            // an unchanged directory is used again
+            Playlist reloaded = Playlists.fromConfig(config, null, playlist);
+            assertSame(((CompositePlaylist) playlist).getParts().get(1), ((CompositePlaylist) reloaded).getParts().get(1));
+            Playlists.release(playlist, reloaded);
+            playlist = reloaded;
+            JSONObject shuffled = JSONObject.fromString("{\"shuffle\": true, \"pictures\": [\"a.jpg\", \"b.jpg\"]}");
+            assertTrue(Playlists.fromConfig(shuffled, null) instanceof ShuffledPlaylist);
+        } finally {
+            playlist.close();
+        }
+    }
+}
@@ -0,0 +1,104 @@
+package dev.ludium.wallpaperengine.playlist;
+
+import dev.ludium.wallpaperengine.Picture;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class ShuffledPlaylistTest {
+
+    private static List<Picture> pictures(int count) {
+        List<Picture> pictures = new ArrayList<>();
+        for (int k = 0; k < count; k++) {
+            pictures.add(new Picture(k + ".jpg"));
+        }
+        return pictures;
+    }
+
+    private static List<Picture> cycle(Playlist playlist) {
+        List<Picture> cycle = new ArrayList<>();
+        for (int k = 0; k < playlist.size(); k++) {
+            cycle.add(playlist.get(k));
+        }
+        return cycle;
+    }
+
+    @Test
+    public void permutesEverySize() {
+        for (int size = 1; size <= 300; size++) {
+            Set<Integer> seen = new HashSet<>();
+            for (int index = 0; index < size; index++) {
+                int permuted = ShuffledPlaylist.permute(index, size, 42L * size);
+                assertTrue(permuted >= 0 && permuted < size);
+                seen.add(permuted);
+            }
+            assertEquals(size, seen.size());
+        }
+    }
+
+    @Test
+    public void rejectsPositionsOutOfRange() {
+        int[][] cases = {{50, 3}, {5, 3}, {3, 3}, {-1, 3}, {0, 0}};
+        for (int[] range : cases) {
+            try {
+                ShuffledPlaylist.permute(range[0], range[1], 7);
+                fail("permuted " + range[0] + " of " + range[1]);
+            } catch (IndexOutOfBoundsException expected) {
+                // expected
+            }
+        }
+    }
+
+    @Test
+    public void takesPositionsModuloTheSize() {
+        ShuffledPlaylist playlist = new ShuffledPlaylist(new ListPlaylist(pictures(3)), 1);
+        List<Picture> cycle = cycle(playlist);
+        assertEquals(cycle.get(2), playlist.get(50));
+        assertEquals(cycle.get(2), playlist.get(5));
+        assertEquals(cycle.get(2), playlist.get(-1));
+    }
+
+    @Test
+    public void followsAShrinkingPlaylist() {
+        List<Picture> pictures = pictures(5);
+        ShuffledPlaylist playlist = new ShuffledPlaylist(new Playlist() {
+            @Override
+            public int size() {
+                return pictures.size();
+            }
+
+            @Override
+            public Picture get(int index) {
+                return pictures.get(index);
+            }
+        }, 1);
+        pictures.subList(3, 5).clear();
+        // the scheduler still uses the positions of the larger playlist
+        for (int index = 0; index < 5; index++) {
+            assertTrue(pictures.contains(playlist.get(index)));
+        }
+    }
+
+    @Test
+    public void playsEveryPictureOncePerCycleInANewOrder() {
+        List<Picture> pictures = pictures(100);
+        ShuffledPlaylist playlist = new ShuffledPlaylist(new ListPlaylist(pictures), 1);
+        List<Picture> first = cycle(playlist);
+        assertEquals(new HashSet<>(pictures), new HashSet<>(first));
+        assertNotEquals(pictures, first);
+        playlist.rewind();
+        List<Picture> second = cycle(playlist);
+        assertEquals(new HashSet<>(pictures), new HashSet<>(second));
+        assertNotEquals(first, second);
+        // the same seed plays the same orders
+        assertEquals(first, cycle(new ShuffledPlaylist(new ListPlaylist(pictures), 1)));
+    }
+}